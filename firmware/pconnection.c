@@ -289,11 +289,23 @@ static void send_AxoResult(char cmd_byte, uint8_t status) {
 }
 
 
+static void send_AxoSeqAck(uint32_t seq, char target, uint8_t status) {
+    /* Acknowledge one sequenced chunk: AxoQ<uint32 seq><target><status>
+       The Patcher keeps several chunks in flight and matches acks by sequence number. */
+    char ack_msg[10];
+    ack_msg[0] = 'A'; ack_msg[1] = 'x'; ack_msg[2] = 'o'; ack_msg[3] = 'Q';
+    uint32_to_le_bytes(seq, &ack_msg[4]);
+    ack_msg[8] = target;
+    ack_msg[9] = (char) status;
+    chSequentialStreamWrite((BaseSequentialStream*) &BDU1, (const unsigned char*) ack_msg, 10);
+}
+
+
 /* Do not warn about 'strcpy' accessing between 1 and 2147483646 bytes at offsets 76 and 1 may overlap up to 2147483571 bytes at offset [2147483646, 76] [-Wrestrict] */
 #pragma GCC diagnostic push
 #pragma GCC diagnostic ignored "-Wrestrict"
-static FRESULT scan_files(char* path) {
-    /* Recursive scan of all items in a directory */
+static FRESULT scan_files(char* path, uint8_t recursive) {
+    /* Scan of all items in a directory, and in its subdirectories if recursive */
 
     FRESULT op_result;
     static FILINFO fno;
@@ -345,9 +357,11 @@ static FRESULT scan_files(char* path) {
                 msg[13+l] = 0;
                 chSequentialStreamWrite((BaseSequentialStream*) &BDU1, (const unsigned char*) msg, l+14);
 
-                op_result = scan_files(path);
-                if (op_result != FR_OK) {
-                    break;
+                if (recursive) {
+                    op_result = scan_files(path, 1);
+                    if (op_result != FR_OK) {
+                        break;
+                    }
                 }
                 path[current_path_len] = 0;
             }
@@ -412,7 +426,7 @@ void ReadDirectoryListing(void) {
     ((char*) fbuff)[0] = '/';
     ((char*) fbuff)[1] = '\0';
 
-    op_result = scan_files((char*) &fbuff[0]); /* scan_files() sends "Axof" data for each file/folder */
+    op_result = scan_files((char*) &fbuff[0], 1); /* scan_files() sends "Axof" data for each file/folder */
     if (op_result != FR_OK) {
         goto RDL_result_and_exit;
     }
@@ -438,9 +452,11 @@ void ReadDirectoryListing(void) {
 /* Input data decoder state machine
  *
  * "AxoP" (int32 value, uint16 param_index) -> Parameter set
+ * "AxoB" (uint32 patchid, uint16 count, count * (int32 value, uint16 param_index)) -> Batched parameter set
  * "AxoR" (uint32 length, uint8[] data) -> Preset data set
  * "AxoW" (uint32 startAddress, totalLength) -> Start or close generic memory write
  * "Axow" (uint32 chunkLength) -> Append chunk during generic memory write
+ * "AxoQ" (uint8 target, uint32 seq, offset, length, uint8[] data) -> Sequenced chunk, target 'a' (open SD file) or 'w' (memory write), acknowledged with "AxoQ"<seq><target><status>
  * "Axor" (uint32 offset, length) -> Generic memory read of 'length' bytes
  * "Axoy" (uint32 offset) -> Generic memory read, single 32bit aligned
  * "AxoY" -> Returns true if Core SPILink jumper is set, i.e. Core is set up to be synced
@@ -554,6 +570,25 @@ static void ManipulateFile(void) {
             return;
         }
 
+        else if (FileName[1] == 'L') { /* list one directory, without subdirectories (AxoCL) */
+            /* scan_files() reports paths from path[1] on and needs FileName as buffer,
+               so pass a copy of the path with an extra leading slash, like its recursion does */
+            char* path = (char*) &fbuff[0];
+            if (FileName[6] == '/' && FileName[7] == 0) {
+                strcpy(path, "/");
+            }
+            else {
+                path[0] = '/';
+                strncpy(&path[1], &FileName[6], 255);
+                path[256] = 0;
+            }
+            FRESULT op_result = scan_files(path, 0); /* Sends "Axof" data for each file/folder */
+            chThdSleepMilliseconds(10); /* Give some time for the USB buffer to clear */
+
+            send_AxoResult('L', op_result); /* scan_files() has overwritten FileName */
+            return;
+        }
+
         else if (FileName[1] == 'I') { /* get file info (AxoCI) */
             FILINFO fno;
             fno.lfname = &((char*) fbuff)[0]; // fbuff is a global buffer
@@ -695,6 +730,7 @@ void PExReceiveByte(unsigned char c) {
     static volatile uint32_t offset;
     static volatile uint32_t length;
     static volatile uint32_t patchid;
+    static volatile uint32_t memwrite_start; /* Start address of the current 'AxoWW' memory write */
     // static volatile uint32_t total_write_length;
 
     AddPCDebug(c, state);
@@ -718,8 +754,10 @@ void PExReceiveByte(unsigned char c) {
                 header = c;
                 switch (c) {
 
+                    case 'B': /* batched param change */
                     case 'M': /* midi command */
                     case 'P': /* param change */
+                    case 'Q': /* sequenced chunk to open sdcard file or memory write */
                     case 'R': /* preset change */
                     case 'T': /* apply preset */
                     case 'W': /* generic write start, close */
@@ -804,6 +842,43 @@ void PExReceiveByte(unsigned char c) {
                 state = 0; header = 0;
         } /* End switch (state) */
     }
+    else if (header == 'B') { /* batched param change */
+        static uint16_t batch_count = 0; /* Local static */
+        switch (state) {
+            case 4: patchid  = c; state++; break;
+            case 5: patchid |= (uint32_t)c <<  8; state++; break;
+            case 6: patchid |= (uint32_t)c << 16; state++; break;
+            case 7: patchid |= (uint32_t)c << 24; state++; break;
+            case 8: batch_count  = c; state++; break;
+            case 9: batch_count |= (uint16_t)c << 8;
+                if (batch_count == 0) {
+                    state = 0; header = 0;
+                }
+                else {
+                    state++;
+                }
+                break;
+            case 10:  value  = c; state++; break;
+            case 11:  value |= (int32_t)c <<  8; state++; break;
+            case 12:  value |= (int32_t)c << 16; state++; break;
+            case 13:  value |= (int32_t)c << 24; state++; break;
+            case 14:  param_index  = c; state++; break;
+            case 15:  param_index |= (uint32_t)c << 8;
+                if ((patchid == patchMeta.patchID) && (param_index < patchMeta.numPEx)) {
+                    PExParameterChange(&(patchMeta.pPExch)[param_index], value, 0xFFFFFFEE);
+                }
+                batch_count--;
+                if (batch_count == 0) {
+                    state = 0; header = 0;
+                }
+                else {
+                    state = 10; /* Next entry */
+                }
+                break;
+            default:
+                state = 0; header = 0;
+        } /* End switch (state) */
+    }
     else if (header == 's') { /* start patch (includes midi cost and dsp limit) */
         static uint16_t uUIMidiCost = 0; /* Local static */
         static uint8_t  uDspLimit200 = 0; /* Local static */
@@ -839,6 +914,7 @@ void PExReceiveByte(unsigned char c) {
                         uint8_t res = StopPatch();
                         if (res == FR_OK) {
                             write_position = offset; /* Initialize write_position here */
+                            memwrite_start = offset; /* Base for sequenced 'AxoQ' chunk offsets */
                             // total_write_length = (uint32_t)value;
                         }
                         send_AxoResult('W', res);
@@ -895,6 +971,65 @@ void PExReceiveByte(unsigned char c) {
                 state = 0; header = 0;
         } /* End switch (state) */
     }
+    else if (header == 'Q') { /* sequenced chunk, target 'a' = open SD file, 'w' = memory write */
+        static char seq_target = 0; /* Local static */
+        static uint32_t seq_num = 0; /* Local static */
+        switch (state) {
+            case 4: seq_target = c; state++; break;
+            case 5: seq_num  = c; state++; break;
+            case 6: seq_num |= (uint32_t)c <<  8; state++; break;
+            case 7: seq_num |= (uint32_t)c << 16; state++; break;
+            case 8: seq_num |= (uint32_t)c << 24; state++; break;
+            case 9:  offset  = c; state++; break;
+            case 10: offset |= (uint32_t)c <<  8; state++; break;
+            case 11: offset |= (uint32_t)c << 16; state++; break;
+            case 12: offset |= (uint32_t)c << 24; state++; break;
+            case 13: value  = c; state++; break;
+            case 14: value |= (int32_t)c <<  8; state++; break;
+            case 15: value |= (int32_t)c << 16; state++; break;
+            case 16: value |= (int32_t)c << 24; /* Chunk length */
+                length = (uint32_t)value;
+                if (seq_target == 'w') {
+                    write_position = memwrite_start + offset;
+                }
+                else {
+                    write_position = PATCHMAINLOC; /* SD chunks are buffered like 'Axoa' */
+                }
+                if (length == 0) {
+                    send_AxoSeqAck(seq_num, seq_target, FR_OK);
+                    state = 0; header = 0;
+                }
+                else {
+                    state = 17;
+                }
+                break;
+            case 17: /* Data streaming state */
+                value--;
+                if (seq_target == 'a' || seq_target == 'w') {
+                    *((unsigned char*) write_position) = c;
+                    write_position++;
+                } /* Unknown target: swallow the data so the stream stays in sync */
+
+                if (value == 0) {
+                    FRESULT res = FR_OK;
+                    if (seq_target == 'a') {
+                        res = f_lseek(&pFile, offset);
+                        if (res == FR_OK) {
+                            res = AppendFile(length);
+                        }
+                    }
+                    else if (seq_target != 'w') {
+                        res = FR_INVALID_PARAMETER;
+                    }
+                    send_AxoSeqAck(seq_num, seq_target, res);
+                    state = 0; header = 0;
+                }
+                break;
+            default:
+                send_AxoSeqAck(seq_num, seq_target, FR_DISK_ERR);
+                state = 0; header = 0;
+        } /* End switch (state) */
+    }
     else if (header == 'T') { /* apply preset */
         ApplyPreset(c); /* 'c' is the preset index */
         state = 0; header = 0;
@@ -935,13 +1070,13 @@ void PExReceiveByte(unsigned char c) {
                 FileName[0] = c; /* Should always be 0 */
                 state++;
                 break;
-            case 9: /* Expecting FileName[1] (sub-command: 'f', 'k', 'c', 'h', 'D', 'I') */
+            case 9: /* Expecting FileName[1] (sub-command: 'f', 'k', 'c', 'h', 'D', 'I', 'L') */
                 FileName[1] = c; /* Store the sub-command */
 
                 if (FileName[1] == 'c' || FileName[1] == 'f' || FileName[1] == 'k') {
                     /* These expect fdate/ftime next (FileName[2]...[5]) */
                     state = 10; /* Go to state to receive FileName[2] (fdate byte 0) */
-                } else if (FileName[1] == 'h' || FileName[1] == 'D' || FileName[1] == 'I') {
+                } else if (FileName[1] == 'h' || FileName[1] == 'D' || FileName[1] == 'I' || FileName[1] == 'L') {
                     /* These skip fdate/ftime and go straight to filename (FileName[6]+) */
                     current_filename_idx = 6; /* Start filename parsing from FileName[6] */
                     state = 14; /* Go to state to receive FileName[6] (filename byte 0) */
@@ -965,7 +1100,7 @@ void PExReceiveByte(unsigned char c) {
                 break;
 
             /* States for parsing filename (variable length, null-terminated) into FileName[6] onwards --- */
-            /* Used by 'f', 'k', 'c', 'h', 'D', 'I' */
+            /* Used by 'f', 'k', 'c', 'h', 'D', 'I', 'L' */
             case 14: { /* Start/continue filename parsing (into FileName[6]+) */
                 if (current_filename_idx < sizeof(FileName)) {
                     FileName[current_filename_idx++] = c;
@@ -46,6 +46,7 @@
 import java.net.URISyntaxException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -85,7 +86,18 @@ public void openFiles(OpenFilesEvent e) {
      */
     public static void main(final String[] args) {
 
-        if (OSDetect.getOS() == OS.MAC && Desktop.isDesktopSupported()) {
+        boolean headless = false;
+        for (String arg : args) {
+            if ("-headless".equalsIgnoreCase(arg)) {
+                headless = true;
+            }
+        }
+        if (headless) {
+            /* Command line test run, no frames, no single-instance handover */
+            System.setProperty("java.awt.headless", "true");
+        }
+
+        if (!headless && OSDetect.getOS() == OS.MAC && Desktop.isDesktopSupported()) {
             Desktop.getDesktop().setOpenFileHandler(new OpenFilesHandlerImpl());
         }
 
@@ -97,39 +109,43 @@ public static void main(final String[] args) {
             }
         }
 
-        try {
-            ServerSocket serverSocket = new ServerSocket(SINGLE_INSTANCE_PORT);
-            System.out.println(Instant.now() + " No existing Patcher instance found. Starting new instance.");
-            startSingleInstanceListener(serverSocket);
-        } catch (IOException e) {
-            /* An existing instance is running */
-            if (!filePaths.isEmpty()) {
-                /* Files were provided. Hand them over and exit */
-                System.out.println(Instant.now() + " Existing Patcher instance found. Handing over file(s) and exiting.");
-                try (Socket socket = new Socket("localhost", SINGLE_INSTANCE_PORT);
-                    PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)) {
-                    for (String path : filePaths) {
-                        writer.println(path);
+        if (!headless) {
+            try {
+                ServerSocket serverSocket = new ServerSocket(SINGLE_INSTANCE_PORT);
+                System.out.println(Instant.now() + " No existing Patcher instance found. Starting new instance.");
+                startSingleInstanceListener(serverSocket);
+            } catch (IOException e) {
+                /* An existing instance is running */
+                if (!filePaths.isEmpty()) {
+                    /* Files were provided. Hand them over and exit */
+                    System.out.println(Instant.now() + " Existing Patcher instance found. Handing over file(s) and exiting.");
+                    try (Socket socket = new Socket("localhost", SINGLE_INSTANCE_PORT);
+                        PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)) {
+                        for (String path : filePaths) {
+                            writer.println(path);
+                        }
+                        System.out.println(Instant.now() + " File(s) handed over to existing instance: " + filePaths);
+                    } catch (IOException ex) {
+                        System.out.println(Instant.now() + " Failed to connect to existing instance: " + ex.getMessage());
+                        ex.printStackTrace(System.out);
                     }
-                    System.out.println(Instant.now() + " File(s) handed over to existing instance: " + filePaths);
-                } catch (IOException ex) {
-                    System.out.println(Instant.now() + " Failed to connect to existing instance: " + ex.getMessage());
-                    ex.printStackTrace(System.out);
+                    System.exit(0);
+                } else {
+                    /* No files were provided. Launch a new instance. */
+                    System.out.println(Instant.now() + " Another instance is running, but no file args were provided. Starting a new instance.");
                 }
-                System.exit(0);
-            } else {
-                /* No files were provided. Launch a new instance. */
-                System.out.println(Instant.now() + " Another instance is running, but no file args were provided. Starting a new instance.");
             }
         }
 
         AxoSplashScreen splashScreen = null;
-        try {
-            splashScreen = new AxoSplashScreen();
-            splashScreen.showSplashScreen();
-        } catch (Exception e) {
-            System.out.println(Instant.now() + " [DEBUG] Splash screen could not be created: " + e.getMessage());
-            e.printStackTrace(System.out);
+        if (!headless) {
+            try {
+                splashScreen = new AxoSplashScreen();
+                splashScreen.showSplashScreen();
+            } catch (Exception e) {
+                System.out.println(Instant.now() + " [DEBUG] Splash screen could not be created: " + e.getMessage());
+                e.printStackTrace(System.out);
+            }
         }
 
         try {
@@ -411,9 +427,11 @@ public static void deletePrecompiledHeaderFile() {
         File[] bfiles = builddir.listFiles();
         if (bfiles != null) {
             for (File f : bfiles) {
-                /* Flush previous temp build files... */
+                /* Flush previous temp build files, but keep the caches that outlive a session... */
                 if (f.isDirectory()) {
-                    FileUtils.deleteDirectory(f);
+                    if (!f.getName().equals("cache")) {
+                        FileUtils.deleteDirectory(f);
+                    }
                 }
                 else {
                     /* ...and flush precompiled header file. */
@@ -430,6 +448,9 @@ private static void handleCommandLine(final String args[], final AxoSplashScreen
         boolean cmdRunObjectTest = false;
         boolean cmdRunFileTest = false;
         boolean cmdRunUpgrade = false;
+        boolean cmdHeadless = false;
+        int cmdJobs = Runtime.getRuntime().availableProcessors();
+        String cmdReport = null;
         String cmdFile = null;
         ArrayList<String> guiArgs = new ArrayList<>();
 
@@ -441,6 +462,28 @@ private static void handleCommandLine(final String args[], final AxoSplashScreen
                 guiArgs.add(arg);
             }
 
+            if (arg.equalsIgnoreCase("-headless")) {
+                cmdHeadless = true;
+                continue;
+            } else if (arg.equalsIgnoreCase("-jobs") || arg.equalsIgnoreCase("-testReport")) {
+                if (i + 1 >= args.length) {
+                    System.err.println(arg + ": missing value");
+                    System.exit(-1);
+                }
+                i++;
+                if (arg.equalsIgnoreCase("-jobs")) {
+                    try {
+                        cmdJobs = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        System.err.println("-jobs: not a number: " + args[i]);
+                        System.exit(-1);
+                    }
+                } else {
+                    cmdReport = args[i];
+                }
+                continue;
+            }
+
             // exclusive options
             if (arg.equalsIgnoreCase("-runAllTests")) {
                 cmdLineOnly = true;
@@ -474,7 +517,8 @@ private static void handleCommandLine(final String args[], final AxoSplashScreen
                         + " [-runAllTests|-runPatchTests|-runObjTests] "
                         + " [-runTest patchfile|dir]"
                         + " [-runUpgrade patchfile|dir]"
-                        + " [-exitOnFirstFail");
+                        + " [-exitOnFirstFail]"
+                        + " [-headless [-jobs n] [-testReport file.xml]]");
                 System.exit(0);
             }
             else {
@@ -484,14 +528,52 @@ private static void handleCommandLine(final String args[], final AxoSplashScreen
 
         String[] finalGuiArgs = guiArgs.toArray(new String[0]);
 
-        if (cmdLineOnly) {
+        if (cmdLineOnly && cmdHeadless && !cmdRunUpgrade) {
+            /* Test compile without any frames, see TestCompileRunner */
+            try {
+                TestCompileRunner.loadLibraries();
+                if (splashScreen != null) {
+                    splashScreen.dispose();
+                }
+                ArrayList<File> roots = new ArrayList<File>();
+                if (cmdRunFileTest) {
+                    roots.add(new File(cmdFile));
+                }
+                else {
+                    if (cmdRunAllTest || cmdRunObjectTest) {
+                        List<File> folders = TestCompileRunner.getLibraryFolders("objects");
+                        if (folders == null) {
+                            System.exit(-1);
+                        }
+                        roots.addAll(folders);
+                    }
+                    if (cmdRunAllTest || cmdRunPatchTest) {
+                        List<File> folders = TestCompileRunner.getLibraryFolders("patches");
+                        if (folders == null) {
+                            System.exit(-1);
+                        }
+                        roots.addAll(folders);
+                    }
+                }
+                File report = (cmdReport != null) ? new File(cmdReport) : TestCompileRunner.getDefaultReportFile();
+                TestCompileRunner runner = new TestCompileRunner(cmdJobs, report, MainFrame.stopOnFirstFail);
+                int exitCode = runner.run(roots, true, false) ? 0 : -1;
+                System.out.println("Axoloti cmd line complete");
+                System.exit(exitCode);
+            } catch (Exception e) {
+                e.printStackTrace(System.out);
+                System.exit(-2);
+            }
+        } else if (cmdLineOnly) {
             try {
                 MainFrame frame = new MainFrame(args);
                 frame.setVisible(false);
                 AxoObjects objs = new AxoObjects();
                 objs.LoadAxoObjects();
                 System.out.println("Waiting for libraries to load...");
-                Thread.sleep(10000);
+                objs.awaitLoaded();
+                EventQueue.invokeAndWait(() -> {}); /* MainFrame starts loading its own copy from the EDT */
+                MainFrame.axoObjects.awaitLoaded();
                 if (splashScreen != null) {
                     splashScreen.dispose();
                 }
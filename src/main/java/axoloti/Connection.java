@@ -65,17 +65,21 @@ public abstract class Connection {
     abstract public int TransmitCloseMemWrite(int startAddr, int totalLen);
     abstract public int TransmitGetFileList();
     abstract public int TransmitGetFileInfo(String filename);
+    abstract public int TransmitGetDirectoryListing(String path);
     abstract public int TransmitCreateFile(String filename, int size, Calendar date);
     abstract public int TransmitCreateDirectory(String filename, Calendar date);
     abstract public int TransmitDeleteFile(String filename);
     abstract public int TransmitChangeWorkingDirectory(String path);
     abstract public int TransmitAppendFile(byte[] data);
+    abstract public int TransmitSequencedChunk(char target, int seq, int offset, byte[] data);
     abstract public int TransmitCloseFile(String filename, Calendar date);
     abstract public int TransmitCopyToFlash();
     abstract public int TransmitMemoryRead(int addr, int length);
     abstract public int TransmitMemoryRead1Word(int addr);    
     abstract public int TransmitUpdatedPreset(byte[] data);
     abstract public int TransmitMidi(int m0, int m1, int m2);
+    abstract public int TransmitParamChanges(int patchID, int[] indices, int[] values, int count);
+    abstract public int GetMaxParamChangesPerTransfer();
     abstract public int TransmitGetFWVersion();
     abstract public int TransmitGetSpilinkSynced();
     abstract public int TransmitBringToDFU();
@@ -0,0 +1,581 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+package axoloti;
+
+import axoloti.targetprofile.ksoloti_core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.usb4java.LibUsb;
+
+/**
+ * A Core emulated in-process, for exercising the transport code without a
+ * board. Only the USB endpoints are replaced: packets are built by the
+ * Transmit methods of USBBulkConnection as usual, the emulated Core answers
+ * them with the packets the firmware would send, and those go through the
+ * regular receive path, processBytes(), to the waiting commands.
+ *
+ * Files are created in a local directory standing in for the SD card and
+ * memory writes are kept per start address. Display and parameter change
+ * packets can be streamed to the host at a given rate, and a latency can be
+ * added before the Core handles each packet.
+ *
+ * Directory listings, file info, firmware version and memory reads are not
+ * emulated; their commands fail at once.
+ *
+ * @author Ksoloti
+ */
+public class EmulatedCoreConnection extends USBBulkConnection {
+
+    private static final Logger LOGGER = Logger.getLogger(EmulatedCoreConnection.class.getName());
+
+    /* FatFs status codes as returned by the firmware */
+    private static final int FR_OK = 0;
+    private static final int FR_DISK_ERR = 1;
+    private static final int FR_INT_ERR = 2;
+    private static final int FR_NO_FILE = 4;
+    private static final int FR_NO_PATH = 5;
+    private static final int FR_INVALID_NAME = 6;
+    private static final int FR_DENIED = 7;
+    private static final int FR_EXIST = 8;
+    private static final int FR_INVALID_OBJECT = 9;
+
+    /* Everything the Core does happens on this thread, in the order the packets arrived */
+    private final ScheduledExecutorService core = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Emulated Core");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File sdCardRoot;
+    private ksoloti_core targetProfile;
+    private volatile boolean connected = false;
+    private volatile long latencyNanos = 0;
+
+    /* SD card and memory state, only touched on the core thread */
+    private String workingDirectory = "/";
+    private RandomAccessFile openFile;
+    private int memWriteAddr;
+    private byte[] memWriteData;
+    private int memWritePos;
+    private final ConcurrentHashMap<Integer, byte[]> memory = new ConcurrentHashMap<Integer, byte[]>();
+    private final int[] parameterValues = new int[65536];
+    private volatile int patchID = 0;
+    private volatile boolean patchRunning = false;
+
+    private ScheduledFuture<?> displayStream;
+    private ScheduledFuture<?> paramChangeStream;
+
+    private final AtomicLong bytesFromHost = new AtomicLong();
+    private final AtomicLong bytesToHost = new AtomicLong();
+    private final AtomicLong paramChangesReceived = new AtomicLong();
+    private final AtomicLong displayPacketsSent = new AtomicLong();
+    private final AtomicLong paramChangePacketsSent = new AtomicLong();
+
+    public EmulatedCoreConnection(File sdCardRoot) {
+        super(false);
+        this.sdCardRoot = sdCardRoot;
+    }
+
+    @Override
+    public boolean connect() {
+        if (targetProfile == null) {
+            targetProfile = new ksoloti_core();
+        }
+        setDisconnectRequested(false);
+        connected = true;
+        SetSDCardPresent(true);
+        ShowConnect();
+        return true;
+    }
+
+    @Override
+    public void disconnect() {
+        if (!connected) {
+            return;
+        }
+        connected = false;
+        stopStreams();
+        setCurrentExecutingCommand(null);
+        core.execute(() -> closeOpenFile());
+        ShowDisconnect();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void selectPort() {
+    }
+
+    @Override
+    public List<String[]> getDeviceList() {
+        return new ArrayList<String[]>();
+    }
+
+    @Override
+    public ksoloti_core getTargetProfile() {
+        return targetProfile;
+    }
+
+    @Override
+    public String getDetectedCpuId() {
+        return "EMULATED";
+    }
+
+    /* Time the Core takes before it handles each packet, i.e. the added round trip latency */
+    public void setLatency(long latency, TimeUnit unit) {
+        latencyNanos = unit.toNanos(latency);
+    }
+
+    public File getSDCardRoot() {
+        return sdCardRoot;
+    }
+
+    /* Contents of the memory write that started at addr, or null */
+    public byte[] getMemory(int addr) {
+        return memory.get(addr);
+    }
+
+    public int getParameterValue(int index) {
+        return parameterValues[index & 0xFFFF];
+    }
+
+    public boolean isPatchRunning() {
+        return patchRunning;
+    }
+
+    public long getBytesFromHost() {
+        return bytesFromHost.get();
+    }
+
+    public long getBytesToHost() {
+        return bytesToHost.get();
+    }
+
+    public long getParamChangesReceived() {
+        return paramChangesReceived.get();
+    }
+
+    public long getDisplayPacketsSent() {
+        return displayPacketsSent.get();
+    }
+
+    public long getParamChangePacketsSent() {
+        return paramChangePacketsSent.get();
+    }
+
+    /* Waits until the Core has handled every packet sent so far. Returns false on timeout */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        try {
+            core.schedule(() -> {}, latencyNanos, TimeUnit.NANOSECONDS).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (TimeoutException e) {
+            return false;
+        }
+        catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /* Sends a display packet of the given number of words perSecond times a second */
+    public synchronized void startDisplayStream(int words, int perSecond) {
+        if (displayStream != null) {
+            displayStream.cancel(false);
+        }
+        final ByteBuffer packet = ByteBuffer.allocate(12 + words * 4).order(ByteOrder.LITTLE_ENDIAN);
+        displayStream = core.scheduleAtFixedRate(() -> {
+            packet.clear();
+            packet.put(header('D'));
+            packet.putInt(patchID);
+            packet.putInt(words);
+            int seq = (int) displayPacketsSent.getAndIncrement();
+            for (int i = 0; i < words; i++) {
+                packet.putInt(seq + i);
+            }
+            packet.flip();
+            sendToHost(packet);
+        }, 0, 1000000000L / Math.max(1, perSecond), TimeUnit.NANOSECONDS);
+    }
+
+    /* Reports a change of one of parameterCount parameters perSecond times a second, as if turned by MIDI */
+    public synchronized void startParamChangeStream(int parameterCount, int perSecond) {
+        if (paramChangeStream != null) {
+            paramChangeStream.cancel(false);
+        }
+        final ByteBuffer packet = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        paramChangeStream = core.scheduleAtFixedRate(() -> {
+            long n = paramChangePacketsSent.getAndIncrement();
+            int index = (int) (n % Math.max(1, parameterCount));
+            packet.clear();
+            packet.put(header('P'));
+            packet.putInt(patchID);
+            packet.putInt((int) n);
+            packet.putInt(index);
+            packet.flip();
+            sendToHost(packet);
+        }, 0, 1000000000L / Math.max(1, perSecond), TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stopStreams() {
+        if (displayStream != null) {
+            displayStream.cancel(false);
+            displayStream = null;
+        }
+        if (paramChangeStream != null) {
+            paramChangeStream.cancel(false);
+            paramChangeStream = null;
+        }
+    }
+
+    /* Stands in for the bulk OUT transfer: the Core handles the packet after the set latency */
+    @Override
+    public int writeBytes(ByteBuffer data) {
+        if (!connected) {
+            return LibUsb.ERROR_NO_DEVICE;
+        }
+        ByteBuffer buffer = data.duplicate();
+        buffer.rewind();
+        byte[] packet = new byte[buffer.remaining()];
+        buffer.get(packet);
+        bytesFromHost.addAndGet(packet.length);
+        core.schedule(() -> handlePacket(packet), latencyNanos, TimeUnit.NANOSECONDS);
+        return LibUsb.SUCCESS;
+    }
+
+    private static byte[] header(char c) {
+        return new byte[] {(byte) 'A', (byte) 'x', (byte) 'o', (byte) c};
+    }
+
+    /* Stands in for the bulk IN transfer. Core thread only, the receive path is not reentrant */
+    private void sendToHost(ByteBuffer packet) {
+        if (!connected) {
+            return;
+        }
+        bytesToHost.addAndGet(packet.remaining());
+        try {
+            processBytes(packet);
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Exception processing bytes: " + e.getMessage());
+            e.printStackTrace(System.out);
+        }
+    }
+
+    private void sendCommandResult(char command, int status) {
+        ByteBuffer b = ByteBuffer.allocate(6).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(header('R'));
+        b.put((byte) command);
+        b.put((byte) status);
+        b.flip();
+        sendToHost(b);
+    }
+
+    private void sendChunkAck(int seq, char target, int status) {
+        ByteBuffer b = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(header('Q'));
+        b.putInt(seq);
+        b.put((byte) target);
+        b.put((byte) status);
+        b.flip();
+        sendToHost(b);
+    }
+
+    private void sendAck() {
+        ByteBuffer b = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(header('A'));
+        b.putInt(0);                     /* connection flags */
+        b.putInt(0);                     /* DSP load */
+        b.putInt(patchID);
+        b.putInt(0);                     /* voltages */
+        b.putInt(-1);                    /* patch index */
+        b.putInt(1);                     /* SD card present */
+        b.flip();
+        sendToHost(b);
+    }
+
+    private static String readString(ByteBuffer b) {
+        int start = b.position();
+        while (b.hasRemaining() && b.get() != 0) {
+        }
+        int end = b.position() - 1;
+        return new String(b.array(), start, Math.max(0, end - start), StandardCharsets.US_ASCII);
+    }
+
+    private void handlePacket(byte[] packet) {
+        if (!connected) {
+            return;
+        }
+        ByteBuffer b = ByteBuffer.wrap(packet).order(ByteOrder.LITTLE_ENDIAN);
+        if (packet.length < 4 || packet[0] != 'A' || packet[1] != 'x' || packet[2] != 'o') {
+            LOGGER.log(Level.WARNING, "Emulated Core received a packet without header, {0} bytes", packet.length);
+            return;
+        }
+        b.position(4);
+        char c = (char) packet[3];
+        switch (c) {
+            case 'A': /* Ping */
+                sendAck();
+                break;
+            case 's': /* Start patch */
+                patchRunning = true;
+                sendCommandResult('s', FR_OK);
+                break;
+            case 'S': /* Stop patch */
+                patchRunning = false;
+                sendCommandResult('S', FR_OK);
+                break;
+            case 'P': { /* Single parameter change */
+                patchID = b.getInt();
+                int value = b.getInt();
+                int index = b.getShort() & 0xFFFF;
+                parameterValues[index] = value;
+                paramChangesReceived.incrementAndGet();
+                break;
+            }
+            case 'B': { /* Batched parameter changes */
+                patchID = b.getInt();
+                int count = b.getShort() & 0xFFFF;
+                for (int i = 0; i < count; i++) {
+                    int value = b.getInt();
+                    int index = b.getShort() & 0xFFFF;
+                    parameterValues[index] = value;
+                }
+                paramChangesReceived.addAndGet(count);
+                break;
+            }
+            case 'C':
+                handleFileCommand(b);
+                break;
+            case 'a': { /* Append to open file */
+                int length = b.getInt();
+                sendCommandResult('a', writeToOpenFile(-1, b, length));
+                break;
+            }
+            case 'Q': { /* Sequenced chunk */
+                char target = (char) b.get();
+                int seq = b.getInt();
+                int offset = b.getInt();
+                int length = b.getInt();
+                int status = (target == 'w') ? writeToMemory(offset, b, length) : writeToOpenFile(offset, b, length);
+                sendChunkAck(seq, target, status);
+                break;
+            }
+            case 'W': { /* Memory write start and close */
+                int addr = b.getInt();
+                int length = b.getInt();
+                char sub = (char) b.get();
+                if (sub == 'W') {
+                    memWriteAddr = addr;
+                    memWriteData = new byte[length];
+                    memWritePos = 0;
+                    sendCommandResult('W', FR_OK);
+                }
+                else if (sub == 'e') {
+                    if (memWriteData == null || memWriteAddr != addr) {
+                        sendCommandResult('e', FR_INT_ERR);
+                    }
+                    else {
+                        memory.put(addr, memWriteData);
+                        memWriteData = null;
+                        sendCommandResult('e', FR_OK);
+                    }
+                }
+                break;
+            }
+            case 'w': { /* Append to memory write */
+                int length = b.getInt();
+                sendCommandResult('w', writeToMemory(-1, b, length));
+                break;
+            }
+            case 'F': /* Copy patch to flash */
+                sendCommandResult('F', FR_OK);
+                break;
+            case 'l': /* File list */
+                sendCommandResult('l', FR_INT_ERR);
+                break;
+            default:
+                /* MIDI, presets, DFU, mounter, memory reads, firmware version... */
+                LOGGER.log(Level.FINE, "Emulated Core ignores Axo{0} packet", c);
+                break;
+        }
+    }
+
+    private void handleFileCommand(ByteBuffer b) {
+        int size = b.getInt();
+        b.get();
+        char sub = (char) b.get();
+        if (sub == 'f' || sub == 'c' || sub == 'k') {
+            b.getShort(); /* FatFs date */
+            b.getShort(); /* FatFs time */
+        }
+        String name = readString(b);
+
+        File f = resolve(name);
+        if (f == null) {
+            sendCommandResult(sub, FR_INVALID_NAME);
+            return;
+        }
+        int status;
+        switch (sub) {
+            case 'f':
+                status = createFile(f);
+                break;
+            case 'c':
+                status = (openFile == null) ? FR_INVALID_OBJECT : closeOpenFile();
+                break;
+            case 'D':
+                if (!f.exists()) {
+                    status = FR_NO_FILE;
+                }
+                else {
+                    status = f.delete() ? FR_OK : FR_DENIED;
+                }
+                break;
+            case 'k':
+                if (f.exists()) {
+                    status = FR_EXIST;
+                }
+                else if (!f.getParentFile().isDirectory()) {
+                    status = FR_NO_PATH;
+                }
+                else {
+                    status = f.mkdir() ? FR_OK : FR_DENIED;
+                }
+                break;
+            case 'h':
+                if (f.isDirectory()) {
+                    workingDirectory = absolutePath(name);
+                    status = FR_OK;
+                }
+                else {
+                    status = FR_NO_PATH;
+                }
+                break;
+            default:
+                /* Directory listing 'L' and file info 'I' */
+                status = FR_INT_ERR;
+                break;
+        }
+        sendCommandResult(sub, status);
+    }
+
+    private String absolutePath(String name) {
+        if (name.startsWith("/")) {
+            return name;
+        }
+        return (workingDirectory.endsWith("/") ? workingDirectory : workingDirectory + "/") + name;
+    }
+
+    /* Maps an SD card path to the local directory, null if it points outside of it */
+    private File resolve(String name) {
+        try {
+            File root = sdCardRoot.getCanonicalFile();
+            File f = new File(root, absolutePath(name).substring(1)).getCanonicalFile();
+            if (!f.toPath().startsWith(root.toPath())) {
+                return null;
+            }
+            return f;
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    private int createFile(File f) {
+        closeOpenFile();
+        if (!f.getParentFile().isDirectory()) {
+            return FR_NO_PATH;
+        }
+        if (f.isDirectory()) {
+            return FR_DENIED;
+        }
+        try {
+            openFile = new RandomAccessFile(f, "rw");
+            openFile.setLength(0);
+            return FR_OK;
+        }
+        catch (IOException e) {
+            openFile = null;
+            return FR_DISK_ERR;
+        }
+    }
+
+    private int closeOpenFile() {
+        if (openFile == null) {
+            return FR_OK;
+        }
+        try {
+            openFile.close();
+            return FR_OK;
+        }
+        catch (IOException e) {
+            return FR_DISK_ERR;
+        }
+        finally {
+            openFile = null;
+        }
+    }
+
+    /* offset -1 appends at the current position */
+    private int writeToOpenFile(int offset, ByteBuffer b, int length) {
+        if (openFile == null) {
+            return FR_INVALID_OBJECT;
+        }
+        try {
+            if (offset >= 0) {
+                openFile.seek(offset);
+            }
+            openFile.write(b.array(), b.position(), length);
+            return FR_OK;
+        }
+        catch (IOException e) {
+            return FR_DISK_ERR;
+        }
+    }
+
+    private int writeToMemory(int offset, ByteBuffer b, int length) {
+        int pos = (offset >= 0) ? offset : memWritePos;
+        if (memWriteData == null || pos + length > memWriteData.length) {
+            return FR_INT_ERR;
+        }
+        System.arraycopy(b.array(), b.position(), memWriteData, pos, length);
+        memWritePos = pos + length;
+        return FR_OK;
+    }
+}
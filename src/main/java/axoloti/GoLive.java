@@ -0,0 +1,279 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+package axoloti;
+
+import static axoloti.MainFrame.mainframe;
+
+import axoloti.object.AxoObjectInstanceAbstract;
+import axoloti.object.AxoObjectInstancePatcher;
+import axoloti.parameters.ParameterInstance;
+import axoloti.sd.SDCardInfo;
+import axoloti.sd.SDFileReference;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import qcmds.CommandManager;
+import qcmds.SCmd;
+import qcmds.SCmdChangeWorkingDirectory;
+import qcmds.SCmdCreateDirectory;
+import qcmds.SCmdUploadPatch;
+
+/**
+ * Takes a patch live as a sequence of stages: stop the live patch, generate
+ * the code, compile it, upload the SD card files it needs and the binary,
+ * start it. Each stage is started by the event that ends the one before,
+ * the compiler exiting or the Core acknowledging a command, so the event
+ * dispatch thread never waits for a stage. Code is generated on the event
+ * dispatch thread, where the patch is edited, so it cannot change halfway.
+ * Uploading SD card files is host-side work and runs on a worker thread.
+ *
+ * Requests made while a run is under way are coalesced: only the last one
+ * is carried out, once the run has ended. The time each stage took is
+ * logged at the end of every run.
+ *
+ * @author Ksoloti
+ */
+public class GoLive {
+
+    private static final Logger LOGGER = Logger.getLogger(GoLive.class.getName());
+
+    public enum Stage {
+        IDLE, STOPPING, GENERATING, COMPILING, UPLOADING_FILES, UPLOADING, STARTING
+    }
+
+    private static GoLive instance;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "GoLive worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Stage stage = Stage.IDLE;
+    private long stageStartNanos;
+    private final LinkedHashMap<Stage, Long> stageNanos = new LinkedHashMap<Stage, Long>();
+
+    /* The last request made during a run, carried out when the run ends */
+    private boolean requestPending = false;
+    private PatchGUI pendingPatch;
+
+    public static synchronized GoLive getInstance() {
+        if (instance == null) {
+            instance = new GoLive();
+        }
+        return instance;
+    }
+
+    private GoLive() {
+    }
+
+    public synchronized Stage getStage() {
+        return stage;
+    }
+
+    private synchronized void enter(Stage next) {
+        long now = System.nanoTime();
+        if (stage != Stage.IDLE) {
+            stageNanos.merge(stage, now - stageStartNanos, Long::sum);
+        }
+        stage = next;
+        stageStartNanos = now;
+    }
+
+    /* Takes patch live, or stops the live patch if patch is null. Call on the EDT */
+    public void request(PatchGUI patch) {
+        synchronized (this) {
+            if (stage != Stage.IDLE) {
+                requestPending = true;
+                pendingPatch = patch;
+                return;
+            }
+            stageNanos.clear();
+        }
+        mainframe.setAllPatchFramesActionButtonsEnabled(false);
+
+        if (patch == null) {
+            enter(Stage.STOPPING);
+            mainframe.setCurrentLivePatch(null).whenComplete((v, ex) ->
+                    SwingUtilities.invokeLater(() -> finish(null, true, ex)));
+            return;
+        }
+
+        /* Update logic for all subpatches */
+        for (AxoObjectInstanceAbstract aoi : patch.objectInstances) {
+            if (aoi instanceof AxoObjectInstancePatcher) {
+                ((AxoObjectInstancePatcher) aoi).refreshObjectCode();
+            }
+        }
+
+        /* Clear needsTransmit flags on all non-frozen parameters */
+        for (AxoObjectInstanceAbstract o : patch.objectInstances) {
+            for (ParameterInstance pi : o.getParameterInstances()) {
+                if (!pi.isFrozen()) {
+                    pi.ClearNeedsTransmit();
+                }
+            }
+        }
+
+        enter(Stage.STOPPING);
+        CompletableFuture<Void> stopped = (mainframe.getCurrentLivePatch() != null)
+                ? mainframe.setCurrentLivePatch(null)
+                : CompletableFuture.completedFuture(null);
+
+        stopped.thenApplyAsync(v -> {
+            enter(Stage.GENERATING);
+            /* Ensure there is no .bin file to avoid false positive at getBinFile().exists() below */
+            File binFile = patch.getBinFile();
+            if (binFile.exists()) {
+                binFile.delete();
+            }
+            /* Batch builds generate code off the EDT, from the same object types */
+            synchronized (Patch.codeGenerationLock) {
+                patch.WriteCode();
+            }
+            return null;
+        }, SwingUtilities::invokeLater).thenComposeAsync(v -> {
+            enter(Stage.COMPILING);
+            return patch.CompileAsync(); /* Restoring a cached binary copies files */
+        }, worker).thenApplyAsync(compiled -> {
+            if (!compiled || !patch.getBinFile().exists()) {
+                String path = System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + patch.generateBuildFilenameStem(true);
+                LOGGER.log(Level.INFO, path + ".bin could not be created.");
+                return false;
+            }
+            enter(Stage.UPLOADING_FILES);
+            return uploadDependentFiles(patch);
+        }, worker).thenCompose(ok -> {
+            if (!ok) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (!USBBulkConnection.getInstance().isConnected()) {
+                LOGGER.log(Level.SEVERE, "USB connection lost, patch upload aborted.");
+                return CompletableFuture.completedFuture(false);
+            }
+            enter(Stage.UPLOADING);
+            return uploadBinaries(patch);
+        }).thenCompose(ok -> {
+            if (!ok) {
+                return CompletableFuture.completedFuture(false);
+            }
+            System.out.println(Instant.now() + " Patch upload successful, starting patch...");
+            enter(Stage.STARTING);
+            return mainframe.setCurrentLivePatch(patch).thenApply(v -> mainframe.getCurrentLivePatch() == patch);
+        }).whenComplete((ok, ex) ->
+                SwingUtilities.invokeLater(() -> finish(patch, ok != null && ok, ex)));
+    }
+
+    /* Creates the patch's SD card folder and uploads the files it refers to. Runs on the worker */
+    private boolean uploadDependentFiles(PatchGUI patch) {
+        ArrayList<SDFileReference> files = patch.GetDependentSDFiles();
+        if (files.isEmpty()) {
+            return true;
+        }
+        if (!USBBulkConnection.getInstance().GetSDCardPresent()) {
+            LOGGER.log(Level.WARNING, "Patch requires file {0} on SD card, but no SD card connected.", files.get(0).targetPath);
+            return true;
+        }
+        try {
+            String f = "/" + patch.getSDCardPath();
+            if (SDCardInfo.getInstance().find(f) == null) {
+                CommandManager.getInstance().startLongOperation();
+                SCmdCreateDirectory createDirCmd = new SCmdCreateDirectory(f, Calendar.getInstance());
+                createDirCmd.Do();
+                CommandManager.getInstance().endLongOperation();
+                if (!createDirCmd.waitForCompletion() || !createDirCmd.isSuccessful()) {
+                    return false;
+                }
+            }
+
+            CommandManager.getInstance().startLongOperation();
+            SCmdChangeWorkingDirectory changeDirCmd = new SCmdChangeWorkingDirectory(f);
+            changeDirCmd.Do();
+            CommandManager.getInstance().endLongOperation();
+            if (!changeDirCmd.waitForCompletion() || !changeDirCmd.isSuccessful()) {
+                return false;
+            }
+
+            patch.UploadDependentFiles(f);
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Patch dependent files upload to SD failed with exception: ", e);
+        }
+        return true;
+    }
+
+    private CompletableFuture<Boolean> uploadBinaries(PatchGUI patch) {
+        CompletableFuture<SCmd> upload = new SCmdUploadPatch(patch.getBinFile(), USBBulkConnection.getInstance().getTargetProfile().getPatchAddr(), "patch").DoAsync();
+        File sram3binFile = patch.getBinFile_sram3();
+        if (sram3binFile.exists() && sram3binFile.length() > 0) {
+            upload = upload.thenCompose(c -> c.isSuccessful()
+                    ? new SCmdUploadPatch(sram3binFile, USBBulkConnection.getInstance().getTargetProfile().getPatchAddr_sram3(), "SRAM3 data").DoAsync()
+                    : CompletableFuture.completedFuture(c));
+        }
+        return upload.thenApply(SCmd::isSuccessful);
+    }
+
+    /* Ends a run on the EDT, then carries out the request made meanwhile, if any */
+    private void finish(PatchGUI patch, boolean success, Throwable ex) {
+        if (ex != null) {
+            LOGGER.log(Level.SEVERE, "Go live failed with exception: ", ex);
+        }
+        if (patch != null) {
+            if (success) {
+                patch.ShowPreset(0);
+            }
+            else {
+                mainframe.setCurrentLivePatch(null);
+            }
+        }
+
+        PatchGUI next;
+        synchronized (this) {
+            enter(Stage.IDLE);
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<Stage, Long> e : stageNanos.entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append(", ");
+                }
+                sb.append(String.format("%s %d ms", e.getKey().name().toLowerCase().replace('_', ' '), e.getValue() / 1000000));
+            }
+            System.out.println(Instant.now() + " " + (patch == null ? "Stop" : "Go live") + (success ? " done: " : " failed: ") + sb);
+
+            if (!requestPending) {
+                mainframe.setAllPatchFramesActionButtonsEnabled(true);
+                return;
+            }
+            requestPending = false;
+            next = pendingPatch;
+            pendingPatch = null;
+        }
+        request(next);
+    }
+}
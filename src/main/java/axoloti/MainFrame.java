@@ -80,8 +80,12 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -139,6 +143,7 @@ public final class MainFrame extends javax.swing.JFrame implements ActionListene
     public static MainFrame mainframe;
     public static AxoJFileChooser fc;
     private PatchGUI currentLivePatch = null; /* Tracks which patch is currently live */
+    private CompletableFuture<Void> liveTransition = CompletableFuture.completedFuture(null); /* Last requested live patch change, EDT only */
 
     boolean even = false;
     String LinkFirmwareID;
@@ -593,12 +598,13 @@ private void initializeAfterFrameIsReady(String args[]) {
                 final File f = new File(arg);
                 if (f.exists() && f.canRead()) {
                     if (arg.endsWith(".axp") || arg.endsWith(".axs") || arg.endsWith(".axh")) {
+                        final Set<String> referencedObjects = AxoObjects.getReferencedObjects(f);
                         Runnable r = new Runnable() {
                             @Override
                             public void run() {
                                 try {
-                                    // wait for objects be loaded
-                                    if (axoObjects.LoaderThread.isAlive()) {
+                                    // wait for the objects used by the patch to be loaded
+                                    if (!axoObjects.isLoaded(referencedObjects)) {
                                         EventQueue.invokeLater(this);
                                     }
                                     else {
@@ -628,7 +634,7 @@ else if (arg.endsWith(".axo")) {
                 public void run() {
                     try {
                         /* wait for object libraries to be loaded */
-                        if (axoObjects.LoaderThread.isAlive()) {
+                        if (!axoObjects.isLoaded()) {
                             EventQueue.invokeLater(this);
                         }
                         else {
@@ -1534,7 +1540,7 @@ private boolean runTestCompile(File f) {
                         }
                     }
 
-                    setCurrentLivePatch(patch1);
+                    setCurrentLivePatch(patch1).get(10, TimeUnit.SECONDS);
                     Thread.sleep(1000);
 
                     float pct = patch1.getDSPLoadPercent();
@@ -1550,8 +1556,7 @@ else if (pct > 95.0f) {
                     Thread.sleep(500);
 
                     QCmdProcessor.getInstance().AppendToQueue(new QCmdGuiShowLog());
-                    setCurrentLivePatch(null);
-                    Thread.sleep(100);
+                    setCurrentLivePatch(null).get(10, TimeUnit.SECONDS);
                     return true;
                 }
             }
@@ -1752,8 +1757,12 @@ public static void openFilesFromListener(ArrayList<File> files) {
         }
 
         if (mainframe != null && axoObjects != null) {
-            /* If the loader thread is still running, wait for it to finish. */
-            if (axoObjects.LoaderThread.isAlive()) {
+            /* If objects used by the files are still loading, wait for them. */
+            Set<String> referencedObjects = new HashSet<String>();
+            for (File f : files) {
+                referencedObjects.addAll(AxoObjects.getReferencedObjects(f));
+            }
+            if (!axoObjects.isLoaded(referencedObjects)) {
                 System.out.println(Instant.now() + " Main instance received file(s), but libraries are still loading. Retrying in 1 second...");
 
                 new Thread(() -> {
@@ -1868,17 +1877,38 @@ public PatchGUI getCurrentLivePatch() {
         return currentLivePatch;
     }
 
-    public void setCurrentLivePatch(PatchGUI newLivePatch) {
+    /*
+     * Stops the live patch and starts newLivePatch, if not null, on the Core.
+     * Returns at once: the returned future completes when the change has
+     * gone through or failed, getCurrentLivePatch() tells which. Changes are
+     * carried out in the order they were asked for.
+     */
+    public CompletableFuture<Void> setCurrentLivePatch(PatchGUI newLivePatch) {
         /* Call this method on the EDT, as it manipulates GUI components */
         if (!SwingUtilities.isEventDispatchThread()) {
-            SwingUtilities.invokeLater(() -> setCurrentLivePatch(newLivePatch));
-            return;
+            CompletableFuture<Void> done = new CompletableFuture<Void>();
+            SwingUtilities.invokeLater(() -> setCurrentLivePatch(newLivePatch).whenComplete((v, ex) -> done.complete(null)));
+            return done;
+        }
+
+        CompletableFuture<Void> done = new CompletableFuture<Void>();
+        if (liveTransition.isDone()) {
+            /* Right away, so the stop command is queued before anything the caller sends next */
+            changeLivePatch(newLivePatch, done);
+        }
+        else {
+            liveTransition.whenComplete((v, ex) -> SwingUtilities.invokeLater(() -> changeLivePatch(newLivePatch, done)));
         }
+        liveTransition = done;
+        return done;
+    }
 
+    private void changeLivePatch(PatchGUI newLivePatch, CompletableFuture<Void> done) {
         /* Only proceed if the live patch is actually changing */
         if (this.currentLivePatch == newLivePatch) {
             /* If the same patch is being set live again, or if it's already null, just update states. */
             updatePatchLiveStates();
+            done.complete(null);
             return;
         }
 
@@ -1887,51 +1917,42 @@ public void setCurrentLivePatch(PatchGUI newLivePatch) {
             this.currentLivePatch.Unlock(); /* GUI-side unlock */
             System.out.println(Instant.now() + " Unlocked previous live patch: " + this.currentLivePatch.getFileNamePath());
         }
-        try {
-            CommandManager.getInstance().startLongOperation();
-            SCmdStop stopCmd = new SCmdStop();
-            stopCmd.Do();
-            CommandManager.getInstance().endLongOperation();
-            if (!stopCmd.waitForCompletion() || !stopCmd.isSuccessful()) {
+
+        new SCmdStop().DoAsync().thenAccept(stopCmd -> SwingUtilities.invokeLater(() -> {
+            if (!stopCmd.isSuccessful()) {
+                done.complete(null);
                 return;
             }
-        } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Failed to send stop command to Core for previous patch: " + this.currentLivePatch.getFileNamePath() + ", " + e.getMessage());
-            e.printStackTrace(System.out);
-        }
 
-        /* Update the reference to the new live patch --- */
-        this.currentLivePatch = newLivePatch;
+            /* Update the reference to the new live patch --- */
+            this.currentLivePatch = newLivePatch;
+
+            if (this.currentLivePatch == null) {
+                System.out.println(Instant.now() + " No patch is currently live.");
+                updatePatchLiveStates();
+                done.complete(null);
+                return;
+            }
 
-        /* Lock the newly live patch (if any) and send MCU commands --- */
-        if (this.currentLivePatch != null) {
             /* Send SCmdStart to MCU before GUI-side Lock() */
-            try {
-                CommandManager.getInstance().startLongOperation();
-                SCmdStart startCmd = new SCmdStart(this.currentLivePatch);
-                startCmd.Do();
-                CommandManager.getInstance().endLongOperation();
-                if (!startCmd.waitForCompletion() || !startCmd.isSuccessful()) {
-                    return;
+            new SCmdStart(this.currentLivePatch).DoAsync().thenAccept(startCmd -> SwingUtilities.invokeLater(() -> {
+                if (startCmd.isSuccessful() && this.currentLivePatch == newLivePatch) {
+                    this.currentLivePatch.Lock(); /* GUI-side lock */
+                    System.out.println(Instant.now() + " Locked new live patch: " + this.currentLivePatch.getFileNamePath());
                 }
-
-                this.currentLivePatch.Lock(); /* GUI-side lock */
-                System.out.println(Instant.now() + " Locked new live patch: " + this.currentLivePatch.getFileNamePath());
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Failed to send start command for patch: " + this.currentLivePatch.getFileNamePath() + "\n" + e.getMessage());
-                e.printStackTrace(System.out);
-                if (this.currentLivePatch != null) {
-                    this.currentLivePatch.Unlock(); /* Unlock GUI */
+                else {
+                    if (this.currentLivePatch != null) {
+                        this.currentLivePatch.Unlock(); /* Unlock GUI */
+                    }
+                    this.currentLivePatch = null; /* Clear live patch reference */
+                    LOGGER.log(Level.SEVERE, "Patch could not be set live on Core. Reverting GUI state.");
                 }
-                this.currentLivePatch = null; /* Clear live patch reference */
-                LOGGER.log(Level.SEVERE, "Patch could not be set live on Core. Reverting GUI state.");
-            }
-        } else {
-            System.out.println(Instant.now() + " No patch is currently live.");
-        }
 
-        /* Update all open patch windows about the new live state --- */
-        updatePatchLiveStates();
+                /* Update all open patch windows about the new live state --- */
+                updatePatchLiveStates();
+                done.complete(null);
+            }));
+        }));
     }
 
     public void updatePatchLiveStates() { /* Signals all open patch windows the current live patch state */
@@ -23,6 +23,7 @@
 import axoloti.inlets.InletInstance;
 import axoloti.object.AxoObjectInstanceAbstract;
 import axoloti.outlets.OutletInstance;
+import axoloti.ui.PaintStatistics;
 import axoloti.ui.Theme;
 import axoloti.utils.GraphicsUtils;
 
@@ -31,13 +32,13 @@
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Stroke;
 import java.awt.geom.QuadCurve2D;
 import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JComponent;
-import javax.swing.SwingUtilities;
 import org.simpleframework.xml.*;
 
 /**
@@ -122,6 +123,7 @@ public void PostConstructor() {
         }
         source = source2;
         dest = dest2;
+        patch.invalidateNetIndex();
         updateBounds();
     }
 
@@ -152,12 +154,18 @@ public void connectInlet(InletInstance inlet) {
             return;
         }
         dest.add(inlet);
+        if (patch != null) {
+            patch.netConnected(this, inlet);
+        }
         updateBounds();
     }
 
     public boolean disconnectInlet(InletInstance inlet) {
-        if (inlet != null) {
-            return dest.remove(inlet);
+        if (inlet != null && dest.remove(inlet)) {
+            if (patch != null) {
+                patch.netDisconnected(this, inlet);
+            }
+            return true;
         }
         return false;
     }
@@ -165,6 +173,9 @@ public boolean disconnectInlet(InletInstance inlet) {
     public void connectOutlet(OutletInstance outlet) {
         if (outlet.GetObjectInstance().patch == patch) {
             source.add(outlet);
+            if (patch != null) {
+                patch.netConnected(this, outlet);
+            }
         }
         updateBounds();
     }
@@ -206,18 +217,53 @@ void DrawWire(Graphics2D g2, float x1, float y1, float x2, float y2) {
         g2.draw(curve);
     }
 
+    /* Jack locations of the wire ends in canvas coordinates, and the canvas area
+     * each wire can touch. Only recomputed when an endpoint moves, see updateBounds() */
+    private Point wireFrom;
+    private Point[] wireTo = new Point[0];
+    private Rectangle[] wireBounds = new Rectangle[0];
+
+    void updateGeometry() {
+        if (!source.isEmpty()) {
+            wireFrom = source.get(0).getJackLocInCanvas();
+        } else if (!dest.isEmpty()) {
+            wireFrom = dest.get(0).getJackLocInCanvas();
+        } else {
+            wireFrom = null;
+        }
+        if (wireFrom != null) {
+            wireFrom.x -= 1; /* Compensate for outlet graphic shift */
+        }
+        wireTo = new Point[dest.size()];
+        wireBounds = new Rectangle[dest.size()];
+        for (int i = 0; i < wireTo.length; i++) {
+            Point to = dest.get(i).getJackLocInCanvas();
+            wireTo[i] = to;
+            if (wireFrom != null) {
+                /* The curve stays within its control points; grow by stroke width and shadow offset */
+                int ctrlY = (int) CtrlPointY(wireFrom.x, wireFrom.y, to.x, to.y) + 1;
+                Rectangle r = new Rectangle(Math.min(wireFrom.x, to.x), Math.min(wireFrom.y, to.y), 0, 0);
+                r.add(Math.max(wireFrom.x, to.x), ctrlY);
+                r.grow(4, 4);
+                wireBounds[i] = r;
+            }
+        }
+    }
+
     public void updateBounds() {
         int min_y = Integer.MAX_VALUE;
         int min_x = Integer.MAX_VALUE;
         int max_y = Integer.MIN_VALUE;
         int max_x = Integer.MIN_VALUE;
 
+        updateGeometry();
+
         /* Create a single list to hold all points that define the net */
         ArrayList<Point> points = new ArrayList<>();
         
         /* Add all inlet points */
-        for (InletInstance i : dest) {
-            points.add(i.getJackLocInCanvas());
+        for (Point p : wireTo) {
+            points.add(p);
         }
         /* Add all outlet points (for a valid net, this will be just one) */
         for (OutletInstance i : source) {
@@ -243,7 +289,6 @@ protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         float shadowOffset = 1.0f;
         Graphics2D g2 = GraphicsUtils.configureGraphics(g);
-        Point p0;
         Color c;
 
         if (isValidNet()) {
@@ -254,8 +299,6 @@ protected void paintComponent(Graphics g) {
                 g2.setStroke(strokeValidDeselected);
                 c = GetDataType().GetColor();
             }
-
-            p0 = source.get(0).getJackLocInCanvas();
         } else {
             if (selected) {
                 g2.setStroke(strokeBrokenSelected);
@@ -268,51 +311,67 @@ protected void paintComponent(Graphics g) {
             } else {
                 c = Theme.Cable_Sourceless;
             }
+        }
 
-            if (!source.isEmpty()) {
-                p0 = source.get(0).getJackLocInCanvas();
-            } else if (!dest.isEmpty()) {
-                p0 = dest.get(0).getJackLocInCanvas();
-            } else {
-                LOGGER.log(Level.SEVERE, "Empty nets should not exist");
-                return;
-            }
+        if (wireFrom == null || wireTo.length != dest.size()) {
+            updateGeometry();
+        }
+        if (wireFrom == null) {
+            LOGGER.log(Level.SEVERE, "Empty nets should not exist");
+            return;
         }
 
-        Point from = SwingUtilities.convertPoint(getPatchGUI().Layers, p0, this);
-        from.x -= 1; /* Compensate for outlet graphic shift */
-        Color c_shadow = c.darker().darker();
-        for (InletInstance i : dest) {
-            Point p1 = i.getJackLocInCanvas();
+        /* Only draw the wires crossing the area being repainted, in canvas coordinates */
+        int ox = getX();
+        int oy = getY();
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            clip.translate(ox, oy);
+        }
+        PaintStatistics stats = patch instanceof PatchGUI ? getPatchGUI().paintStatistics : null;
 
-            Point to = SwingUtilities.convertPoint(getPatchGUI().Layers, p1, this);
+        float fromX = wireFrom.x - ox;
+        float fromY = wireFrom.y - oy;
+        Color c_shadow = c.darker().darker();
+        for (int i = 0; i < wireTo.length; i++) {
+            if (clip != null && !clip.intersects(wireBounds[i])) {
+                if (stats != null) {
+                    stats.wireSkipped();
+                }
+                continue;
+            }
+            if (stats != null) {
+                stats.wireDrawn();
+            }
+            float toX = wireTo[i].x - ox;
+            float toY = wireTo[i].y - oy;
 
             g2.setColor(c_shadow); /* derive wire shadow color from actual color */
-            if (from.x > to.x) {
+            if (fromX > toX) {
                 /* Wire goes right-to-left */
-                if (from.y > to.y) {
+                if (fromY > toY) {
                     /* Wire goes upwards, i.e. starts lower than it ends */
-                    DrawWire(g2, from.x - shadowOffset, from.y + shadowOffset, to.x - shadowOffset, to.y + shadowOffset);
+                    DrawWire(g2, fromX - shadowOffset, fromY + shadowOffset, toX - shadowOffset, toY + shadowOffset);
                 }
                 else {
                     /* Wire goes downwards, i.e. starts higher than it ends */
-                    DrawWire(g2, from.x + shadowOffset, from.y + shadowOffset, to.x + shadowOffset, to.y + shadowOffset);
+                    DrawWire(g2, fromX + shadowOffset, fromY + shadowOffset, toX + shadowOffset, toY + shadowOffset);
                 }
             }
             else {
                 /* Wire goes left-to-right */
-                if (from.y > to.y) {
+                if (fromY > toY) {
                     /* Wire goes upwards, i.e. starts lower than it ends */
-                    DrawWire(g2, from.x + shadowOffset, from.y + shadowOffset, to.x + shadowOffset, to.y + shadowOffset);
+                    DrawWire(g2, fromX + shadowOffset, fromY + shadowOffset, toX + shadowOffset, toY + shadowOffset);
                 }
                 else {
                     /* Wire goes downwards, i.e. starts higher than it ends */
-                    DrawWire(g2, from.x - shadowOffset, from.y + shadowOffset, to.x - shadowOffset, to.y + shadowOffset);
+                    DrawWire(g2, fromX - shadowOffset, fromY + shadowOffset, toX - shadowOffset, toY + shadowOffset);
                 }
             }
 
             g2.setColor(c);
-            DrawWire(g2, from.x, from.y, to.x, to.y);
+            DrawWire(g2, fromX, fromY, toX, toY);
         }
     }
 
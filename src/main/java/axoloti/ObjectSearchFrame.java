@@ -20,7 +20,6 @@
 package axoloti;
 
 import axoloti.object.AxoObjectAbstract;
-import axoloti.object.AxoObjectIdComparator;
 import axoloti.object.AxoObjectInstanceAbstract;
 import axoloti.object.AxoObjectTreeNode;
 import axoloti.ui.Theme;
@@ -55,10 +54,10 @@
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Enumeration;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.Icon;
 import javax.swing.JList;
@@ -714,7 +713,7 @@ else if (e.getKeyCode() == KeyEvent.VK_DOWN) {
 
             @Override
             public void keyReleased(KeyEvent e) {
-                Search(jTextFieldObjName.getText());
+                SearchAsync(jTextFieldObjName.getText());
             }
         });
     }
@@ -928,84 +927,60 @@ public int compare(DefaultMutableTreeNode node1, DefaultMutableTreeNode node2) {
         }
     }
 
-    boolean containsUpperCase(String str) {
-        for (int i=0; i < str.length(); i++) {
-            Character c = str.charAt(i);
-            if (Character.getType(c) == Character.UPPERCASE_LETTER) {
-                return true;
-            }
-        }
-        return false;
-    }
+    /* Searches run here, off the EDT. One thread: a new keystroke cancels the search it supersedes. */
+    private static final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ObjectSearch");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Future<?> pendingSearch = null;
+    private int searchGeneration = 0; /* Only touched on the EDT */
 
+    /* Searches synchronously, e.g. when the finder is opened with a search string */
     public void Search(String s) {
-        LinkedHashSet<AxoObjectAbstract> resultSet = new LinkedHashSet<AxoObjectAbstract>();
-        ArrayList<AxoObjectAbstract> listData = new ArrayList<AxoObjectAbstract>();
+        CancelPendingSearch();
+        List<AxoObjectAbstract> listData = MainFrame.axoObjects.getSearchIndex().find(s);
+        ShowResults(s, listData, listData.isEmpty() ? FindByName(s, p.GetCurrentWorkingDirectory()) : null);
+    }
 
-        /* --- if search field is empty, show complete list --- */
-        if ((s == null) || s.isEmpty()) {
-            for (AxoObjectAbstract o : MainFrame.axoObjects.ObjectList) {
-                /* add complete list */
-                resultSet.add(o);
+    /* Searches in the background and shows the results unless another search was started meanwhile */
+    public void SearchAsync(final String s) {
+        CancelPendingSearch();
+        final int generation = searchGeneration;
+        final String cwd = p.GetCurrentWorkingDirectory();
+        pendingSearch = searchExecutor.submit(() -> {
+            List<AxoObjectAbstract> listData = MainFrame.axoObjects.getSearchIndex().find(s);
+            if (listData == null) {
+                return; /* Cancelled */
             }
-            /* Add all to list - don't sort */
-            listData = new ArrayList<AxoObjectAbstract>(resultSet);
-            jResultList.setListData(listData.toArray());
-        }
-        else {
-
-            boolean caseSensitiveSearch = containsUpperCase(s);
-
-            for (AxoObjectAbstract o : MainFrame.axoObjects.ObjectList) {
-                boolean matches = false;
-                if (caseSensitiveSearch) {
-                    if (o.id.equals(s) || o.id.startsWith(s) || o.id.contains(s) || (o.sDescription != null && o.sDescription.contains(s))) {
-                        matches = true;
-                    } else {
-                        String rgx = s.replace("*", ".*");
-                        if (!s.startsWith("^")) rgx = ".*" + rgx;
-                        if (!s.endsWith("$")) rgx = rgx + ".*";
-                        try {
-                            if (Pattern.matches(rgx, o.id)) {
-                                matches = true;
-                            }
-                        }
-                        catch (PatternSyntaxException e) {
-                            e.printStackTrace(System.out);
-                        }
-                    }
-
-                }
-                else {
-                    String lower_oId = o.id.toLowerCase();
-                    String lower_s = s.toLowerCase();
-                    if (lower_oId.equals(lower_s) || lower_oId.startsWith(lower_s) || lower_oId.contains(lower_s) || (o.sDescription != null && o.sDescription.toLowerCase().contains(lower_s))) {
-                        matches = true;
-                    } else {
-                        String rgx = lower_s.replace("*", ".*");
-                        if (!lower_s.startsWith("^")) rgx = ".*" + rgx;
-                        if (!lower_s.endsWith("$")) rgx = rgx + ".*";
-                        try {
-                            if (Pattern.matches(rgx, lower_oId)) {
-                                matches = true;
-                            }
-                        }
-                        catch (PatternSyntaxException e) {
-                            e.printStackTrace(System.out);
-                        }
-                    }
-
+            List<AxoObjectAbstract> byName = listData.isEmpty() ? FindByName(s, cwd) : null;
+            SwingUtilities.invokeLater(() -> {
+                if (generation == searchGeneration) {
+                    pendingSearch = null;
+                    ShowResults(s, listData, byName);
                 }
+            });
+        });
+    }
 
-                if (matches) {
-                    resultSet.add(o);
-                }
-            }
+    private void CancelPendingSearch() {
+        searchGeneration++;
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
+    }
 
-            listData = new ArrayList<AxoObjectAbstract>(resultSet);
-            Collections.sort(listData, new AxoObjectIdComparator(s, caseSensitiveSearch));
-            jResultList.setListData(listData.toArray());
+    private static List<AxoObjectAbstract> FindByName(String s, String cwd) {
+        if ((s == null) || s.isEmpty()) {
+            return null;
         }
+        return MainFrame.axoObjects.GetAxoObjectFromName(s, cwd);
+    }
+
+    private void ShowResults(String s, List<AxoObjectAbstract> listData, List<AxoObjectAbstract> byName) {
+        jResultList.setListData(listData.toArray());
 
         if (!listData.isEmpty()) {
             type = listData.get(0);
@@ -1015,10 +990,9 @@ public void Search(String s) {
             SetPreview(type);
         }
         else {
-            ArrayList<AxoObjectAbstract> objs = MainFrame.axoObjects.GetAxoObjectFromName(s, p.GetCurrentWorkingDirectory());
-            if ((objs != null) && (objs.size() > 0)) {
-                jResultList.setListData(objs.toArray());
-                SetPreview(objs.get(0));
+            if ((byName != null) && (byName.size() > 0)) {
+                jResultList.setListData(byName.toArray());
+                SetPreview(byName.get(0));
             }
         }
 
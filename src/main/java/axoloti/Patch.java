@@ -48,12 +48,18 @@
 import axoloti.outlets.OutletFrac32Buffer;
 import axoloti.outlets.OutletInstance;
 import axoloti.outlets.OutletInt32;
+import axoloti.parameters.ParameterDirtySet;
 import axoloti.parameters.ParameterInstance;
-import axoloti.sd.SDCardInfo;
 import axoloti.sd.SDFileReference;
+import axoloti.sd.SDSync;
+import axoloti.utils.CodeWriter;
+import axoloti.utils.CompiledPatchCache;
+import axoloti.utils.ExecutionOrder;
+import axoloti.utils.FirmwareID;
 import axoloti.utils.OSDetect;
 import axoloti.utils.OSDetect.OS;
 import axoloti.utils.Preferences;
+import axoloti.utils.UndoHistory;
 
 import static axoloti.MainFrame.mainframe;
 import static axoloti.utils.Constants.I;
@@ -62,24 +68,32 @@
 import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 import javax.swing.JOptionPane;
 
@@ -95,7 +109,6 @@
 import qcmds.CommandManager;
 import qcmds.QCmdCompilePatch;
 import qcmds.SCmdCreateDirectory;
-import qcmds.SCmdGetFileList;
 import qcmds.QCmdProcessor;
 import qcmds.SCmdRecallPreset;
 import qcmds.SCmdUploadFile;
@@ -123,6 +136,8 @@ public class Patch {
 
     @ElementList(name = "nets")
     public ArrayList<Net> nets = new ArrayList<Net>();
+    /* Iolet -> the net it belongs to, kept up to date by connection edits, rebuilt from nets when null */
+    private HashMap<IoletAbstract, Net> netByIolet;
 
     @Element(required = false)
     PatchSettings settings;
@@ -158,8 +173,11 @@ public class Patch {
     private AxoObjectInstanceAbstract controllerInstance;
 
     public boolean presetUpdatePending = false;
+    private final ParameterDirtySet dirtyParameters = new ParameterDirtySet();
 
-    private List<String> previousStates = new ArrayList<String>();
+    /* Undo states are kept as compressed differences, up to this much memory */
+    private static final long UNDO_MEMORY_LIMIT = 16L * 1024 * 1024;
+    private final UndoHistory previousStates = new UndoHistory(UNDO_MEMORY_LIMIT);
     private int currentState = 0;
 
     static public class PatchVersionException extends RuntimeException {
@@ -168,6 +186,33 @@ static public class PatchVersionException extends RuntimeException {
         }
     }
 
+    /* Held while generating code off the EDT, e.g. by batch builds: patches share their object types */
+    public static final Object codeGenerationLock = new Object();
+
+    /* Reads a patch without creating a PatchFrame, for batch builds. Returns null if it cannot be read. */
+    public static Patch OpenPatchHeadless(File f) {
+        Serializer serializer = new Persister(new AnnotationStrategy(), new Format(2));
+        try {
+            Patch patch1 = serializer.read(Patch.class, f);
+            patch1.setFileNamePath(f.getAbsolutePath());
+            patch1.PostContructor();
+            patch1.setFileNamePath(f.getPath());
+            return patch1;
+        } catch (java.lang.reflect.InvocationTargetException ite) {
+            if (ite.getTargetException() instanceof PatchVersionException) {
+                LOGGER.log(Level.SEVERE, "Patch \'" + f.getAbsoluteFile() + "\' was saved with a newer version of Ksoloti: " + ite.getTargetException().getMessage());
+            } else {
+                LOGGER.log(Level.SEVERE, "Error while opening patch: " + f.getPath() + ", " + ite.getMessage());
+                ite.printStackTrace(System.out);
+            }
+            return null;
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, "Error while opening patch: " + f.getPath() + ", " + ex.getMessage());
+            ex.printStackTrace(System.out);
+            return null;
+        }
+    }
+
     private static final int AVX = getVersionX(Version.AXOLOTI_SHORT_VERSION),
                              AVY = getVersionY(Version.AXOLOTI_SHORT_VERSION),
                              AVZ = getVersionZ(Version.AXOLOTI_SHORT_VERSION);
@@ -272,70 +317,8 @@ public PatchSettings getSettings() {
     }
 
     void UploadDependentFiles(String sdpath) {
-
-        /* Get current latest file list from SD to compare to */
-        try {
-            CommandManager.getInstance().startLongOperation();
-            SCmdGetFileList getFileListCmd = new SCmdGetFileList();
-            getFileListCmd.Do();
-            CommandManager.getInstance().endLongOperation();
-            if (!getFileListCmd.waitForCompletion() || !getFileListCmd.isSuccessful()) {
-                return;
-            }
-        } catch (InterruptedException e) {
-            LOGGER.log(Level.SEVERE, "Thread interrupted while getting file list.", e);
-            Thread.currentThread().interrupt();
-            return;
-        }
-
         ArrayList<SDFileReference> files = GetDependentSDFiles();
-
-        /* Check for and create required directories before the file upload loop */
-        Set<String> requiredDirectories = new HashSet<>();
-        for (SDFileReference fref : files) {
-            String targetfn = fref.targetPath;
-            if (targetfn.isEmpty()) {
-                targetfn = fref.localfile.getName();
-            } else if (targetfn.charAt(0) != '/') {
-                targetfn = sdpath + "/" + fref.targetPath;
-            }
-
-            String path = targetfn.substring(0, targetfn.lastIndexOf('/'));
-            if (!path.isEmpty()) {
-                requiredDirectories.add(path);
-            }
-        }
-
-        for (String path : requiredDirectories) {
-            String currentPath = "";
-            String[] pathComponents = path.split("/");
-            for (String component : pathComponents) {
-                if (!component.isEmpty()) {
-                    currentPath += "/" + component;
-                    /* Check if the directory already exists */
-                    if (SDCardInfo.getInstance().find(currentPath) == null) {
-                        LOGGER.log(Level.INFO, "Creating directory: " + currentPath);
-                        try {
-                            CommandManager.getInstance().startLongOperation();
-                            SCmdCreateDirectory createDirCmd = new SCmdCreateDirectory(currentPath, Calendar.getInstance());
-                            createDirCmd.Do();
-                            CommandManager.getInstance().endLongOperation();
-                            if (!createDirCmd.waitForCompletion() || !createDirCmd.isSuccessful()) {
-                                return;
-                            }
-                        } catch (InterruptedException e) {
-                            LOGGER.log(Level.SEVERE, "Thread interrupted while creating directory.", e);
-                            Thread.currentThread().interrupt();
-                            continue;
-                        }
-                    } else {
-                        LOGGER.log(Level.INFO, "Directory already exists: " + currentPath);
-                    }
-                }
-            }
-        }
-
-        /* Proceed with the file uploads */
+        LinkedHashMap<String, File> targets = new LinkedHashMap<String, File>();
         for (SDFileReference fref : files) {
             File f = fref.localfile;
             if (f == null) {
@@ -357,32 +340,22 @@ void UploadDependentFiles(String sdpath) {
             } else if (targetfn.charAt(0) != '/') {
                 targetfn = sdpath + "/" + fref.targetPath;
             }
+            targets.put(targetfn, f);
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
 
-            if (!SDCardInfo.getInstance().exists(targetfn, f.lastModified(), f.length())) {
-                // TODO: show upload all / skip all / cancel if at least one file is larger than... a few MB. then notify that those files have to be uploaded manually
-                // if (f.length() > 8 * 1024 * 1024) {
-                //     LOGGER.log(Level.INFO, "File {0} is larger than 8MB, skipping upload.", f.getName());
-                //     continue;
-                // }
-
-                try {
-                    CommandManager.getInstance().startLongOperation();
-                    SCmdUploadFile uploadFileCmd = new SCmdUploadFile(f, targetfn);
-                    uploadFileCmd.Do();
-                    CommandManager.getInstance().endLongOperation();
-                    if (!uploadFileCmd.waitForCompletion() || !uploadFileCmd.isSuccessful()) {
-                        continue;
-                    }
-                } catch (InterruptedException e) {
-                    LOGGER.log(Level.SEVERE, "Thread interrupted while uploading file.", e);
-                    Thread.currentThread().interrupt();
-                    continue;
-                }
-            }
-            else {
-                LOGGER.log(Level.INFO, "File " + f.getName() + " matches timestamp and size, skipping upload.");
-            }
+        /* Get the current listing of the target directories to compare to */
+        if (!SDSync.listDirectories(targets.keySet())) {
+            return;
         }
+
+        /* Only upload files whose content is not on the card yet */
+        SDSync sync = SDSync.forConnectedCore();
+        SDSync.Plan plan = sync.plan(targets);
+        LOGGER.log(Level.INFO, "Dependent files: " + plan.getSummary());
+        sync.execute(plan);
     }
 
     public ArrayList<AxoObjectInstanceAbstract> GetObjectInstancesWithoutComments() {
@@ -395,25 +368,6 @@ public ArrayList<AxoObjectInstanceAbstract> GetObjectInstancesWithoutComments()
         return objectInstancesWithoutComments;
     }
 
-    public boolean waitForBinFile() {
-        boolean fileFound = false;
-        for (int i = 0; i < 100; i++) {
-            if (this.getBinFile().exists()) {
-                fileFound = true;
-                return fileFound;
-            }
-            try {
-                Thread.sleep(50);
-            }
-            catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                LOGGER.log(Level.WARNING, "Waiting for .bin file interrupted.", e);
-                break;
-            }
-        }
-        return fileFound;
-    }
-
     public void ShowCompileFail() {
         Unlock();
     }
@@ -447,6 +401,7 @@ public Patch() {
     }
 
     public void PostContructor() {
+        invalidateNetIndex();
         for (AxoObjectInstanceAbstract o : objectInstances) {
             o.patch = this;
             AxoObjectAbstract t = o.resolveType();
@@ -519,6 +474,19 @@ public ArrayList<ParameterInstance> getParameterInstances() {
         return ParameterInstances;
     }
 
+    public ParameterDirtySet getDirtyParameters() {
+        return dirtyParameters;
+    }
+
+    public void MarkParameterDirty(int index) {
+        dirtyParameters.mark(index);
+    }
+
+    public void SetPresetUpdatePending() {
+        presetUpdatePending = true;
+        dirtyParameters.signal();
+    }
+
     public AxoObjectInstanceAbstract GetObjectInstance(String n) {
         for (AxoObjectInstanceAbstract o : objectInstances) {
             if (n.equals(o.getInstanceName())) {
@@ -657,21 +625,48 @@ public AxoObjectInstanceAbstract AddObjectInstance(AxoObjectAbstract obj, Point
         return null;
     }
 
-    public Net GetNet(IoletAbstract io) {
-        for (Net net : nets) {
-            for (InletInstance d : net.dest) {
-                if (d == io) {
-                    return net;
+    private HashMap<IoletAbstract, Net> getNetIndex() {
+        if (netByIolet == null) {
+            HashMap<IoletAbstract, Net> m = new HashMap<IoletAbstract, Net>();
+            for (Net net : nets) {
+                for (InletInstance d : net.dest) {
+                    m.putIfAbsent(d, net);
                 }
-            }
-
-            for (OutletInstance d : net.source) {
-                if (d == io) {
-                    return net;
+                for (OutletInstance d : net.source) {
+                    m.putIfAbsent(d, net);
                 }
             }
+            netByIolet = m;
         }
-        return null;
+        return netByIolet;
+    }
+
+    /* Forget the iolet to net index, for edits that replace nets or their endpoint lists wholesale */
+    public void invalidateNetIndex() {
+        netByIolet = null;
+    }
+
+    /* Called by Net when io was added to or removed from n */
+    void netConnected(Net n, IoletAbstract io) {
+        if (netByIolet != null && !(n instanceof NetDragging)) {
+            netByIolet.put(io, n);
+        }
+    }
+
+    void netDisconnected(Net n, IoletAbstract io) {
+        if (netByIolet != null && netByIolet.get(io) == n) {
+            netByIolet.remove(io);
+        }
+    }
+
+    public Net GetNet(IoletAbstract io) {
+        Net n = getNetIndex().get(io);
+        if (n != null && !n.dest.contains(io) && !n.source.contains(io)) {
+            /* Endpoint lists were changed behind the index's back */
+            invalidateNetIndex();
+            n = getNetIndex().get(io);
+        }
+        return n;
     }
 
     /*
@@ -803,6 +798,7 @@ public Net disconnect(IoletAbstract io) {
                 else if (io instanceof InletInstance) {
                     n.dest.remove((InletInstance) io);
                 }
+                netDisconnected(n, io);
                 if (n.source.size() + n.dest.size() <= 1) {
                     delete(n);
                 }
@@ -818,6 +814,14 @@ else if (io instanceof InletInstance) {
     public Net delete(Net n) {
         if (!IsLocked()) {
             nets.remove(n);
+            if (n != null) {
+                for (InletInstance d : n.dest) {
+                    netDisconnected(n, d);
+                }
+                for (OutletInstance d : n.source) {
+                    netDisconnected(n, d);
+                }
+            }
             return n;
         }
         else {
@@ -908,7 +912,7 @@ void deleteSelectedAxoObjInstances() {
     void PreSerialize() {
     }
 
-    void saveState() {
+    private String serializeState() {
         SortByPrefs();
         PreSerialize();
 
@@ -917,34 +921,40 @@ void saveState() {
 
         try {
             serializer.write(this, b);
-            try {
-                previousStates.set(currentState, b.toString());
-                if (cleanDanglingStates) {
-                    try {
-                        // if we've saved a new edit
-                        // after some undoing,
-                        // cleanup dangling states
-                        previousStates.subList(currentState + 1, previousStates.size()).clear();
-                    }
-                    catch (IndexOutOfBoundsException e) {
-                    }
-                }
-                this.cleanDanglingStates = true;
-            }
-            catch (IndexOutOfBoundsException e) {
-                previousStates.add(b.toString());
-            }
+            return b.toString();
         }
         catch (Exception ex) {
             LOGGER.log(Level.SEVERE, "Error while saving patch undo state: " + ex.getMessage());
             ex.printStackTrace(System.out);
+            return null;
         }
     }
 
+    void saveState() {
+        String s = serializeState();
+        if (s == null) {
+            return;
+        }
+        if (currentState < previousStates.size()) {
+            previousStates.set(currentState, s);
+            if (cleanDanglingStates) {
+                // if we've saved a new edit
+                // after some undoing,
+                // cleanup dangling states
+                previousStates.truncate(currentState + 1);
+            }
+            this.cleanDanglingStates = true;
+        }
+        else {
+            previousStates.add(s);
+        }
+        currentState -= previousStates.trim(currentState);
+    }
+
     public void cleanUpIntermediateChangeStates(int n) {
         int length = previousStates.size();
         if (length >= n) {
-            previousStates.subList(length - n, length).clear();
+            previousStates.truncate(length - n);
             this.currentState -= n - 1;
             saveState();
         }
@@ -953,8 +963,15 @@ public void cleanUpIntermediateChangeStates(int n) {
     private boolean cleanDanglingStates = true;
 
     void loadState() {
+        String target = previousStates.get(currentState);
+        String current = serializeState();
+        if (current != null && applyState(current, target) != null) {
+            AdjustSize();
+            return;
+        }
+
         Serializer serializer = new Persister(new Format(2));
-        ByteArrayInputStream b = new ByteArrayInputStream(previousStates.get(currentState).getBytes());
+        ByteArrayInputStream b = new ByteArrayInputStream(target.getBytes());
 
         try {
             Patch p = serializer.read(Patch.class, b);
@@ -962,6 +979,7 @@ void loadState() {
             Close();
             this.objectInstances = p.objectInstances;
             this.nets = p.nets;
+            invalidateNetIndex();
             this.Modulators = p.Modulators;
             this.cleanDanglingStates = false;
             this.PostContructor();
@@ -973,6 +991,133 @@ void loadState() {
         }
     }
 
+    /* What applyState() changed: objects taken out and put in, and the nets it replaced */
+    static class StateChange {
+        final ArrayList<AxoObjectInstanceAbstract> removed = new ArrayList<AxoObjectInstanceAbstract>();
+        final ArrayList<AxoObjectInstanceAbstract> added = new ArrayList<AxoObjectInstanceAbstract>();
+        ArrayList<Net> oldNets;
+    }
+
+    private static final Pattern OBJECT_ELEMENT = Pattern.compile("^  <(obj|patcher|patchobj|comment|hyperlink|zombie)[ >/].*");
+    private static final Pattern TOP_LEVEL_ELEMENT = Pattern.compile("^  <[a-zA-Z].*");
+    private static final Pattern POSITION = Pattern.compile(" x=\"-?\\d+\" y=\"-?\\d+\"");
+
+    /* Serialized objects of a patch state, in patch order, one string each */
+    static ArrayList<String> splitObjectElements(String state) {
+        ArrayList<String> elements = new ArrayList<String>();
+        StringBuilder element = null;
+        for (String line : state.split("\n")) {
+            if (TOP_LEVEL_ELEMENT.matcher(line).matches()) {
+                if (element != null) {
+                    elements.add(element.toString());
+                }
+                element = OBJECT_ELEMENT.matcher(line).matches() ? new StringBuilder(line) : null;
+            }
+            else if (element != null) {
+                element.append('\n').append(line);
+            }
+        }
+        if (element != null) {
+            elements.add(element.toString());
+        }
+        return elements;
+    }
+
+    /*
+     * Turns the patch from state current into state target without rebuilding
+     * it: objects that are the same in both states are kept, objects that only
+     * moved are moved, the others are replaced, and all nets are replaced.
+     * Returns null, having changed nothing, when the states are not suitable,
+     * for instance when modulations are involved; loadState() then rebuilds
+     * the whole patch.
+     */
+    StateChange applyState(String current, String target) {
+        if (Modulators != null && !Modulators.isEmpty()) {
+            return null;
+        }
+        ArrayList<String> currentElements = splitObjectElements(current);
+        ArrayList<String> targetElements = splitObjectElements(target);
+        if (currentElements.size() != objectInstances.size()) {
+            return null;
+        }
+
+        Patch p;
+        try {
+            p = new Persister(new Format(2)).read(Patch.class, new ByteArrayInputStream(target.getBytes()));
+        }
+        catch (Exception ex) {
+            return null;
+        }
+        if (targetElements.size() != p.objectInstances.size()) {
+            return null;
+        }
+
+        HashMap<String, Integer> currentIndex = new HashMap<String, Integer>();
+        for (int i = 0; i < objectInstances.size(); i++) {
+            if (currentIndex.put(objectInstances.get(i).getInstanceName(), i) != null) {
+                return null;
+            }
+        }
+
+        StateChange change = new StateChange();
+        ArrayList<AxoObjectInstanceAbstract> result = new ArrayList<AxoObjectInstanceAbstract>();
+        IdentityHashMap<AxoObjectInstanceAbstract, Point> moved = new IdentityHashMap<AxoObjectInstanceAbstract, Point>();
+        for (int j = 0; j < p.objectInstances.size(); j++) {
+            AxoObjectInstanceAbstract t = p.objectInstances.get(j);
+            Integer i = currentIndex.get(t.getInstanceName());
+            if (i != null && currentElements.get(i).equals(targetElements.get(j))) {
+                result.add(objectInstances.get(i));
+            }
+            else if (i != null && POSITION.matcher(currentElements.get(i)).replaceFirst("")
+                    .equals(POSITION.matcher(targetElements.get(j)).replaceFirst(""))) {
+                result.add(objectInstances.get(i));
+                moved.put(objectInstances.get(i), new Point(t.getX(), t.getY()));
+            }
+            else {
+                t.patch = this;
+                AxoObjectAbstract type = t.resolveType();
+                if (type == null || type.providesModulationSource()
+                        || t instanceof AxoObjectInstanceZombie || t.isTypeWasAmbiguous()) {
+                    return null;
+                }
+                result.add(t);
+                change.added.add(t);
+            }
+        }
+
+        Set<AxoObjectInstanceAbstract> kept = Collections.newSetFromMap(new IdentityHashMap<AxoObjectInstanceAbstract, Boolean>());
+        kept.addAll(result);
+        if (kept.size() != result.size()) {
+            return null; /* The target state has an instance name twice */
+        }
+
+        /* From here on the patch is changed */
+        for (AxoObjectInstanceAbstract o : objectInstances) {
+            if (!kept.contains(o)) {
+                change.removed.add(o);
+                o.Close();
+            }
+        }
+        change.oldNets = nets;
+        objectInstances = result;
+        nets = p.nets;
+        invalidateNetIndex();
+        for (AxoObjectInstanceAbstract o : change.added) {
+            o.PostConstructor();
+        }
+        ArrayList<Net> nets2 = (ArrayList<Net>) nets.clone();
+        for (Net n : nets2) {
+            n.patch = this;
+            n.PostConstructor();
+        }
+        for (Map.Entry<AxoObjectInstanceAbstract, Point> m : moved.entrySet()) {
+            m.getKey().setLocation(m.getValue().x, m.getValue().y);
+        }
+        refreshIndexes();
+        ShowPreset(0);
+        return change;
+    }
+
     boolean save(File f) {
         if (hasZombies()) {
             Object[] options = {"Save Anyway",
@@ -1047,12 +1192,16 @@ void refreshIndexes() {
         }
         int i = 0;
         ParameterInstances = new ArrayList<ParameterInstance>();
+        dirtyParameters.clear(); /* Indexes are about to change */
         for (AxoObjectInstanceAbstract o : objectInstances) {
             for (ParameterInstance p : o.getParameterInstances()) {
                 if (!p.isFrozen()) {
                     p.setIndex(i);
                     i++;
                     ParameterInstances.add(p);
+                    if (p.GetNeedsTransmit()) {
+                        dirtyParameters.mark(p.getIndex());
+                    }
                 }
             }
         }
@@ -1131,72 +1280,53 @@ void SortByPosition() {
         refreshIndexes();
     }
     
-    void SortParentsByExecution(AxoObjectInstanceAbstract o, LinkedList<AxoObjectInstanceAbstract> result) {
-        LinkedList<AxoObjectInstanceAbstract> before = new LinkedList<AxoObjectInstanceAbstract>(result);
-        LinkedList<AxoObjectInstanceAbstract> parents = new LinkedList<AxoObjectInstanceAbstract>();
+    /* Parents before children, see ExecutionOrder */
+    void SortByExecution() {
+        int count = objectInstances.size();
+        IdentityHashMap<AxoObjectInstanceAbstract, Integer> index = new IdentityHashMap<AxoObjectInstanceAbstract, Integer>(count * 2);
+        for (int i = 0; i < count; i++) {
+            index.put(objectInstances.get(i), i);
+        }
 
-        /* get the parents */
-        for (InletInstance il : o.getInletInstances()) {
-            Net n = GetNet(il);
-            if (n != null) {
-                for (OutletInstance ol: n.GetSource()) {
-                    AxoObjectInstanceAbstract i = ol.GetObjectInstance();
-                    if (!parents.contains(i)) {
-                        parents.add(i);
+        int[][] parents = new int[count][];
+        boolean[] endpoint = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            AxoObjectInstanceAbstract o = objectInstances.get(i);
+            /* Sources of the nets on the inlets, in inlet order */
+            LinkedHashSet<Integer> ps = new LinkedHashSet<Integer>();
+            for (InletInstance il : o.getInletInstances()) {
+                Net n = GetNet(il);
+                if (n != null) {
+                    for (OutletInstance ol : n.GetSource()) {
+                        Integer p = index.get(ol.GetObjectInstance());
+                        if (p != null) {
+                            ps.add(p);
+                        }
                     }
                 }
             }
-        }
-
-        /* sort the parents */
-        Collections.sort(parents);
-        /* prepend any we haven't seen before */
-        for (AxoObjectInstanceAbstract c: parents) {
-            if (result.contains(c))
-                result.remove(c);
-            result.addFirst(c);
-        }
-
-        /* prepend their parents */
-        for (AxoObjectInstanceAbstract c: parents) {
-            if (!before.contains(c))
-                SortParentsByExecution(c, result);
-        }
-    }
-
-    void SortByExecution() {
-        LinkedList<AxoObjectInstanceAbstract> endpoints = new LinkedList<AxoObjectInstanceAbstract>();
-        LinkedList<AxoObjectInstanceAbstract> result = new LinkedList<AxoObjectInstanceAbstract>();
-
-        /* start with all objects without outlets (end points) */
-        for (AxoObjectInstanceAbstract o : objectInstances) {
-            if (o.getOutletInstances().isEmpty()) {
-                endpoints.add(o);
+            parents[i] = new int[ps.size()];
+            int k = 0;
+            for (int p : ps) {
+                parents[i][k++] = p;
             }
-            else {
-                int count = 0;
-                for (OutletInstance ol : o.getOutletInstances()) {
-                    if (GetNet(ol) != null)
-                        count++;
+
+            /* Objects without connected outlets */
+            endpoint[i] = true;
+            for (OutletInstance ol : o.getOutletInstances()) {
+                if (GetNet(ol) != null) {
+                    endpoint[i] = false;
+                    break;
                 }
-                if (count == 0)
-                    endpoints.add(o);
             }
         }
 
-        /* sort them by position */
-        Collections.sort(endpoints);
-
-        /* walk their inlets */
-        for (AxoObjectInstanceAbstract o : endpoints) {
-            SortParentsByExecution(o, result);
+        final ArrayList<AxoObjectInstanceAbstract> objects = objectInstances;
+        ArrayList<AxoObjectInstanceAbstract> result = new ArrayList<AxoObjectInstanceAbstract>(count);
+        for (int i : ExecutionOrder.sort(parents, endpoint, (a, b) -> objects.get(a).compareTo(objects.get(b)))) {
+            result.add(objects.get(i));
         }
-
-        /* add the end points */
-        result.addAll(endpoints);
-
-        /* turn it back into a freshly sorted array */
-        objectInstances = new ArrayList<AxoObjectInstanceAbstract>(result);
+        objectInstances = result;
         refreshIndexes();
     }
 
@@ -1282,142 +1412,244 @@ public String generateIncludes() {
     }
 
     /* the c++ code generator */
-    String GeneratePexchAndDisplayCode() {
-        String c = GeneratePexchAndDisplayCodeV();
-        c += I + "int32_t PExModulationPrevVal[attr_poly][NMODULATIONSOURCES];\n";
-        return c;
+    void GeneratePexchAndDisplayCode(CodeWriter c) {
+        GeneratePexchAndDisplayCodeV(c);
+        c.append(I + "int32_t PExModulationPrevVal[attr_poly][NMODULATIONSOURCES];\n");
     }
 
-    String GeneratePexchAndDisplayCodeV() {
-        String c = "";
-        c += I + "static const uint16_t NPEXCH = " + ParameterInstances.size() + ";\n";
-        c += I + "ParameterExchange_t PExch[NPEXCH];\n";
-        c += I + "int32_t displayVector[" + (displayDataLength + 3) + "];\n";
+    void GeneratePexchAndDisplayCodeV(CodeWriter c) {
+        c.append(I + "static const uint16_t NPEXCH = " + ParameterInstances.size() + ";\n");
+        c.append(I + "ParameterExchange_t PExch[NPEXCH];\n");
+        c.append(I + "int32_t displayVector[" + (displayDataLength + 3) + "];\n");
 
-        c += I + "static const uint8_t NPRESETS = " + settings.GetNPresets() + ";\n";
-        c += I + "static const uint8_t NPRESET_ENTRIES = " + settings.GetNPresetEntries() + ";\n";
+        c.append(I + "static const uint8_t NPRESETS = " + settings.GetNPresets() + ";\n");
+        c.append(I + "static const uint8_t NPRESET_ENTRIES = " + settings.GetNPresetEntries() + ";\n");
 
-        c += I + "static const uint8_t NMODULATIONSOURCES = " + settings.GetNModulationSources() + ";\n";
-        c += I + "static const uint8_t NMODULATIONTARGETS = " + settings.GetNModulationTargetsPerSource() + ";\n";
-        return c;
+        c.append(I + "static const uint8_t NMODULATIONSOURCES = " + settings.GetNModulationSources() + ";\n");
+        c.append(I + "static const uint8_t NMODULATIONTARGETS = " + settings.GetNModulationTargetsPerSource() + ";\n");
+    }
+
+    /* Instances sharing a class, with the index of their first parameter, set before Init() */
+    private final HashMap<AxoObjectInstanceAbstract, String> paramIndexBases = new HashMap<AxoObjectInstanceAbstract, String>();
+    /* Object classes emitted by the last code generation, and the instances they serve */
+    private int objectClassCount = 0;
+    private int objectInstanceCount = 0;
+
+    private static final Pattern STATIC_KEYWORD = Pattern.compile("\\bstatic\\b");
+
+    /*
+     * Class body of o after its parent pointer, with the indices of its own
+     * parameters taken relative to param_index_base. Null if its class has a
+     * different layout, its parameter indices do not follow each other, or
+     * it declares something static, which instances sharing the class would
+     * share too.
+     */
+    private String GenerateSharedClassBody(AxoObjectInstanceAbstract o, String cls, String classname) {
+        String head = I + "class " + o.getCInstanceName() + " {\n\n"
+                    + I+I + "public: // v1\n"
+                    + I+I + classname + " *parent;\n";
+        if (!(o instanceof AxoObjectInstance) || !cls.startsWith(head)) {
+            return null;
+        }
+        String body = cls.substring(head.length());
+        if (STATIC_KEYWORD.matcher(body).find()) {
+            return null;
+        }
+        int base = -1;
+        int j = 0;
+        for (ParameterInstance p : o.getParameterInstances()) {
+            if (p.isFrozen()) {
+                continue;
+            }
+            int index = p.getIndex();
+            if (index < 0 || index >= ParameterInstances.size() || ParameterInstances.get(index) != p) {
+                return null; /* Not indexed since it was last unfrozen */
+            }
+            if (base < 0) {
+                base = index;
+            }
+            if (index != base + j) {
+                return null;
+            }
+            body = body.replaceAll("\\b" + Pattern.quote(p.indexName()) + "\\b", (j == 0) ? "param_index_base" : "(param_index_base + " + j + ")");
+            j++;
+        }
+        return body;
     }
 
-    String GenerateObjectCode(String classname) {
-        String c = "";
+    /*
+     * Emits one class for all instances whose classes only differ in their
+     * name and parameter indices. The shared class reads the indices from a
+     * param_index_base member, and the other instances get a typedef to it,
+     * so they are declared and addressed by their own class name as before.
+     */
+    void GenerateObjectClasses(CodeWriter c, String classname) {
+        paramIndexBases.clear();
+        ArrayList<AxoObjectInstanceAbstract> instances = new ArrayList<AxoObjectInstanceAbstract>();
+        ArrayList<String> classes = new ArrayList<String>();
+        ArrayList<String> bodies = new ArrayList<String>();
+        HashMap<String, AxoObjectInstanceAbstract> firstWithBody = new HashMap<String, AxoObjectInstanceAbstract>();
+        HashSet<AxoObjectInstanceAbstract> shared = new HashSet<AxoObjectInstanceAbstract>();
+        for (AxoObjectInstanceAbstract o : objectInstances) {
+            String cls = o.GenerateClass(classname);
+            if (cls.isEmpty()) {
+                continue;
+            }
+            String body = GenerateSharedClassBody(o, cls, classname);
+            instances.add(o);
+            classes.add(cls);
+            bodies.add(body);
+            if (body != null) {
+                AxoObjectInstanceAbstract first = firstWithBody.putIfAbsent(body, o);
+                if (first != null) {
+                    shared.add(first);
+                }
+            }
+        }
+
+        objectClassCount = 0;
+        objectInstanceCount = instances.size();
+        for (int i = 0; i < instances.size(); i++) {
+            AxoObjectInstanceAbstract o = instances.get(i);
+            String body = bodies.get(i);
+            AxoObjectInstanceAbstract first = (body == null) ? o : firstWithBody.get(body);
+            if (!shared.contains(first)) {
+                c.append(classes.get(i));
+                objectClassCount++;
+                continue;
+            }
+
+            for (ParameterInstance p : o.getParameterInstances()) {
+                if (!p.isFrozen()) {
+                    paramIndexBases.put(o, p.indexName());
+                    break;
+                }
+            }
+            if (first == o) {
+                c.append(I + "class " + o.getCInstanceName() + " {\n\n"
+                       + I+I + "public: // v1\n"
+                       + I+I + classname + " *parent;\n");
+                if (paramIndexBases.containsKey(o)) {
+                    c.append(I+I + "uint16_t param_index_base;\n");
+                }
+                c.append(body);
+                objectClassCount++;
+            }
+            else {
+                c.append(I + "typedef " + first.getCInstanceName() + " " + o.getCInstanceName() + ";\n\n");
+            }
+        }
+    }
+
+    void GenerateObjectCode(CodeWriter c, String classname) {
         
-        c += "\n" + I + "/* <modsource declarations> */\n";
+        c.append("\n" + I + "/* <modsource declarations> */\n");
         if (Modulators.size() > 0) {
             int k = 0;
             for (Modulator m : Modulators) {
-                c += I + "static const int32_t " + m.getCName() + " = " + k + ";\n";
+                c.append(I + "static const int32_t " + m.getCName() + " = " + k + ";\n");
                 k++;
             }
         }
-        c += I + "/* </modsource declarations> */\n";
+        c.append(I + "/* </modsource declarations> */\n");
 
-        c += "\n" + I + "/* <parameter instance indices> */\n";
+        c.append("\n" + I + "/* <parameter instance indices> */\n");
         if (ParameterInstances.size() > 0) {
             int k = 0;
             for (ParameterInstance p : ParameterInstances) {
                 if (!p.isFrozen()) {
-                    c += I + "static const uint16_t PARAM_INDEX_" + p.GetObjectInstance().getLegalName() + "_" + p.getLegalName() + " = " + k + ";\n";
+                    c.append(I + "static const uint16_t PARAM_INDEX_" + p.GetObjectInstance().getLegalName() + "_" + p.getLegalName() + " = " + k + ";\n");
                     k++;
                 }
             }
         }
-        c += I + "/* </parameter instance indices> */\n";
+        c.append(I + "/* </parameter instance indices> */\n");
 
-        c += "\n" + I + "/* <controller object class> */\n";
+        c.append("\n" + I + "/* <controller object class> */\n");
         if (controllerInstance != null) {
-            c += controllerInstance.GenerateClass(classname);
+            c.append(controllerInstance.GenerateClass(classname));
         }
-        c += I + "/* </controller object class> */\n";
+        c.append(I + "/* </controller object class> */\n");
 
-        c += "\n" + I + "/* <controller object instance> */\n";
+        c.append("\n" + I + "/* <controller object instance> */\n");
         if (controllerInstance != null) {
             String s = controllerInstance.getCInstanceName();
             if (!s.isEmpty()) {
-                c += I + s + " " + s + "_i;\n";
+                c.append(I + s + " " + s + "_i;\n");
             }
         }
-        c += I + "/* </controller object instance> */\n";
+        c.append(I + "/* </controller object instance> */\n");
 
-        c += "\n" + I + "/* <object classes> */\n";
-        for (AxoObjectInstanceAbstract o : objectInstances) {
-            c += o.GenerateClass(classname);
-        }
-        c += I + "/* </object classes> */\n";
+        c.append("\n" + I + "/* <object classes> */\n");
+        GenerateObjectClasses(c, classname);
+        c.append(I + "/* </object classes> */\n");
 
-        c += "\n" + I + "/* <object instances> */\n";
+        c.append("\n" + I + "/* <object instances> */\n");
         for (AxoObjectInstanceAbstract o : objectInstances) {
             String s = o.getCInstanceName();
             if (!s.isEmpty()) {
-                c += I + s + " " + s + "_i;\n";
+                c.append(I + s + " " + s + "_i;\n");
             }
         }
-        c += I + "/* </object instances> */\n";
+        c.append(I + "/* </object instances> */\n");
 
-        c += "\n" + I + "/* <net latches> */\n";
+        c.append("\n" + I + "/* <net latches> */\n");
         for (Net n : nets) {
             /* check if net has multiple sources */
             if ((n.CType() != null) && n.NeedsLatch()) {
                 if(n.CType() == "char*") {
-                    c += I + n.CType() + " " + n.GetCName() + "Latch" + " = NULL;\n";
+                    c.append(I + n.CType() + " " + n.GetCName() + "Latch" + " = NULL;\n");
                 }
                 else {
-                    c += I + n.CType() + " " + n.GetCName() + "Latch" + ";\n";
+                    c.append(I + n.CType() + " " + n.GetCName() + "Latch" + ";\n");
                 }
             }
         }
-        c += I + "/* </net latches> */\n";
+        c.append(I + "/* </net latches> */\n");
 
-        return c + "\n";
+        c.append("\n");
     }
 
-    String GenerateStructCodePlusPlusSub(String classname) {
-        String c = "";
-        c += GeneratePexchAndDisplayCode();
-        c += GenerateObjectCode(classname);
-        return c;
+    void GenerateStructCodePlusPlusSub(CodeWriter c, String classname) {
+        GeneratePexchAndDisplayCode(c);
+        GenerateObjectCode(c, classname);
     }
 
-    String GenerateStructCodePlusPlus(String classname, String parentclassname) {
-        String c = "";
-        c += "class " + classname + " {\n\n";
-        c += I + "public:\n";
-        c += GenerateStructCodePlusPlusSub(parentclassname);
-        return c;
+    void GenerateStructCodePlusPlus(CodeWriter c, String classname, String parentclassname) {
+        c.append("class " + classname + " {\n\n");
+        c.append(I + "public:\n");
+        GenerateStructCodePlusPlusSub(c, parentclassname);
     }
 
-    String GeneratePresetCode3(String ClassName) {
+    void GeneratePresetCode3(CodeWriter c, String ClassName) {
 
-        String c = I + "static const int32_t* GetPresets(void) {\n";
-        c += I+I + "static const int32_t p[NPRESETS][NPRESET_ENTRIES][2] = {\n";
+        c.append(I + "static const int32_t* GetPresets(void) {\n");
+        c.append(I+I + "static const int32_t p[NPRESETS][NPRESET_ENTRIES][2] = {\n");
 
         for (int i = 0; i < settings.GetNPresets(); i++) {
             int[] dp = DistillPreset(i + 1);
-            c += I+I+I + "{\n";
+            c.append(I+I+I + "{\n");
             for (int j = 0; j < settings.GetNPresetEntries(); j++) {
-                c += I+I+I+I + "{" + dp[j * 2] + ", " + dp[j * 2 + 1] + "}";
+                c.append(I+I+I+I + "{" + dp[j * 2] + ", " + dp[j * 2 + 1] + "}");
                 if (j != settings.GetNPresetEntries() - 1) {
-                    c += ",\n";
+                    c.append(",\n");
                 }
                 else {
-                    c += "\n";
+                    c.append("\n");
                 }
             }
             if (i != settings.GetNPresets() - 1) {
-                c += I+I+I + "},\n";
+                c.append(I+I+I + "},\n");
             }
             else {
-                c += I+I+I + "}\n";
+                c.append(I+I+I + "}\n");
             }
         }
-        c += I+I + "};\n";
-        c += I+I + "return &p[0][0][0];\n";
-        c += I + "};\n\n";
+        c.append(I+I + "};\n");
+        c.append(I+I + "return &p[0][0][0];\n");
+        c.append(I + "};\n\n");
 
-        c += I + "void ApplyPreset(uint8_t index) {\n"
+        c.append(I + "void ApplyPreset(uint8_t index) {\n"
            + I+I + "if (!index) {\n"
            + I+I+I + "int32_t* p = GetInitParams();\n"
            + I+I+I + "uint32_t i; for (i = 0; i < NPEXCH; i++) {\n"
@@ -1436,285 +1668,272 @@ String GeneratePresetCode3(String ClassName) {
            + I+I+I+I + "else break;\n"
            + I+I+I + "}\n"
            + I+I + "}\n"
-           + I + "}\n\n";
-
-        return c;
+           + I + "}\n\n");
     }
 
-    String GenerateModulationCode3() {
+    void GenerateModulationCode3(CodeWriter c) {
 
-        String s = I + "static PExModulationTarget_t* GetModulationTable(void) {\n";
-        s += I+I + "static const PExModulationTarget_t PExModulationSources[NMODULATIONSOURCES][NMODULATIONTARGETS] = {\n";
+        c.append(I + "static PExModulationTarget_t* GetModulationTable(void) {\n");
+        c.append(I+I + "static const PExModulationTarget_t PExModulationSources[NMODULATIONSOURCES][NMODULATIONTARGETS] = {\n");
         for (int i = 0; i < settings.GetNModulationSources(); i++) {
-            s += I+I+I + "{";
+            c.append(I+I+I + "{");
             if (i < Modulators.size()) {
                 Modulator m = Modulators.get(i);
                 for (int j = 0; j < settings.GetNModulationTargetsPerSource(); j++) {
                     if (j < m.getModulationList().size()) {
                         Modulation n = m.getModulation(j);
                         if (n.destination.isFrozen()) {
-                            s += "{-1, 0}";
+                            c.append("{-1, 0}");
                         }
                         else {
-                            s += "{" + n.destination.indexName() + ", " + n.value.getRaw() + "}";
+                            c.append("{" + n.destination.indexName() + ", " + n.value.getRaw() + "}");
                         }
                     }
                     else {
-                        s += "{-1, 0}";
+                        c.append("{-1, 0}");
                     }
                     if (j != settings.GetNModulationTargetsPerSource() - 1) {
-                        s += ", ";
+                        c.append(", ");
                     }
                     else {
-                        s += "\n}";
+                        c.append("\n}");
                     }
                 }
             }
             else {
                 for (int j = 0; j < settings.GetNModulationTargetsPerSource() - 1; j++) {
-                    s += "{-1, 0}, ";
+                    c.append("{-1, 0}, ");
                 }
-                s += "{-1, 0}}";
+                c.append("{-1, 0}}");
             }
             if (i != settings.GetNModulationSources() - 1) {
-                s += ",\n";
+                c.append(",\n");
             }
         }
-        s += I+I + "};\n\n";
-        s += I+I + "return (PExModulationTarget_t*) &PExModulationSources[0][0];\n";
-        s += I + "};\n";
-
-        return s;
+        c.append(I+I + "};\n\n");
+        c.append(I+I + "return (PExModulationTarget_t*) &PExModulationSources[0][0];\n");
+        c.append(I + "};\n");
     }
 
-    String GenerateParamInitCode3(String ClassName) {
+    void GenerateParamInitCode3(CodeWriter c, String ClassName) {
         int s = ParameterInstances.size();
-        String c = I + "static int32_t* GetInitParams(void) {\n"
-                 + I+I + "static const int32_t p[NPEXCH] = {\n";
+        c.append(I + "static int32_t* GetInitParams(void) {\n"
+                 + I+I + "static const int32_t p[NPEXCH] = {\n");
         for (int i = 0; i < s; i++) {
-            c += I+I+I + ParameterInstances.get(i).GetValueRaw();
+            c.append(I+I+I + ParameterInstances.get(i).GetValueRaw());
             if (i != s - 1) {
-                c += ",\n";
+                c.append(",\n");
             }
             else {
-                c += "\n";
+                c.append("\n");
             }
         }
-        c += I+I + "};\n"
+        c.append(I+I + "};\n"
                 + I+I + "return (int32_t*) &p[0];\n"
-                + I + "}\n\n";
-        return c;
+                + I + "}\n\n");
     }
 
-    String GenerateObjInitCodePlusPlusSub(String className, String parentReference) {
-        String c = "";
+    void GenerateObjInitCodePlusPlusSub(CodeWriter c, String className, String parentReference) {
         if (controllerInstance != null) {
             String s = controllerInstance.getCInstanceName();
             if (!s.isEmpty()) {
-                c += "\n" + I+I + s + "_i.Init(" + parentReference;
+                c.append("\n" + I+I + s + "_i.Init(" + parentReference);
                 for (DisplayInstance i : controllerInstance.GetDisplayInstances()) {
                     if (i.display.getLength() > 0) {
-                        c += ", ";
-                        c += i.valueName("");
+                        c.append(", ");
+                        c.append(i.valueName(""));
                     }
                 }
-                c += ");\n\n";
+                c.append(");\n\n");
             }
         }
 
         for (AxoObjectInstanceAbstract o : objectInstances) {
             String s = o.getCInstanceName();
             if (!s.isEmpty()) {
-                c += I+I + o.getCInstanceName() + "_i.Init(" + parentReference;
+                String base = paramIndexBases.get(o);
+                if (base != null) {
+                    c.append(I+I + s + "_i.param_index_base = " + base + ";\n");
+                }
+                c.append(I+I + o.getCInstanceName() + "_i.Init(" + parentReference);
                 for (DisplayInstance i : o.GetDisplayInstances()) {
                     if (i.display.getLength() > 0) {
-                        c += ", ";
-                        c += i.valueName("");
+                        c.append(", ");
+                        c.append(i.valueName(""));
                     }
                 }
-                c += ");\n";
+                c.append(");\n");
             }
         }
-        c += "\n" + I+I + "uint32_t k; for (k = 0; k < NPEXCH; k++) {\n"
+        c.append("\n" + I+I + "uint32_t k; for (k = 0; k < NPEXCH; k++) {\n"
            + I+I+I + "if (PExch[k].pfunction) {\n"
            + I+I+I+I + "(PExch[k].pfunction)(&PExch[k]);\n"
            + I+I+I + "}\n"
            + I+I+I + "else {\n"
            + I+I+I+I + "PExch[k].finalvalue = PExch[k].value;\n"
            + I+I+I + "}\n"
-           + I+I + "}\n";
-        return c;
-    }
-
-    String GenerateParamInitCodePlusPlusSub(String className, String parentReference) {
-        String c = "";
-        c += I+I + "uint32_t i, j;\n";
-        c += I+I + "const int32_t* p;\n";
-        c += I+I + "p = GetInitParams();\n\n";
-        c += I+I + "for (j = 0; j < NPEXCH; j++) {\n";
-        c += I+I+I + "PExch[j].value = p[j];\n";
-        c += I+I+I + "PExch[j].modvalue = p[j];\n";
-        c += I+I+I + "PExch[j].signals = 0;\n";
-        c += I+I+I + "PExch[j].pfunction = 0;\n";
+           + I+I + "}\n");
+    }
+
+    void GenerateParamInitCodePlusPlusSub(CodeWriter c, String className, String parentReference) {
+        c.append(I+I + "uint32_t i, j;\n");
+        c.append(I+I + "const int32_t* p;\n");
+        c.append(I+I + "p = GetInitParams();\n\n");
+        c.append(I+I + "for (j = 0; j < NPEXCH; j++) {\n");
+        c.append(I+I+I + "PExch[j].value = p[j];\n");
+        c.append(I+I+I + "PExch[j].modvalue = p[j];\n");
+        c.append(I+I+I + "PExch[j].signals = 0;\n");
+        c.append(I+I+I + "PExch[j].pfunction = 0;\n");
 //        c += I+I+I + "PExch[j].finalvalue = p[j];\n"; /*TBC*/
-        c += I+I + "}\n\n";
-        c += I+I + "int32_t* pp = &PExModulationPrevVal[0][0];\n";
-        c += I+I + "for (j = 0; j < (attr_poly * NMODULATIONSOURCES); j++) {\n";
-        c += I+I+I + "*pp = 0; pp++;\n";
-        c += I+I + "}\n\n";
-        c += I+I + "displayVector[0] = 0x446F7841; /* AxoD */\n";
-        c += I+I + "displayVector[1] = 0;\n";
-        c += I+I + "displayVector[2] = " + displayDataLength + ";\n";
-        return c;
-    }
-
-    String GenerateInitCodePlusPlus(String className) {
-        String c = "\n";
-        c += I + "/* Patch init */\n";
-        c += I + "void Init() {\n";
-        c += GenerateParamInitCodePlusPlusSub("", "this");
-        c += GenerateObjInitCodePlusPlusSub("", "this");
-        c += I + "}\n\n";
-
-        return c;
-    }
-
-    String GenerateDisposeCodePlusPlusSub(String className) {
+        c.append(I+I + "}\n\n");
+        c.append(I+I + "int32_t* pp = &PExModulationPrevVal[0][0];\n");
+        c.append(I+I + "for (j = 0; j < (attr_poly * NMODULATIONSOURCES); j++) {\n");
+        c.append(I+I+I + "*pp = 0; pp++;\n");
+        c.append(I+I + "}\n\n");
+        c.append(I+I + "displayVector[0] = 0x446F7841; /* AxoD */\n");
+        c.append(I+I + "displayVector[1] = 0;\n");
+        c.append(I+I + "displayVector[2] = " + displayDataLength + ";\n");
+    }
+
+    void GenerateInitCodePlusPlus(CodeWriter c, String className) {
+        c.append("\n");
+        c.append(I + "/* Patch init */\n");
+        c.append(I + "void Init() {\n");
+        GenerateParamInitCodePlusPlusSub(c, "", "this");
+        GenerateObjInitCodePlusPlusSub(c, "", "this");
+        c.append(I + "}\n\n");
+    }
+
+    void GenerateDisposeCodePlusPlusSub(CodeWriter c, String className) {
         // reverse order
-        String c = "";
         int l = objectInstances.size();
         for (int i = l - 1; i >= 0; i--) {
             AxoObjectInstanceAbstract o = objectInstances.get(i);
             String s = o.getCInstanceName();
             if (!s.isEmpty()) {
-                c += I+I + o.getCInstanceName() + "_i.Dispose();\n";
+                c.append(I+I + o.getCInstanceName() + "_i.Dispose();\n");
             }
         }
         if (controllerInstance != null) {
             String s = controllerInstance.getCInstanceName();
             if (!s.isEmpty()) {
-                c += I+I + controllerInstance.getCInstanceName() + "_i.Dispose();\n";
+                c.append(I+I + controllerInstance.getCInstanceName() + "_i.Dispose();\n");
             }
         }
-
-        return c;
     }
 
-    String GenerateDisposeCodePlusPlus(String className) {
-        String c = "\n";
-        c += I + "/* Patch dispose */\n";
-        c += I + "void Dispose() {\n";
-        c += GenerateDisposeCodePlusPlusSub(className);
-        c += I + "}\n\n";
-        return c;
+    void GenerateDisposeCodePlusPlus(CodeWriter c, String className) {
+        c.append("\n");
+        c.append(I + "/* Patch dispose */\n");
+        c.append(I + "void Dispose() {\n");
+        GenerateDisposeCodePlusPlusSub(c, className);
+        c.append(I + "}\n\n");
     }
 
-    String GenerateDSPCodePlusPlusSub(String ClassName) {
-        String c = "\n";
-        c += I+I + "/* <nets> */\n";
+    void GenerateDSPCodePlusPlusSub(CodeWriter c, String ClassName) {
+        c.append("\n");
+        c.append(I+I + "/* <nets> */\n");
         for (Net n : nets) {
             if (n.CType() != null) {
-                c += I+I + n.CType() + " " + n.GetCName() + ";\n";
+                c.append(I+I + n.CType() + " " + n.GetCName() + ";\n");
             }
             else {
                 LOGGER.log(Level.INFO, "Net has no data type!");
             }
         }
-        c += I+I + "/* </nets> */\n\n";
-        c += I+I + "/* <zero> */\n";
-        c += I+I + "int32_t UNCONNECTED_OUTPUT;\n";
-        c += I+I + "static const int32_t UNCONNECTED_INPUT = 0;\n";
-        c += I+I + "static const int32buffer ZEROBUFFER = {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0};\n";
-        c += I+I + "int32buffer UNCONNECTED_OUTPUT_BUFFER;\n";
-        c += I+I + "/* </zero> */\n\n";
+        c.append(I+I + "/* </nets> */\n\n");
+        c.append(I+I + "/* <zero> */\n");
+        c.append(I+I + "int32_t UNCONNECTED_OUTPUT;\n");
+        c.append(I+I + "static const int32_t UNCONNECTED_INPUT = 0;\n");
+        c.append(I+I + "static const int32buffer ZEROBUFFER = {0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0};\n");
+        c.append(I+I + "int32buffer UNCONNECTED_OUTPUT_BUFFER;\n");
+        c.append(I+I + "/* </zero> */\n\n");
 
         if (controllerInstance != null) {
-            c += I+I + "/* <controller object calls> */\n";
-            c += GenerateDSPCodePlusPlusSubObj(controllerInstance, ClassName);
-            c += I+I + "/* </controller object calls> */\n\n";
+            c.append(I+I + "/* <controller object calls> */\n");
+            GenerateDSPCodePlusPlusSubObj(c, controllerInstance, ClassName);
+            c.append(I+I + "/* </controller object calls> */\n\n");
         }
 
-        c += I+I + "/* <object calls> */\n";
+        c.append(I+I + "/* <object calls> */\n");
         for (AxoObjectInstanceAbstract o : objectInstances) {
-            c += GenerateDSPCodePlusPlusSubObj(o, ClassName);
+            GenerateDSPCodePlusPlusSubObj(c, o, ClassName);
         }
-        c += I+I + "/* </object calls> */\n\n";
+        c.append(I+I + "/* </object calls> */\n\n");
 
-        c += I+I + "/* <net latch copy> */\n";
+        c.append(I+I + "/* <net latch copy> */\n");
         for (Net n : nets) {
             // check if net has multiple sources
             if (n.NeedsLatch()) {
                 if (n.GetDataType() != null) {
-                    c += I+I + n.GetDataType().GenerateCopyCode(n.GetCName() + "Latch", n.GetCName());
+                    c.append(I+I + n.GetDataType().GenerateCopyCode(n.GetCName() + "Latch", n.GetCName()));
                 }
                 else {
                     LOGGER.log(Level.SEVERE, "Only inlets connected on net!");
                 }
             }
         }
-        c += I+I + "/* </net latch copy> */\n";
-        return c;
+        c.append(I+I + "/* </net latch copy> */\n");
     }
 
-    String GenerateDSPCodePlusPlusSubObj(AxoObjectInstanceAbstract o, String ClassName) {
-        String c = "";
+    void GenerateDSPCodePlusPlusSubObj(CodeWriter c, AxoObjectInstanceAbstract o, String ClassName) {
         String s = o.getCInstanceName();
 
         if (s.isEmpty()) {
-            return c;
+            return;
         }
-        c += I+I + o.getCInstanceName() + "_i.dsp(";
+        c.append(I+I + o.getCInstanceName() + "_i.dsp(");
 //            c += I+I + o.GenerateDoFunctionName() + "(this";
         boolean needsComma = false;
 
         for (InletInstance i : o.getInletInstances()) {
             if (needsComma) {
-                c += ", ";
+                c.append(", ");
             }
             Net n = GetNet(i);
             if ((n != null) && (n.isValidNet())) {
                 if (i.GetDataType().equals(n.GetDataType())) {
                     if (n.NeedsLatch()
                             && (objectInstances.indexOf(n.source.get(0).GetObjectInstance()) >= objectInstances.indexOf(o))) {
-                        c += n.GetCName() + "Latch";
+                        c.append(n.GetCName() + "Latch");
                     }
                     else {
-                        c += n.GetCName();
+                        c.append(n.GetCName());
                     }
                 }
                 else if (n.NeedsLatch()
                         && (objectInstances.indexOf(n.source.get(0).GetObjectInstance()) >= objectInstances.indexOf(o))) {
-                    c += n.GetDataType().GenerateConversionToType(i.GetDataType(), n.GetCName() + "Latch");
+                    c.append(n.GetDataType().GenerateConversionToType(i.GetDataType(), n.GetCName() + "Latch"));
                 }
                 else {
-                    c += n.GetDataType().GenerateConversionToType(i.GetDataType(), n.GetCName());
+                    c.append(n.GetDataType().GenerateConversionToType(i.GetDataType(), n.GetCName()));
                 }
             }
             else if (n == null) {
                 /* unconnected input */
-                c += i.GetDataType().GenerateSetDefaultValueCode();
+                c.append(i.GetDataType().GenerateSetDefaultValueCode());
             }
             else if (!n.isValidNet()) {
-                c += i.GetDataType().GenerateSetDefaultValueCode();
+                c.append(i.GetDataType().GenerateSetDefaultValueCode());
                 LOGGER.log(Level.SEVERE, "Patch " + this.getFileNamePath() + " contains invalid net: " + i.objname + ":" + i.getInletname());
             }
             needsComma = true;
         }
         for (OutletInstance i : o.getOutletInstances()) {
             if (needsComma) {
-                c += ", ";
+                c.append(", ");
             }
             Net n = GetNet(i);
             if ((n != null) && n.isValidNet()) {
                 if (n.IsFirstOutlet(i)) {
-                    c += n.GetCName();
+                    c.append(n.GetCName());
                 }
                 else {
-                    c += n.GetCName() + "+";
+                    c.append(n.GetCName() + "+");
                 }
             }
             else {
-                c += i.GetDataType().UnconnectedSink();
+                c.append(i.GetDataType().UnconnectedSink());
             }
             needsComma = true;
         }
@@ -1722,9 +1941,9 @@ else if (!n.isValidNet()) {
             if (!i.isFrozen()) {
                 if (i.parameter.PropagateToChild == null) {
                     if (needsComma) {
-                        c += ", ";
+                        c.append(", ");
                     }
-                    c += i.variableName("");
+                    c.append(i.variableName(""));
                     needsComma = true;
                 }
             }
@@ -1732,227 +1951,219 @@ else if (!n.isValidNet()) {
         for (DisplayInstance i : o.GetDisplayInstances()) {
             if (i.display.getLength() > 0) {
                 if (needsComma) {
-                    c += ", ";
+                    c.append(", ");
                 }
-                c += i.valueName("");
+                c.append(i.valueName(""));
                 needsComma = true;
             }
         }
-        c += ");\n";
-        return c;
+        c.append(");\n");
     }
 
-    String GenerateMidiInCodePlusPlus() {
-        String c = "";
+    void GenerateMidiInCodePlusPlus(CodeWriter c) {
         if (controllerInstance != null) {
-            c += controllerInstance.GenerateCallMidiHandler();
+            c.append(controllerInstance.GenerateCallMidiHandler());
         }
         for (AxoObjectInstanceAbstract o : objectInstances) {
-            c += o.GenerateCallMidiHandler();
+            c.append(o.GenerateCallMidiHandler());
         }
-        return c;
     }
 
-    String GenerateDSPCodePlusPlus(String ClassName) {
-        String c = "\n";
-        c = I + "void __attribute__((optimize(\"-O2\"))) clearBuffers(void) {\n"
+    void GenerateDSPCodePlusPlus(CodeWriter c, String ClassName) {
+        c.append(I + "void __attribute__((optimize(\"-O2\"))) clearBuffers(void) {\n"
         + I+I + "uint32_t u;\n"
         + I+I + "for(u=0; u < BUFSIZE; u++) {\n"
         + I+I+I + "AudioOutputLeft[u] = 0;\n"
-        + I+I+I + "AudioOutputRight[u] = 0;\n";
+        + I+I+I + "AudioOutputRight[u] = 0;\n");
         if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-            c += I+I+I + "UsbOutputLeft[u] = 0;\n"
+            c.append(I+I+I + "UsbOutputLeft[u] = 0;\n"
                + I+I+I + "UsbOutputRight[u] = 0;\n"
                + "#if USB_AUDIO_CHANNELS == 4\n"
                + I+I+I + "UsbOutput2Left[u] = 0;\n"
                + I+I+I + "UsbOutput2Right[u] = 0;\n"
-               + "#endif\n";
+               + "#endif\n");
         }
         if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-            c += I+I+I + "i2sOutputLeft[u] = 0;\n"
-               + I+I+I + "i2sOutputRight[u] = 0;\n";
+            c.append(I+I+I + "i2sOutputLeft[u] = 0;\n"
+               + I+I+I + "i2sOutputRight[u] = 0;\n");
         }
-        c += I+I + "}\n"
+        c.append(I+I + "}\n"
         + I + "}\n\n"
 
         + I + "/* Patch k-rate */\n"
         + I + "void dsp(void) {\n"
         + I+I + "uint32_t i;\n"
-        + I+I + "clearBuffers();\n";
+        + I+I + "clearBuffers();\n");
  
-        c += GenerateDSPCodePlusPlusSub(ClassName);
-        c += I + "}\n\n";
-        return c;
+        GenerateDSPCodePlusPlusSub(c, ClassName);
+        c.append(I + "}\n\n");
     }
 
-    String GenerateMidiCodePlusPlus(String ClassName) {
-        String c = "";
-        c += I + "void MidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2) {\n";
-        c += GenerateMidiInCodePlusPlus();
-        c += I + "}\n\n";
-        return c;
+    void GenerateMidiCodePlusPlus(CodeWriter c, String ClassName) {
+        c.append(I + "void MidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2) {\n");
+        GenerateMidiInCodePlusPlus(c);
+        c.append(I + "}\n\n");
     }
 
-    String GeneratePatchCodePlusPlus(String ClassName) {
-        String c = "";
-        c += "};\n\n";
-        c += "static rootc root;\n\n";
+    void GeneratePatchCodePlusPlus(CodeWriter c, String ClassName) {
+        c.append("};\n\n");
+        c.append("static rootc root;\n\n");
 
         if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-            c += "void PatchProcess(int32_t* inbuf, int32_t* outbuf, int32_t* inbufUsb, int32_t* outbufUsb) {\n";
+            c.append("void PatchProcess(int32_t* inbuf, int32_t* outbuf, int32_t* inbufUsb, int32_t* outbufUsb) {\n");
         }
         else if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-            c += "void PatchProcess(int32_t* inbuf, int32_t* outbuf, int32_t* i2s_inbuf, int32_t* i2s_outbuf) {\n";
+            c.append("void PatchProcess(int32_t* inbuf, int32_t* outbuf, int32_t* i2s_inbuf, int32_t* i2s_outbuf) {\n");
         }
         else {
-            c += "void PatchProcess(int32_t* inbuf, int32_t* outbuf) {\n";
+            c.append("void PatchProcess(int32_t* inbuf, int32_t* outbuf) {\n");
         }
 
-        c += I + "uint32_t i;\n";
+        c.append(I + "uint32_t i;\n");
 
         /* audioInputMode and audioOutputMode are modified during
            object init code generation in AxoObjectInstance.java.
            This saves a bit of memory and instructions in the patch. */
 
-        c += I + "for (i = 0; i < BUFSIZE; i++) {\n";
+        c.append(I + "for (i = 0; i < BUFSIZE; i++) {\n");
         if (audioInputMode == 1) {
-            c += I+I + "/* AudioInputMode == A_MONO */\n"
+            c.append(I+I + "/* AudioInputMode == A_MONO */\n"
                + I+I + "AudioInputLeft[i] = inbuf[(i<<1)] >> 4;\n"
-               + I+I + "AudioInputRight[i] = AudioInputLeft[i];\n";
+               + I+I + "AudioInputRight[i] = AudioInputLeft[i];\n");
         }
         else if (audioInputMode == 2) {
-            c += I+I + "/* AudioInputMode == A_BALANCED */\n"
+            c.append(I+I + "/* AudioInputMode == A_BALANCED */\n"
                + I+I + "AudioInputLeft[i] = inbuf[(i<<1)] >> 4;\n"
                + I+I + "AudioInputLeft[i] = (AudioInputLeft[i] - (inbuf[(i<<1) + 1] >> 4) ) >> 1;\n"
-               + I+I + "AudioInputRight[i] = AudioInputLeft[i];\n";
+               + I+I + "AudioInputRight[i] = AudioInputLeft[i];\n");
         }
         else {
-            c += I+I + "/* AudioInputMode == A_STEREO */\n"
+            c.append(I+I + "/* AudioInputMode == A_STEREO */\n"
                + I+I + "AudioInputLeft[i] = inbuf[(i<<1)] >> 4;\n"
-               + I+I + "AudioInputRight[i] = inbuf[(i<<1) + 1] >> 4;\n";
+               + I+I + "AudioInputRight[i] = inbuf[(i<<1) + 1] >> 4;\n");
         }
 
         if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-            c += "\n";
-            c += "#if USB_AUDIO_CHANNELS == 2\n"
+            c.append("\n");
+            c.append("#if USB_AUDIO_CHANNELS == 2\n"
             + I+I + "UsbInputLeft[i]  = inbufUsb[i*2]>>4;\n"
             + I+I + "UsbInputRight[i] = inbufUsb[i*2+1]>>4;\n"
-            + "#endif\n\n";
+            + "#endif\n\n");
 
-            c += "#if USB_AUDIO_CHANNELS == 4\n"
+            c.append("#if USB_AUDIO_CHANNELS == 4\n"
             + I+I + "UsbInputLeft[i]   = inbufUsb[i*4]>>4;\n"
             + I+I + "UsbInputRight[i]  = inbufUsb[i*4+1]>>4;\n"
             + I+I + "UsbInput2Left[i]  = inbufUsb[i*4+2]>>4;\n"
             + I+I + "UsbInput2Right[i] = inbufUsb[i*4+3]>>4;\n"
-            + "#endif\n\n";
+            + "#endif\n\n");
         }
         if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-            c += "\n"
+            c.append("\n"
                + I+I + "i2sInputLeft[i] = ___ROR(i2s_inbuf[(i<<1)], 16) >> 4;\n"
-               + I+I + "i2sInputRight[i] = ___ROR(i2s_inbuf[(i<<1) + 1], 16) >> 4;\n";
+               + I+I + "i2sInputRight[i] = ___ROR(i2s_inbuf[(i<<1) + 1], 16) >> 4;\n");
 
         }
-        c += I + "}\n";
+        c.append(I + "}\n");
 
-        c += "\n" + I + "root.dsp();\n\n";
+        c.append("\n" + I + "root.dsp();\n\n");
 
         if (settings.getSaturate()) {
 
-            c += I + "for (i = 0; i < BUFSIZE; i++) {\n";
+            c.append(I + "for (i = 0; i < BUFSIZE; i++) {\n");
             if (audioOutputMode == 1) {
-                c += I+I + "/* AudioOutputMode == A_MONO */\n"
+                c.append(I+I + "/* AudioOutputMode == A_MONO */\n"
                    + I+I + "outbuf[(i<<1)] = __SSAT(AudioOutputLeft[i], 28) << 4;\n"
-                   + I+I + "outbuf[(i<<1) + 1] = 0;\n";
+                   + I+I + "outbuf[(i<<1) + 1] = 0;\n");
             }
             else if (audioOutputMode == 2) {
-                c += I+I + "/* AudioOutputMode == A_BALANCED */\n"
+                c.append(I+I + "/* AudioOutputMode == A_BALANCED */\n"
                    + I+I + "outbuf[(i<<1)] = __SSAT(AudioOutputLeft[i], 28) << 4;\n"
-                    + I+I + "outbuf[(i<<1) + 1] = ~outbuf[(i<<1)];\n";
+                    + I+I + "outbuf[(i<<1) + 1] = ~outbuf[(i<<1)];\n");
             }
             else {
-                c += I+I + "/* AudioOutputMode == A_STEREO */\n"
+                c.append(I+I + "/* AudioOutputMode == A_STEREO */\n"
                    + I+I + "outbuf[(i<<1)] = __SSAT(AudioOutputLeft[i], 28) << 4;\n"
-                   + I+I + "outbuf[(i<<1) + 1] = __SSAT(AudioOutputRight[i], 28) << 4;\n";
+                   + I+I + "outbuf[(i<<1) + 1] = __SSAT(AudioOutputRight[i], 28) << 4;\n");
             }
             
             if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-                c += "\n";
-                c += "#if USB_AUDIO_CHANNELS == 2\n"
+                c.append("\n");
+                c.append("#if USB_AUDIO_CHANNELS == 2\n"
                 + I+I + "outbufUsb[i*2]   = __SSAT(UsbOutputLeft[i],28)<<4;\n"
                 + I+I + "outbufUsb[i*2+1] = __SSAT(UsbOutputRight[i],28)<<4;\n"
-                + "#endif\n";
+                + "#endif\n");
     
-                c += "#if USB_AUDIO_CHANNELS == 4\n"
+                c.append("#if USB_AUDIO_CHANNELS == 4\n"
                 + I+I + "outbufUsb[i*4]   = __SSAT(UsbOutputLeft[i],28)<<4;\n"
                 + I+I + "outbufUsb[i*4+1] = __SSAT(UsbOutputRight[i],28)<<4;\n"
                 + I+I + "outbufUsb[i*4+2] = __SSAT(UsbOutput2Left[i],28)<<4;\n"
                 + I+I + "outbufUsb[i*4+3] = __SSAT(UsbOutput2Right[i],28)<<4;\n"
-                + "#endif\n";
+                + "#endif\n");
             }
             if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-                c += "\n"
+                c.append("\n"
                    + I+I + "i2s_outbuf[(i<<1)] = ___ROR(__SSAT(i2sOutputLeft[i], 28) << 4, 16);\n"
-                   + I+I + "i2s_outbuf[(i<<1) + 1] = ___ROR(__SSAT(i2sOutputRight[i], 28) << 4, 16);\n";
+                   + I+I + "i2s_outbuf[(i<<1) + 1] = ___ROR(__SSAT(i2sOutputRight[i], 28) << 4, 16);\n");
             }
-            c += I + "}\n";
+            c.append(I + "}\n");
         }
         else {
-            c += I + "for (i = 0; i < BUFSIZE; i++) {\n";
+            c.append(I + "for (i = 0; i < BUFSIZE; i++) {\n");
             if (audioOutputMode == 1) {
-                    c += I+I + "/* AudioOutputMode == A_MONO, unsaturated */\n"
+                    c.append(I+I + "/* AudioOutputMode == A_MONO, unsaturated */\n"
                        + I+I + "outbuf[(i<<1)] = AudioOutputLeft[i];\n"
-                       + I+I + "outbuf[(i<<1) + 1] = 0;\n";
+                       + I+I + "outbuf[(i<<1) + 1] = 0;\n");
             }
             else if (audioOutputMode == 2) {
-                c += I+I + "/* AudioOutputMode == A_BALANCED, unsaturated */\n"
+                c.append(I+I + "/* AudioOutputMode == A_BALANCED, unsaturated */\n"
                    + I+I + "outbuf[(i<<1)] = AudioOutputLeft[i];\n"
-                   + I+I + "outbuf[(i<<1) + 1] = ~outbuf[(i<<1)];\n";
+                   + I+I + "outbuf[(i<<1) + 1] = ~outbuf[(i<<1)];\n");
             }
             else {
-                c += I+I + "/* AudioOutputMode == A_STEREO, unsaturated */\n"
+                c.append(I+I + "/* AudioOutputMode == A_STEREO, unsaturated */\n"
                    + I+I + "outbuf[(i<<1)] = AudioOutputLeft[i];\n"
-                   + I+I + "outbuf[(i<<1) + 1] = AudioOutputRight[i];\n";
+                   + I+I + "outbuf[(i<<1) + 1] = AudioOutputRight[i];\n");
             }
                 
             if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-                c += "\n";
-                c += "#if USB_AUDIO_CHANNELS == 2\n"
+                c.append("\n");
+                c.append("#if USB_AUDIO_CHANNELS == 2\n"
                 + I+I + "outbufUsb[i*2]   = UsbOutputLeft[i];\n"
                 + I+I + "outbufUsb[i*2+1] = UsbOutputRight[i];\n"
-                + "#endif\n";
+                + "#endif\n");
     
-                c += "#if USB_AUDIO_CHANNELS == 4\n"
+                c.append("#if USB_AUDIO_CHANNELS == 4\n"
                 + I+I + "outbufUsb[i*4]   = UsbOutputLeft[i];\n"
                 + I+I + "outbufUsb[i*4+1] = UsbOutputRight[i];\n"
                 + I+I + "outbufUsb[i*4+2] = UsbOutput2Left[i];\n"
                 + I+I + "outbufUsb[i*4+3] = UsbOutput2Right[i];\n"
-                + "#endif\n";
+                + "#endif\n");
             }
             if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-                c += "\n"
+                c.append("\n"
                    + I+I + "i2s_outbuf[(i<<1)] = ___ROR(i2sOutputLeft[i], 16);\n"
-                   + I+I + "i2s_outbuf[(i<<1) + 1] = ___ROR(i2sOutputRight[i], 16);\n";
+                   + I+I + "i2s_outbuf[(i<<1) + 1] = ___ROR(i2sOutputRight[i], 16);\n");
             }
-            c += I + "}\n";
+            c.append(I + "}\n");
         }
-        c += "}\n\n";
+        c.append("}\n\n");
         
-        c += "void ApplyPreset(uint8_t i) {\n"
+        c.append("void ApplyPreset(uint8_t i) {\n"
             + I + "root.ApplyPreset(i);\n"
-            + "}\n\n";
+            + "}\n\n");
 
-        c += "void PatchMidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2) {\n"
+        c.append("void PatchMidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2) {\n"
            + I + "root.MidiInHandler(dev, port, status, data1, data2);\n"
-           + "}\n\n";
+           + "}\n\n");
 
-        c += "typedef void (*funcp_t) (void);\n"
+        c.append("typedef void (*funcp_t) (void);\n"
            + "typedef funcp_t* funcpp_t;\n\n"
            + "extern funcp_t __ctor_array_start;\n"
            + "extern funcp_t __ctor_array_end;\n"
            + "extern funcp_t __dtor_array_start;\n"
-           + "extern funcp_t __dtor_array_end;\n\n";
+           + "extern funcp_t __dtor_array_end;\n\n");
 
-        c += "void PatchDispose( ) {\n"
+        c.append("void PatchDispose( ) {\n"
            + I + "root.Dispose();\n\n"
            + I + "{\n"
            + I+I + "funcpp_t fpp = &__dtor_array_start;\n"
@@ -1961,10 +2172,10 @@ else if (audioOutputMode == 2) {
            + I+I+I + "fpp++;\n"
            + I+I + "}\n"
            + I + "}\n"
-           + "}\n\n";
+           + "}\n\n");
 
-        c += "void xpatch_init2(uint32_t fwid) {\n"
-           + I + "if (fwid != 0x" + MainFrame.mainframe.LinkFirmwareID + ") {\n"
+        c.append("void xpatch_init2(uint32_t fwid) {\n"
+           + I + "if (fwid != 0x" + (MainFrame.mainframe != null ? MainFrame.mainframe.LinkFirmwareID : FirmwareID.getFirmwareID()) + ") {\n"
            + I+I + "// LogTextMessage(\"Patch firmware mismatch\");\n"
            + I+I + "return;\n"
            + I + "}\n\n"
@@ -1980,32 +2191,35 @@ else if (audioOutputMode == 2) {
            + I+I+I + "(*fpp)();\n"
            + I+I+I + "fpp++;\n"
            + I+I + "}\n"
-           + I + "}\n\n";
+           + I + "}\n\n");
 
-        c += I + "patchMeta.npresets = " + settings.GetNPresets() + ";\n"
+        c.append(I + "patchMeta.npresets = " + settings.GetNPresets() + ";\n"
            + I + "patchMeta.npreset_entries = " + settings.GetNPresetEntries() + ";\n"
-           + I + "patchMeta.pPresets = (PresetParamChange_t*) root.GetPresets();\n";
+           + I + "patchMeta.pPresets = (PresetParamChange_t*) root.GetPresets();\n");
 
-        c += I + "patchMeta.pPExch = &root.PExch[0];\n"
+        c.append(I + "patchMeta.pPExch = &root.PExch[0];\n"
            + I + "patchMeta.pDisplayVector = &root.displayVector[0];\n"
            + I + "patchMeta.numPEx = " + ParameterInstances.size() + ";\n"
            + I + "patchMeta.patchID = " + GetIID() + ";\n\n"
            + I + "extern char _sdram_dyn_start;\n"
            + I + "extern char _sdram_dyn_end;\n"
            + I + "sdram_init(&_sdram_dyn_start, &_sdram_dyn_end);\n\n"
-           + I + "root.Init();\n\n";
+           + I + "root.Init();\n\n");
 
-        c += I + "patchMeta.fptr_applyPreset   = ApplyPreset;\n";
+        c.append(I + "patchMeta.fptr_applyPreset   = ApplyPreset;\n");
 
-        c += I + "patchMeta.fptr_patch_dispose = PatchDispose;\n"
+        c.append(I + "patchMeta.fptr_patch_dispose = PatchDispose;\n"
            + I + "patchMeta.fptr_MidiInHandler = PatchMidiInHandler;\n"
            + I + "patchMeta.fptr_dsp_process   = PatchProcess;\n"
-           + "}\n";
-        return c;
+           + "}\n");
     }
 
     int IID = -1; // iid identifies the patch
 
+    /* Hash of the source last written by WriteCode(), and whether a cached binary matches it */
+    private String generatedCodeHash = null;
+    private boolean cachedBinaryAvailable = false;
+
     public int GetIID() {
         return IID;
     }
@@ -2015,7 +2229,13 @@ void CreateIID() {
         IID = r.nextInt();
     }
 
-    String GenerateCode3() {
+    CodeWriter GenerateCode3() {
+        CodeWriter c = new CodeWriter(64 * 1024);
+        GenerateCode3(c);
+        return c;
+    }
+
+    void GenerateCode3(CodeWriter c) {
         controllerInstance = null;
         String cobjstr = Preferences.getInstance().getControllerObject();
 
@@ -2037,73 +2257,70 @@ String GenerateCode3() {
         CreateIID();
         SortByPrefs();
 
-        String c = "/*\n"
+        /* attr_* placeholders left in the root patch are resolved as the code is emitted */
+        c.substitute("attr_poly", "1");
+        if (settings == null) {
+            c.substitute("attr_midichannel", "0");
+        }
+        else {
+            c.substitute("attr_midichannel", Integer.toString(settings.GetMidiChannel() - 1));
+        }
+        if (settings == null || !settings.GetMidiSelector()) {
+            c.substitute("attr_mididevice", "0");
+            c.substitute("attr_midiport", "0");
+        }
+
+        c.append("/*\n"
         + " * Generated using Ksoloti Patcher v" + Version.AXOLOTI_VERSION + " on " + System.getProperty("os.name") + "\n"
         + " * File: " + getFileNamePath() + "\n"
         + " * Generated: " + DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now()) + "\n"
         + " */\n\n"
         + "#pragma GCC diagnostic ignored \"-Wunused-variable\"\n"
-        + "#pragma GCC diagnostic ignored \"-Wunused-parameter\"\n\n";
+        + "#pragma GCC diagnostic ignored \"-Wunused-parameter\"\n\n");
 
-        c += generateIncludes();
+        c.append(generateIncludes());
 
         if (settings == null) {
-            c += "#define MIDICHANNEL 0 // DEPRECATED\n\n";
+            c.append("#define MIDICHANNEL 0 // DEPRECATED\n\n");
         }
         else {
-            c += "#define MIDICHANNEL " + (settings.GetMidiChannel() - 1) + " // DEPRECATED\n\n";
+            c.append("#define MIDICHANNEL " + (settings.GetMidiChannel() - 1) + " // DEPRECATED\n\n");
         }
 
-        c += "int32buffer AudioInputLeft, AudioInputRight, AudioOutputLeft, AudioOutputRight;\n";
+        c.append("int32buffer AudioInputLeft, AudioInputRight, AudioOutputLeft, AudioOutputRight;\n");
         if (Preferences.getInstance().getFirmwareMode().contains("USBAudio")) {
-            c += "#if USB_AUDIO_CHANNELS==2\n";
-            c += "  int32buffer UsbInputLeft, UsbInputRight, UsbOutputLeft, UsbOutputRight;\n";
-            c += "#elif USB_AUDIO_CHANNELS==4\n";
-            c += "  int32buffer UsbInputLeft, UsbInputRight, UsbOutputLeft, UsbOutputRight, UsbInput2Left, UsbInput2Right, UsbOutput2Left, UsbOutput2Right;\n";
-            c += "#endif\n";
+            c.append("#if USB_AUDIO_CHANNELS==2\n");
+            c.append("  int32buffer UsbInputLeft, UsbInputRight, UsbOutputLeft, UsbOutputRight;\n");
+            c.append("#elif USB_AUDIO_CHANNELS==4\n");
+            c.append("  int32buffer UsbInputLeft, UsbInputRight, UsbOutputLeft, UsbOutputRight, UsbInput2Left, UsbInput2Right, UsbOutput2Left, UsbOutput2Right;\n");
+            c.append("#endif\n");
         }
         if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
-            c += "int32buffer i2sInputLeft, i2sInputRight, i2sOutputLeft, i2sOutputRight;\n";
+            c.append("int32buffer i2sInputLeft, i2sInputRight, i2sOutputLeft, i2sOutputRight;\n");
         }
 
-        c += "\nvoid xpatch_init2(uint32_t fwid);\n\n"
+        c.append("\nvoid xpatch_init2(uint32_t fwid);\n\n"
                 + "extern \"C\" __attribute__((section(\".boot\"))) void xpatch_init(uint32_t fwid) {\n"
            + I + "xpatch_init2(fwid);\n"
-                + "}\n\n";
+                + "}\n\n");
 
-        c += "void PatchMidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2);\n\n";
+        c.append("void PatchMidiInHandler(midi_device_t dev, uint8_t port, uint8_t status, uint8_t data1, uint8_t data2);\n\n");
 
-        c += "static void PropagateToSub(ParameterExchange_t* origin) {\n"
+        c.append("static void PropagateToSub(ParameterExchange_t* origin) {\n"
            + I + "ParameterExchange_t* pex = (ParameterExchange_t*) origin->finalvalue;\n"
            + I + "PExParameterChange(pex, origin->modvalue, 0xFFFFFFEE);\n"
-                + "}\n\n";
-
-        c += GenerateStructCodePlusPlus("rootc", "rootc")
-                + I + "static const uint32_t polyIndex = 0;\n\n"
-                + GenerateParamInitCode3("rootc")
-                + GeneratePresetCode3("rootc")
-                + GenerateModulationCode3()
-                + GenerateInitCodePlusPlus("rootc")
-                + GenerateDisposeCodePlusPlus("rootc")
-                + GenerateDSPCodePlusPlus("rootc")
-                + GenerateMidiCodePlusPlus("rootc")
-                + GeneratePatchCodePlusPlus("rootc");
-
-        c = c.replace("attr_poly", "1");
-
-        if (settings == null) {
-            c = c.replace("attr_midichannel", "0");
-        }
-        else {
-            c = c.replace("attr_midichannel", Integer.toString(settings.GetMidiChannel() - 1));
-        }
-
-        if (settings == null || !settings.GetMidiSelector()) {
-            c = c.replace("attr_mididevice", "0");
-            c = c.replace("attr_midiport", "0");
-        }
+                + "}\n\n");
 
-        return c;
+        GenerateStructCodePlusPlus(c, "rootc", "rootc");
+        c.append(I + "static const uint32_t polyIndex = 0;\n\n");
+        GenerateParamInitCode3(c, "rootc");
+        GeneratePresetCode3(c, "rootc");
+        GenerateModulationCode3(c);
+        GenerateInitCodePlusPlus(c, "rootc");
+        GenerateDisposeCodePlusPlus(c, "rootc");
+        GenerateDSPCodePlusPlus(c, "rootc");
+        GenerateMidiCodePlusPlus(c, "rootc");
+        GeneratePatchCodePlusPlus(c, "rootc");
     }
 
     public AxoObject GenerateAxoObjNormal(AxoObject template) {
@@ -2150,17 +2367,23 @@ else if (o.typeName.equals("patch/outlet string")) {
             }
         }
         /* object structures */
-        ao.sLocalData = GenerateStructCodePlusPlusSub("attr_parent")
-                + I + "static const uint32_t polyIndex = 0;\n\n";
-        ao.sLocalData += GenerateParamInitCode3("");
-
-        ao.sLocalData += GeneratePresetCode3("");
-
-        ao.sLocalData += GenerateModulationCode3();
-        ao.sLocalData = ao.sLocalData.replaceAll("attr_poly", "1");
-        ao.sInitCode = GenerateParamInitCodePlusPlusSub("attr_parent", "this");
-        ao.sInitCode += GenerateObjInitCodePlusPlusSub("attr_parent", "this");
-        ao.sDisposeCode = GenerateDisposeCodePlusPlusSub("attr_parent");
+        CodeWriter localData = new CodeWriter();
+        localData.substitute("attr_poly", "1");
+        GenerateStructCodePlusPlusSub(localData, "attr_parent");
+        localData.append(I + "static const uint32_t polyIndex = 0;\n\n");
+        GenerateParamInitCode3(localData, "");
+
+        GeneratePresetCode3(localData, "");
+
+        GenerateModulationCode3(localData);
+        ao.sLocalData = localData.toString();
+        CodeWriter initCode = new CodeWriter();
+        GenerateParamInitCodePlusPlusSub(initCode, "attr_parent", "this");
+        GenerateObjInitCodePlusPlusSub(initCode, "attr_parent", "this");
+        ao.sInitCode = initCode.toString();
+        CodeWriter disposeCode = new CodeWriter();
+        GenerateDisposeCodePlusPlusSub(disposeCode, "attr_parent");
+        ao.sDisposeCode = disposeCode.toString();
         ao.includes = getIncludes();
         ao.depends = getDepends();
         if ((notes != null) && (!notes.isEmpty())) {
@@ -2170,37 +2393,41 @@ else if (o.typeName.equals("patch/outlet string")) {
             ao.sDescription = "no description";
         }
 
-        ao.sKRateCode = "uint32_t i;\n";
+        CodeWriter kRateCode = new CodeWriter();
+        kRateCode.append("uint32_t i;\n");
         for (AxoObjectInstanceAbstract o : objectInstances) {
             if (o.typeName.equals("patch/inlet f") || o.typeName.equals("patch/inlet i") || o.typeName.equals("patch/inlet b")) {
-                ao.sKRateCode += I + o.getCInstanceName() + "_i._inlet = inlet_" + o.getLegalName() + ";\n";
+                kRateCode.append(I + o.getCInstanceName() + "_i._inlet = inlet_" + o.getLegalName() + ";\n");
             }
             else if (o.typeName.equals("patch/inlet string")) {
-                ao.sKRateCode += I + o.getCInstanceName() + "_i._inlet = (char*) inlet_" + o.getLegalName() + ";\n";
+                kRateCode.append(I + o.getCInstanceName() + "_i._inlet = (char*) inlet_" + o.getLegalName() + ";\n");
             }
             else if (o.typeName.equals("patch/inlet a")) {
-                ao.sKRateCode += I + "for (i = 0; i < BUFSIZE; i++) " + o.getCInstanceName() + "_i._inlet[i] = inlet_" + o.getLegalName() + "[i];\n";
+                kRateCode.append(I + "for (i = 0; i < BUFSIZE; i++) " + o.getCInstanceName() + "_i._inlet[i] = inlet_" + o.getLegalName() + "[i];\n");
             }
 
         }
 
-        ao.sKRateCode += GenerateDSPCodePlusPlusSub("attr_parent");
+        GenerateDSPCodePlusPlusSub(kRateCode, "attr_parent");
         for (AxoObjectInstanceAbstract o : objectInstances) {
             if (o.typeName.equals("patch/outlet f") || o.typeName.equals("patch/outlet i") || o.typeName.equals("patch/outlet b")) {
-                ao.sKRateCode += I + "outlet_" + o.getLegalName() + " = " + o.getCInstanceName() + "_i._outlet;\n";
+                kRateCode.append(I + "outlet_" + o.getLegalName() + " = " + o.getCInstanceName() + "_i._outlet;\n");
             }
             else if (o.typeName.equals("patch/outlet string")) {
-                ao.sKRateCode += I + "outlet_" + o.getLegalName() + " = (char*) " + o.getCInstanceName() + "_i._outlet;\n";
+                kRateCode.append(I + "outlet_" + o.getLegalName() + " = (char*) " + o.getCInstanceName() + "_i._outlet;\n");
             }
             else if (o.typeName.equals("patch/outlet a")) {
-                ao.sKRateCode += I + "for (i = 0; i < BUFSIZE; i++) outlet_" + o.getLegalName() + "[i] = " + o.getCInstanceName() + "_i._outlet[i];\n";
+                kRateCode.append(I + "for (i = 0; i < BUFSIZE; i++) outlet_" + o.getLegalName() + "[i] = " + o.getCInstanceName() + "_i._outlet[i];\n");
             }
         }
 
-        ao.sMidiCode = ""
-                + "if (attr_mididevice > 0 && dev > 0 && dev != attr_mididevice) return;\n"
-                + "if (attr_midiport > 0 && port > 0 && port != attr_midiport) return;\n"
-                + GenerateMidiInCodePlusPlus();
+        ao.sKRateCode = kRateCode.toString();
+
+        CodeWriter midiCode = new CodeWriter();
+        midiCode.append("if (attr_mididevice > 0 && dev > 0 && dev != attr_mididevice) return;\n"
+                + "if (attr_midiport > 0 && port > 0 && port != attr_midiport) return;\n");
+        GenerateMidiInCodePlusPlus(midiCode);
+        ao.sMidiCode = midiCode.toString();
 
         if ((settings != null) && (settings.GetMidiSelector())) {
 
@@ -2358,68 +2585,72 @@ else if (o.typeName.equals("patch/outlet string")) {
             }
         }
 
-        ao.sLocalData = GenerateParamInitCode3("");
-        ao.sLocalData += GeneratePexchAndDisplayCode();
+        CodeWriter localData = new CodeWriter();
+        GenerateParamInitCode3(localData, "");
+        GeneratePexchAndDisplayCode(localData);
         
-        ao.sLocalData += "\n" + I + "/* <parameter instance indices> */\n";
+        localData.append("\n" + I + "/* <parameter instance indices> */\n");
         int k = 0;
         for (ParameterInstance p : ParameterInstances) {
             if (!p.isFrozen()) {
-                ao.sLocalData += I + "static const uint16_t PARAM_INDEX_" + p.GetObjectInstance().getLegalName() + "_" + p.getLegalName() + " = " + k + ";\n";
+                localData.append(I + "static const uint16_t PARAM_INDEX_" + p.GetObjectInstance().getLegalName() + "_" + p.getLegalName() + " = " + k + ";\n");
                 k++;
             }
         }
-        ao.sLocalData += I + "/* </parameter instance indices> */\n";
-
-        ao.sLocalData += "\n";
-
-        ao.sLocalData += GeneratePresetCode3("");
-
-        ao.sLocalData += GenerateModulationCode3();
-        ao.sLocalData += "class voice {\n";
-        ao.sLocalData += "  public:\n";
-        ao.sLocalData += "  uint32_t polyIndex;\n";
-        ao.sLocalData += GeneratePexchAndDisplayCodeV();
-        ao.sLocalData += GenerateObjectCode("voice");
-        ao.sLocalData += "  attr_parent* common;\n";
-        ao.sLocalData += "  void Init(voice* parent) {\n";
-        ao.sLocalData += "    uint32_t i; for (i = 0; i < NPEXCH; i++) {\n"
-                       + "      PExch[i].pfunction = 0;\n"
-                       + "    }\n";
-        ao.sLocalData += GenerateObjInitCodePlusPlusSub("voice", "parent");
-        ao.sLocalData += "}\n\n";
-        ao.sLocalData += "void dsp(void) {\n int32_t i;\n";
-        ao.sLocalData += GenerateDSPCodePlusPlusSub("");
-        ao.sLocalData += "}\n";
-        ao.sLocalData += "void dispose(void) {\n int32_t i;\n";
-        ao.sLocalData += GenerateDisposeCodePlusPlusSub("");
-        ao.sLocalData += "}\n";
-        ao.sLocalData += GenerateMidiCodePlusPlus("attr_parent");
-        ao.sLocalData += "};\n\n";
-        ao.sLocalData += "static voice* getVoices(void) {\n"
-                       + "  static voice v[attr_poly];\n"
-                       + "  return v;\n"
-                       + "}\n";
-
-        ao.sLocalData += "static void PropagateToVoices(ParameterExchange_t* origin) {\n"
-                       + "  ParameterExchange_t *pex = (ParameterExchange_t*) origin->finalvalue;\n"
-                       + "  uint32_t vi; for (vi = 0; vi < attr_poly; vi++) {\n"
-                       + "    PExParameterChange(pex,origin->modvalue, 0xFFFFFFEE);\n"
-                       + "    pex = (ParameterExchange_t*) ((int32_t) pex + sizeof(voice)); // dirty trick...\n"
-                       + "  }"
-                       + "}\n";
-
-        ao.sLocalData += "uint8_t voiceNotePlaying[attr_poly];\n";
-        ao.sLocalData += "uint32_t voicePriority[attr_poly];\n";
-        ao.sLocalData += "uint32_t priority;\n";
-        ao.sLocalData += "uint8_t sustain;\n";
-        ao.sLocalData += "uint8_t pressed[attr_poly];\n";
-
+        localData.append(I + "/* </parameter instance indices> */\n");
+
+        localData.append("\n");
+
+        GeneratePresetCode3(localData, "");
+
+        GenerateModulationCode3(localData);
+        localData.append("class voice {\n");
+        localData.append("  public:\n");
+        localData.append("  uint32_t polyIndex;\n");
+        GeneratePexchAndDisplayCodeV(localData);
+        GenerateObjectCode(localData, "voice");
+        localData.append("  attr_parent* common;\n");
+        localData.append("  void Init(voice* parent) {\n");
+        localData.append("    uint32_t i; for (i = 0; i < NPEXCH; i++) {\n"
+                         + "      PExch[i].pfunction = 0;\n"
+                         + "    }\n");
+        GenerateObjInitCodePlusPlusSub(localData, "voice", "parent");
+        localData.append("}\n\n");
+        localData.append("void dsp(void) {\n int32_t i;\n");
+        GenerateDSPCodePlusPlusSub(localData, "");
+        localData.append("}\n");
+        localData.append("void dispose(void) {\n int32_t i;\n");
+        GenerateDisposeCodePlusPlusSub(localData, "");
+        localData.append("}\n");
+        GenerateMidiCodePlusPlus(localData, "attr_parent");
+        localData.append("};\n\n");
+        localData.append("static voice* getVoices(void) {\n"
+                         + "  static voice v[attr_poly];\n"
+                         + "  return v;\n"
+                         + "}\n");
+
+        localData.append("static void PropagateToVoices(ParameterExchange_t* origin) {\n"
+                         + "  ParameterExchange_t *pex = (ParameterExchange_t*) origin->finalvalue;\n"
+                         + "  uint32_t vi; for (vi = 0; vi < attr_poly; vi++) {\n"
+                         + "    PExParameterChange(pex,origin->modvalue, 0xFFFFFFEE);\n"
+                         + "    pex = (ParameterExchange_t*) ((int32_t) pex + sizeof(voice)); // dirty trick...\n"
+                         + "  }"
+                         + "}\n");
+
+        localData.append("uint8_t voiceNotePlaying[attr_poly];\n");
+        localData.append("uint32_t voicePriority[attr_poly];\n");
+        localData.append("uint32_t priority;\n");
+        localData.append("uint8_t sustain;\n");
+        localData.append("uint8_t pressed[attr_poly];\n");
+
+        ao.sLocalData = localData.toString();
         ao.sLocalData = ao.sLocalData.replaceAll("parent->PExModulationSources", "parent->common->PExModulationSources");
         ao.sLocalData = ao.sLocalData.replaceAll("parent->PExModulationPrevVal", "parent->common->PExModulationPrevVal");
         ao.sLocalData = ao.sLocalData.replaceAll("parent->GetModulationTable", "parent->common->GetModulationTable");
 
-        ao.sInitCode = GenerateParamInitCodePlusPlusSub("", "parent");
+        CodeWriter initCode = new CodeWriter();
+        GenerateParamInitCodePlusPlusSub(initCode, "", "parent");
+        ao.sInitCode = initCode.toString();
         ao.sInitCode += "uint32_t k; for (k = 0; k < NPEXCH; k++) {\n"
                      + "  PExch[k].pfunction = PropagateToVoices;\n"
                      + "  PExch[k].finalvalue = (int32_t) (&(getVoices()[0].PExch[k]));\n"
@@ -2797,8 +3028,6 @@ public void WriteCode(boolean use_buildfilenames) {
             LOGGER.log(Level.INFO, "Generating code... " + pname);
         }
 
-        String c = GenerateCode3();
-
         File f = getCppFile();
         if (!f.getParentFile().exists()) {
             if (!f.getParentFile().mkdirs()) {
@@ -2807,18 +3036,43 @@ public void WriteCode(boolean use_buildfilenames) {
             }
         }
 
-        try {
-            FileOutputStream fos = new FileOutputStream(f);
-            fos.write(c.getBytes());
-            fos.close();
+        /* Streamed to the file, hashing it for the compiled patch cache on the way */
+        generatedCodeHash = null;
+        cachedBinaryAvailable = false;
+        CompiledPatchCache.SourceHash hash;
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(f), 64 * 1024)) {
+            hash = new CompiledPatchCache.SourceHash(w);
+            GenerateCode3(new CodeWriter(hash));
         }
         catch (FileNotFoundException ex) {
             LOGGER.log(Level.SEVERE, "File not found: " + ex.getMessage());
             ex.printStackTrace(System.out);
+            return;
         }
         catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "File error: " + ex.getMessage());
             ex.printStackTrace(System.out);
+            return;
+        }
+        catch (UncheckedIOException ex) {
+            LOGGER.log(Level.SEVERE, "File error: " + ex.getCause().getMessage());
+            ex.printStackTrace(System.out);
+            return;
+        }
+        LOGGER.log(Level.INFO, "Generated " + objectClassCount + " object classes for " + objectInstanceCount + " object instances.");
+
+        generatedCodeHash = hash.finish();
+        Integer cachedIID = CompiledPatchCache.lookup(generatedCodeHash);
+        if (cachedIID != null) {
+            /* Keep the patch ID that is baked into the cached binary */
+            try {
+                CompiledPatchCache.writePatchID(f, cachedIID);
+                IID = cachedIID;
+                cachedBinaryAvailable = true;
+            }
+            catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Failed to reuse compiled patch: " + ex.getMessage());
+            }
         }
         LOGGER.log(Level.INFO, "Done generating code.\n");
     }
@@ -2828,8 +3082,40 @@ public void WriteCode() {
     }
 
     public void Compile() {
+        Compile(QCmdProcessor.getInstance());
+    }
+
+    /*
+     * Builds the binary after WriteCode(), or restores it from the build cache.
+     * processor may be null when running headless: compiling is a shell task
+     * and does not go through the command queue.
+     */
+    public boolean Compile(QCmdProcessor processor) {
+        if (cachedBinaryAvailable && CompiledPatchCache.restore(generatedCodeHash, getBinFile(), getBinFile_sram3())) {
+            LOGGER.log(Level.INFO, "Using cached binary for unchanged code (build cache: " + CompiledPatchCache.getStatistics() + ").\n");
+            return true;
+        }
+        QCmdCompilePatch cp = new QCmdCompilePatch(this);
+        cp.Do(processor);
+        if (cp.success()) {
+            CompiledPatchCache.store(generatedCodeHash, IID, getBinFile(), getBinFile_sram3());
+        }
+        return cp.success();
+    }
+
+    /* As Compile(), but returns at once: completes when the compiler has exited */
+    public CompletableFuture<Boolean> CompileAsync() {
+        if (cachedBinaryAvailable && CompiledPatchCache.restore(generatedCodeHash, getBinFile(), getBinFile_sram3())) {
+            LOGGER.log(Level.INFO, "Using cached binary for unchanged code (build cache: " + CompiledPatchCache.getStatistics() + ").\n");
+            return CompletableFuture.completedFuture(true);
+        }
         QCmdCompilePatch cp = new QCmdCompilePatch(this);
-        cp.Do(QCmdProcessor.getInstance());
+        return cp.DoAsync(QCmdProcessor.getInstance()).thenApply(success -> {
+            if (success) {
+                CompiledPatchCache.store(generatedCodeHash, IID, getBinFile(), getBinFile_sram3());
+            }
+            return success;
+        });
     }
 
     public void ShowPreset(int i) {
@@ -3136,7 +3422,11 @@ public void UploadToSDCard(String sdfilename) {
 
         LOGGER.log(Level.INFO, "SD card filename: " + sdfilename);
         this.Compile();
-        
+        UploadCompiledToSDCard(sdfilename);
+    }
+
+    /* Uploads the binaries built by Compile(), plus dependent files. Returns false if anything failed. */
+    public boolean UploadCompiledToSDCard(String sdfilename) {
         // create subdirs...
         for (int i = 1; i < sdfilename.length(); i++) {
             if (sdfilename.charAt(i) == '/') {
@@ -3147,7 +3437,7 @@ public void UploadToSDCard(String sdfilename) {
                     createDirCmd.Do();
                     CommandManager.getInstance().endLongOperation();
                     if (!createDirCmd.waitForCompletion() || !createDirCmd.isSuccessful()) {
-                        return;
+                        return false;
                     }
                 } catch (InterruptedException e) {
                     LOGGER.log(Level.SEVERE, "Thread interrupted while creating directory.", e);
@@ -3178,7 +3468,7 @@ public void UploadToSDCard(String sdfilename) {
                 uploadFileCmd.Do();
                 CommandManager.getInstance().endLongOperation();
                 if (!uploadFileCmd.waitForCompletion() || !uploadFileCmd.isSuccessful()) {
-                    return;
+                    return false;
                 }
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Error while uploading patch: " + e.getMessage());
@@ -3194,7 +3484,7 @@ public void UploadToSDCard(String sdfilename) {
                     uploadFileCmd_sram3.Do();
                     CommandManager.getInstance().endLongOperation();
                     if (!uploadFileCmd_sram3.waitForCompletion() || !uploadFileCmd_sram3.isSuccessful()) {
-                        return;
+                        return false;
                     }
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Error while uploading SRAM3 data: " + e.getMessage());
@@ -3224,7 +3514,7 @@ public void UploadToSDCard(String sdfilename) {
                         uploadFileCmd.Do();
                         CommandManager.getInstance().endLongOperation();
                         if (!uploadFileCmd.waitForCompletion() || !uploadFileCmd.isSuccessful()) {
-                            return;
+                            return false;
                         }
                     } catch (InterruptedException e) {
                         LOGGER.log(Level.SEVERE, "Thread interrupted while uploading file.", e);
@@ -3236,7 +3526,9 @@ public void UploadToSDCard(String sdfilename) {
         else {
             String path = System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + this.generateBuildFilenameStem(true);
             LOGGER.log(Level.INFO, path + ".bin not found.");
+            return false;
         }
+        return true;
     }
 
     public void UploadToSDCard() {
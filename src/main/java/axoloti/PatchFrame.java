@@ -25,11 +25,8 @@
 import axoloti.listener.ConnectionStatusListener;
 import axoloti.listener.SDCardMountStatusListener;
 import axoloti.object.AxoObjectInstanceAbstract;
-import axoloti.object.AxoObjectInstancePatcher;
-import axoloti.parameters.ParameterInstance;
+import axoloti.object.AxoObjects;
 import axoloti.patch.MutatorFrame;
-import axoloti.sd.SDCardInfo;
-import axoloti.sd.SDFileReference;
 import axoloti.ui.SvgIconLoader;
 import axoloti.ui.Theme;
 import axoloti.utils.Constants;
@@ -67,7 +64,6 @@
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -87,9 +83,7 @@
 import org.simpleframework.xml.stream.Format;
 
 import qcmds.CommandManager;
-import qcmds.SCmdChangeWorkingDirectory;
 import qcmds.SCmdCopyPatchToFlash;
-import qcmds.SCmdCreateDirectory;
 import qcmds.SCmdUploadPatch;
 
 /**
@@ -122,6 +116,9 @@ public class PatchFrame extends javax.swing.JFrame implements DocumentWindow, Co
     private javax.swing.JToggleButton jToggleButtonLive;
     private javax.swing.JCheckBoxMenuItem jCheckBoxMenuItemCordsInBackground;
     private javax.swing.JCheckBoxMenuItem jCheckBoxMenuItemLive;
+    private javax.swing.JCheckBoxMenuItem jCheckBoxMenuItemPaintStatistics;
+    private javax.swing.JLabel jLabelPaintStatistics;
+    private javax.swing.Timer paintStatisticsTimer;
     private javax.swing.JLabel jLabelDSPLoad;
     private javax.swing.JMenuBar jMenuBar1;
     private javax.swing.JMenuItem jMenuClose;
@@ -173,10 +170,10 @@ public class PatchFrame extends javax.swing.JFrame implements DocumentWindow, Co
     public PatchFrame(final PatchGUI patch) {
 
         try {
-            MainFrame.axoObjects.LoaderThread.join(); /* Make sure all object libraries are loaded before creating/opening a patch */
+            MainFrame.axoObjects.awaitObjects(AxoObjects.getReferencedObjects(patch)); /* Make sure the objects used by the patch are loaded before creating/opening it */
         }
         catch (Exception ex) {
-            LOGGER.log(Level.SEVERE, "Error during AxoObject loader thread: " + ex.getMessage());
+            LOGGER.log(Level.SEVERE, "Error while waiting for object libraries: " + ex.getMessage());
             ex.printStackTrace(System.out);
         }
 
@@ -431,168 +428,11 @@ private void handleLiveAction(boolean selected) {
                 }
             }
 
-            new SwingWorker<Boolean, String>() {
-                PatchGUI previouslyLive = null;
-                boolean compilationTimeout = false;
-
-                @Override
-                protected Boolean doInBackground() throws Exception {
-                    try {
-
-                        /* Update logic for all subpatches */
-                        for (AxoObjectInstanceAbstract aoi : patch.objectInstances) {
-                            if (aoi instanceof AxoObjectInstancePatcher) {
-                                ((AxoObjectInstancePatcher) aoi).refreshObjectCode();
-                            }
-                        }
-
-                        /* Clear needsTransmit flags on all non-frozen parameters */
-                        for (AxoObjectInstanceAbstract o : patch.objectInstances) {
-                            for (ParameterInstance pi : o.getParameterInstances()) {
-                                if (!pi.isFrozen()) {
-                                    pi.ClearNeedsTransmit();
-                                }
-                            }
-                        }
-
-                        /* Check if there is a previously live patch */
-                        previouslyLive = mainframe.getCurrentLivePatch();
-                        if (previouslyLive != null && previouslyLive != patch) {
-                            mainframe.setCurrentLivePatch(null);
-                        }
-
-                        /* Ensure there is no .bin file to avoid false positive at getBinFile().exists() below */
-                        File binFile = patch.getBinFile();
-                        if (binFile.exists()) {
-                            binFile.delete();
-                        }
-
-                        /* Compile the patch. This is a long, host-side operation */
-                        patch.WriteCode();
-                        patch.Compile();
-
-                        /* Handle SD card and dependent files */
-                        if (patch.getBinFile().exists()) {
-                            ArrayList<SDFileReference> files = patch.GetDependentSDFiles();
-                            if (files.size() > 0) {
-                                if (USBBulkConnection.getInstance().GetSDCardPresent()) {
-                                    try {
-                                        String f = "/" + patch.getSDCardPath();
-                                        if (SDCardInfo.getInstance().find(f) == null) {
-                                            Calendar cal = Calendar.getInstance();
-
-                                            CommandManager.getInstance().startLongOperation();
-                                            SCmdCreateDirectory createDirCmd = new SCmdCreateDirectory(f, cal);
-                                            createDirCmd.Do();
-                                            CommandManager.getInstance().endLongOperation();
-                                            if (!createDirCmd.waitForCompletion() || !createDirCmd.isSuccessful()) {
-                                                return false;
-                                            }
-                                        }
-
-                                        CommandManager.getInstance().startLongOperation();
-                                        SCmdChangeWorkingDirectory changeDirCmd = new SCmdChangeWorkingDirectory(f);
-                                        changeDirCmd.Do();
-                                        CommandManager.getInstance().endLongOperation();
-                                        if (!changeDirCmd.waitForCompletion() || !changeDirCmd.isSuccessful()) {
-                                            return false;
-                                        }
-
-                                        /* If code reaches here, all preparations were successful */
-                                        patch.UploadDependentFiles("/" + patch.getSDCardPath());
-                                    } catch (Exception e) {
-                                        LOGGER.log(Level.SEVERE, "Patch dependent files upload to SD failed with exception: ", e);
-                                    }
-                                } else {
-                                    LOGGER.log(Level.WARNING, "Patch requires file {0} on SD card, but no SD card connected.", files.get(0).targetPath);
-                                }
-                            }
-
-                            /* Upload and start the new patch */
-                            if (USBBulkConnection.getInstance().isConnected()) {
-                                try {
-                                    CommandManager.getInstance().startLongOperation();
-                                    SCmdUploadPatch uploadCmd = new SCmdUploadPatch(patch.getBinFile(), USBBulkConnection.getInstance().getTargetProfile().getPatchAddr(), "patch");
-                                    uploadCmd.Do();
-                                    CommandManager.getInstance().endLongOperation();
-                                    if (!uploadCmd.waitForCompletion() || !uploadCmd.isSuccessful()) {
-                                        return false;
-                                    }
-
-                                    File sram3binFile = patch.getBinFile_sram3();
-                                    if (sram3binFile.exists() && sram3binFile.length() > 0) {
-                                        CommandManager.getInstance().startLongOperation();
-                                        SCmdUploadPatch sram3uploadCmd = new SCmdUploadPatch(patch.getBinFile_sram3(), USBBulkConnection.getInstance().getTargetProfile().getPatchAddr_sram3(), "SRAM3 data");
-                                        sram3uploadCmd.Do();
-                                        CommandManager.getInstance().endLongOperation();
-                                        if (!uploadCmd.waitForCompletion() || !uploadCmd.isSuccessful()) {
-                                            return false;
-                                        }
-                                    }
-
-                                    /* If code reaches here, success */
-                                    return true;
-                                } catch (Exception e) {
-                                    LOGGER.log(Level.SEVERE, "Patch upload failed with exception: ", e);
-                                    return false;
-                                }
-                            } else {
-                                LOGGER.log(Level.SEVERE, "USB connection lost, patch upload aborted.");
-                                return false;
-                            }
-                        } else {
-                            compilationTimeout = true;
-                            return false;
-                        }
-                    } catch (Exception e) {
-                        return false;
-                    }
-                }
-
-                @Override
-                protected void done() {
-                    CommandManager.getInstance().endLongOperation();
-                    try {
-                        boolean success = get();
-                        if (success) {
-                            /* Only set the patch to live after a successful process */
-                            System.out.println(Instant.now() + " Patch upload successful, starting patch...");
-                            mainframe.setCurrentLivePatch(patch);
-                            patch.ShowPreset(0);
-                        } else {
-                            /* If it failed, show a message and clear the live state. */
-                            if (compilationTimeout) {
-                                String path = System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + patch.generateBuildFilenameStem(true);
-                                LOGGER.log(Level.INFO, "Timeout: " + path + ".bin could not be created.");
-                            }
-                            mainframe.setCurrentLivePatch(null);
-                        }
-
-                    }
-                    catch (Exception e) {
-                        /* If an exception occurs in get(), assume failure */
-                        mainframe.setCurrentLivePatch(null);
-
-                    }
-                    finally {
-                        mainframe.setAllPatchFramesActionButtonsEnabled(true);
-                    }
-                }
-            }.execute();
+            /* Generate, compile, upload and start without blocking the GUI */
+            GoLive.getInstance().request(patch);
         }
         else { /* Stop Live action */
-            new SwingWorker<Void, Void>() {
-                @Override
-                protected Void doInBackground() throws Exception {
-                    mainframe.setCurrentLivePatch(null); /* Signal mainframe that currently no patch is live */
-                    return null;
-                }
-
-                @Override
-                protected void done() {
-                    mainframe.setAllPatchFramesActionButtonsEnabled(true);
-                }
-            }.execute();
+            GoLive.getInstance().request(null); /* Signal mainframe that currently no patch is live */
         }
     }
 
@@ -658,6 +498,9 @@ public void Close() {
         if (mutatorFrame != null) {
             mutatorFrame.dispose();
         }
+        if (paintStatisticsTimer != null) {
+            paintStatisticsTimer.stop();
+        }
         patch.Close();
         super.dispose();
     }
@@ -709,6 +552,7 @@ private void initComponents() {
         jLabelDSPLoad = new javax.swing.JLabel();
         jProgressBarDSPLoad = new javax.swing.JProgressBar();
         jLabelBoardIDName = new javax.swing.JLabel(" USB");
+        jLabelPaintStatistics = new javax.swing.JLabel();
         jScrollPane1 = new ScrollPaneComponent();
         jMenuBar1 = new javax.swing.JMenuBar();
         fileMenuP = new axoloti.menus.FileMenu();
@@ -740,6 +584,7 @@ private void initComponents() {
         jMenuItemShowPatchMutator = new javax.swing.JMenuItem();
         jMenuPatch = new javax.swing.JMenu();
         jCheckBoxMenuItemLive = new javax.swing.JCheckBoxMenuItem();
+        jCheckBoxMenuItemPaintStatistics = new javax.swing.JCheckBoxMenuItem();
         jMenuItemUploadSD = new javax.swing.JMenuItem();
         jMenuItemUploadSDStart = new javax.swing.JMenuItem();
         jMenuItemUploadInternalFlash = new javax.swing.JMenuItem();
@@ -825,6 +670,10 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
         filler3.setAlignmentX(LEFT_ALIGNMENT);
         jToolbarPanel.add(filler3);
 
+        jLabelPaintStatistics.setToolTipText("Patch canvas repaints per second, paint time, and patch cords drawn or skipped as off-screen");
+        jLabelPaintStatistics.setVisible(false);
+        jToolbarPanel.add(jLabelPaintStatistics);
+
         getContentPane().add(jToolbarPanel);
 
         jScrollPane1.setAutoscrolls(true);
@@ -1055,6 +904,14 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
         });
         jMenuTools.add(jMenuItemAdjScroll);
 
+        jCheckBoxMenuItemPaintStatistics.setText("Show Paint Statistics");
+        jCheckBoxMenuItemPaintStatistics.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jCheckBoxMenuItemPaintStatisticsActionPerformed(evt);
+            }
+        });
+        jMenuTools.add(jCheckBoxMenuItemPaintStatistics);
+
         jMenuBar1.add(jMenuTools);
 
         jMenuPatch.setMnemonic('P');
@@ -1388,6 +1245,21 @@ private void jCheckBoxMenuItemCordsInBackgroundActionPerformed(java.awt.event.Ac
         patch.SetCordsInBackground(jCheckBoxMenuItemCordsInBackground.isSelected());
     }
 
+    private void jCheckBoxMenuItemPaintStatisticsActionPerformed(java.awt.event.ActionEvent evt) {
+        boolean show = jCheckBoxMenuItemPaintStatistics.isSelected();
+        if (show && paintStatisticsTimer == null) {
+            patch.paintStatistics.getSummaryAndReset();
+            paintStatisticsTimer = new javax.swing.Timer(1000, e -> jLabelPaintStatistics.setText(patch.paintStatistics.getSummaryAndReset()));
+            paintStatisticsTimer.start();
+        }
+        else if (!show && paintStatisticsTimer != null) {
+            paintStatisticsTimer.stop();
+            paintStatisticsTimer = null;
+        }
+        jLabelPaintStatistics.setText("");
+        jLabelPaintStatistics.setVisible(show);
+    }
+
     private void jMenuGenerateCodeActionPerformed(java.awt.event.ActionEvent evt) {
         patch.WriteCode();
     }
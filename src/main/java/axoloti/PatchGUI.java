@@ -35,12 +35,14 @@
 import axoloti.outlets.OutletInstance;
 import axoloti.parameters.ParameterInstance;
 import axoloti.ui.MaterialColors;
+import axoloti.ui.PaintStatistics;
 import axoloti.ui.SelectionRectangle;
 import axoloti.ui.Theme;
 import axoloti.utils.Constants;
 import axoloti.utils.GraphicsUtils;
 import axoloti.utils.KeyUtils;
 import axoloti.utils.Preferences;
+import axoloti.utils.SpatialGrid;
 import axoloti.utils.StringRef;
 
 import java.awt.BasicStroke;
@@ -60,6 +62,8 @@
 import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDragEvent;
 import java.awt.dnd.DropTargetDropEvent;
+import java.awt.event.ContainerEvent;
+import java.awt.event.ContainerListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
@@ -75,8 +79,10 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -117,7 +123,16 @@ public class PatchGUI extends Patch {
     private int MousePressedBtn = 0;
     private float dspLoadPercent = 0.0f;
 
-    public JLayeredPane Layers = new JLayeredPane();
+    public final PaintStatistics paintStatistics = new PaintStatistics();
+
+    public JLayeredPane Layers = new JLayeredPane() {
+        @Override
+        public void paint(Graphics g) {
+            long t0 = System.nanoTime();
+            super.paint(g);
+            paintStatistics.frame(System.nanoTime() - t0);
+        }
+    };
     public JPanel objectLayerPanel = new JPanel();
     public JPanel draggedObjectLayerPanel = new JPanel();
     public JPanel netLayerPanel;
@@ -137,6 +152,10 @@ public class PatchGUI extends Patch {
 
     SelectionRectangle selectionrectangle = new SelectionRectangle();
     Point selectionRectStart;
+    /* Objects the selection rectangle currently selects, when dragged without modifiers */
+    private Set<AxoObjectInstanceAbstract> selectionRectHits = Collections.newSetFromMap(new IdentityHashMap<AxoObjectInstanceAbstract, Boolean>());
+    /* Bounds of the objects on the object layer, for selection and hit testing */
+    private final SpatialGrid<AxoObjectInstanceAbstract> objectGrid = new SpatialGrid<AxoObjectInstanceAbstract>(128);
     Point panOrigin;
     private Map<DataType, Boolean> cableTypeEnabled = new HashMap<DataType, Boolean>();
 
@@ -162,9 +181,13 @@ protected void paintComponent(Graphics g) {
                     return;
                 }
                 Graphics2D g2 = GraphicsUtils.configureGraphics(g);
+                Rectangle clip = g.getClipBounds();
 
                 for (int i = 0; i < findTextResults.size(); i++) {
                     AxoObjectInstanceAbstract obj = findTextResults.get(i);
+                    if (clip != null && !clip.intersects(findTextHighlightBounds(obj))) {
+                        continue;
+                    }
                     boolean isCurrentMatch = (i == currentFindTextMatchIndex);
 
                     Color highlightColor = MaterialColors.PURPLE_A700;
@@ -206,6 +229,21 @@ protected void paintComponent(Graphics g) {
         netLayerPanel.setName("netLayerPanel");
 
         objectLayerPanel.setName(Constants.OBJECT_LAYER_PANEL);
+        objectLayerPanel.addContainerListener(new ContainerListener() {
+            @Override
+            public void componentAdded(ContainerEvent e) {
+                if (e.getChild() instanceof AxoObjectInstanceAbstract) {
+                    objectGrid.put((AxoObjectInstanceAbstract) e.getChild(), e.getChild().getBounds());
+                }
+            }
+
+            @Override
+            public void componentRemoved(ContainerEvent e) {
+                if (e.getChild() instanceof AxoObjectInstanceAbstract) {
+                    objectGrid.remove((AxoObjectInstanceAbstract) e.getChild());
+                }
+            }
+        });
         draggedObjectLayerPanel.setName(Constants.DRAGGED_OBJECT_LAYER_PANEL);
 
         draggedObjectLayerPanel.add(selectionrectangle);
@@ -471,6 +509,7 @@ public void mousePressed(MouseEvent me) {
                         }
                     }
                     selectionRectStart = me.getPoint();
+                    selectionRectHits.clear();
                     selectionrectangle.setBounds(me.getX(), me.getY(), 1, 1);
 
                     Layers.requestFocusInWindow();
@@ -712,25 +751,35 @@ public void mouseDragged(MouseEvent ev) {
                     draggedObjectLayerPanel.repaint();
                     Rectangle r = selectionrectangle.getBounds();
 
-                    for (AxoObjectInstanceAbstract o : objectInstances) {
+                    Set<AxoObjectInstanceAbstract> hits = Collections.newSetFromMap(new IdentityHashMap<AxoObjectInstanceAbstract, Boolean>());
+                    for (AxoObjectInstanceAbstract o : objectGrid.query(r)) {
                         if (!o.IsLocked()) {
-                            boolean intersects = o.getBounds().intersects(r);
-                            if (ev.isShiftDown()) {
-                                /* Shift-drag: Add objects to selection */
-                                if (intersects) {
-                                    o.SetSelected(true);
-                                }
-                            } else if (KeyUtils.isControlOrCommandDown(ev)) {
-                                /* Ctrl-drag: Remove objects from selection */
-                                if (intersects) {
-                                    o.SetSelected(false);
-                                }
-                            }
-                            else {
-                                /* Normal drag: Only select intersecting objects, deselect all others */
-                                o.SetSelected(intersects);
+                            hits.add(o);
+                        }
+                    }
+                    if (ev.isShiftDown()) {
+                        /* Shift-drag: Add objects to selection */
+                        for (AxoObjectInstanceAbstract o : hits) {
+                            o.SetSelected(true);
+                        }
+                    } else if (KeyUtils.isControlOrCommandDown(ev)) {
+                        /* Ctrl-drag: Remove objects from selection */
+                        for (AxoObjectInstanceAbstract o : hits) {
+                            o.SetSelected(false);
+                        }
+                    }
+                    else {
+                        /* Normal drag: Only select intersecting objects, deselect the ones the rectangle left.
+                         * Everything else was deselected when the drag started */
+                        for (AxoObjectInstanceAbstract o : selectionRectHits) {
+                            if (!hits.contains(o)) {
+                                o.SetSelected(false);
                             }
                         }
+                        for (AxoObjectInstanceAbstract o : hits) {
+                            o.SetSelected(true);
+                        }
+                        selectionRectHits = hits;
                     }
                 }
                 ev.consume();
@@ -1054,6 +1103,7 @@ Patch GetSelectedObjects() {
             }
         }
         p.nets = new ArrayList<Net>();
+        p.invalidateNetIndex();
         for (Net n : nets) {
             int sel = 0;
             for (InletInstance i : n.dest) {
@@ -1181,6 +1231,36 @@ public void PostContructor() {
         }
     }
 
+    @Override
+    StateChange applyState(String current, String target) {
+        StateChange change = super.applyState(current, target);
+        if (change == null) {
+            return null;
+        }
+        /* Only swap the components that changed, the rest of the canvas stays */
+        for (AxoObjectInstanceAbstract o : change.removed) {
+            objectLayerPanel.remove(o);
+        }
+        for (AxoObjectInstanceAbstract o : change.added) {
+            objectLayerPanel.add(o, 0);
+        }
+        for (Net n : change.oldNets) {
+            netLayerPanel.remove(n);
+        }
+        for (Net n : nets) {
+            netLayerPanel.add(n);
+        }
+        objectLayerPanel.validate();
+        netLayerPanel.validate();
+        Layers.validate();
+
+        for (Net n : nets) {
+            n.updateBounds();
+        }
+        Layers.repaint();
+        return change;
+    }
+
     @Override
     public void setFileNamePath(String FileNamePath) {
         setFileNamePath(FileNamePath, null);
@@ -1254,9 +1334,40 @@ public Net delete(Net n) {
         return nn;
     }
 
+    /* Called when an object on the object layer moved or was resized */
+    public void objectBoundsChanged(AxoObjectInstanceAbstract o) {
+        objectGrid.update(o, o.getBounds());
+    }
+
+    /* Objects on the object layer that intersect r */
+    public List<AxoObjectInstanceAbstract> getObjectsIn(Rectangle r) {
+        return objectGrid.query(r);
+    }
+
+    /* The topmost object on the object layer at p, or null */
+    public AxoObjectInstanceAbstract getObjectAt(Point p) {
+        AxoObjectInstanceAbstract top = null;
+        int topZ = Integer.MAX_VALUE;
+        for (AxoObjectInstanceAbstract o : objectGrid.query(p)) {
+            if (!o.isVisible()) {
+                continue;
+            }
+            int z = objectLayerPanel.getComponentZOrder(o);
+            if (z >= 0 && z < topZ) {
+                top = o;
+                topZ = z;
+            }
+        }
+        return top;
+    }
+
     public IoletAbstract getIoletAtLocation(Point p) {
-        for (int i = objectInstances.size() - 1; i >= 0; i--) {
+        List<AxoObjectInstanceAbstract> candidates = objectGrid.query(p);
+        for (int i = objectInstances.size() - 1; i >= 0 && !candidates.isEmpty(); i--) {
             AxoObjectInstanceAbstract o = objectInstances.get(i);
+            if (!candidates.remove(o)) {
+                continue;
+            }
             Point p_obj = SwingUtilities.convertPoint(Layers, p, o);
 
             for (InletInstance inlet : o.getInletInstances()) {
@@ -1313,8 +1424,28 @@ public void SetCordsInBackground(boolean b) {
         }
     }
 
+    private static Rectangle findTextHighlightBounds(AxoObjectInstanceAbstract obj) {
+        Rectangle r = obj.getBounds();
+        r.grow(4, 4); /* Widest highlight stroke */
+        return r;
+    }
+
+    /* Repaints the highlights of previousResults and of the current results, instead of the whole canvas */
+    private void repaintFindTextHighlights(ArrayList<AxoObjectInstanceAbstract> previousResults) {
+        if (netLayerPanel == null) {
+            return;
+        }
+        for (AxoObjectInstanceAbstract obj : previousResults) {
+            netLayerPanel.repaint(findTextHighlightBounds(obj));
+        }
+        for (AxoObjectInstanceAbstract obj : findTextResults) {
+            netLayerPanel.repaint(findTextHighlightBounds(obj));
+        }
+    }
+
     public void findAndHighlight(String searchText, int direction, FindTextDialog dialog, int checkmask) {
         boolean isNewSearch = false; 
+        ArrayList<AxoObjectInstanceAbstract> previousResults = new ArrayList<>(findTextResults);
 
         if (searchText.isEmpty()) {
             currentFindTextString = searchText;
@@ -1322,9 +1453,7 @@ public void findAndHighlight(String searchText, int direction, FindTextDialog di
             findTextResults.clear();
             currentFindTextMatchIndex = -1;
             isNewSearch = true; 
-            if (netLayerPanel != null) {
-                netLayerPanel.repaint();
-            }
+            repaintFindTextHighlights(previousResults);
         } else if (!searchText.equals(currentFindTextString) || checkmask != currentFindCheckmask) {
             currentFindTextString = searchText;
             currentFindCheckmask = checkmask;
@@ -1393,9 +1522,7 @@ public void findAndHighlight(String searchText, int direction, FindTextDialog di
                     findTextResults.add(obj);
                 }
             }
-            if (netLayerPanel != null) {
-                netLayerPanel.repaint(); 
-            }
+            repaintFindTextHighlights(previousResults);
 
             currentFindTextMatchIndex = findTextResults.isEmpty() ? -1 : 0; 
         }
@@ -1419,17 +1546,13 @@ public void findAndHighlight(String searchText, int direction, FindTextDialog di
                                             obj.getWidth(),
                                             obj.getHeight()));
 
-            if (netLayerPanel != null) {
-                netLayerPanel.repaint(); 
-            }
+            repaintFindTextHighlights(previousResults);
         } else {
             currentFindTextMatchIndex = -1; 
             if (dialog != null) {
                 dialog.updateResults(currentFindTextMatchIndex, findTextResults.size());
             }
-            if (netLayerPanel != null) {
-                netLayerPanel.repaint();
-            }
+            repaintFindTextHighlights(previousResults);
         }
     }
 
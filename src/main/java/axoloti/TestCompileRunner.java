@@ -0,0 +1,330 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti;
+
+import axoloti.object.AxoObject;
+import axoloti.object.AxoObjectAbstract;
+import axoloti.object.AxoObjectFromPatch;
+import axoloti.object.AxoObjects;
+import axoloti.utils.AxolotiLibrary;
+import axoloti.utils.Preferences;
+
+import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Headless counterpart of MainFrame.runTestDir(): generates code for and
+ * compiles every patch (and optionally object) below a set of folders
+ * without creating any frames, and writes a JUnit XML report with the time
+ * spent per file.
+ *
+ * Files are compiled by a pool of workers. Every file has its own build
+ * file name below build/, so compiles only share the precompiled header,
+ * which the first file builds before the others start. Loading a file and
+ * generating its code is serialized since object types are shared between
+ * patches, and takes a fraction of the compile time.
+ *
+ * No Core is needed: binaries are built but not uploaded.
+ *
+ * @author Ksoloti
+ */
+public class TestCompileRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(TestCompileRunner.class.getName());
+
+    private final int jobs;
+    private final File reportFile;
+    private final boolean stopOnFirstFail;
+
+    private static class Result {
+        final File file;
+        boolean success;
+        String message = "";
+        long generateMillis;
+        long compileMillis;
+
+        Result(File file) {
+            this.file = file;
+        }
+    }
+
+    public TestCompileRunner(int jobs, File reportFile, boolean stopOnFirstFail) {
+        this.jobs = Math.max(1, jobs);
+        this.reportFile = reportFile;
+        this.stopOnFirstFail = stopOnFirstFail;
+    }
+
+    public static File getDefaultReportFile() {
+        return new File(System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + File.separator + "test-report.xml");
+    }
+
+    /* Loads the object libraries unless that was done already. Blocks until loading has finished. */
+    public static void loadLibraries() throws InterruptedException {
+        if (MainFrame.axoObjects == null) {
+            MainFrame.axoObjects = new AxoObjects();
+            MainFrame.axoObjects.LoadAxoObjects();
+        }
+        System.out.println("Waiting for libraries to load...");
+        MainFrame.axoObjects.awaitLoaded();
+    }
+
+    /* Subfolder (e.g. "patches" or "objects") of the four stock libraries, null if a library is missing */
+    public static List<File> getLibraryFolders(String subfolder) {
+        String[] ids = {
+            AxolotiLibrary.AXOLOTI_FACTORY_ID,
+            AxolotiLibrary.AXOLOTI_CONTRIB_ID,
+            AxolotiLibrary.KSOLOTI_OBJECTS_ID,
+            AxolotiLibrary.KSOLOTI_CONTRIB_ID
+        };
+        ArrayList<File> folders = new ArrayList<File>();
+        for (String id : ids) {
+            AxolotiLibrary lib = Preferences.getInstance().getLibrary(id);
+            if (lib == null) {
+                return null;
+            }
+            folders.add(new File(lib.getLocalLocation() + File.separator + subfolder));
+        }
+        return folders;
+    }
+
+    /* Same selection and order as MainFrame.runTestDir() */
+    static void collectFiles(File f, boolean testPatches, boolean testObjects, List<File> files) {
+        if (!f.exists()) {
+            return;
+        }
+        if (!f.isDirectory()) {
+            files.add(f);
+            return;
+        }
+        File[] children = f.listFiles((dir, name) -> {
+            if (new File(dir, name).isDirectory()) {
+                return true;
+            }
+            if (name.length() < 4) {
+                return false;
+            }
+            String extension = name.substring(name.length() - 4);
+            boolean isPatch = testPatches && (extension.equals(".axp") || extension.equals(".axh"));
+            boolean isObject = testObjects && (extension.equals(".axo") || extension.equals(".axs"));
+            return isPatch || isObject;
+        });
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children, (f1, f2) -> f1.getAbsolutePath().compareToIgnoreCase(f2.getAbsolutePath()));
+        for (File c : children) {
+            collectFiles(c, testPatches, testObjects, files);
+        }
+    }
+
+    public boolean run(List<File> roots, boolean testPatches, boolean testObjects) throws InterruptedException {
+        ArrayList<File> files = new ArrayList<File>();
+        for (File root : roots) {
+            collectFiles(root, testPatches, testObjects, files);
+        }
+        LOGGER.log(Level.INFO, "Testing " + files.size() + " files on " + jobs + (jobs == 1 ? " worker" : " workers"));
+
+        long t0 = System.currentTimeMillis();
+        ArrayList<Result> results = new ArrayList<Result>();
+        AtomicBoolean failed = new AtomicBoolean(false);
+
+        if (!files.isEmpty()) {
+            /* The first compile builds the shared precompiled header, so run it alone */
+            Result first = test(files.get(0));
+            results.add(first);
+            failed.set(!first.success);
+
+            ExecutorService workers = Executors.newFixedThreadPool(jobs, r -> {
+                Thread t = new Thread(r, "TestCompileWorker");
+                t.setDaemon(true);
+                return t;
+            });
+            ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+            for (File f : files.subList(1, files.size())) {
+                futures.add(workers.submit(() -> {
+                    if (stopOnFirstFail && failed.get()) {
+                        return null;
+                    }
+                    Result r = test(f);
+                    if (!r.success) {
+                        failed.set(true);
+                    }
+                    return r;
+                }));
+            }
+            workers.shutdown();
+            for (Future<Result> future : futures) {
+                try {
+                    Result r = future.get();
+                    if (r != null) {
+                        results.add(r);
+                    }
+                }
+                catch (ExecutionException ex) {
+                    LOGGER.log(Level.SEVERE, "Test worker failed: " + ex.getCause());
+                    failed.set(true);
+                }
+            }
+        }
+
+        long elapsed = System.currentTimeMillis() - t0;
+        int failures = 0;
+        for (Result r : results) {
+            if (!r.success) {
+                failures++;
+            }
+        }
+        LOGGER.log(Level.INFO, "Tested " + results.size() + " files in " + (elapsed / 1000) + " s, " + failures + " failed");
+        writeReport(results, elapsed);
+        return !failed.get();
+    }
+
+    private Result test(File f) {
+        Result r = new Result(f);
+        try {
+            Patch patch;
+            synchronized (Patch.codeGenerationLock) {
+                long t0 = System.currentTimeMillis();
+                patch = load(f);
+                if (patch != null) {
+                    patch.WriteCode();
+                }
+                r.generateMillis = System.currentTimeMillis() - t0;
+            }
+            long t1 = System.currentTimeMillis();
+            if (patch == null) {
+                r.message = "Could not load file";
+                return r;
+            }
+
+            File binFile = patch.getBinFile();
+            if (binFile.exists()) {
+                /* Delete previous .bin so a failed build is not mistaken for a successful one */
+                binFile.delete();
+            }
+            r.success = patch.Compile(null) && binFile.exists();
+            r.compileMillis = System.currentTimeMillis() - t1;
+            if (!r.success) {
+                r.message = "Compilation failed";
+            }
+            LOGGER.log(Level.INFO, (r.success ? "PASSED " : "FAILED ") + f.getPath()
+                    + " (generate " + r.generateMillis + " ms, compile " + r.compileMillis + " ms)");
+        }
+        catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, "Error during patch test: " + f.getPath() + ", " + ex.getMessage());
+            ex.printStackTrace(System.out);
+            r.success = false;
+            r.message = ex.toString();
+        }
+        return r;
+    }
+
+    /* A patch, or a patch holding one instance of the object or subpatch in f */
+    private static Patch load(File f) {
+        String fileName = f.getName();
+        Patch patch;
+        if (fileName.endsWith(".axo") || fileName.endsWith(".axs")) {
+            patch = new Patch();
+            patch.setFileNamePath(f.getPath());
+            AxoObjectAbstract obj = null;
+            if (fileName.endsWith(".axo")) {
+                AxoObject loadedObject = AxoObject.loadAxoObjectFromFile(f.toPath());
+                if (loadedObject == null) {
+                    return null;
+                }
+                obj = MainFrame.axoObjects.GetAxoObjectFromUUID(loadedObject.getUUID());
+                if (obj == null) {
+                    obj = loadedObject; /* Local, unlisted object */
+                }
+            }
+            else {
+                String canonicalId = MainFrame.axoObjects.getCanonicalObjectIdFromPath(f);
+                if (canonicalId != null) {
+                    ArrayList<AxoObjectAbstract> objs = MainFrame.axoObjects.GetAxoObjectFromName(canonicalId, patch.GetCurrentWorkingDirectory());
+                    if (objs != null && !objs.isEmpty()) {
+                        obj = objs.get(0);
+                    }
+                }
+                if (obj == null) {
+                    obj = new AxoObjectFromPatch(f); /* Local subpatch */
+                }
+            }
+            if (patch.AddObjectInstance(obj, new Point(80, 80)) == null) {
+                return null;
+            }
+        }
+        else {
+            return Patch.OpenPatchHeadless(f);
+        }
+        patch.PostContructor();
+        return patch;
+    }
+
+    private static String escape(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private void writeReport(List<Result> results, long elapsed) {
+        int failures = 0;
+        for (Result r : results) {
+            if (!r.success) {
+                failures++;
+            }
+        }
+        File dir = reportFile.getAbsoluteFile().getParentFile();
+        if (dir != null) {
+            dir.mkdirs();
+        }
+        try (BufferedWriter w = new BufferedWriter(new FileWriter(reportFile))) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            w.write("<testsuite name=\"patch-compile\" tests=\"" + results.size() + "\" failures=\"" + failures
+                    + "\" errors=\"0\" time=\"" + String.format(Locale.ROOT, "%.3f", elapsed / 1000.0) + "\">\n");
+            for (Result r : results) {
+                String path = r.file.getPath();
+                w.write("  <testcase classname=\"" + escape(r.file.getParent() != null ? r.file.getParent() : "")
+                        + "\" name=\"" + escape(r.file.getName())
+                        + "\" time=\"" + String.format(Locale.ROOT, "%.3f", (r.generateMillis + r.compileMillis) / 1000.0) + "\">\n");
+                if (!r.success) {
+                    w.write("    <failure message=\"" + escape(r.message) + "\">" + escape(path) + "</failure>\n");
+                }
+                w.write("    <system-out>generate " + r.generateMillis + " ms, compile " + r.compileMillis + " ms</system-out>\n");
+                w.write("  </testcase>\n");
+            }
+            w.write("</testsuite>\n");
+            LOGGER.log(Level.INFO, "Test report written to " + reportFile.getPath());
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Could not write test report " + reportFile.getPath() + ": " + ex.getMessage());
+        }
+    }
+}
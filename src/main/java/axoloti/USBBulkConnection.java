@@ -24,6 +24,7 @@
 import axoloti.parameters.ParameterInstance;
 import axoloti.sd.SDCardInfo;
 import axoloti.targetprofile.ksoloti_core;
+import axoloti.usb.ReceiveBufferRing;
 import axoloti.utils.Preferences;
 
 import static axoloti.dialogs.USBPortSelectionDlg.ErrorString;
@@ -53,13 +54,15 @@
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -71,6 +74,7 @@
 import qcmds.SCmdCopyPatchToFlash;
 import qcmds.SCmdCreateDirectory;
 import qcmds.SCmdDeleteFile;
+import qcmds.SCmdGetDirectoryListing;
 import qcmds.SCmdGetFileInfo;
 import qcmds.SCmdGetFileList;
 import qcmds.SCmdMemRead;
@@ -102,7 +106,7 @@ public class USBBulkConnection extends Connection {
     private volatile Thread receiverThread;
     private volatile Thread byteProcessorThread;
     private final BlockingQueue<SCmd> queueSerialTask;
-    private final BlockingQueue<byte[]> receiverBlockingQueue;
+    private final ReceiveBufferRing receiveRing;
     private String targetCpuId;
     private String detectedCpuId;
     private ksoloti_core targetProfile;
@@ -112,6 +116,33 @@ public class USBBulkConnection extends Connection {
 
     ByteBuffer dispData;
 
+    /* Receive path: 16 x 4 kB buffers recycled between Receiver and ByteProcessor */
+    private final static int RECEIVE_BUFFER_COUNT = 16;
+    private final static int RECEIVE_BUFFER_SIZE = 4096;
+    private final static int IN_TRANSFER_COUNT = 4; /* Asynchronous IN transfers kept posted */
+
+    /* Display data handed to the EDT; reused while no update is pending */
+    private ByteBuffer displayCopy;
+    private final AtomicBoolean displayUpdatePending = new AtomicBoolean(false);
+    private final AtomicLong receiveAllocationCount = new AtomicLong();
+    private final Runnable displayUpdater = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                Patch p = patch;
+                if (p != null && p.DisplayInstances != null) {
+                    displayCopy.rewind();
+                    for (DisplayInstance d : p.DisplayInstances) {
+                        d.ProcessByteBuffer(displayCopy);
+                    }
+                }
+            }
+            finally {
+                displayUpdatePending.set(false);
+            }
+        }
+    };
+
     final Sync sync;
 
     private Boolean isSDCardPresent = null;
@@ -124,9 +155,11 @@ public class USBBulkConnection extends Connection {
     int temp_fwcrc = -1;
 
     private final static byte[] AxoA_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('A')};
+    private final static byte[] AxoB_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('B')};
     private final static byte[] AxoC_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('C')};
     private final static byte[] AxoF_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('F')};
     private final static byte[] AxoM_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('M')};
+    private final static byte[] AxoQ_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('Q')};
     private final static byte[] AxoR_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('R')};
     private final static byte[] AxoS_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('S')};
     private final static byte[] AxoT_pckt =  new byte[] {(byte) ('A'), (byte) ('x'), (byte) ('o'), (byte) ('T')};
@@ -147,11 +180,18 @@ public class USBBulkConnection extends Connection {
     private final static byte OUT_ENDPOINT = (byte) 0x02;
     private final static byte IN_ENDPOINT = (byte) 0x82;
 
+    /* Full speed bulk endpoints, refreshed from the device descriptor on connect */
+    private final static int DEFAULT_MAX_PACKET_SIZE = 64;
+    private volatile int outMaxPacketSize = DEFAULT_MAX_PACKET_SIZE;
+
+    /* "AxoB" batched param change: header + patchID + count, then value + index per entry */
+    private final static int PARAMBATCH_HEADER_SIZE = 10;
+    private final static int PARAMBATCH_ENTRY_SIZE = 6;
+
     private int currentFileSize;
     private int currentFileTimestamp;
     private final static Pattern sdFoundNoStartupPattern = Pattern.compile("File error:.*filename:\"/start.bin\"");
 
-    private volatile Object usbInLock = new Object();  /* For IN endpoint operations (reading) */
     private volatile Object usbOutLock = new Object(); /* For OUT endpoint operations (writing) */
     private static volatile Object handleLock = new Object(); /* Single lock for all critical sections that access the USB handle */
 
@@ -171,6 +211,7 @@ enum ReceiverState {
         MEMREAD,            /* one-time programmable bytes */
         MEMREAD_1WORD,      /* one-time programmable bytes */
         FWVERSION,          /* responds with own firmware version, 1.1.0.0 (though not used for anything?) */
+        SEQACK_PCKT,        /* Sequenced chunk acknowledge: ['A', 'x', 'o', 'Q', seq (4), target_byte, status_byte] */
         COMMANDRESULT_PCKT  /* New Response Packet: ['A', 'x', 'o', 'R', command_byte, status_byte] */
     };
 
@@ -193,71 +234,202 @@ class Sync {
         boolean Acked = false;
     }
 
-    class Receiver implements Runnable {
+    /* Keeps IN_TRANSFER_COUNT asynchronous bulk IN transfers posted at all times
+       and runs the libusb event loop that completes them. Each transfer reads
+       into a buffer from receiveRing, which is passed to the ByteProcessor as
+       soon as it completes, and the transfer is reposted with a fresh buffer. */
+    class Receiver implements Runnable, TransferCallback {
+
+        private final Transfer[] transfers = new Transfer[IN_TRANSFER_COUNT];
+        /* Guards idleTransfers and outstanding, and orders submitting and freeing transfers against their callbacks */
+        private final Object transferLock = new Object();
+        private final ArrayDeque<Transfer> idleTransfers = new ArrayDeque<Transfer>(IN_TRANSFER_COUNT);
+        private int outstanding = 0;
+        private volatile boolean failed = false;
+        private volatile boolean stalled = false;
+        /* Set on shutdown: transfers completing after this are freed by the callback */
+        private volatile boolean closing = false;
+
+        /*
+         * Called by libusb from whichever thread is handling events: the
+         * Receiver in handleEventsTimeout(), but also the Transmitter while
+         * its synchronous bulkTransfer() on the OUT endpoint waits, as both
+         * share one libusb context. Hence the lock.
+         */
         @Override
-        public void run() {
-            ByteBuffer recvbuffer = ByteBuffer.allocateDirect(4096).order(ByteOrder.LITTLE_ENDIAN);
-            IntBuffer transfered = IntBuffer.allocate(1);
+        public void processTransfer(Transfer transfer) {
+            synchronized (transferLock) {
+                completeTransfer(transfer);
+            }
+        }
 
-            // System.out.println(Instant.now() + " [DEBUG] Receiver thread started.");
-            while (!Thread.currentThread().isInterrupted() && !disconnectRequested) {
-                int result = LibUsb.SUCCESS;
-                int sz = 0;
-                recvbuffer.clear();
-                transfered.clear();
+        private void completeTransfer(Transfer transfer) {
+            outstanding--;
+            ByteBuffer b = transfer.buffer();
+            switch (transfer.status()) {
+                case LibUsb.TRANSFER_COMPLETED:
+                    if (transfer.actualLength() > 0) {
+                        /* Hand the filled buffer over as is, no copy */
+                        b.position(0);
+                        b.limit(transfer.actualLength());
+                        receiveRing.submit(b);
+                        b = null;
+                    }
+                    break;
+                case LibUsb.TRANSFER_TIMED_OUT:
+                case LibUsb.TRANSFER_CANCELLED:
+                    break;
+                case LibUsb.TRANSFER_STALL:
+                    /* Cleared before the transfers are posted again */
+                    stalled = true;
+                    break;
+                case LibUsb.TRANSFER_OVERFLOW:
+                    /* The data is lost, but the next transfer may well succeed */
+                    // System.err.println(Instant.now() + " [DEBUG] Receiver: IN transfer overflow, dropped.");
+                    break;
+                default:
+                    /* TRANSFER_NO_DEVICE, TRANSFER_ERROR */
+                    // System.err.println(Instant.now() + " [DEBUG] Receiver: IN transfer failed with status " + transfer.status());
+                    failed = true;
+                    break;
+            }
+            receiveRing.release(b);
+            if (closing) {
+                LibUsb.freeTransfer(transfer);
+            }
+            else {
+                idleTransfers.add(transfer);
+            }
+        }
 
-                try {
-                    synchronized (usbInLock) {
-                        if (handle == null) {
-                            // System.err.println(Instant.now() + " [DEBUG] Receiver: USB handle became null while waiting for lock. Initiating central disconnect.");
-                            disconnect();
-                            break; /* Exit the loop */
-                        }
+        private void clearStall() {
+            stalled = false;
+            int result = LibUsb.clearHalt(handle, (byte) IN_ENDPOINT);
+            if (result != LibUsb.SUCCESS && result != LibUsb.ERROR_NOT_FOUND) {
+                // System.err.println(Instant.now() + " [DEBUG] Receiver: clearHalt returned error: " + result + " (" + LibUsb.strError(result) + ")");
+                failed = true;
+            }
+        }
 
-                        result = LibUsb.bulkTransfer(handle, (byte) IN_ENDPOINT, recvbuffer, transfered, 100);
-                        sz = transfered.get(0);
+        private int getOutstanding() {
+            synchronized (transferLock) {
+                return outstanding;
+            }
+        }
 
-                        /* Check interrupted status immediately after a blocking call returns */
-                        if (Thread.currentThread().isInterrupted() || disconnectRequested) {
-                            break;
-                        }
+        private void postIdleTransfers() throws InterruptedException {
+            /* Halt can only be cleared once no transfer is pending on the endpoint.
+               Only this thread posts IN transfers, so none can start meanwhile,
+               and clearHalt() handles events itself, so it must not hold the lock */
+            if (stalled && getOutstanding() == 0) {
+                clearStall();
+            }
+            while (!failed && !stalled) {
+                /* Only wait for a buffer if nothing is in flight, otherwise keep handling events */
+                long waitMs;
+                synchronized (transferLock) {
+                    if (idleTransfers.isEmpty()) {
+                        return;
+                    }
+                    waitMs = (outstanding == 0) ? 100 : 0;
+                }
+                /* Not under the lock, so completions on the Transmitter thread are not held up */
+                ByteBuffer b = receiveRing.acquire(waitMs);
+                if (b == null) {
+                    return;
+                }
+                synchronized (transferLock) {
+                    Transfer t = idleTransfers.poll();
+                    if (t == null || failed || stalled) {
+                        receiveRing.release(b);
+                        return;
+                    }
+                    LibUsb.fillBulkTransfer(t, handle, (byte) IN_ENDPOINT, b, this, null, 0);
+                    int result = LibUsb.submitTransfer(t);
+                    if (result != LibUsb.SUCCESS) {
+                        // System.err.println(Instant.now() + " [DEBUG] Receiver: submitTransfer returned error: " + result + " (" + LibUsb.strError(result) + ")");
+                        receiveRing.release(b);
+                        idleTransfers.add(t);
+                        failed = true;
+                        return;
+                    }
+                    outstanding++;
+                }
+            }
+        }
 
-                        if (result != LibUsb.SUCCESS) {
-                            // System.err.println(Instant.now() + " [DEBUG] Receiver: LibUsb.bulkTransfer returned error: " + result + " (" + LibUsb.strError(result) + ")");
-                            if (result == LibUsb.ERROR_NO_DEVICE || result == LibUsb.ERROR_PIPE || result == LibUsb.ERROR_IO || result == LibUsb.ERROR_INTERRUPTED) {
-                                // System.err.println(Instant.now() + " [DEBUG] Receiver: Critical LibUsb error detected. Initiating USB disconnect.");
-                                disconnect();
-                                break; /* Exit the loop */
-                            }
-                        }
-                    } /* end synchronized (usbInLock) */
+        private void cancelAndReap() {
+            for (Transfer t : transfers) {
+                if (t != null) {
+                    LibUsb.cancelTransfer(t); /* Returns LIBUSB_ERROR_NOT_FOUND for idle transfers */
+                }
+            }
+            /* Cancelled transfers still complete through the callback, releasing their buffers */
+            for (int i = 0; i < 20 && getOutstanding() > 0; i++) {
+                LibUsb.handleEventsTimeout(context, 100000);
+            }
+            /* Free the completed ones now. The callback frees any that complete
+               later, when the event loop runs again, so none is freed while
+               libusb may still write into it, and none is leaked */
+            int left;
+            synchronized (transferLock) {
+                closing = true;
+                while (!idleTransfers.isEmpty()) {
+                    LibUsb.freeTransfer(idleTransfers.poll());
+                }
+                left = outstanding;
+            }
+            if (left > 0) {
+                LOGGER.log(Level.WARNING, "USB receiver: " + left + " IN transfers did not complete on shutdown.");
+            }
+        }
 
-                    if (result == LibUsb.SUCCESS && sz > 0) {
-                        byte[] receivedData = new byte[sz]; /* Copy chunk to faster in-memory array */
-                        recvbuffer.position(0); 
-                        recvbuffer.get(receivedData);
-                        
-                        try {
-                            receiverBlockingQueue.put(receivedData); 
-                        }
-                        catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                            break;
+        @Override
+        public void run() {
+            // System.out.println(Instant.now() + " [DEBUG] Receiver thread started.");
+            if (handle == null) {
+                disconnect();
+                return;
+            }
+            synchronized (transferLock) {
+                for (int i = 0; i < IN_TRANSFER_COUNT; i++) {
+                    transfers[i] = LibUsb.allocTransfer();
+                    idleTransfers.add(transfers[i]);
+                }
+            }
+
+            try {
+                while (!Thread.currentThread().isInterrupted() && !disconnectRequested && !failed) {
+                    postIdleTransfers();
+                    if (getOutstanding() > 0) {
+                        int result = LibUsb.handleEventsTimeout(context, 100000);
+                        if (result != LibUsb.SUCCESS && result != LibUsb.ERROR_INTERRUPTED) {
+                            // System.err.println(Instant.now() + " [DEBUG] Receiver: handleEventsTimeout returned error: " + result + " (" + LibUsb.strError(result) + ")");
+                            failed = true;
                         }
                     }
                 }
-                catch (LibUsbException e) {
-                    // System.err.println(Instant.now() + " [DEBUG] Receiver: LibUsbException: " + e.getMessage());
-                    // e.printStackTrace(System.out);
-                    disconnect();
-                    break;
-                }
-                catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Error during Receiver thread: " + e.getMessage());
-                    e.printStackTrace(System.out);
-                    disconnect();
-                    break;
-                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            catch (LibUsbException e) {
+                // System.err.println(Instant.now() + " [DEBUG] Receiver: LibUsbException: " + e.getMessage());
+                failed = true;
+            }
+            catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Error during Receiver thread: " + e.getMessage());
+                e.printStackTrace(System.out);
+                failed = true;
+            }
+            finally {
+                cancelAndReap();
+            }
+
+            if (failed) {
+                /* All transfers are reaped, so the handle can be closed safely */
+                // System.err.println(Instant.now() + " [DEBUG] Receiver: Critical LibUsb error detected. Initiating USB disconnect.");
+                disconnect();
             }
             // System.out.println(Instant.now() + " [DEBUG] Receiver thread exiting gracefully.");
         }
@@ -309,14 +481,17 @@ public void run() {
             try {
                 // Continuously take bytes from the queue and process them
                 while (!Thread.currentThread().isInterrupted() && !disconnectRequested) {
-                    byte[] chunk = receiverBlockingQueue.take();
-                    for (byte b : chunk) {
-                        try {
-                            processByte(b);
-                        } catch (Exception e) {
-                            LOGGER.log(Level.SEVERE, "Exception processing byte: " + e.getMessage());
-                            e.printStackTrace(System.out);
-                        }
+                    ByteBuffer chunk = receiveRing.take();
+                    try {
+                        processBytes(chunk);
+                    }
+                    catch (Exception e) {
+                        LOGGER.log(Level.SEVERE, "Exception processing bytes: " + e.getMessage());
+                        e.printStackTrace(System.out);
+                        setIdleState(); /* Resynchronize on the next header */
+                    }
+                    finally {
+                        receiveRing.release(chunk);
                     }
                 }
             }
@@ -332,7 +507,14 @@ public void run() {
     }
 
     protected USBBulkConnection() {
-        initialize();
+        this(true);
+    }
+
+    /* useLibUsb is false for subclasses that stand in for the USB endpoints, see EmulatedCoreConnection */
+    protected USBBulkConnection(boolean useLibUsb) {
+        if (useLibUsb) {
+            initialize();
+        }
         this.sync = new Sync();
         this.patch = null;
 
@@ -340,7 +522,7 @@ protected USBBulkConnection() {
         isConnecting = false;
         connected = false;
         queueSerialTask = new ArrayBlockingQueue<SCmd>(99);
-        receiverBlockingQueue = new LinkedBlockingQueue<>();
+        receiveRing = new ReceiveBufferRing(RECEIVE_BUFFER_COUNT, RECEIVE_BUFFER_SIZE);
     }
 
     public static Connection getInstance() {
@@ -647,12 +829,15 @@ public boolean connect() {
                     return false;
                 }
 
+                int maxPacketSize = LibUsb.getMaxPacketSize(LibUsb.getDevice(handle), OUT_ENDPOINT);
+                outMaxPacketSize = (maxPacketSize > 0) ? maxPacketSize : DEFAULT_MAX_PACKET_SIZE;
+
                 if (QCmdProcessor.getInstance() != null) {
                     QCmdProcessor.getInstance().setConnection(this);
                 }
 
                 /* Start Trinity of Threads */
-                receiverBlockingQueue.clear();
+                receiveRing.reset();
                 receiverThread = new Thread(new Receiver());
                 receiverThread.setName("Receiver");
                 receiverThread.start();
@@ -768,7 +953,7 @@ public void disconnect() {
                 /* Wait for threads to terminate */
                 long threadJoinTimeoutMs = 5000;
 
-                if (receiverThread != null) {
+                if (receiverThread != null && receiverThread != Thread.currentThread()) {
                     receiverThread.join(threadJoinTimeoutMs);
                 }
                 if (transmitterThread != null) {
@@ -1215,6 +1400,34 @@ MIDI message     (3)
         return writeBytes(buffer);
     }
 
+    @Override
+    public int TransmitParamChanges(int patchID, int[] indices, int[] values, int count) {
+        /* Total size (bytes):
+           "AxoB"           (4)
+           patchID          (4)
+           count            (2)
+           per entry:
+             value          (4)
+             param index    (2)
+         */
+        ByteBuffer buffer = ByteBuffer.allocateDirect(PARAMBATCH_HEADER_SIZE + count * PARAMBATCH_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(AxoB_pckt);
+        buffer.putInt(patchID);
+        buffer.putShort((short) count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(values[i]);
+            buffer.putShort((short) indices[i]);
+        }
+        return writeBytes(buffer);
+    }
+
+    @Override
+    public int GetMaxParamChangesPerTransfer() {
+        /* Keep a batch within a single bulk packet so the Core's
+           input queue never has to hold a partial batch */
+        return (outMaxPacketSize - PARAMBATCH_HEADER_SIZE) / PARAMBATCH_ENTRY_SIZE;
+    }
+
     @Override
     public int TransmitUpdatedPreset(byte[] data) {
         /* Total size (bytes):
@@ -1239,6 +1452,28 @@ public int TransmitGetFileList() {
         return writeBytes(buffer);
     }
 
+    @Override
+    public int TransmitGetDirectoryListing(String path) {
+        /* Total size (bytes):
+           "AxoC"           (4)
+           pFileSize        (4)
+           FileName[0]      (1)
+           FileName[1]      (1) <- sub-command: 'L'
+           path bytes       (variable length)
+           null terminator  (1)
+        */
+        byte[] pathBytes = path.getBytes(StandardCharsets.US_ASCII);
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(10 + pathBytes.length + 1).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(AxoC_pckt);
+        buffer.putInt(0);
+        buffer.put((byte)0x00);
+        buffer.put((byte)'L');
+        buffer.put(pathBytes);
+        buffer.put((byte)0x00);
+        return writeBytes(buffer);
+    }
+
     @Override
     public int TransmitGetFileInfo(String filename) {
         /* Total size (bytes):
@@ -1468,6 +1703,26 @@ public int TransmitAppendFile(byte[] data) {
         return writeBytes(buffer);
     }
 
+    @Override
+    public int TransmitSequencedChunk(char target, int seq, int offset, byte[] data) {
+        /* Total size (bytes):
+           "AxoQ"           (4)
+           target           (1) <- 'a': open SD file, 'w': memory write
+           sequence number  (4)
+           offset           (4)
+           length           (4)
+           data             (variable length)
+         */
+        ByteBuffer buffer = ByteBuffer.allocateDirect(17 + data.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(AxoQ_pckt);
+        buffer.put((byte) target);
+        buffer.putInt(seq);
+        buffer.putInt(offset);
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return writeBytes(buffer);
+    }
+
     @Override
     public int TransmitCloseFile(String filename, Calendar date) {
         /* Total size (bytes):
@@ -1666,8 +1921,10 @@ void DisplayPackHeader(int i1, int i2) {
             dataLength = i2 * 4;
             if (dispData == null || dispData.capacity() < dataLength) {
                 dispData = ByteBuffer.allocateDirect(dataLength).order(ByteOrder.LITTLE_ENDIAN);
+                receiveAllocationCount.incrementAndGet();
             }
             dispData.clear();
+            dispData.limit(dataLength);
             setNextState(ReceiverState.DISPLAY_PCKT);
         }
         else {
@@ -1684,25 +1941,33 @@ void DistributeToDisplays(final ByteBuffer dispData) {
                 return;
             }
 
+            /* The EDT still owns displayCopy: drop this frame, the next poll brings a fresh one */
+            if (!displayUpdatePending.compareAndSet(false, true)) {
+                return;
+            }
+
             dispData.rewind();
-            final ByteBuffer safeCopy = ByteBuffer.allocateDirect(dispData.remaining()).order(dispData.order());
-            safeCopy.put(dispData);
-            safeCopy.rewind();
-
-            SwingUtilities.invokeLater(new Runnable() {
-                @Override
-                public void run() {
-                    for (DisplayInstance d : patch.DisplayInstances) {
-                        d.ProcessByteBuffer(safeCopy);
-                    }
-                }
-            });
+            if (displayCopy == null || displayCopy.capacity() < dispData.remaining()) {
+                displayCopy = ByteBuffer.allocateDirect(dispData.remaining()).order(dispData.order());
+                receiveAllocationCount.incrementAndGet();
+            }
+            displayCopy.clear();
+            displayCopy.put(dispData);
+            displayCopy.flip();
+
+            SwingUtilities.invokeLater(displayUpdater);
         }
         catch (Exception ex) {
+            displayUpdatePending.set(false);
             ex.printStackTrace(System.out);
         }
     }
 
+    /* Number of buffers allocated on the receive path so far, flat while running steadily */
+    public long getReceiveAllocationCount() {
+        return receiveRing.getAllocationCount() + receiveAllocationCount.get();
+    }
+
     private void setIdleState() {
         this.headerstate = 0;
         this.state = ReceiverState.IDLE;
@@ -1715,6 +1980,122 @@ private void setNextState(ReceiverState nextState) {
         this.dataIndex = 0;
     }
 
+    /* Moves the next n bytes of chunk into dest in one bulk put */
+    private static void transfer(ByteBuffer chunk, ByteBuffer dest, int n) {
+        int limit = chunk.limit();
+        chunk.limit(chunk.position() + n);
+        dest.put(chunk);
+        chunk.limit(limit);
+    }
+
+    /* Fills packetData with the next n bytes of chunk, a word at a time where aligned */
+    private void transferPacketData(ByteBuffer chunk, int n) {
+        while (n >= 4 && (dataIndex & 0x3) == 0) {
+            packetData[dataIndex >> 2] = chunk.getInt();
+            dataIndex += 4;
+            n -= 4;
+        }
+        for (; n > 0; n--) {
+            storeDataByte(chunk.get() & 0xff);
+        }
+    }
+
+    /*
+     * Parses one received chunk. Headers and payloads are taken from the
+     * chunk in bulk, up to the last byte of each packet, which goes through
+     * processByte() so that completing a packet stays in one place. Memory
+     * reads and firmware version replies, rare and short, still go through
+     * processByte() byte by byte.
+     */
+    void processBytes(ByteBuffer chunk) {
+        chunk.order(ByteOrder.LITTLE_ENDIAN); /* As everything the Core sends */
+        while (chunk.hasRemaining()) {
+            int n;
+            switch (state) {
+                case IDLE:
+                    if (headerstate == 0) {
+                        /* Skip to the next header and take "Axo" in one go */
+                        int p = chunk.position();
+                        while (p < chunk.limit() && chunk.get(p) != 'A') {
+                            p++;
+                        }
+                        chunk.position(p);
+                        if (p + 3 < chunk.limit() && chunk.get(p + 1) == 'x' && chunk.get(p + 2) == 'o') {
+                            chunk.position(p + 3);
+                            headerstate = 3;
+                        }
+                    }
+                    break;
+
+                case PARAMCHANGE_PCKT:
+                case ACK_PCKT:
+                case DISPLAY_PCKT_HDR:
+                case COMMANDRESULT_PCKT:
+                case SEQACK_PCKT:
+                    n = Math.min(chunk.remaining(), dataLength - dataIndex - 1);
+                    if (n > 0) {
+                        transferPacketData(chunk, n);
+                    }
+                    break;
+
+                case DISPLAY_PCKT:
+                    n = Math.min(chunk.remaining(), dispData.remaining());
+                    if (n > 0) {
+                        transfer(chunk, dispData, n);
+                        dataIndex += n;
+                        if (dataIndex >= dataLength) {
+                            DistributeToDisplays(dispData);
+                            setIdleState();
+                        }
+                        continue;
+                    }
+                    break;
+
+                case TEXT_PCKT:
+                    /* Up to the terminating zero */
+                    while (chunk.hasRemaining() && chunk.get(chunk.position()) != 0) {
+                        textRcvBuffer.append((char) chunk.get());
+                    }
+                    break;
+
+                case SDINFO:
+                    n = Math.min(chunk.remaining(), dataLength - dataIndex - 1);
+                    if (n > 0) {
+                        transfer(chunk, sdinfoRcvBuffer, n);
+                        dataIndex += n;
+                    }
+                    break;
+
+                case FILEINFO_HDR:
+                    n = Math.min(chunk.remaining(), dataLength - dataIndex - 1);
+                    if (n > 0) {
+                        transfer(chunk, fileinfoRcvBuffer, n);
+                        dataIndex += n;
+                    }
+                    break;
+
+                case FILEINFO_DATA:
+                    /* Up to the terminating zero, or the byte that makes the name too long */
+                    n = 0;
+                    int max = Math.min(chunk.remaining(), fileinfoRcvBuffer.capacity() - dataIndex - 1);
+                    while (n < max && chunk.get(chunk.position() + n) != 0) {
+                        n++;
+                    }
+                    if (n > 0) {
+                        transfer(chunk, fileinfoRcvBuffer, n);
+                        dataIndex += n;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+            if (chunk.hasRemaining()) {
+                processByte(chunk.get());
+            }
+        }
+    }
+
     void processByte(byte cc) {
         int c = cc & 0xff;
 
@@ -1776,6 +2157,10 @@ void processByte(byte cc) {
                                 dataLength = 2;
                                 setNextState(ReceiverState.COMMANDRESULT_PCKT);
                                 break;
+                            case 'Q': /* ("AxoQ" sequenced chunk acknowledge from MCU) */
+                                dataLength = 6;
+                                setNextState(ReceiverState.SEQACK_PCKT);
+                                break;
                             case 'L': /* Receiving LogTextMessage */
                                 textRcvBuffer.clear();
                                 dataLength = 255;
@@ -1912,6 +2297,7 @@ else if (currentExecutingCommand instanceof SCmdStart ||
                                     currentExecutingCommand instanceof SCmdChangeWorkingDirectory ||
                                     currentExecutingCommand instanceof SCmdCreateDirectory ||
                                     currentExecutingCommand instanceof SCmdGetFileList ||
+                                    currentExecutingCommand instanceof SCmdGetDirectoryListing ||
                                     currentExecutingCommand instanceof SCmdCopyPatchToFlash ||
                                     currentExecutingCommand instanceof SCmdDeleteFile ||
                                     currentExecutingCommand instanceof SCmdGetFileInfo) {
@@ -1928,6 +2314,26 @@ else if (currentExecutingCommand instanceof SCmdStart ||
                 }
                 break;
 
+            case SEQACK_PCKT:
+                if (dataIndex < dataLength) {
+                    storeDataByte(c);
+                }
+                if (dataIndex == dataLength) {
+                    int seq = packetData[0];
+                    int statusCode = (packetData[1] >> 8) & 0xFF;
+
+                    synchronized (currentExecutingCommandLock) {
+                        if (currentExecutingCommand instanceof SCmdUploadPatch) {
+                            ((SCmdUploadPatch) currentExecutingCommand).setChunkCompletedWithStatus(seq, statusCode);
+                        }
+                        else if (currentExecutingCommand instanceof SCmdUploadFile) {
+                            ((SCmdUploadFile) currentExecutingCommand).setChunkCompletedWithStatus(seq, statusCode);
+                        }
+                    }
+                    setIdleState();
+                }
+                break;
+
             case TEXT_PCKT:
                 if (c != 0) {
                     textRcvBuffer.append((char) cc);
@@ -23,6 +23,7 @@
 import axoloti.attribute.AttributeInstance;
 import axoloti.object.AxoObjectInstance;
 import static axoloti.utils.CharEscape.charEscape;
+import java.io.Serializable;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
@@ -32,7 +33,9 @@
  *
  * @author Johannes Taelman
  */
-public abstract class AxoAttribute implements AtomDefinition, Cloneable {
+public abstract class AxoAttribute implements AtomDefinition, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     String name;
@@ -32,6 +32,8 @@
  */
 public class AxoAttributeComboBox extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     @ElementList(required = false)
     public ArrayList<String> MenuEntries;
     @ElementList(required = false)
@@ -30,6 +30,8 @@
  */
 public class AxoAttributeInt32 extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     @Attribute
     public int MinValue;
     @Attribute
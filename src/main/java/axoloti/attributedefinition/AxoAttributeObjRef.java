@@ -28,6 +28,8 @@
  */
 public class AxoAttributeObjRef extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoAttributeObjRef() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class AxoAttributeSDFile extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoAttributeSDFile() {
     }
 
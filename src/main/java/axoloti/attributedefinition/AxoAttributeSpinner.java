@@ -30,6 +30,8 @@
  */
 public class AxoAttributeSpinner extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     @Attribute
     public int MinValue;
     @Attribute
@@ -29,6 +29,8 @@
 @Deprecated
 public class AxoAttributeWavefile extends AxoAttribute {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoAttributeWavefile(String name) {
         this.name = name;
     }
@@ -19,12 +19,16 @@
 
 package axoloti.datatypes;
 
+import java.io.Serializable;
+
 /**
  *
  * @author Johannes Taelman
  * @param <dt> data type
  */
-public abstract class Value<dt extends DataType> implements Comparable<dt> {
+public abstract class Value<dt extends DataType> implements Comparable<dt>, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     public Value() {
     }
@@ -28,6 +28,8 @@
 //@Root(name="value")
 public class ValueFrac32 extends Value<Frac32> {
 
+    private static final long serialVersionUID = 1L;
+
     @Attribute
     private double v;
 
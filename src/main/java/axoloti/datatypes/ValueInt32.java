@@ -29,6 +29,8 @@
 @Root
 public class ValueInt32 extends Value<Int32> {
 
+    private static final long serialVersionUID = 1L;
+
     @Attribute(name = "i")
     private int v;
 
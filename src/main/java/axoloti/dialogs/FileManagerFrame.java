@@ -30,6 +30,7 @@
 import axoloti.sd.DisplayTreeNode;
 import axoloti.sd.SDCardInfo;
 import axoloti.sd.SDFileInfo;
+import axoloti.sd.SDSync;
 import axoloti.utils.Constants;
 import axoloti.utils.Preferences;
 import components.ScrollPaneComponent;
@@ -54,6 +55,7 @@
 import java.util.Calendar;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -83,6 +85,7 @@
 import qcmds.CommandManager;
 import qcmds.SCmdCreateDirectory;
 import qcmds.SCmdDeleteFile;
+import qcmds.SCmdGetDirectoryListing;
 import qcmds.SCmdGetFileList;
 import qcmds.SCmdUploadFile;
 import axoloti.utils.KeyUtils;
@@ -105,6 +108,7 @@ public class FileManagerFrame extends javax.swing.JFrame implements ConnectionSt
     private javax.swing.JButton jButtonCreateDir;
     private javax.swing.JButton jButtonDelete;
     private javax.swing.JButton jButtonUpload;
+    private javax.swing.JButton jButtonSync;
     private javax.swing.JTable jFileTable;
     private javax.swing.JLabel jLabelSDInfo;
     private javax.swing.JMenu jMenu2;
@@ -234,7 +238,7 @@ protected Void doInBackground() throws Exception {
                         @Override
                         protected void done() {
                             CommandManager.getInstance().endLongOperation();
-                            triggerRefresh();
+                            refreshDirectory("/");
                         }
                     }.execute();
                 }
@@ -316,6 +320,7 @@ else if (rows.length == 1) {
 
                 if (f != null && f.isDirectory()) {
                     jButtonUpload.setText("Upload to Selected...");
+                    jButtonSync.setText("Sync Folder to Selected...");
                     jButtonCreateDir.setText("New Folder in Selected...");
                 }
                 else {
@@ -333,6 +338,7 @@ else if (rows.length == 1) {
 
     void ButtonUploadDefaultName() {
         jButtonUpload.setText("Upload to Root...");
+        jButtonSync.setText("Sync Folder to Root...");
         jButtonCreateDir.setText("New Folder in Root...");
     }
 
@@ -342,6 +348,7 @@ private void initComponents() {
         jButtonSDRefresh = new javax.swing.JButton();
         jLabelSDInfo = new javax.swing.JLabel();
         jButtonUpload = new javax.swing.JButton();
+        jButtonSync = new javax.swing.JButton();
         jButtonDelete = new javax.swing.JButton();
         jButtonCreateDir = new javax.swing.JButton();
         jMenuBar1 = new javax.swing.JMenuBar();
@@ -372,7 +379,7 @@ public String getToolTipText(MouseEvent e) {
 
                     Object cellValue = getModel().getValueAt(rowIndex, colIndex);
                     String columnName = getModel().getColumnName(colIndex);
-                    SDFileInfo f = SDCardInfo.getInstance().getFiles().get(rowIndex);
+                    SDFileInfo f = fileTableModel.getDisplayTreeNode(rowIndex).fileInfo;
 
                     /* Customize tooltip based on column/row/value */
                     if (columnName.equals("Name")) {
@@ -411,6 +418,15 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
             }
         });
 
+        jButtonSync.setText("Sync Folder to Root...");
+        jButtonSync.setToolTipText("Upload a local folder, skipping files whose content is already on the SD card");
+        jButtonSync.setEnabled(false);
+        jButtonSync.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                jButtonSyncActionPerformed(evt);
+            }
+        });
+
         jButtonCreateDir.setText("New Folder in Root...");
         jButtonCreateDir.setEnabled(false);
         jButtonCreateDir.addActionListener(new java.awt.event.ActionListener() {
@@ -457,6 +473,8 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
                 .addContainerGap()
                 .addComponent(jButtonUpload)
                 .addGap(20, 20, 20)
+                .addComponent(jButtonSync)
+                .addGap(20, 20, 20)
                 .addComponent(jButtonCreateDir)
                 .addGap(20, 20, 20)
                 .addComponent(jButtonDelete)
@@ -478,6 +496,7 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
 
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                 .addComponent(jButtonUpload)
+                .addComponent(jButtonSync)
                 .addComponent(jButtonCreateDir)
                 .addComponent(jButtonDelete)
                 )
@@ -539,7 +558,7 @@ private void showPopupMenu(MouseEvent e) {
                         copyItem = new JMenuItem("Copy Path to Clipboard");
                         copyItem.addActionListener(event -> {
                             if (clickedRow != -1 && clickedColumn == 0) {
-                                SDFileInfo f = SDCardInfo.getInstance().getFiles().get(clickedRow);
+                                SDFileInfo f = fileTableModel.getDisplayTreeNode(clickedRow).fileInfo;
                                 String textToCopy = f.getFilename();
                                 copyToClipboard(textToCopy);
                             }
@@ -560,10 +579,7 @@ private void copyToClipboard(String text) {
     }
 
     private SDFileInfo getFileInfoByPath(String path) {
-        return SDCardInfo.getInstance().getFiles().stream()
-                         .filter(f -> f.getFilename().equals(path))
-                         .findFirst()
-                         .orElse(null);
+        return SDCardInfo.getInstance().find(path);
     }
 
     private boolean deleteSdCardEntryRecursive(String sdCardPath) {
@@ -579,9 +595,7 @@ private boolean deleteSdCardEntryRecursive(String sdCardPath) {
 
             /* Loop for ensuring the directory is empty */
             while (true) {
-                List<SDFileInfo> children = SDCardInfo.getInstance().getFiles().stream()
-                    .filter(f -> f.getFilename().startsWith(sdCardPath) && !f.getFilename().equals(sdCardPath))
-                    .collect(Collectors.toList());
+                List<SDFileInfo> children = SDCardInfo.getInstance().getChildren(sdCardPath);
 
                 if (children.isEmpty()) {
                     /* Directory is truly empty in the current model. */
@@ -665,6 +679,7 @@ public AxoSDFileTableModel getAxoSDFileTableModel() {
     public void triggerRefresh() {
         jButtonSDRefresh.setEnabled(false);
         jButtonUpload.setEnabled(false);
+        jButtonSync.setEnabled(false);
         jButtonCreateDir.setEnabled(false);
         jButtonDelete.setEnabled(false);
         
@@ -732,6 +747,7 @@ protected void done() {
                 finally {
                     jButtonSDRefresh.setEnabled(true);
                     jButtonUpload.setEnabled(true);
+                    jButtonSync.setEnabled(true);
                     jButtonCreateDir.setEnabled(true);
                     jButtonDelete.setEnabled(true);
 
@@ -742,6 +758,37 @@ protected void done() {
         }.execute();
     }
 
+    /* Re-lists a single directory instead of the whole card, e.g. after uploading to it */
+    private void refreshDirectory(String dir) {
+        if (!USBBulkConnection.getInstance().isConnected() || !USBBulkConnection.getInstance().GetSDCardPresent()) {
+            return;
+        }
+
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                CommandManager.getInstance().startLongOperation();
+                SCmdGetDirectoryListing listCmd = new SCmdGetDirectoryListing(dir);
+                listCmd.Do();
+                CommandManager.getInstance().endLongOperation();
+                listCmd.waitForCompletion();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                CommandManager.getInstance().endLongOperation();
+                try {
+                    get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Error while listing directory " + dir + ": " + e.getMessage());
+                }
+                setTableData();
+            }
+        }.execute();
+    }
+
     private void jButtonSDRefreshActionPerformed(java.awt.event.ActionEvent evt) {
         triggerRefresh();
     }
@@ -856,7 +903,7 @@ protected void done() {
                             e.printStackTrace(System.out);
                         }
                         finally {
-                            triggerRefresh();
+                            refreshDirectory(targetDirectory);
                         }
                     }
                 }.execute();
@@ -867,6 +914,109 @@ protected void done() {
         }
     }
 
+    private void jButtonSyncActionPerformed(java.awt.event.ActionEvent evt) {
+        String dir = "/";
+        int rowIndex = jFileTable.getSelectedRow();
+        if (rowIndex >= 0) {
+            AxoSDFileTableModel model = (AxoSDFileTableModel) jFileTable.getModel();
+            DisplayTreeNode displayNode = model.getDisplayTreeNode(rowIndex);
+            SDFileInfo f = displayNode.fileInfo;
+            if (f != null && f.isDirectory()) {
+                dir = f.getFilename();
+            }
+        }
+        if (!USBBulkConnection.getInstance().isConnected()) {
+            return;
+        }
+        mainframe.setCurrentLivePatch(null);
+        fc.resetChoosableFileFilters();
+        fc.setCurrentDirectory(new File(Preferences.getInstance().getCurrentFileDirectory()));
+        fc.restoreCurrentSize();
+        fc.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        fc.setDialogTitle("Select Folder to Sync...");
+        int returnVal = fc.showOpenDialog(this);
+        fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        fc.updateCurrentSize();
+        if (returnVal != JFileChooser.APPROVE_OPTION || fc.getSelectedFile() == null) {
+            return;
+        }
+
+        final File folder = fc.getSelectedFile();
+        final String targetDirectory = (dir.endsWith("/") ? dir : dir + "/") + folder.getName();
+        if (folder.getParentFile() != null) {
+            Preferences.getInstance().setCurrentFileDirectory(folder.getParentFile().getPath());
+        }
+
+        /* Hash the files and compare them to the card in the background, then let the user confirm the plan */
+        new SwingWorker<SDSync.Plan, Void>() {
+            private final SDSync sync = SDSync.forConnectedCore();
+
+            @Override
+            protected SDSync.Plan doInBackground() throws Exception {
+                Map<String, File> files = SDSync.collectFolder(folder, targetDirectory);
+                if (!SDSync.listDirectories(files.keySet())) {
+                    return null;
+                }
+                return sync.plan(files);
+            }
+
+            @Override
+            protected void done() {
+                SDSync.Plan plan;
+                try {
+                    plan = get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    LOGGER.log(Level.SEVERE, "Could not compare folder to SD card: " + e.getMessage());
+                    return;
+                }
+                if (plan == null) {
+                    return;
+                }
+                if (plan.getFilesToUpload() == 0) {
+                    LOGGER.log(Level.INFO, "Folder " + folder.getName() + " is up to date on SD card: " + plan.getSummary());
+                    return;
+                }
+
+                Object[] options = {"Sync", "Cancel"};
+                int confirmResult = KeyboardNavigableOptionPane.showOptionDialog(
+                    FileManagerFrame.this,
+                    "Sync \"" + folder.getName() + "\" to \"" + targetDirectory + "\"?\n" + plan.getSummary(),
+                    "Confirm Sync",
+                    JOptionPane.YES_NO_OPTION,
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    options,
+                    options[0]
+                );
+                if (confirmResult != JOptionPane.YES_OPTION) {
+                    return;
+                }
+
+                new SwingWorker<Boolean, Void>() {
+                    @Override
+                    protected Boolean doInBackground() throws Exception {
+                        LOGGER.log(Level.INFO, "Syncing " + folder.getName() + ": " + plan.getSummary() + "\n");
+                        return sync.execute(plan);
+                    }
+
+                    @Override
+                    protected void done() {
+                        try {
+                            LOGGER.log(Level.INFO, get() ? "Folder sync completed.\n" : "Folder sync completed with errors.\n");
+                        }
+                        catch (InterruptedException | ExecutionException e) {
+                            LOGGER.log(Level.SEVERE, "Folder sync failed unexpectedly: " + e.getMessage());
+                        }
+                        finally {
+                            refreshDirectory(targetDirectory);
+                        }
+                    }
+                }.execute();
+            }
+        }.execute();
+    }
+
     private void formWindowActivated(java.awt.event.WindowEvent evt) {
         triggerRefresh();
     }
@@ -1011,7 +1161,7 @@ private void jButtonCreateDirActionPerformed(java.awt.event.ActionEvent evt) {
                 }
             }
             UpdateButtons();
-            triggerRefresh();
+            refreshDirectory(dir);
         }
     }
 
@@ -1039,6 +1189,7 @@ public void refreshUI() {
     void ShowConnect(boolean status) {
         jButtonSDRefresh.setEnabled(status);
         jButtonUpload.setEnabled(status);
+        jButtonSync.setEnabled(status);
         jFileTable.setEnabled(status);
         if (!status) jLabelSDInfo.setText(" ");
         jButtonDelete.setEnabled(status);
@@ -34,6 +34,7 @@
 import axoloti.sd.SDCardInfo;
 import axoloti.sd.SDFileInfo;
 import axoloti.ui.SvgIconLoader;
+import axoloti.utils.CompiledPatchCache;
 import axoloti.utils.FileUtils;
 import axoloti.utils.KeyUtils;
 import axoloti.utils.Preferences;
@@ -63,6 +64,7 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -76,6 +78,7 @@
 import javax.swing.KeyStroke;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -103,6 +106,9 @@ public class PatchBank extends javax.swing.JFrame implements DocumentWindow, Con
 
     ArrayList<File> files;
 
+    /* Per-file state of the running or last upload, shown in the "Upload" column */
+    private final ConcurrentHashMap<File, String> uploadStatus = new ConcurrentHashMap<File, String>();
+
     /**
      * Creates new form PatchBank
      */
@@ -131,7 +137,7 @@ public PatchBank() {
         }
 
         jTable1.setModel(new AbstractTableModel() {
-            private final String[] columnNames = {"Index", "File", "Found locally", "Found on SD"};
+            private final String[] columnNames = {"Index", "File", "Found locally", "Found on SD", "Upload"};
 
             @Override
             public int getColumnCount() {
@@ -154,6 +160,8 @@ public Class<?> getColumnClass(int column) {
                         return String.class;
                     case 3:
                         return String.class;
+                    case 4:
+                        return String.class;
                 }
                 return null;
             }
@@ -182,6 +190,7 @@ public void setValueAt(Object value, int rowIndex, int columnIndex) {
                         break;
                     case 2:
                     case 3:
+                    case 4:
                         break;
                 }
             }
@@ -234,6 +243,11 @@ public Object getValueAt(int rowIndex, int columnIndex) {
                         }
                     }
                     break;
+                    case 4: {
+                        File f = files.get(rowIndex);
+                        returnValue = (f != null) ? uploadStatus.getOrDefault(f, "") : "";
+                    }
+                    break;
                 }
 
                 return returnValue;
@@ -327,6 +341,7 @@ else if (!f.canRead()) {
             jTable1.getColumnModel().getColumn(3).setMinWidth(140);
             jTable1.getColumnModel().getColumn(3).setMaxWidth(140);
             jTable1.getColumnModel().getColumn(3).setCellRenderer(centerRenderer);
+            jTable1.getColumnModel().getColumn(4).setPreferredWidth(300);
         }
 
         jTable1.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
@@ -819,6 +834,14 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
 
         getContentPane().add(jPanel2);
 
+        jLabelProgress = new javax.swing.JLabel(" ");
+        jLabelProgress.setBorder(javax.swing.BorderFactory.createEmptyBorder(2, 8, 4, 8));
+        jLabelProgress.setAlignmentX(0.0f);
+        javax.swing.JPanel jPanelProgress = new javax.swing.JPanel(new java.awt.FlowLayout(java.awt.FlowLayout.LEADING, 0, 0));
+        jPanelProgress.setMaximumSize(new Dimension(32768, 24));
+        jPanelProgress.add(jLabelProgress);
+        getContentPane().add(jPanelProgress);
+
         fileMenu1.setMnemonic('F');
         fileMenu1.setText("File");
         fileMenu1.add(jSeparator1);
@@ -860,20 +883,15 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
     private void jButtonUploadBankActionPerformed(java.awt.event.ActionEvent evt) {
         LOGGER.log(Level.INFO, "Uploading Patchbank index...");
         if (USBBulkConnection.getInstance().isConnected()) {
-            try {
-                MainFrame.mainframe.setCurrentLivePatch(null);
-                CommandManager.getInstance().startLongOperation();
-                SCmdUploadFile uploadFileCmd = new SCmdUploadFile(new ByteArrayInputStream(GetContents()), "/index.axb");
-                uploadFileCmd.Do();
-                CommandManager.getInstance().endLongOperation();
-                if (!uploadFileCmd.waitForCompletion() || !uploadFileCmd.isSuccessful()) {
-                    return;
+            MainFrame.mainframe.setCurrentLivePatch(null);
+            /* Upload in the background, refresh once the Core has the index */
+            SCmdUploadFile uploadFileCmd = new SCmdUploadFile(new ByteArrayInputStream(GetContents()), "/index.axb");
+            uploadFileCmd.DoAsync().thenAccept(c -> {
+                if (c.isSuccessful()) {
+                    SwingUtilities.invokeLater(() -> refresh());
                 }
-            } catch (InterruptedException e) {
-                LOGGER.log(Level.SEVERE, "Thread interrupted while uploading Patchbank index: " + e.getMessage());
-                e.printStackTrace(System.out);
-                Thread.currentThread().interrupt();
-            }
+            });
+            return;
         }
         refresh();
     }
@@ -977,49 +995,43 @@ private void jButtonOpenActionPerformed(java.awt.event.ActionEvent evt) {
         }
     }
 
-    void UploadOneFile(File f) {
-        if (!f.isFile() || !f.canRead()) {
-            return;
-        }
-        PatchFrame pf = PatchGUI.OpenPatchInvisible(f);
-        if (pf != null) {
-            boolean isVisible = pf.isVisible();
-            PatchGUI p = pf.getPatchGUI();
-            p.UploadToSDCard();
-            if (!isVisible) {
-                pf.Close();
+    /* Compiles the patches on all cores and uploads them one by one, see PatchBankUploader */
+    void UploadFiles(List<File> filesToUpload) {
+        uploadStatus.clear();
+        PatchBankUploader uploader = new PatchBankUploader(filesToUpload, new PatchBankUploader.Listener() {
+            @Override
+            public void statusChanged(File f, String status) {
+                uploadStatus.put(f, status);
+                SwingUtilities.invokeLater(() -> refresh());
             }
 
-            //FIXME: workaround waitQueueFinished bug
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                /* Silent */
+            @Override
+            public void progressChanged(String progress) {
+                SwingUtilities.invokeLater(() -> jLabelProgress.setText(progress));
             }
+        });
+        try {
+            uploader.run();
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Thread interrupted while uploading patches: " + e.getMessage());
+            Thread.currentThread().interrupt();
         }
-        refresh();
+        SwingUtilities.invokeLater(() -> refresh());
     }
 
-
     private void jButtonUploadActionPerformed(java.awt.event.ActionEvent evt) {
+        final ArrayList<File> selected = new ArrayList<File>();
         for (int row : jTable1.getSelectedRows()) {
-            File f = files.get(row);
-            UploadOneFile(f);
+            selected.add(files.get(row));
         }
-        refresh();
+        Thread thread = new Thread(() -> UploadFiles(selected));
+        thread.setName("jButtonUploadActionPerformedThread");
+        thread.start();
     }
 
     private void jUploadPatchesActionPerformed(java.awt.event.ActionEvent evt) {
-        class Thd extends Thread {
-            public void run() {
-                for (File f : files) {
-                    LOGGER.log(Level.INFO, "Compiling and uploading: " + f.getName());
-                    UploadOneFile(f);
-                }
-                LOGGER.log(Level.INFO, "Done uploading patches in patchbank.");
-            }
-        }
-        Thd thread = new Thd();
+        final ArrayList<File> bank = new ArrayList<File>(files);
+        Thread thread = new Thread(() -> UploadFiles(bank));
         thread.setName("jUploadPatchesActionPerformedThread");
         thread.start();
 
@@ -1027,6 +1039,7 @@ public void run() {
     }
 
     private void jUploadAllActionPerformed(java.awt.event.ActionEvent evt) {
+        final ArrayList<File> bank = new ArrayList<File>(files);
         class Thd extends Thread {
             public void run() {
                 if (USBBulkConnection.getInstance().isConnected()) {
@@ -1047,11 +1060,7 @@ public void run() {
                     }
                     // LOGGER.log(Level.INFO, "Done uploading Patchbank index.");
 
-                    for (File f : files) {
-                        LOGGER.log(Level.INFO, "Compiling and uploading: " + f.getName());
-                        UploadOneFile(f);
-                    }
-                    LOGGER.log(Level.INFO, "Done uploading index and patches.");
+                    UploadFiles(bank);
                 }
             }
         }
@@ -1071,6 +1080,7 @@ public void run() {
     private javax.swing.JButton jButtonUpload;
     private javax.swing.JButton jButtonUploadIndex;
     // private javax.swing.JLabel jLabelDisclaimer;
+    private javax.swing.JLabel jLabelProgress;
     private javax.swing.JMenu jMenu2;
     private javax.swing.JMenuBar jMenuBar1;
     private javax.swing.JMenuItem jMenuItemSave;
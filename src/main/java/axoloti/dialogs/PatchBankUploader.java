@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.dialogs;
+
+import axoloti.DocumentWindow;
+import axoloti.DocumentWindowList;
+import axoloti.MainFrame;
+import axoloti.Patch;
+import axoloti.PatchFrame;
+import axoloti.utils.CompiledPatchCache;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.SwingUtilities;
+
+import qcmds.QCmdProcessor;
+
+/**
+ * Compiles the patches of a patchbank on all cores while uploading them to
+ * SD card one at a time, in bank order. Each patch builds under its own
+ * build file name, so compiles only share the precompiled header, which the
+ * first patch builds before the others start. Code generation is
+ * serialized on Patch.codeGenerationLock; GCC runs in parallel. Uploads
+ * stay on the calling thread, as the Core takes one file at a time.
+ *
+ * Patches open in a patch window are built from the window, unsaved edits
+ * included, like uploading a single patch does. Their code is generated on
+ * the EDT, as going live does, since the user may be editing them. Others
+ * are read and generated on the workers, without creating a window.
+ *
+ * @author Ksoloti
+ */
+class PatchBankUploader {
+
+    private static final Logger LOGGER = Logger.getLogger(PatchBankUploader.class.getName());
+
+    interface Listener {
+        /* Called from any thread */
+        void statusChanged(File f, String status);
+        void progressChanged(String progress);
+    }
+
+    private static class Build {
+        Patch patch;
+        boolean success;
+        long generateMillis;
+        long compileMillis;
+    }
+
+    private final List<File> files;
+    private final Listener listener;
+
+    PatchBankUploader(List<File> files, Listener listener) {
+        this.files = files;
+        this.listener = listener;
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.1f s", millis / 1000.0);
+    }
+
+    /* On the EDT: generates the code of the patch window showing f, if any, and returns whether there is one */
+    private static boolean generateInWindow(File f, Build b) {
+        for (DocumentWindow dw : DocumentWindowList.GetList()) {
+            if (f.equals(dw.getFile())) {
+                if (dw.GetFrame() instanceof PatchFrame) {
+                    synchronized (Patch.codeGenerationLock) {
+                        long t0 = System.currentTimeMillis();
+                        b.patch = ((PatchFrame) dw.GetFrame()).getPatchGUI();
+                        b.patch.WriteCode();
+                        b.generateMillis = System.currentTimeMillis() - t0;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Build build(File f) throws InterruptedException, InvocationTargetException {
+        Build b = new Build();
+        listener.statusChanged(f, "Compiling...");
+        /* Not holding codeGenerationLock here, the EDT may be waiting for it */
+        boolean[] inWindow = new boolean[1];
+        SwingUtilities.invokeAndWait(() -> inWindow[0] = generateInWindow(f, b));
+        if (!inWindow[0]) {
+            synchronized (Patch.codeGenerationLock) {
+                long t0 = System.currentTimeMillis();
+                b.patch = Patch.OpenPatchHeadless(f);
+                if (b.patch != null) {
+                    b.patch.WriteCode();
+                }
+                b.generateMillis = System.currentTimeMillis() - t0;
+            }
+        }
+        if (b.patch == null) {
+            listener.statusChanged(f, "FAILED to open");
+            return b;
+        }
+        long t1 = System.currentTimeMillis();
+        b.success = b.patch.Compile(QCmdProcessor.getInstance()) && b.patch.getBinFile().exists();
+        b.compileMillis = System.currentTimeMillis() - t1;
+        listener.statusChanged(f, b.success ? "Compiled in " + seconds(b.generateMillis + b.compileMillis) + ", waiting" : "FAILED to compile");
+        return b;
+    }
+
+    /* Compiles and uploads all files, returns the number of patches uploaded */
+    int run() throws InterruptedException {
+        int jobs = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ExecutorService workers = Executors.newFixedThreadPool(jobs, r -> {
+            Thread t = new Thread(r, "PatchBankCompile");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long t0 = System.currentTimeMillis();
+        LinkedHashSet<File> readable = new LinkedHashSet<File>(); /* Each file once */
+        for (File f : files) {
+            if (f.isFile() && f.canRead()) {
+                listener.statusChanged(f, "Queued");
+                readable.add(f);
+            }
+            else {
+                listener.statusChanged(f, "NOT found locally");
+            }
+        }
+
+        int uploaded = 0;
+        int done = 0;
+        long compileMillis = 0;
+        long uploadMillis = 0;
+        LinkedHashMap<File, Future<Build>> builds = new LinkedHashMap<File, Future<Build>>();
+        try {
+            for (File f : readable) {
+                Future<Build> future = workers.submit(() -> build(f));
+                if (builds.isEmpty()) {
+                    /* The first compile builds the shared precompiled header, so run it alone */
+                    listener.progressChanged("Compiling " + f.getName() + " (1/" + files.size() + ")");
+                    try {
+                        future.get();
+                    }
+                    catch (ExecutionException ex) {
+                        /* Reported below, with the other builds */
+                    }
+                }
+                builds.put(f, future);
+            }
+            workers.shutdown();
+
+            MainFrame.mainframe.setCurrentLivePatch(null);
+            for (int i = 0; i < files.size(); i++) {
+                File f = files.get(i);
+                Future<Build> future = builds.get(f);
+                if (future == null) {
+                    continue;
+                }
+                listener.progressChanged("Compiling " + f.getName() + " (" + (done + 1) + "/" + files.size() + ")");
+                Build b;
+                try {
+                    b = future.get();
+                }
+                catch (ExecutionException ex) {
+                    LOGGER.log(Level.SEVERE, "Error while compiling " + f.getName() + ": " + ex.getCause());
+                    listener.statusChanged(f, "FAILED to compile");
+                    continue;
+                }
+                finally {
+                    done++;
+                }
+                compileMillis += b.generateMillis + b.compileMillis;
+                if (b.success) {
+                    listener.statusChanged(f, "Uploading...");
+                    listener.progressChanged("Uploading " + f.getName() + " (" + done + "/" + files.size() + ")");
+                    long t1 = System.currentTimeMillis();
+                    boolean ok = b.patch.UploadCompiledToSDCard("/" + b.patch.getSDCardPath() + "/patch.bin");
+                    long t = System.currentTimeMillis() - t1;
+                    uploadMillis += t;
+                    if (ok) {
+                        uploaded++;
+                    }
+                    listener.statusChanged(f, (ok ? "✔ " : "FAILED to upload, ")
+                            + "generate " + seconds(b.generateMillis) + ", compile " + seconds(b.compileMillis) + ", upload " + seconds(t));
+                }
+                if (b.patch != null && b.patch.getPatchframe() == null && files.lastIndexOf(f) == i) {
+                    b.patch.Close();
+                }
+            }
+        }
+        finally {
+            workers.shutdownNow();
+        }
+
+        String summary = "Uploaded " + uploaded + " of " + files.size() + " patches in " + seconds(System.currentTimeMillis() - t0)
+                + " (compile " + seconds(compileMillis) + " on " + jobs + " cores, upload " + seconds(uploadMillis) + ")";
+        listener.progressChanged(summary);
+        LOGGER.log(Level.INFO, summary + ". Build cache: " + CompiledPatchCache.getStatistics());
+        return uploaded;
+    }
+}
@@ -24,6 +24,7 @@
 import axoloti.utils.AxoFileLibrary;
 import axoloti.utils.AxoGitLibrary;
 import axoloti.utils.AxolotiLibrary;
+import axoloti.utils.CompiledPatchCache;
 import axoloti.utils.Constants;
 import axoloti.utils.KeyUtils;
 import axoloti.utils.Preferences;
@@ -99,6 +100,7 @@ public class PreferencesFrame extends JFrame {
     private JComboBox<String> jComboBoxDspSafetyLimit;
     private JComboBox<String> jComboBoxFirmwareMode;
     private JComboBox<String> jComboBoxTheme;
+    private JComboBox<String> jComboBoxUploadWindowSize;
     private JLabel jLabelBackupPatchesOnSD;
     private JLabel jLabelCodeFontSize;
     private JLabel jLabelController;
@@ -109,6 +111,7 @@ public class PreferencesFrame extends JFrame {
     private JLabel jLabelLibraries;
     private JLabel jLabelPollInterval;
     private JLabel jLabelTheme;
+    private JLabel jLabelUploadWindowSize;
     private JLabel jLabelUserShortcut1;
     private JLabel jLabelUserShortcut2;
     private JLabel jLabelUserShortcut3;
@@ -188,6 +191,7 @@ private void populatePreferences() {
         jComboBoxFirmwareMode.setSelectedItem(tempPrefs.getFirmwareMode());
         jComboBoxTheme.setSelectedItem(tempPrefs.getTheme());
         jComboBoxDspSafetyLimit.setSelectedIndex(tempPrefs.getDspSafetyLimit());
+        jComboBoxUploadWindowSize.setSelectedIndex(tempPrefs.getUploadWindowSize() - 1);
     }
 
     public void setDirty(boolean dirty) {
@@ -229,6 +233,7 @@ public void actionPerformed(java.awt.event.ActionEvent e) {
         jComboBoxDialMouseBehaviour.addActionListener(comboBoxListener);
         jComboBoxFirmwareMode.addActionListener(comboBoxListener);
         jComboBoxDspSafetyLimit.addActionListener(comboBoxListener);
+        jComboBoxUploadWindowSize.addActionListener(comboBoxListener);
         jComboBoxTheme.addActionListener(comboBoxListener);
     }
 
@@ -330,6 +335,7 @@ void Apply() {
         tempPrefs.setBackupPatchesOnSDEnabled(jCheckBoxBackupPatchesOnSD.isSelected());
         tempPrefs.setTheme(jComboBoxTheme.getSelectedItem().toString());
         tempPrefs.setDspSafetyLimit(jComboBoxDspSafetyLimit.getSelectedIndex());
+        tempPrefs.setUploadWindowSize(jComboBoxUploadWindowSize.getSelectedIndex() + 1);
 
         /* Update actual 'prefs' */
         Preferences.setInstance(tempPrefs.clone());
@@ -342,6 +348,7 @@ void Apply() {
         String newFirmwareMode = Preferences.getInstance().getFirmwareMode();
         if (!newFirmwareMode.equals(oldFirmwareMode)) {
             axoloti.Axoloti.deletePrecompiledHeaderFile();
+            CompiledPatchCache.clear(); /* Built against the old firmware */
             
             MainFrame.mainframe.updateLinkFirmwareID();
 
@@ -393,6 +400,7 @@ private void initComponents() {
         jComboBoxFirmwareMode = new JComboBox<String>();
         jComboBoxDspSafetyLimit = new JComboBox<String>();
         jComboBoxTheme = new JComboBox<String>();
+        jComboBoxUploadWindowSize = new JComboBox<String>();
         jCheckBoxControllerEnabled = new JCheckBox();
         jLabelBackupPatchesOnSD = new JLabel();
         jLabelCodeFontSize = new JLabel();
@@ -404,6 +412,7 @@ private void initComponents() {
         jLabelLibraries = new JLabel();
         jLabelPollInterval = new JLabel();
         jLabelTheme = new JLabel();
+        jLabelUploadWindowSize = new JLabel();
         jLabelUserShortcut1 = new JLabel();
         jLabelUserShortcut2 = new JLabel();
         jLabelUserShortcut3 = new JLabel();
@@ -674,6 +683,15 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
             }
         });
 
+        String[] windowSizes = new String[16];
+        for (int i = 0; i < windowSizes.length; i++) {
+            windowSizes[i] = Integer.toString(i + 1);
+        }
+        jComboBoxUploadWindowSize.setModel(new DefaultComboBoxModel<String>(windowSizes));
+        jLabelUploadWindowSize.setText("Upload Window Size (chunks)");
+        jLabelUploadWindowSize.setToolTipText("Number of file and patch upload chunks sent ahead before waiting for the Core to acknowledge them.\nLarger windows upload faster, a window of 1 waits for each chunk.\nIf uploads fail or the USB connection drops during uploads, try a smaller window.");
+        jComboBoxUploadWindowSize.setToolTipText(jLabelUploadWindowSize.getToolTipText());
+
 
         jCheckBoxNoMouseReCenter.setText("Touchscreen Mode");
         jCheckBoxNoMouseReCenter.setToolTipText("Makes the Patcher usable with touchscreens.\nAlso fixes abnormal mouse behaviour on some systems when turning knobs.");
@@ -786,6 +804,12 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
                                 .addComponent(jComboBoxDspSafetyLimit, GroupLayout.PREFERRED_SIZE, 240, GroupLayout.PREFERRED_SIZE)
                             )
 
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(jLabelUploadWindowSize, GroupLayout.PREFERRED_SIZE, 220, GroupLayout.PREFERRED_SIZE)
+                                .addPreferredGap(ComponentPlacement.RELATED)
+                                .addComponent(jComboBoxUploadWindowSize, GroupLayout.PREFERRED_SIZE, 240, GroupLayout.PREFERRED_SIZE)
+                            )
+
                             .addGroup(layout.createSequentialGroup()
                                 .addComponent(jLabelTheme, GroupLayout.PREFERRED_SIZE, 220, GroupLayout.PREFERRED_SIZE)
                                 .addPreferredGap(ComponentPlacement.RELATED)
@@ -941,6 +965,12 @@ public void actionPerformed(java.awt.event.ActionEvent evt) {
                         )
                         .addGap(5, 5, 5)
 
+                        .addGroup(layout.createParallelGroup(Alignment.BASELINE)
+                            .addComponent(jLabelUploadWindowSize)
+                            .addComponent(jComboBoxUploadWindowSize, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE)
+                        )
+                        .addGap(5, 5, 5)
+
                         .addGroup(layout.createParallelGroup(Alignment.BASELINE)
                             .addComponent(jLabelTheme)
                             .addComponent(jComboBoxTheme, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE, GroupLayout.PREFERRED_SIZE)
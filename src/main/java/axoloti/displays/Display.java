@@ -22,6 +22,7 @@
 import axoloti.atom.AtomDefinition;
 import axoloti.datatypes.DataType;
 import axoloti.object.AxoObjectInstance;
+import java.io.Serializable;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,7 +32,9 @@
  *
  * @author Johannes Taelman
  */
-public abstract class Display<T extends DisplayInstance> implements AtomDefinition, Cloneable {
+public abstract class Display<T extends DisplayInstance> implements AtomDefinition, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     String name;
@@ -28,6 +28,8 @@
  */
 public class DisplayBool32Red extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayBool32Red() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac32UChart extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac32UChart() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac32UDial extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac32UDial() {
     }
 
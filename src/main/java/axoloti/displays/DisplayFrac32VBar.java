@@ -28,6 +28,8 @@
  */
 public class DisplayFrac32VBar extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac32VBar() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac4ByteVBar extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac4ByteVBar() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac4UByteVBar extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac4UByteVBar() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac4UByteVBarDB extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac4UByteVBarDB() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayFrac8S128VBar extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac8S128VBar() {
     }
 
@@ -7,6 +7,8 @@
 
 public class DisplayFrac8S128XY extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayFrac8S128XY() {
     }
 
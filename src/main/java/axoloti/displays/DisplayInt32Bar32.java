@@ -28,6 +28,8 @@
  */
 public class DisplayInt32Bar32 extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayInt32Bar32() {
     }
 
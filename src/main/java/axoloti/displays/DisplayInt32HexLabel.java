@@ -28,6 +28,8 @@
  */
 public class DisplayInt32HexLabel extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayInt32HexLabel() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayInt32Label extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayInt32Label() {
     }
 
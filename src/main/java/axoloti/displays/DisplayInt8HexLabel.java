@@ -28,6 +28,8 @@
  */
 public class DisplayInt8HexLabel extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayInt8HexLabel() {
     }
 
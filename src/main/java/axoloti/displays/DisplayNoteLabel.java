@@ -28,6 +28,8 @@
  */
 public class DisplayNoteLabel extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayNoteLabel() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class DisplayVScale extends Display {
 
+    private static final long serialVersionUID = 1L;
+
     public DisplayVScale() {
         name = "";
     }
@@ -25,6 +25,7 @@
 import axoloti.datatypes.SignalMetaData;
 import axoloti.object.AxoObjectInstance;
 import static axoloti.utils.CharEscape.charEscape;
+import java.io.Serializable;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
@@ -34,7 +35,9 @@
  *
  * @author Johannes Taelman
  */
-public abstract class Inlet implements AtomDefinition, Cloneable {
+public abstract class Inlet implements AtomDefinition, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     String name;
@@ -28,6 +28,8 @@
  */
 public class InletBool32 extends Inlet {
 
+    private static final long serialVersionUID = 1L;
+
     public InletBool32(String name, String description) {
         super(name, description);
     }
@@ -27,6 +27,8 @@
  */
 public class InletBool32Rising extends InletBool32 {
 
+    private static final long serialVersionUID = 1L;
+
     public InletBool32Rising(String name, String description) {
         super(name, description);
     }
@@ -27,6 +27,8 @@
  */
 public class InletBool32RisingFalling extends InletBool32 {
 
+    private static final long serialVersionUID = 1L;
+
     public InletBool32RisingFalling(String name, String description) {
         super(name, description);
     }
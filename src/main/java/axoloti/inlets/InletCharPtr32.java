@@ -28,6 +28,8 @@
  */
 public class InletCharPtr32 extends Inlet {
 
+    private static final long serialVersionUID = 1L;
+
     public InletCharPtr32() {
     }
 
@@ -28,6 +28,8 @@
  */
 public class InletFrac32 extends Inlet {
 
+    private static final long serialVersionUID = 1L;
+
     public InletFrac32(String name, String description) {
         super(name, description);
     }
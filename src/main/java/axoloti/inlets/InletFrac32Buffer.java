@@ -28,6 +28,8 @@
  */
 public class InletFrac32Buffer extends Inlet {
 
+    private static final long serialVersionUID = 1L;
+
     public InletFrac32Buffer(String name, String description) {
         super(name, description);
     }
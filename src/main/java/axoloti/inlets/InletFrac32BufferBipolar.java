@@ -27,6 +27,8 @@
  */
 public class InletFrac32BufferBipolar extends InletFrac32Buffer {
 
+    private static final long serialVersionUID = 1L;
+
     public InletFrac32BufferBipolar(String name, String description) {
         super(name, description);
     }
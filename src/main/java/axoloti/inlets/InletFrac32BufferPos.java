@@ -27,6 +27,8 @@
  */
 public class InletFrac32BufferPos extends InletFrac32Buffer {
 
+    private static final long serialVersionUID = 1L;
+
     public InletFrac32BufferPos(String name, String description) {
         super(name, description);
     }
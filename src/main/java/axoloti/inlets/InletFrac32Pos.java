@@ -27,6 +27,8 @@
  */
 public class InletFrac32Pos extends InletFrac32 {
 
+    private static final long serialVersionUID = 1L;
+
     public InletFrac32Pos(String name, String description) {
         super(name, description);
     }
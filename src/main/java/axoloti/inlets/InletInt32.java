@@ -28,6 +28,8 @@
  */
 public class InletInt32 extends Inlet {
 
+    private static final long serialVersionUID = 1L;
+
     public InletInt32(String name, String description) {
         super(name, description);
     }
@@ -27,6 +27,8 @@
  */
 public class InletInt32Pos extends InletInt32 {
 
+    private static final long serialVersionUID = 1L;
+
     public InletInt32Pos(String name, String description) {
         super(name, description);
     }
@@ -243,7 +243,11 @@ public void mouseDragged(MouseEvent e) {
                 if (patchGUI == null) return;
                 
                 Point p = SwingUtilities.convertPoint(this, e.getPoint(), patchGUI.objectLayerPanel);
-                Component c = patchGUI.objectLayerPanel.findComponentAt(p);
+                Component c = null;
+                AxoObjectInstanceAbstract o = patchGUI.getObjectAt(p);
+                if (o != null) {
+                    c = SwingUtilities.getDeepestComponentAt(o, p.x - o.getX(), p.y - o.getY());
+                }
                 while ((c != null) && !(c instanceof IoletAbstract)) {
                     c = c.getParent();
                 }
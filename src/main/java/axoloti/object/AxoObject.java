@@ -143,6 +143,8 @@
 @Root
 public class AxoObject extends AxoObjectAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     private static final Logger LOGGER = Logger.getLogger(AxoObject.class.getName());
 
     @Element(required = false)
@@ -327,7 +329,11 @@ public AxoObject(String id, String sDescription) {
     }
 
     ArrayList<ObjectModifiedListener> instances = new ArrayList<ObjectModifiedListener>();
-    AxoObjectEditor editor;
+    transient AxoObjectEditor editor;
+
+    /* K-rate and s-rate code tabs compiled for code generation, dropped when the object is modified */
+    transient volatile CodeTemplate kRateTemplate;
+    transient volatile CodeTemplate sRateTemplate;
     
     Rectangle editorBounds;
     Integer editorActiveTabIndex;
@@ -653,6 +659,8 @@ public File GetHelpPatchFile() {
 
     @Override
     public void FireObjectModified(Object src) {
+        kRateTemplate = null;
+        sRateTemplate = null;
         ArrayList<ObjectModifiedListener> c = new ArrayList<ObjectModifiedListener>(instances);
         for (ObjectModifiedListener oml : c) {
             oml.ObjectModified(src);
@@ -774,6 +782,8 @@ private void deepCopyFields(AxoObject original, AxoObject copy) {
         
         /* The editor should not be copied. A new object doesn't have an open editor */
         copy.editor = null;
+        copy.kRateTemplate = null;
+        copy.sRateTemplate = null;
 
         /* editorBounds is a mutable Rectangle so create a new one */
         if (original.editorBounds != null) {
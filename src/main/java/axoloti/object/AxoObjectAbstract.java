@@ -25,6 +25,7 @@
 import axoloti.listener.ObjectModifiedListener;
 import axoloti.outlets.Outlet;
 import java.awt.Point;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Objects;
@@ -42,7 +43,9 @@
  * @author Johannes Taelman
  */
 @Root(name = "objdef")
-public abstract class AxoObjectAbstract implements Comparable, Cloneable {
+public abstract class AxoObjectAbstract implements Comparable, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     public String id = "";
@@ -30,6 +30,8 @@
 @Root
 public class AxoObjectComment extends AxoObjectAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoObjectComment() {
         super();
     }
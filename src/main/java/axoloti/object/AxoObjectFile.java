@@ -20,6 +20,7 @@
 package axoloti.object;
 
 import axoloti.Version;
+import java.io.Serializable;
 import java.util.ArrayList;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.ElementList;
@@ -33,7 +34,9 @@
  * @author Johannes Taelman
  */
 @Root(name = "objdefs")
-public class AxoObjectFile {
+public class AxoObjectFile implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute(required = false)
     String appVersion;
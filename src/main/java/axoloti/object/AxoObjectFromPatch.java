@@ -39,11 +39,13 @@
  */
 public class AxoObjectFromPatch extends AxoObject {
 
+    private static final long serialVersionUID = 1L;
+
     private static final Logger LOGGER = Logger.getLogger(AxoObjectFromPatch.class.getName());
 
-    Patch p;
-    PatchGUI pg;
-    PatchFrame pf;
+    transient Patch p;
+    transient PatchGUI pg;
+    transient PatchFrame pf;
     File f;
 
     public AxoObjectFromPatch(File f) {
@@ -28,6 +28,8 @@
  */
 public class AxoObjectHyperlink extends AxoObjectAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoObjectHyperlink() {
         super();
     }
@@ -31,10 +31,16 @@ public class AxoObjectIdComparator implements Comparator<AxoObjectAbstract> {
     private final String searchTerm;
     private final boolean caseSensitive;
     private final Pattern numericNearEndPattern = Pattern.compile("(\\D*)(\\d+)([^\\d]*)$");
+    /* Compiled once per search instead of on every comparison */
+    private final Pattern startsWithWordPattern;
+    private final Pattern containsAfterSlashPattern;
 
     public AxoObjectIdComparator(String searchTerm, boolean caseSensitive) {
         this.searchTerm = caseSensitive ? searchTerm : searchTerm.toLowerCase();
         this.caseSensitive = caseSensitive;
+        String term = caseSensitive ? this.searchTerm : this.searchTerm.toLowerCase();
+        this.startsWithWordPattern = Pattern.compile("\\b" + Pattern.quote(term) + "\\b.*");
+        this.containsAfterSlashPattern = Pattern.compile(".*/" + Pattern.quote(term) + ".*");
     }
 
     private int getPathDepth(String s, String term) {
@@ -76,8 +82,8 @@ public int compare(AxoObjectAbstract o1, AxoObjectAbstract o2) {
         boolean name1Equals = name1.equals(caseSensitive ? term : lower_term);
         boolean name2Equals = name2.equals(caseSensitive ? term : lower_term);
 
-        boolean name1StartsWithWord = (caseSensitive ? name1.matches("\\b" + Pattern.quote(term) + "\\b.*") : name1.matches("\\b" + Pattern.quote(lower_term) + "\\b.*"));
-        boolean name2StartsWithWord = (caseSensitive ? name2.matches("\\b" + Pattern.quote(term) + "\\b.*") : name2.matches("\\b" + Pattern.quote(lower_term) + "\\b.*"));
+        boolean name1StartsWithWord = startsWithWordPattern.matcher(name1).matches();
+        boolean name2StartsWithWord = startsWithWordPattern.matcher(name2).matches();
 
         /* Conditions for a match as well as its relevance (higher relevance = match shown higher up in the list) */
         boolean name1StartsWith = name1.startsWith(caseSensitive ? term : lower_term);
@@ -89,8 +95,8 @@ public int compare(AxoObjectAbstract o1, AxoObjectAbstract o2) {
         boolean s1StartsWith = caseSensitive ? s1.startsWith(term) : lower_s1.startsWith(lower_term);
         boolean s2StartsWith = caseSensitive ? s2.startsWith(term) : lower_s2.startsWith(lower_term);
 
-        boolean s1ContainsAfter = caseSensitive ? s1.matches(".*/" + Pattern.quote(term) + ".*") : lower_s1.matches(".*/" + Pattern.quote(lower_term) + ".*");
-        boolean s2ContainsAfter = caseSensitive ? s2.matches(".*/" + Pattern.quote(term) + ".*") : lower_s2.matches(".*/" + Pattern.quote(lower_term) + ".*");
+        boolean s1ContainsAfter = containsAfterSlashPattern.matcher(caseSensitive ? s1 : lower_s1).matches();
+        boolean s2ContainsAfter = containsAfterSlashPattern.matcher(caseSensitive ? s2 : lower_s2).matches();
 
         boolean s1StartsWithOrAfterSlash = s1StartsWith || s1ContainsAfter;
         boolean s2StartsWithOrAfterSlash = s2StartsWith || s2ContainsAfter;
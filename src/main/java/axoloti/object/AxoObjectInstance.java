@@ -974,19 +974,30 @@ public String GenerateDisposeCodePlusPlus(String classname) {
     }
 
     public String GenerateKRateCodePlusPlus(String vprefix) {
-        if (getType().sKRateCode != null && !getType().sKRateCode.isEmpty()) {
-            String s = getType().sKRateCode;
-            s = I+I+I + s.replace("\n", "\n\t\t\t");
-
+        AxoObject type = getType();
+        if (type.sKRateCode != null && !type.sKRateCode.isEmpty()) {
+            int nattr = attributeInstances.size();
+            String[] names = new String[nattr + 2];
+            String[] values = new String[nattr + 2];
+            int n = 0;
             for (AttributeInstance a : attributeInstances) {
-                s = s.replaceAll(a.GetCName(), a.CValue());
+                names[n] = a.GetCName();
+                values[n++] = a.CValue();
             }
+            names[n] = "CGENATTR_instancename";
+            values[n++] = getCInstanceName();
+            names[n] = "CGENATTR_legalname";
+            values[n++] = getLegalName();
 
-            s = s.replace("CGENATTR_instancename", getCInstanceName());
-            s = s.replace("CGENATTR_legalname", getLegalName());
+            CodeTemplate t = type.kRateTemplate;
+            if (t == null || !t.matches(type.sKRateCode, names)) {
+                String s = I+I+I + type.sKRateCode.replace("\n", "\n\t\t\t");
+                t = CodeTemplate.compile(type.sKRateCode, s, names, nattr);
+                type.kRateTemplate = t;
+            }
 
             String h = "\n" + I+I+I + "/* <object k-rate code tab> */\n";
-            h += s;
+            h += t.fill(values);
             h += "\n" + I+I+I + "/* </object k-rate code tab> */\n";
             return h;
         }
@@ -994,32 +1005,46 @@ public String GenerateKRateCodePlusPlus(String vprefix) {
     }
 
     public String GenerateSRateCodePlusPlus(String vprefix) {
-        if (getType().sSRateCode != null && !getType().sSRateCode.isEmpty()) {
-            String s = "\n" + I+I+I + "uint32_t buffer_index;\n"
-                            + I+I+I + "for (buffer_index = 0; buffer_index < BUFSIZE; buffer_index++) {\n"
-                     + "\n" + I+I+I+I + "/* <object s-rate code tab> */\n"
-                            + I+I+I+I + getType().sSRateCode.replace("\n", "\n\t\t\t\t")
-                     + "\n" + I+I+I+I + "/* </object s-rate code tab> */\n"
-                     + "\n" + I+I+I + "}\n";
-
+        AxoObject type = getType();
+        if (type.sSRateCode != null && !type.sSRateCode.isEmpty()) {
+            /* Attributes, then sample buffer inlets and outlets, which get indexed */
+            ArrayList<String> names = new ArrayList<String>();
+            ArrayList<String> values = new ArrayList<String>();
             for (AttributeInstance a : attributeInstances) {
-                s = s.replaceAll(a.GetCName(), a.CValue());
+                names.add(a.GetCName());
+                values.add(a.CValue());
             }
             for (InletInstance i : inletInstances) {
                 if (i.GetDataType() instanceof Frac32buffer) {
-                    s = s.replaceAll(i.GetCName(), i.GetCName() + "[buffer_index]");
+                    names.add(i.GetCName());
+                    values.add(i.GetCName() + "[buffer_index]");
                 }
             }
             for (OutletInstance i : outletInstances) {
                 if (i.GetDataType() instanceof Frac32buffer) {
-                    s = s.replaceAll(i.GetCName(), i.GetCName() + "[buffer_index]");
+                    names.add(i.GetCName());
+                    values.add(i.GetCName() + "[buffer_index]");
                 }
             }
-
-            s = s.replace("CGENATTR_instancename", getCInstanceName());
-            s = s.replace("CGENATTR_legalname", getLegalName());
-
-            return s;
+            int nregex = names.size();
+            names.add("CGENATTR_instancename");
+            values.add(getCInstanceName());
+            names.add("CGENATTR_legalname");
+            values.add(getLegalName());
+            String[] n = names.toArray(new String[0]);
+
+            CodeTemplate t = type.sRateTemplate;
+            if (t == null || !t.matches(type.sSRateCode, n)) {
+                String s = "\n" + I+I+I + "uint32_t buffer_index;\n"
+                                + I+I+I + "for (buffer_index = 0; buffer_index < BUFSIZE; buffer_index++) {\n"
+                         + "\n" + I+I+I+I + "/* <object s-rate code tab> */\n"
+                                + I+I+I+I + type.sSRateCode.replace("\n", "\n\t\t\t\t")
+                         + "\n" + I+I+I+I + "/* </object s-rate code tab> */\n"
+                         + "\n" + I+I+I + "}\n";
+                t = CodeTemplate.compile(type.sSRateCode, s, n, nregex);
+                type.sRateTemplate = t;
+            }
+            return t.fill(values.toArray(new String[0]));
         }
         return "";
     }
@@ -452,23 +452,46 @@ public void setLocation(int x, int y) {
         this.y = y;
         if (patch != null) {
             repaint();
-            for (InletInstance i : getInletInstances()) {
-                Net n = getPatch().GetNet(i);
-                if (n != null) {
-                    n.updateBounds();
-                    n.repaint();
-                }
+            updateNetBounds();
+        }
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        if (patch instanceof PatchGUI) {
+            ((PatchGUI) patch).objectBoundsChanged(this);
+        }
+    }
+
+    /* Recomputes the cords connected to this object, after it moved or its iolets were laid out again */
+    public void updateNetBounds() {
+        if (patch == null || getInletInstances() == null || getOutletInstances() == null) {
+            return; /* Not constructed yet */
+        }
+        for (InletInstance i : getInletInstances()) {
+            Net n = getPatch().GetNet(i);
+            if (n != null) {
+                n.updateBounds();
+                n.repaint();
             }
-            for (OutletInstance i : getOutletInstances()) {
-                Net n = getPatch().GetNet(i);
-                if (n != null) {
-                    n.updateBounds();
-                    n.repaint();
-                }
+        }
+        for (OutletInstance i : getOutletInstances()) {
+            Net n = getPatch().GetNet(i);
+            if (n != null) {
+                n.updateBounds();
+                n.repaint();
             }
         }
     }
 
+    @Override
+    protected void validateTree() {
+        super.validateTree();
+        /* Jacks may have moved within the object */
+        updateNetBounds();
+    }
+
     @Override
     public int getX() {
         return x;
@@ -651,11 +674,7 @@ public void SetLocation(int x1, int y1) {
         x = x1;
         y = y1;
 
-        if (patch != null) {
-            for (Net n : patch.nets) {
-                n.updateBounds();
-            }
-        }
+        updateNetBounds();
     }
 
     public void moveToFront() {
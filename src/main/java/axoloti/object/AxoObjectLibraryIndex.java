@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.object;
+
+import axoloti.Axoloti;
+import axoloti.Version;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk index of the parsed .axo files below one object search path, kept
+ * under build/cache. Each file is stored as its serialized AxoObjectFile,
+ * keyed by directory, file name, modification time and size, so a restart
+ * only has to parse the files that were added or changed.
+ *
+ * The index is tied to the Patcher version: object classes may change
+ * between versions, so an index written by another version is discarded.
+ * The object classes declare a fixed serialVersionUID, so within a version
+ * entries are never rejected by class fingerprint. Files whose objects
+ * cannot be serialized are simply not indexed.
+ *
+ * @author Ksoloti
+ */
+public class AxoObjectLibraryIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(AxoObjectLibraryIndex.class.getName());
+
+    private static final int MAGIC = 0x41584F49; /* AXOI */
+    private static final int FORMAT_VERSION = 2;
+
+    private static class Entry {
+        final long lastModified;
+        final long length;
+        final byte[] data;
+
+        Entry(long lastModified, long length, byte[] data) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.data = data;
+        }
+    }
+
+    private final File root;
+    private final String rootPath;
+    private final File indexFile;
+
+    /* Directory path relative to root -> file name -> entry, as read from disk */
+    private final Map<String, Map<String, Entry>> stored = new HashMap<String, Map<String, Entry>>();
+    /* Entries seen during this load, written back by save() */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>> current = new ConcurrentHashMap<String, ConcurrentHashMap<String, Entry>>();
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private AxoObjectLibraryIndex(File root) {
+        this.root = root;
+        String path;
+        try {
+            path = root.getCanonicalPath();
+        }
+        catch (IOException ex) {
+            path = root.getAbsolutePath();
+        }
+        this.rootPath = path;
+        this.indexFile = new File(System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + File.separator + "cache"
+                + File.separator + "objects-" + Integer.toHexString(rootPath.hashCode()) + ".idx");
+    }
+
+    /* Reads the index of search path root, or starts an empty one if there is none or it is stale */
+    public static AxoObjectLibraryIndex load(File root) {
+        AxoObjectLibraryIndex index = new AxoObjectLibraryIndex(root);
+        if (!index.indexFile.isFile()) {
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index.indexFile), 256 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+                    || !in.readUTF().equals(Version.AXOLOTI_VERSION) || !in.readUTF().equals(index.rootPath)) {
+                LOGGER.log(Level.INFO, "Object index for " + index.rootPath + " is outdated, rebuilding.");
+                return index;
+            }
+            int ndirs = in.readInt();
+            for (int i = 0; i < ndirs; i++) {
+                String dir = in.readUTF();
+                int nfiles = in.readInt();
+                HashMap<String, Entry> files = new HashMap<String, Entry>(nfiles * 2);
+                for (int j = 0; j < nfiles; j++) {
+                    String name = in.readUTF();
+                    long lastModified = in.readLong();
+                    long length = in.readLong();
+                    byte[] data = new byte[in.readInt()];
+                    in.readFully(data);
+                    files.put(name, new Entry(lastModified, length, data));
+                }
+                index.stored.put(dir, files);
+            }
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not read object index " + index.indexFile.getName() + ", rebuilding: " + ex.getMessage());
+            index.stored.clear();
+        }
+        return index;
+    }
+
+    private String relativeDir(File f) {
+        String dir = f.getParentFile().getAbsolutePath();
+        String base = root.getAbsolutePath();
+        return dir.length() > base.length() ? dir.substring(base.length() + 1) : "";
+    }
+
+    /* Returns the objects of f if the index holds an up-to-date copy, otherwise null */
+    public AxoObjectFile get(File f) {
+        String dir = relativeDir(f);
+        Map<String, Entry> files = stored.get(dir);
+        Entry e = (files != null) ? files.get(f.getName()) : null;
+        if (e != null && e.lastModified == f.lastModified() && e.length == f.length()) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(e.data))) {
+                AxoObjectFile o = (AxoObjectFile) in.readObject();
+                current.computeIfAbsent(dir, k -> new ConcurrentHashMap<String, Entry>()).put(f.getName(), e);
+                hits.incrementAndGet();
+                return o;
+            }
+            catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                LOGGER.log(Level.FINE, "Stale object index entry for " + f.getAbsolutePath() + ": " + ex.getMessage());
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /* Records the freshly parsed objects of f. Call before the objects are modified. */
+    public void put(File f, AxoObjectFile o) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(o);
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.FINE, "Object file not indexed: " + f.getAbsolutePath() + ", " + ex.getMessage());
+            return;
+        }
+        current.computeIfAbsent(relativeDir(f), k -> new ConcurrentHashMap<String, Entry>())
+                .put(f.getName(), new Entry(f.lastModified(), f.length(), bytes.toByteArray()));
+    }
+
+    public int getHits() {
+        return hits.get();
+    }
+
+    public int getMisses() {
+        return misses.get();
+    }
+
+    /* Writes the entries seen during this load, dropping those of removed files, if anything changed */
+    public void save() {
+        if (misses.get() == 0 && sameFiles()) {
+            return;
+        }
+        File tmp = new File(indexFile.getPath() + ".tmp");
+        try {
+            Files.createDirectories(indexFile.getParentFile().toPath());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 256 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(Version.AXOLOTI_VERSION);
+                out.writeUTF(rootPath);
+                out.writeInt(current.size());
+                for (Map.Entry<String, ConcurrentHashMap<String, Entry>> dir : current.entrySet()) {
+                    out.writeUTF(dir.getKey());
+                    out.writeInt(dir.getValue().size());
+                    for (Map.Entry<String, Entry> file : dir.getValue().entrySet()) {
+                        Entry e = file.getValue();
+                        out.writeUTF(file.getKey());
+                        out.writeLong(e.lastModified);
+                        out.writeLong(e.length);
+                        out.writeInt(e.data.length);
+                        out.write(e.data);
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not write object index " + indexFile.getName() + ": " + ex.getMessage());
+            tmp.delete();
+        }
+    }
+
+    /* True if every stored directory and file was seen again, i.e. nothing was removed */
+    private boolean sameFiles() {
+        if (current.size() != stored.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Map<String, Entry>> dir : stored.entrySet()) {
+            Map<String, Entry> seen = current.get(dir.getKey());
+            if (seen == null || seen.size() != dir.getValue().size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -30,6 +30,8 @@
  */
 public class AxoObjectPatcher extends AxoObject {
 
+    private static final long serialVersionUID = 1L;
+
     private static final Logger LOGGER = Logger.getLogger(AxoObjectPatcher.class.getName());
 
     public AxoObjectPatcher() {
@@ -30,6 +30,8 @@
  */
 public class AxoObjectPatcherObject extends AxoObject {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoObjectPatcherObject() {
     }
 
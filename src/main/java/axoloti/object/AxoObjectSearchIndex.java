@@ -0,0 +1,217 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.object;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Search index over one published object list, used by the object finder.
+ * Ids and descriptions are lowercased once, and every trigram of them maps
+ * to the objects containing it, so a query only verifies the objects that
+ * share all of its trigrams instead of scanning the whole library.
+ *
+ * Matching is the same as the finder always did: a query containing an
+ * uppercase letter is case sensitive, an object matches if its id or
+ * description contains the query, and otherwise if its id matches the query
+ * as a wildcard pattern ('*', '^' and '$'). Results are ranked by
+ * AxoObjectIdComparator.
+ *
+ * @author Ksoloti
+ */
+public class AxoObjectSearchIndex {
+
+    private static final Pattern REGEX_META = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    /* Growable list of object indices, ascending */
+    private static final class Postings {
+        int[] a = new int[4];
+        int n = 0;
+
+        void add(int i) {
+            if (n > 0 && a[n - 1] == i) {
+                return;
+            }
+            if (n == a.length) {
+                a = Arrays.copyOf(a, n * 2);
+            }
+            a[n++] = i;
+        }
+    }
+
+    private final List<AxoObjectAbstract> objectList;
+    private final AxoObjectAbstract[] objects;
+    private final String[] ids;
+    private final String[] lowerIds;
+    private final String[] descriptions;
+    private final String[] lowerDescriptions;
+    private final HashMap<Long, Postings> trigrams;
+
+    public AxoObjectSearchIndex(List<AxoObjectAbstract> objectList) {
+        this.objectList = objectList;
+        int n = objectList.size();
+        objects = objectList.toArray(new AxoObjectAbstract[n]);
+        ids = new String[n];
+        lowerIds = new String[n];
+        descriptions = new String[n];
+        lowerDescriptions = new String[n];
+        trigrams = new HashMap<Long, Postings>(n * 8);
+        for (int i = 0; i < n; i++) {
+            AxoObjectAbstract o = objects[i];
+            ids[i] = o.id;
+            lowerIds[i] = o.id.toLowerCase();
+            descriptions[i] = o.sDescription;
+            lowerDescriptions[i] = (o.sDescription != null) ? o.sDescription.toLowerCase() : null;
+            addTrigrams(lowerIds[i], i);
+            if (lowerDescriptions[i] != null) {
+                addTrigrams(lowerDescriptions[i], i);
+            }
+        }
+    }
+
+    /* True if this index was built from list, i.e. list has not been republished since */
+    public boolean isIndexOf(List<AxoObjectAbstract> list) {
+        return objectList == list;
+    }
+
+    public int size() {
+        return objects.length;
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    private void addTrigrams(String s, int i) {
+        for (int k = 0; k + 3 <= s.length(); k++) {
+            trigrams.computeIfAbsent(trigram(s, k), t -> new Postings()).add(i);
+        }
+    }
+
+    /* Indices of the objects sharing every trigram of q, ascending, or null if q is too short to filter on */
+    private int[] candidates(String q) {
+        if (q.length() < 3) {
+            return null;
+        }
+        ArrayList<Postings> lists = new ArrayList<Postings>();
+        for (int k = 0; k + 3 <= q.length(); k++) {
+            Postings p = trigrams.get(trigram(q, k));
+            if (p == null) {
+                return new int[0];
+            }
+            lists.add(p);
+        }
+        lists.sort((a, b) -> Integer.compare(a.n, b.n));
+        int[] c = Arrays.copyOf(lists.get(0).a, lists.get(0).n);
+        int cn = c.length;
+        for (int l = 1; l < lists.size() && cn > 0; l++) {
+            Postings p = lists.get(l);
+            int m = 0;
+            int j = 0;
+            for (int k = 0; k < cn; k++) {
+                while (j < p.n && p.a[j] < c[k]) {
+                    j++;
+                }
+                if (j < p.n && p.a[j] == c[k]) {
+                    c[m++] = c[k];
+                }
+            }
+            cn = m;
+        }
+        return Arrays.copyOf(c, cn);
+    }
+
+    public static boolean containsUpperCase(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            if (Character.getType(str.charAt(i)) == Character.UPPERCASE_LETTER) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Objects matching s, ranked, or the complete list in library order if s
+     * is empty. Returns null if the calling thread was interrupted, which is
+     * how a search superseded by the next keystroke is cancelled.
+     */
+    public List<AxoObjectAbstract> find(String s) {
+        if ((s == null) || s.isEmpty()) {
+            return new ArrayList<AxoObjectAbstract>(new LinkedHashSet<AxoObjectAbstract>(objectList));
+        }
+
+        boolean caseSensitive = containsUpperCase(s);
+        String lower_s = s.toLowerCase();
+        String q = caseSensitive ? s : lower_s;
+        String[] qIds = caseSensitive ? ids : lowerIds;
+        String[] qDescriptions = caseSensitive ? descriptions : lowerDescriptions;
+        Thread thread = Thread.currentThread();
+
+        boolean[] matches = new boolean[objects.length];
+        int[] c = candidates(lower_s);
+        int nc = (c != null) ? c.length : objects.length;
+        for (int k = 0; k < nc; k++) {
+            int i = (c != null) ? c[k] : k;
+            matches[i] = qIds[i].contains(q) || (qDescriptions[i] != null && qDescriptions[i].contains(q));
+        }
+
+        /* Without regex syntax in the query, the wildcard pattern matches exactly the ids containing it */
+        if (REGEX_META.matcher(q).find()) {
+            String rgx = q.replace("*", ".*");
+            if (!q.startsWith("^")) rgx = ".*" + rgx;
+            if (!q.endsWith("$")) rgx = rgx + ".*";
+            Pattern pattern = null;
+            try {
+                pattern = Pattern.compile(rgx);
+            }
+            catch (PatternSyntaxException e) {
+                /* Incomplete pattern while typing, e.g. "osc[": substring matches only */
+            }
+            if (pattern != null) {
+                for (int i = 0; i < objects.length; i++) {
+                    if ((i & 0xFF) == 0 && thread.isInterrupted()) {
+                        return null;
+                    }
+                    if (!matches[i] && pattern.matcher(qIds[i]).matches()) {
+                        matches[i] = true;
+                    }
+                }
+            }
+        }
+        if (thread.isInterrupted()) {
+            return null;
+        }
+
+        LinkedHashSet<AxoObjectAbstract> resultSet = new LinkedHashSet<AxoObjectAbstract>();
+        for (int i = 0; i < objects.length; i++) {
+            if (matches[i]) {
+                resultSet.add(objects[i]);
+            }
+        }
+        ArrayList<AxoObjectAbstract> listData = new ArrayList<AxoObjectAbstract>(resultSet);
+        Collections.sort(listData, new AxoObjectIdComparator(s, caseSensitive));
+        return thread.isInterrupted() ? null : listData;
+    }
+}
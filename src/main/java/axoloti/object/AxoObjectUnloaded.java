@@ -31,6 +31,8 @@
 @Root
 public class AxoObjectUnloaded extends AxoObjectAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     File f;
 
     public AxoObjectUnloaded() {
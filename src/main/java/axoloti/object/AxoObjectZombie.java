@@ -32,6 +32,8 @@
 @Root
 public class AxoObjectZombie extends AxoObjectAbstract {
 
+    private static final long serialVersionUID = 1L;
+
     public AxoObjectZombie() {
         super();
     }
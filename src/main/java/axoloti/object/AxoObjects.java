@@ -19,6 +19,7 @@
 
 package axoloti.object;
 
+import axoloti.Patch;
 import axoloti.utils.AxolotiLibrary;
 import axoloti.utils.Preferences;
 
@@ -30,15 +31,27 @@
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.simpleframework.xml.Serializer;
 import org.simpleframework.xml.core.Persister;
 import org.simpleframework.xml.stream.Format;
@@ -51,17 +64,74 @@ public class AxoObjects {
 
     private static final Logger LOGGER = Logger.getLogger(AxoObjects.class.getName());
 
-    public AxoObjectTreeNode ObjectTree;
-    public ArrayList<AxoObjectAbstract> ObjectList;
-    HashMap<String, AxoObjectAbstract> ObjectUUIDMap;
+    /* .axo files are parsed on all cores; the tree is then assembled in file order */
+    private static final ForkJoinPool loaderPool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+    /* Matches type and uuid of <obj .../> elements in a patch file */
+    private static final Pattern OBJ_ELEMENT_PATTERN = Pattern.compile("<obj\\s[^>]*>");
+    private static final Pattern TYPE_ATTRIBUTE_PATTERN = Pattern.compile("\\stype=\"([^\"]*)\"");
+    private static final Pattern UUID_ATTRIBUTE_PATTERN = Pattern.compile("\\suuid=\"([^\"]*)\"");
+
+    /*
+     * While loading, the objects of each search path are published in one go
+     * once the path is complete. Readers always see complete collections:
+     * these are replaced, never modified after publication.
+     */
+    public volatile AxoObjectTreeNode ObjectTree;
+    public volatile ArrayList<AxoObjectAbstract> ObjectList;
+    volatile HashMap<String, AxoObjectAbstract> ObjectUUIDMap;
+    /* id -> objects with that id, in ObjectList order */
+    private volatile HashMap<String, ArrayList<AxoObjectAbstract>> ObjectIDMap;
+    private boolean loading = false;
+    private volatile AxoObjectSearchIndex searchIndex;
+
+    /*
+     * File names per directory probed for relative .axo/.axs objects and
+     * search path subpatches, so resolving the objects of a patch lists each
+     * directory once instead of probing one file per object and search path.
+     * A listing is reused while the directory's modification time, which
+     * changes when files are added or removed, stays the same. Cleared when
+     * the libraries are reloaded.
+     * Names are kept in a folded form (see listingKey) so that a listing
+     * never misses a file that File.isFile() would find on a case-insensitive
+     * or normalizing file system, e.g. Windows or macOS. A hit is confirmed
+     * by f.isFile(), which keeps case-sensitive file systems exact.
+     */
+    private static class DirectoryListing {
+        final long lastModified;
+        final HashSet<String> names;
+
+        DirectoryListing(long lastModified, HashSet<String> names) {
+            this.lastModified = lastModified;
+            this.names = names;
+        }
+    }
+    private final ConcurrentHashMap<String, DirectoryListing> probeCache = new ConcurrentHashMap<String, DirectoryListing>();
 
     protected Serializer serializer = new Persister(new Format(2));
+    private final ThreadLocal<Serializer> loaderSerializer = ThreadLocal.withInitial(() -> new Persister(new Format(2)));
     public Thread LoaderThread;
 
+    /* Objects of the search path being loaded, published by LoadAxoObjects(String) */
+    private static class LoadBatch {
+        final Map<File, AxoObjectFile> parsed;
+        final ArrayList<AxoObjectAbstract> objectList;
+        final HashSet<AxoObjectAbstract> objectSet;
+        final HashMap<String, AxoObjectAbstract> uuidMap;
+
+        LoadBatch(Map<File, AxoObjectFile> parsed, ArrayList<AxoObjectAbstract> objectList, HashMap<String, AxoObjectAbstract> uuidMap) {
+            this.parsed = parsed;
+            this.objectList = objectList;
+            this.objectSet = new HashSet<AxoObjectAbstract>(objectList);
+            this.uuidMap = uuidMap;
+        }
+    }
+
     public AxoObjects() {
         ObjectTree = new AxoObjectTreeNode("/");
         ObjectList = new ArrayList<AxoObjectAbstract>();
         ObjectUUIDMap = new HashMap<String, AxoObjectAbstract>();
+        ObjectIDMap = new HashMap<String, ArrayList<AxoObjectAbstract>>();
     }
 
     public AxoObjectTreeNode getObjectTree() {
@@ -71,10 +141,53 @@ public AxoObjectTreeNode getObjectTree() {
         return ObjectTree;
     }
 
+    /* Search index over the current ObjectList, rebuilt when a search path has been published since */
+    public AxoObjectSearchIndex getSearchIndex() {
+        ArrayList<AxoObjectAbstract> list = ObjectList;
+        AxoObjectSearchIndex index = searchIndex;
+        if (index == null || !index.isIndexOf(list)) {
+            index = new AxoObjectSearchIndex(list);
+            searchIndex = index;
+        }
+        return index;
+    }
+
     public AxoObjectAbstract GetAxoObjectFromUUID(String n) {
         return ObjectUUIDMap.get(n);
     }
 
+    /* Same as f.isFile(), answered from the cached listing of its directory */
+    boolean isFileCached(File f) {
+        File dir = f.getAbsoluteFile().getParentFile();
+        if (dir == null) {
+            return f.isFile();
+        }
+        String key = dir.getPath();
+        long lastModified = dir.lastModified();
+        if (lastModified == 0) {
+            probeCache.remove(key);
+            return false; /* No such directory */
+        }
+        DirectoryListing listing = probeCache.get(key);
+        if (listing == null || listing.lastModified != lastModified) {
+            String[] names = dir.list();
+            if (names == null) {
+                return f.isFile();
+            }
+            HashSet<String> keys = new HashSet<String>(names.length * 2);
+            for (String name : names) {
+                keys.add(listingKey(name));
+            }
+            listing = new DirectoryListing(lastModified, keys);
+            probeCache.put(key, listing);
+        }
+        return listing.names.contains(listingKey(f.getName())) && f.isFile();
+    }
+
+    private static String listingKey(String name) {
+        return Normalizer.normalize(name, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
     public ArrayList<AxoObjectAbstract> GetAxoObjectFromName(String n, String cwd) {
         String bfname = null;
         if (n.startsWith("./") && (cwd != null)) {
@@ -90,7 +203,7 @@ public ArrayList<AxoObjectAbstract> GetAxoObjectFromName(String n, String cwd) {
                 String fnameA = bfname + ".axo";
                 LOGGER.log(Level.FINE, "Attempt to create object from object file: " + fnameA);
                 File f = new File(fnameA);
-                if (f.isFile()) {
+                if (isFileCached(f)) {
                     boolean loadOK = false;
                     AxoObjectFile of = null;
                     try {
@@ -127,7 +240,7 @@ public ArrayList<AxoObjectAbstract> GetAxoObjectFromName(String n, String cwd) {
                 String fnameP = bfname + ".axs";
                 LOGGER.log(Level.FINE, "Attempt to create object from subpatch file in patch directory: " + fnameP);
                 File f = new File(fnameP);
-                if (f.isFile()) {
+                if (isFileCached(f)) {
                     LOGGER.log(Level.FINE, "Hit: " + fnameP);
                     AxoObjectAbstract o = new AxoObjectFromPatch(f);
                     if (n.startsWith("./") || n.startsWith("../")) {
@@ -140,34 +253,29 @@ public ArrayList<AxoObjectAbstract> GetAxoObjectFromName(String n, String cwd) {
                 }
             }
         }
-        LinkedHashSet<AxoObjectAbstract> set = new LinkedHashSet<AxoObjectAbstract>();
-        // need to clone ObjectList to avoid a ConcurrentModificationException?
-        for (AxoObjectAbstract o : (ArrayList<AxoObjectAbstract>)ObjectList.clone()) {
-            if (o.id.equals(n)) {
-                set.add(o);
-            }
-        }
-        if (set.isEmpty()) {
+        ArrayList<AxoObjectAbstract> objs = ObjectIDMap.get(n);
+        if (objs == null) {
             String spath[] = Preferences.getInstance().getObjectSearchPath();
             for (String s : spath) {
                 String fsname = s + "/" + n + ".axs";
                 LOGGER.log(Level.FINE, "Attempt to create object from subpatch file: " + fsname);
                 File fs = new File(fsname);
-                if (fs.isFile()) {
+                if (isFileCached(fs)) {
                     AxoObjectAbstract o = new AxoObjectFromPatch(fs);
                     o.sObjFilePath = n + ".axs";
                     LOGGER.log(Level.INFO, "Subpatch loaded: " + fsname);
-                    set.add(o);
-                    return new ArrayList<>(set);
+                    ArrayList<AxoObjectAbstract> list = new ArrayList<AxoObjectAbstract>();
+                    list.add(o);
+                    return list;
                 }
             }
             return null;
         } else {
-            return new ArrayList<>(set);
+            return new ArrayList<>(objs);
         }
     }
 
-    public AxoObjectTreeNode LoadAxoObjectsFromFolder(File folder, String prefix) {
+    AxoObjectTreeNode LoadAxoObjectsFromFolder(File folder, String prefix, LoadBatch batch) {
 
         String id = folder.getName();
         // is this objects in a library, if so use the library name
@@ -229,7 +337,7 @@ public int compare(File o1, File o2) {
         for (final File fileEntry : fileList) {
             if (fileEntry.isDirectory()) {
                 String dirname = fileEntry.getName();
-                AxoObjectTreeNode s = LoadAxoObjectsFromFolder(fileEntry, prefix + "/" + dirname);
+                AxoObjectTreeNode s = LoadAxoObjectsFromFolder(fileEntry, prefix + "/" + dirname, batch);
                 if (s.Objects.size() > 0 || s.SubNodes.size() > 0) {
                     t.SubNodes.put(dirname, s);
                     for (AxoObjectAbstract o : t.Objects) {
@@ -243,34 +351,7 @@ public int compare(File o1, File o2) {
                 }
             } else {
                 if (fileEntry.getName().endsWith(".axo")) {
-                    AxoObjectFile o = null;
-                    try {
-                         o = serializer.read(AxoObjectFile.class, fileEntry);
-                    } catch (java.lang.reflect.InvocationTargetException ite) {
-                        if(ite.getTargetException() instanceof AxoObjectFile.ObjectVersionException) {
-                            AxoObjectFile.ObjectVersionException ove = (AxoObjectFile.ObjectVersionException) ite.getTargetException();
-                            LOGGER.log(Level.SEVERE, "Object \"" + fileEntry.getAbsoluteFile() + "\" was saved with a newer version of Ksoloti: " + ove.getMessage()); 
-                            ite.printStackTrace(System.out);
-                        } else {
-                            LOGGER.log(Level.SEVERE, fileEntry.getAbsolutePath(), ite);
-                            try {
-                                LOGGER.log(Level.INFO,"Error reading object, trying relaxed mode: " + fileEntry.getAbsolutePath());
-                                o = serializer.read(AxoObjectFile.class, fileEntry, false);
-                            } catch (Exception ex1) {
-                                LOGGER.log(Level.SEVERE, "Error trying to read AxoObjectFile in relaxed mode: " + fileEntry.getAbsolutePath() + ", " + ex1.getMessage());
-                                ex1.printStackTrace(System.out);
-                            }
-                        }
-                    } catch (Exception ex) {
-                        LOGGER.log(Level.SEVERE, fileEntry.getAbsolutePath(), ex);
-                        try {
-                            LOGGER.log(Level.INFO,"Error reading object, trying relaxed mode: " + fileEntry.getAbsolutePath());
-                            o = serializer.read(AxoObjectFile.class, fileEntry, false);
-                        } catch (Exception ex1) {
-                            LOGGER.log(Level.SEVERE, "Error trying to read AxoObjectFile in relaxed mode: " + fileEntry.getAbsolutePath() + ", " + ex1.getMessage());
-                            ex1.printStackTrace(System.out);
-                        }
-                    }
+                    AxoObjectFile o = batch.parsed.get(fileEntry);
                     if (o!=null) {
                         for (AxoObjectAbstract a : o.objs) {
                             a.sObjFilePath = fileEntry.getAbsolutePath();
@@ -290,14 +371,14 @@ public int compare(File o1, File o2) {
                                 s.Objects.add(a);
                             }
 
-                            if (!ObjectList.contains(a)) {
-                                ObjectList.add(a);
+                            if (batch.objectSet.add(a)) {
+                                batch.objectList.add(a);
                             }
 
-                            if ((a.getUUID() != null) && (ObjectUUIDMap.containsKey(a.getUUID()))) {
-                                LOGGER.log(Level.SEVERE, "Duplicate UUID! {0}\nOriginal name: {1}\nPath: {2}", new Object[]{fileEntry.getAbsolutePath(), ObjectUUIDMap.get(a.getUUID()).id, ObjectUUIDMap.get(a.getUUID()).sObjFilePath});
+                            if ((a.getUUID() != null) && (batch.uuidMap.containsKey(a.getUUID()))) {
+                                LOGGER.log(Level.SEVERE, "Duplicate UUID! {0}\nOriginal name: {1}\nPath: {2}", new Object[]{fileEntry.getAbsolutePath(), batch.uuidMap.get(a.getUUID()).id, batch.uuidMap.get(a.getUUID()).sObjFilePath});
                             }
-                            ObjectUUIDMap.put(a.getUUID(), a);
+                            batch.uuidMap.put(a.getUUID(), a);
                         }
                     }
                 } else if (fileEntry.getName().endsWith(".axs")) {
@@ -312,8 +393,8 @@ public int compare(File o1, File o2) {
                         AxoObjectUnloaded a = new AxoObjectUnloaded(fullname, fileEntry);
                         a.sObjFilePath = fileEntry.getAbsolutePath();
                         t.Objects.add(a);
-                        if (!ObjectList.contains(a)) {
-                            ObjectList.add(a);
+                        if (batch.objectSet.add(a)) {
+                            batch.objectList.add(a);
                         }
                     } catch (Exception ex) {
                         LOGGER.log(Level.SEVERE, "Error: " + fileEntry.getAbsolutePath() + ", " + ex.getMessage());
@@ -325,14 +406,98 @@ public int compare(File o1, File o2) {
         return t;
     }
 
+    /* Parses one .axo file, retrying in relaxed mode. Called concurrently from the loader pool. */
+    AxoObjectFile ReadAxoObjectFile(File fileEntry) {
+        Serializer serializer = loaderSerializer.get();
+        AxoObjectFile o = null;
+        try {
+             o = serializer.read(AxoObjectFile.class, fileEntry);
+        } catch (java.lang.reflect.InvocationTargetException ite) {
+            if(ite.getTargetException() instanceof AxoObjectFile.ObjectVersionException) {
+                AxoObjectFile.ObjectVersionException ove = (AxoObjectFile.ObjectVersionException) ite.getTargetException();
+                LOGGER.log(Level.SEVERE, "Object \"" + fileEntry.getAbsoluteFile() + "\" was saved with a newer version of Ksoloti: " + ove.getMessage()); 
+                ite.printStackTrace(System.out);
+            } else {
+                LOGGER.log(Level.SEVERE, fileEntry.getAbsolutePath(), ite);
+                try {
+                    LOGGER.log(Level.INFO,"Error reading object, trying relaxed mode: " + fileEntry.getAbsolutePath());
+                    o = serializer.read(AxoObjectFile.class, fileEntry, false);
+                } catch (Exception ex1) {
+                    LOGGER.log(Level.SEVERE, "Error trying to read AxoObjectFile in relaxed mode: " + fileEntry.getAbsolutePath() + ", " + ex1.getMessage());
+                    ex1.printStackTrace(System.out);
+                }
+            }
+        } catch (Exception ex) {
+            LOGGER.log(Level.SEVERE, fileEntry.getAbsolutePath(), ex);
+            try {
+                LOGGER.log(Level.INFO,"Error reading object, trying relaxed mode: " + fileEntry.getAbsolutePath());
+                o = serializer.read(AxoObjectFile.class, fileEntry, false);
+            } catch (Exception ex1) {
+                LOGGER.log(Level.SEVERE, "Error trying to read AxoObjectFile in relaxed mode: " + fileEntry.getAbsolutePath() + ", " + ex1.getMessage());
+                ex1.printStackTrace(System.out);
+            }
+        }
+        return o;
+    }
+
+    private static void CollectAxoObjectFiles(File folder, ArrayList<File> files) {
+        File[] entries = folder.listFiles();
+        if (entries == null) {
+            return;
+        }
+        for (File fileEntry : entries) {
+            if (fileEntry.isDirectory()) {
+                CollectAxoObjectFiles(fileEntry, files);
+            } else if (fileEntry.getName().endsWith(".axo")) {
+                files.add(fileEntry);
+            }
+        }
+    }
+
+    /* Parses all .axo files below folder in parallel, taking unchanged ones from the library index */
+    private Map<File, AxoObjectFile> ParseAxoObjectFiles(File folder) {
+        long t0 = System.currentTimeMillis();
+        AxoObjectLibraryIndex index = AxoObjectLibraryIndex.load(folder);
+        ArrayList<File> files = new ArrayList<File>();
+        CollectAxoObjectFiles(folder, files);
+        ConcurrentHashMap<File, AxoObjectFile> parsed = new ConcurrentHashMap<File, AxoObjectFile>(files.size() * 2);
+        try {
+            loaderPool.submit(() -> files.parallelStream().forEach(f -> {
+                AxoObjectFile o = index.get(f);
+                if (o == null) {
+                    o = ReadAxoObjectFile(f);
+                    if (o != null) {
+                        index.put(f, o);
+                    }
+                }
+                if (o != null) {
+                    parsed.put(f, o);
+                }
+            })).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "Error while parsing objects in " + folder.getAbsolutePath() + ": " + ex.getCause());
+            ex.printStackTrace(System.out);
+        }
+        index.save();
+        LOGGER.log(Level.INFO, "Read " + files.size() + " object files in " + (System.currentTimeMillis() - t0) + " ms ("
+                + (index.getMisses() == 0 ? "warm" : (index.getHits() == 0 ? "cold" : "partly warm")) + " index: "
+                + index.getHits() + " unchanged, " + index.getMisses() + " parsed)");
+        return parsed;
+    }
+
     public void LoadAxoObjects(String path) {
         File folder = new File(path);
         if (folder.isDirectory()) {
-            AxoObjectTreeNode t = LoadAxoObjectsFromFolder(folder, "");
+            LoadBatch batch = new LoadBatch(ParseAxoObjectFiles(folder), new ArrayList<AxoObjectAbstract>(ObjectList), new HashMap<String, AxoObjectAbstract>(ObjectUUIDMap));
+            AxoObjectTreeNode t = LoadAxoObjectsFromFolder(folder, "", batch);
+            AxoObjectTreeNode tree = new AxoObjectTreeNode("/");
+            tree.SubNodes.putAll(ObjectTree.SubNodes);
             if (t.Objects.size() > 0 || t.SubNodes.size() > 0) {
                 String dirname = folder.getName();
-                if (!ObjectTree.SubNodes.containsKey(dirname)) {
-                    ObjectTree.SubNodes.put(dirname, t);
+                if (!tree.SubNodes.containsKey(dirname)) {
+                    tree.SubNodes.put(dirname, t);
                 } else {
                     // it should be noted, here , we never see this name...
                     // it just needs to be unique, so not to overwirte the map
@@ -344,42 +509,72 @@ public void LoadAxoObjects(String path) {
                         LOGGER.log(Level.SEVERE, "Error trying to get parent folder of: " + folder + ", " + ex.getMessage());
                         ex.printStackTrace(System.out);
                     }
-                    if (!ObjectTree.SubNodes.containsKey(pname)) {
-                        ObjectTree.SubNodes.put(pname, t);
+                    if (!tree.SubNodes.containsKey(pname)) {
+                        tree.SubNodes.put(pname, t);
                     } else {
                         // hmm, lets use the orig name with number
                         int i = 1;
                         dirname = folder.getName() + "#" + i;
-                        while (ObjectTree.SubNodes.containsKey(dirname)) {
+                        while (tree.SubNodes.containsKey(dirname)) {
                             i++;
                             dirname = folder.getName() + "#" + i;
                         }
-                        ObjectTree.SubNodes.put(dirname, t);
+                        tree.SubNodes.put(dirname, t);
                     }
                 }
             }
+
+            HashMap<String, ArrayList<AxoObjectAbstract>> idMap = new HashMap<String, ArrayList<AxoObjectAbstract>>(batch.objectList.size() * 2);
+            for (AxoObjectAbstract o : batch.objectList) {
+                ArrayList<AxoObjectAbstract> objs = idMap.computeIfAbsent(o.id, k -> new ArrayList<AxoObjectAbstract>(1));
+                if (!objs.contains(o)) {
+                    objs.add(o);
+                }
+            }
+            synchronized (this) {
+                ObjectTree = tree;
+                ObjectList = batch.objectList;
+                ObjectUUIDMap = batch.uuidMap;
+                ObjectIDMap = idMap;
+                notifyAll();
+            }
         }
     }
 
     public void LoadAxoObjects() {
+        synchronized (this) {
+            loading = true;
+            ObjectTree = new AxoObjectTreeNode("/");
+            ObjectList = new ArrayList<AxoObjectAbstract>();
+            ObjectUUIDMap = new HashMap<String, AxoObjectAbstract>();
+            ObjectIDMap = new HashMap<String, ArrayList<AxoObjectAbstract>>();
+        }
+        probeCache.clear();
         Runnable objloader = new Runnable() {
             @Override
             public void run() {
                 LOGGER.log(Level.INFO, "Loading objects...");
-                ObjectTree = new AxoObjectTreeNode("/");
-                ObjectList = new ArrayList<AxoObjectAbstract>();
-                ObjectUUIDMap = new HashMap<String, AxoObjectAbstract>();
-                String spath[] = Preferences.getInstance().getObjectSearchPath();
-                if (spath != null) {
-                    for (String path : spath) {
-                        LOGGER.log(Level.INFO, "Object path: " + path);
-                        LoadAxoObjects(path);
+                long t0 = System.currentTimeMillis();
+                try {
+                    String spath[] = Preferences.getInstance().getObjectSearchPath();
+                    if (spath != null) {
+                        for (String path : spath) {
+                            LOGGER.log(Level.INFO, "Object path: " + path);
+                            LoadAxoObjects(path);
+                        }
+                    }
+                    else {
+                        LOGGER.log(Level.SEVERE, "Object path empty!\n");
                     }
                 }
-                else {
-                    LOGGER.log(Level.SEVERE, "Object path empty!\n");
+                finally {
+                    synchronized (AxoObjects.this) {
+                        loading = false;
+                        AxoObjects.this.notifyAll();
+                    }
                 }
-                LOGGER.log(Level.INFO, "Done loading objects.\n");
+                LOGGER.log(Level.INFO, "Done loading " + ObjectList.size() + " objects in " + (System.currentTimeMillis() - t0) + " ms.\n");
+                getSearchIndex(); /* Build it now rather than on the first keystroke in the object finder */
             }
         };
         LoaderThread = new Thread(objloader);
@@ -387,6 +582,81 @@ public void run() {
         LoaderThread.start();
     }
 
+    public synchronized boolean isLoaded() {
+        return !loading;
+    }
+
+    /* Blocks until all search paths are loaded */
+    public synchronized void awaitLoaded() throws InterruptedException {
+        while (loading) {
+            wait();
+        }
+    }
+
+    /*
+     * True once every object id or UUID in keys is available, or loading has
+     * finished. Objects resolve the same as after a full load then, since
+     * search paths are published in order.
+     */
+    public synchronized boolean isLoaded(Collection<String> keys) {
+        if (!loading) {
+            return true;
+        }
+        for (String k : keys) {
+            if (!ObjectIDMap.containsKey(k) && !ObjectUUIDMap.containsKey(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Blocks until isLoaded(keys) */
+    public synchronized void awaitObjects(Collection<String> keys) throws InterruptedException {
+        while (!isLoaded(keys)) {
+            wait();
+        }
+    }
+
+    /* Library object ids and UUIDs referenced by the objects of a deserialized patch */
+    public static Set<String> getReferencedObjects(Patch patch) {
+        HashSet<String> keys = new HashSet<String>();
+        for (AxoObjectInstanceAbstract o : patch.objectInstances) {
+            if (!(o instanceof AxoObjectInstance) || o instanceof AxoObjectInstancePatcher || o instanceof AxoObjectInstancePatcherObject) {
+                continue; /* Comments, hyperlinks and embedded objects are not library objects */
+            }
+            if (o.typeName != null && !o.typeName.startsWith("./") && !o.typeName.startsWith("../")) {
+                keys.add(o.typeName);
+            }
+            if (o.typeUUID != null) {
+                keys.add(o.typeUUID);
+            }
+        }
+        return keys;
+    }
+
+    /* Library object ids and UUIDs referenced by the objects of a patch file, without parsing it */
+    public static Set<String> getReferencedObjects(File patchFile) {
+        HashSet<String> keys = new HashSet<String>();
+        try {
+            String xml = new String(Files.readAllBytes(patchFile.toPath()), StandardCharsets.UTF_8);
+            Matcher m = OBJ_ELEMENT_PATTERN.matcher(xml);
+            while (m.find()) {
+                String element = m.group();
+                Matcher type = TYPE_ATTRIBUTE_PATTERN.matcher(element);
+                if (type.find() && !type.group(1).startsWith("./") && !type.group(1).startsWith("../")) {
+                    keys.add(type.group(1));
+                }
+                Matcher uuid = UUID_ATTRIBUTE_PATTERN.matcher(element);
+                if (uuid.find()) {
+                    keys.add(uuid.group(1));
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not scan patch for objects: " + patchFile.getAbsolutePath() + ", " + ex.getMessage());
+        }
+        return keys;
+    }
+
     public static String ConvertToLegalFilename(String s) {
         if (s == null) {
             return null;
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+package axoloti.object;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * A code tab split once at the names an instance substitutes, such as
+ * attr_*, inlet_* or CGENATTR_instancename, so each instance fills in its
+ * values in a single pass instead of scanning the code once per name.
+ *
+ * Filling gives the same text as replacing the names one after the other,
+ * the first regexSlots ones with String.replaceAll() and the others with
+ * String.replace(). Where that is not a plain substitution, because names
+ * overlap in the code or a value could form a name replaced after it,
+ * fill() does the replacements one after the other instead.
+ *
+ * @author Ksoloti
+ */
+public class CodeTemplate {
+
+    private static final Pattern PLAIN_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+    private final String source;
+    private final String text;
+    private final String[] names;
+    private final int regexSlots;
+
+    /* text split at the names: literals[i], value of slots[i], ..., literals[slots.length] */
+    private final String[] literals;
+    private final int[] slots;
+    private final int[] uses;
+    private final boolean plain;
+
+    /* Whether a name could run into slot i from the code before or after it */
+    private final boolean[] openBefore;
+    private final boolean[] openAfter;
+
+    /* source is the code tab as stored in the object, text the code to fill in, derived from it */
+    public static CodeTemplate compile(String source, String text, String[] names, int regexSlots) {
+        return new CodeTemplate(source, text, names.clone(), regexSlots);
+    }
+
+    private CodeTemplate(String source, String text, String[] names, int regexSlots) {
+        this.source = source;
+        this.text = text;
+        this.names = names;
+        this.regexSlots = regexSlots;
+        this.uses = new int[names.length];
+
+        ArrayList<String> lits = new ArrayList<String>();
+        ArrayList<Integer> sl = new ArrayList<Integer>();
+        boolean plain = isPlain(names);
+        if (plain) {
+            /* Where String.replace() finds each name: start, name */
+            ArrayList<int[]> found = new ArrayList<int[]>();
+            for (int n = 0; n < names.length; n++) {
+                for (int p = text.indexOf(names[n]); p >= 0; p = text.indexOf(names[n], p + names[n].length())) {
+                    found.add(new int[]{p, n});
+                }
+            }
+            found.sort((a, b) -> Integer.compare(a[0], b[0]));
+            int pos = 0;
+            for (int[] f : found) {
+                if (f[0] < pos) {
+                    /* Two names overlap here, which one is replaced depends on the order */
+                    plain = false;
+                    break;
+                }
+                lits.add(text.substring(pos, f[0]));
+                sl.add(f[1]);
+                uses[f[1]]++;
+                pos = f[0] + names[f[1]].length();
+            }
+            lits.add(text.substring(pos));
+        }
+        if (!plain) {
+            lits.clear();
+            sl.clear();
+            Arrays.fill(uses, 0);
+        }
+        this.plain = plain;
+        this.literals = lits.toArray(new String[0]);
+        this.slots = new int[sl.size()];
+        this.openBefore = new boolean[slots.length];
+        this.openAfter = new boolean[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = sl.get(i);
+            String left = literals[i];
+            String right = literals[i + 1];
+            /* Next to another slot the outcome depends on its value, so stay open */
+            openBefore[i] = left.isEmpty() ? i > 0 : isNameChar(left.charAt(left.length() - 1));
+            openAfter[i] = right.isEmpty() ? i < slots.length - 1 : isNameChar(right.charAt(0));
+        }
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /* Names that are plain identifiers, so replaceAll() matches them literally */
+    private static boolean isPlain(String[] names) {
+        for (String a : names) {
+            if (a == null || !PLAIN_NAME.matcher(a).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Whether fill() substitutes in one pass, as long as the values do not form names */
+    public boolean isPlain() {
+        return plain;
+    }
+
+    private boolean containsLaterName(int n, String value) {
+        for (int m = n + 1; m < names.length; m++) {
+            if (value.contains(names[m])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Whether a name replaced after slot n would match across the value of occurrence i and the code around it */
+    private boolean formsLaterName(int i, int n, String value) {
+        /* Names are made of name characters only, so they can only cross an edge between two of them */
+        boolean before = openBefore[i] && (value.isEmpty() || isNameChar(value.charAt(0)));
+        boolean after = openAfter[i] && (value.isEmpty() || isNameChar(value.charAt(value.length() - 1)));
+        if (value.isEmpty() ? !(before && after) : !(before || after)) {
+            return false;
+        }
+        String left = literals[i];
+        String right = literals[i + 1];
+        for (int m = n + 1; m < names.length; m++) {
+            String name = names[m];
+            int len = name.length();
+            /* name starting at p relative to the value and crossing one of its edges */
+            for (int p = 1 - len; p < value.length(); p++) {
+                if (p >= 0 && p + len <= value.length()) {
+                    p = value.length() - len; /* Inside the value, checked in fill() */
+                    continue;
+                }
+                int vs = Math.max(p, 0);
+                int ve = Math.min(p + len, value.length());
+                if (!value.regionMatches(vs, name, vs - p, ve - vs)) {
+                    continue;
+                }
+                if (p < 0) {
+                    int need = -p;
+                    if (left.length() < need) {
+                        if (i == 0) {
+                            continue; /* Start of the code */
+                        }
+                        return true; /* Would reach into the slot before, play safe */
+                    }
+                    if (!left.regionMatches(left.length() - need, name, 0, need)) {
+                        continue;
+                    }
+                }
+                if (p + len > value.length()) {
+                    int need = p + len - value.length();
+                    if (right.length() < need) {
+                        if (i == slots.length - 1) {
+                            continue; /* End of the code */
+                        }
+                        return true;
+                    }
+                    if (!right.regionMatches(0, name, len - need, need)) {
+                        continue;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Whether this template was compiled from the given code tab and names */
+    public boolean matches(String source, String[] names) {
+        return this.source.equals(source) && Arrays.equals(this.names, names);
+    }
+
+    public String fill(String[] values) {
+        if (!plain) {
+            return replaceSequentially(values);
+        }
+        String[] v = new String[values.length];
+        int length = text.length();
+        for (int n = 0; n < names.length; n++) {
+            if (uses[n] == 0) {
+                continue;
+            }
+            if (values[n] == null) {
+                return replaceSequentially(values);
+            }
+            v[n] = values[n];
+            if (n < regexSlots && (v[n].indexOf('$') >= 0 || v[n].indexOf('\\') >= 0)) {
+                try {
+                    /* What replaceAll() makes of group references and escapes */
+                    v[n] = Pattern.compile(names[n]).matcher(names[n]).replaceFirst(v[n]);
+                }
+                catch (RuntimeException e) {
+                    return replaceSequentially(values);
+                }
+            }
+            if (containsLaterName(n, v[n])) {
+                return replaceSequentially(values);
+            }
+            length += uses[n] * (v[n].length() - names[n].length());
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < slots.length; i++) {
+            if (formsLaterName(i, slots[i], v[slots[i]])) {
+                return replaceSequentially(values);
+            }
+            sb.append(literals[i]).append(v[slots[i]]);
+        }
+        sb.append(literals[slots.length]);
+        return sb.toString();
+    }
+
+    private String replaceSequentially(String[] values) {
+        String s = text;
+        for (int n = 0; n < names.length; n++) {
+            if (n < regexSlots) {
+                s = s.replaceAll(names[n], values[n]);
+            }
+            else {
+                s = s.replace(names[n], values[n]);
+            }
+        }
+        return s;
+    }
+}
@@ -28,6 +28,8 @@
  */
 public class OutletBool32 extends Outlet {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletBool32() {
         super();
     }
@@ -27,6 +27,8 @@
  */
 public class OutletBool32Pulse extends OutletBool32 {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletBool32Pulse() {
         super();
     }
@@ -28,6 +28,8 @@
  */
 public class OutletCharPtr32 extends Outlet {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletCharPtr32() {
         super();
     }
@@ -28,6 +28,8 @@
  */
 public class OutletFrac32 extends Outlet {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32() {
         super();
     }
@@ -27,6 +27,8 @@
  */
 public class OutletFrac32Bipolar extends OutletFrac32 {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32Bipolar() {
         super();
     }
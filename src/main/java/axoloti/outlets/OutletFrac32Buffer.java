@@ -28,6 +28,8 @@
  */
 public class OutletFrac32Buffer extends Outlet {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32Buffer() {
         super();
     }
@@ -27,6 +27,8 @@
  */
 public class OutletFrac32BufferBipolar extends OutletFrac32Buffer {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32BufferBipolar() {
         super();
     }
@@ -27,6 +27,8 @@
  */
 public class OutletFrac32BufferPos extends OutletFrac32Buffer {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32BufferPos() {
         super();
     }
@@ -27,6 +27,8 @@
  */
 public class OutletFrac32Pos extends OutletFrac32 {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletFrac32Pos() {
         super();
     }
@@ -28,6 +28,8 @@
  */
 public class OutletInt32 extends Outlet {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletInt32() {
         super();
     }
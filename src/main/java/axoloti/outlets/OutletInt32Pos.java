@@ -27,6 +27,8 @@
  */
 public class OutletInt32Pos extends OutletInt32 {
 
+    private static final long serialVersionUID = 1L;
+
     public OutletInt32Pos() {
         super();
     }
@@ -25,6 +25,7 @@
 import static axoloti.utils.CharEscape.charEscape;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,7 +40,9 @@
  *
  * @author Johannes Taelman
  */
-public abstract class Parameter<T extends ParameterInstance> implements AtomDefinition, Cloneable {
+public abstract class Parameter<T extends ParameterInstance> implements AtomDefinition, Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     public String name;
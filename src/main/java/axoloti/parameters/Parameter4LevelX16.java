@@ -25,6 +25,8 @@
  */
 public class Parameter4LevelX16 extends Parameter<ParameterInstance4LevelX16> {
 
+    private static final long serialVersionUID = 1L;
+
     public Parameter4LevelX16() {
     }
 
@@ -27,6 +27,8 @@
  */
 public class ParameterBin1 extends Parameter<ParameterInstanceBin1> {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterBin1() {
     }
 
@@ -25,6 +25,8 @@
  */
 public class ParameterBin12 extends Parameter {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterBin12() {
     }
 
@@ -27,6 +27,8 @@
  */
 public class ParameterBin1Momentary extends Parameter {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterBin1Momentary() {
     }
 
@@ -0,0 +1,55 @@
+package axoloti.parameters;
+
+import java.util.BitSet;
+
+/**
+ * Set of parameter indices (see {@link ParameterInstance#getIndex()}) that
+ * changed on the GUI side and still need to be sent to the Core.
+ * Marking wakes up a thread parked in {@link #await(long)}, draining hands
+ * out the marked indices and empties the set.
+ *
+ * @author Ksoloti
+ */
+public class ParameterDirtySet {
+
+    private final BitSet dirty = new BitSet();
+    private boolean signalled = false; /* Pending work that is not tied to a parameter index, e.g. preset data */
+
+    public synchronized void mark(int index) {
+        if (index < 0) {
+            return;
+        }
+        dirty.set(index);
+        notifyAll();
+    }
+
+    public synchronized void signal() {
+        signalled = true;
+        notifyAll();
+    }
+
+    public synchronized boolean isEmpty() {
+        return dirty.isEmpty() && !signalled;
+    }
+
+    /* Parks until something is marked or signalled, or the timeout expires.
+       Returns true if there is pending work. */
+    public synchronized boolean await(long timeoutMs) throws InterruptedException {
+        if (isEmpty()) {
+            wait(timeoutMs);
+        }
+        return !isEmpty();
+    }
+
+    public synchronized int[] drain() {
+        int[] indices = dirty.stream().toArray();
+        dirty.clear();
+        signalled = false;
+        return indices;
+    }
+
+    public synchronized void clear() {
+        dirty.clear();
+        signalled = false;
+    }
+}
@@ -29,6 +29,8 @@
  */
 public abstract class ParameterFrac32<T extends ParameterInstanceFrac32> extends Parameter<T> {
 
+    private static final long serialVersionUID = 1L;
+
     @Element(required = false)
     public ValueFrac32 DefaultValue;
 
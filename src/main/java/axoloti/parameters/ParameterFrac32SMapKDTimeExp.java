@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32SMapKDTimeExp extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapKDTimeExp() {
         super();
     }
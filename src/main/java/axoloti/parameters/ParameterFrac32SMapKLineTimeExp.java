@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32SMapKLineTimeExp extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapKLineTimeExp() {
         super();
     }
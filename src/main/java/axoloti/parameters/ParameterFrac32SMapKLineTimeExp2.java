@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32SMapKLineTimeExp2 extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapKLineTimeExp2() {
         super();
     }
@@ -29,6 +29,8 @@
  */
 public class ParameterFrac32SMapKPitch extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapKPitch() {
         super();
     }
@@ -31,6 +31,8 @@
  */
 public class ParameterFrac32SMapLFOPitch extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapLFOPitch() {
         super();
     }
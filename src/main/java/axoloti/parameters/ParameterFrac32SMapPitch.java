@@ -30,6 +30,8 @@
  */
 public class ParameterFrac32SMapPitch extends ParameterFrac32SMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32SMapPitch() {
         super();
     }
@@ -29,6 +29,8 @@
  */
 public class ParameterFrac32UMap extends ParameterFrac32 {
 
+    private static final long serialVersionUID = 1L;
+
     @Deprecated
     @Element(required = false)
     ValueFrac32 MinValue;
@@ -30,6 +30,8 @@
  */
 public class ParameterFrac32UMapGain extends ParameterFrac32UMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32UMapGain() {
         super();
     }
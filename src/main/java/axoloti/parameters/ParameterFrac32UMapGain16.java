@@ -29,6 +29,8 @@
  */
 public class ParameterFrac32UMapGain16 extends ParameterFrac32UMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32UMapGain16() {
         super();
     }
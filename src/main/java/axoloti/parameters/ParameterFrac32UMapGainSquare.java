@@ -31,6 +31,8 @@
  */
 public class ParameterFrac32UMapGainSquare extends ParameterFrac32UMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32UMapGainSquare() {
         super();
     }
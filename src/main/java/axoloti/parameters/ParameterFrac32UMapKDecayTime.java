@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32UMapKDecayTime extends ParameterFrac32UMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32UMapKDecayTime() {
         super();
     }
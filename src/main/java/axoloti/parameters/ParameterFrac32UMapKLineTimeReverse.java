@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32UMapKLineTimeReverse extends ParameterFrac32UMap {
 
+    private static final long serialVersionUID = 1L;
+
     public ParameterFrac32UMapKLineTimeReverse() {
         super();
     }
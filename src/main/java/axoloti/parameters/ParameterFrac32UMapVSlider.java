@@ -28,6 +28,8 @@
  */
 public class ParameterFrac32UMapVSlider extends ParameterFrac32 {
 
+    private static final long serialVersionUID = 1L;
+
     @Element
     ValueFrac32 MinValue;
     @Element
@@ -246,6 +246,9 @@ public boolean GetNeedsTransmit() {
     
     public void SetNeedsTransmit(boolean needs) {
         this.needsTransmit = needs;
+        if (needs && (axoObj != null) && (axoObj.getPatch() != null) && !isFrozen()) {
+            axoObj.getPatch().MarkParameterDirty(index);
+        }
     }
     
     public void ClearNeedsTransmit() {
@@ -96,7 +96,7 @@ public void applyDefaultValue() {
             value.setRaw(0);
         }
         updateV();
-        needsTransmit = true;
+        SetNeedsTransmit(true);
     }
 
     @Override
@@ -212,7 +212,7 @@ public boolean handleAdjustment() {
         } else {
             if (value.getDouble() != getControlComponent().getValue()) {
                 value.setDouble(getControlComponent().getValue());
-                needsTransmit = true;
+                SetNeedsTransmit(true);
                 UpdateUnit();
             } else {
                 return false;
@@ -98,7 +98,7 @@ public boolean handleAdjustment() {
         } else {
             if (value.getInt() != (int) getControlComponent().getValue()) {
                 value.setInt((int) getControlComponent().getValue());
-                needsTransmit = true;
+                SetNeedsTransmit(true);
                 UpdateUnit();
             }
             else {
@@ -30,6 +30,8 @@
  */
 public class ParameterInt32Box extends Parameter<ParameterInstanceInt32Box> {
 
+    private static final long serialVersionUID = 1L;
+
     @Element
     public ValueInt32 MinValue;
     @Element
@@ -30,6 +30,8 @@
  */
 public class ParameterInt32BoxSmall extends Parameter<ParameterInstanceInt32BoxSmall> {
 
+    private static final long serialVersionUID = 1L;
+
     @Element
     public ValueInt32 MinValue;
     @Element
@@ -30,6 +30,8 @@
  */
 public class ParameterInt32HRadio extends Parameter<ParameterInstanceInt32HRadio> {
 
+    private static final long serialVersionUID = 1L;
+
     @Element
     public ValueInt32 MaxValue;
 
@@ -30,6 +30,8 @@
  */
 public class ParameterInt32VRadio extends Parameter<ParameterInstanceInt32VRadio> {
 
+    private static final long serialVersionUID = 1L;
+
     @Element
     public ValueInt32 MaxValue;
 
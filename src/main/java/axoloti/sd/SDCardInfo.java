@@ -21,16 +21,27 @@
 
 import static axoloti.MainFrame.mainframe;
 
-import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
 
 /**
+ * Local model of the files on the SD card. Files are indexed by their
+ * lowercase path (FAT names are case insensitive) and by parent directory,
+ * so lookups do not scan the card. Directory paths end with a slash.
+ *
+ * Changes made while a listing is received are published to the file
+ * manager once, when the listing ends.
  *
  * @author jtaelman
  */
@@ -38,7 +49,16 @@ public class SDCardInfo {
 
     // private static final Logger LOGGER = Logger.getLogger(SDCardInfo.class.getName());
 
-    private final ArrayList<SDFileInfo> files = new ArrayList<SDFileInfo>();
+    /* Lowercase path -> file, in the order the card listed them */
+    private final LinkedHashMap<String, SDFileInfo> files = new LinkedHashMap<String, SDFileInfo>();
+    /* Lowercase directory path -> lowercase path of child -> child */
+    private final HashMap<String, LinkedHashMap<String, SDFileInfo>> children = new HashMap<String, LinkedHashMap<String, SDFileInfo>>();
+
+    private int updateDepth = 0;
+    private boolean changed = false;
+    private final AtomicBoolean publishPending = new AtomicBoolean(false);
+    /* Paths seen while listing a single directory, null if no such listing is in progress */
+    private HashSet<String> listingSeen;
     private AxoSDFileNode rootNode;
     private Map<String, AxoSDFileNode> pathToNodeMap;
     private List<DisplayTreeNode> sortedDisplayNodes;
@@ -78,6 +98,7 @@ public synchronized void SetInfo(int clusters, int clustersize, int sectorsize)
         this.clustersize = clustersize;
         this.sectorsize = sectorsize;
         files.clear();
+        children.clear();
         sortedDisplayNodes = null;
         // System.out.println(Instant.now() + " [DEBUG] SDCardInfo.SetInfo(): clusters=" + this.clusters + " clustersize=" + this.clustersize + " sectorsize=" + this.sectorsize);
     }
@@ -106,7 +127,7 @@ private void buildTreeNodes(List<SDFileInfo> currentLevelFiles, int currentDepth
         }
     }
 
-    public void buildFileTree() {
+    public synchronized void buildFileTree() {
         pathToNodeMap = new HashMap<>();
         sortedDisplayNodes = new ArrayList<>();
 
@@ -114,33 +135,28 @@ public void buildFileTree() {
         SDFileInfo rootInfo = new SDFileInfo("/", Calendar.getInstance(), 0, true);
         rootNode = new AxoSDFileNode(rootInfo);
         pathToNodeMap.put("/", rootNode);
-
-        Collections.sort(files, Comparator.comparingInt(f -> f.getFilename().length()));
-
-        for (SDFileInfo file : files) {
-            String fullPath = file.getFilename();
-            if (fullPath.equals("/")) { /* Skip if is root */
-                continue;
-            }
-
-            String parentPath = getParentPath(fullPath);
-            AxoSDFileNode parentNode = pathToNodeMap.get(parentPath);
-
-            if (parentNode == null) {
-                System.err.println(Instant.now() + " Warning: Parent node not found for: " + fullPath + " (parent: " + parentPath + ")");
-                continue;
-            }
-
-            AxoSDFileNode currentNode = new AxoSDFileNode(file);
-            parentNode.addChild(currentNode);
-            pathToNodeMap.put(fullPath, currentNode);
-        }
+        addChildNodes(rootNode, "/");
 
         /* After building the raw tree, sort children within each node */
         sortTreeChildren(rootNode, new AxoSDFileComparator());
         traverseTreeForDisplay(rootNode, 0, new ArrayList<>(), sortedDisplayNodes);
     }
 
+    private void addChildNodes(AxoSDFileNode parentNode, String dirKey) {
+        Map<String, SDFileInfo> dirChildren = children.get(dirKey);
+        if (dirChildren == null) {
+            return;
+        }
+        for (Map.Entry<String, SDFileInfo> e : dirChildren.entrySet()) {
+            AxoSDFileNode currentNode = new AxoSDFileNode(e.getValue());
+            parentNode.addChild(currentNode);
+            pathToNodeMap.put(e.getValue().getFilename(), currentNode);
+            if (e.getValue().isDirectory()) {
+                addChildNodes(currentNode, e.getKey());
+            }
+        }
+    }
+
     private boolean isLastChildInParentList(AxoSDFileNode childNode, AxoSDFileNode parentNode) {
         if (parentNode == null || parentNode.getChildren() == null || parentNode.getChildren().isEmpty()) {
             return true; /* If no children or no parent, it is the 'last' (or the only) */
@@ -243,29 +259,19 @@ public synchronized List<DisplayTreeNode> getSortedDisplayNodes() {
         if (sortedDisplayNodes == null) {
             // System.out.println(Instant.now() + " SDCardInfo: Rebuilding sortedDisplayNodes. Current files size: " + files.size());
 
-            Map<String, SDFileInfo> fileMap = new HashMap<>();
-            for (SDFileInfo file : files) {
-                fileMap.put(file.getFilename(), file);
-            }
-
             Map<String, List<SDFileInfo>> childrenMap = new HashMap<>();
             childrenMap.put("/", new ArrayList<>());
-
-            for (SDFileInfo file : files) {
-                String parentPath = getParentPath(file.getFilename());
-                if (parentPath != null) {
-                    childrenMap.computeIfAbsent(parentPath, k -> new ArrayList<>()).add(file);
-                }
-            }
-
-            /* Sort children within each directory */
-            for (List<SDFileInfo> childList : childrenMap.values()) {
+            for (Map.Entry<String, LinkedHashMap<String, SDFileInfo>> e : children.entrySet()) {
+                ArrayList<SDFileInfo> childList = new ArrayList<>(e.getValue().values());
+                /* Directories first, then alphabetically */
                 Collections.sort(childList, (f1, f2) -> {
-                    /* Directories first, then alphabetically */
                     if (f1.isDirectory() && !f2.isDirectory()) return -1;
                     if (!f1.isDirectory() && f2.isDirectory()) return 1;
                     return f1.getFilename().compareToIgnoreCase(f2.getFilename());
                 });
+                /* Keyed by the directory's path as listed, which buildTreeNodes() looks up */
+                SDFileInfo dir = files.get(e.getKey());
+                childrenMap.put(dir != null ? dir.getFilename() : "/", childList);
             }
 
             List<SDFileInfo> rootLevelSDFileInfos = childrenMap.getOrDefault("/", Collections.emptyList());
@@ -317,49 +323,156 @@ public synchronized void AddFile(String fname, int size, Calendar date) {
             /* Ignore root entry */
             return;
         }
+        if (!fname.startsWith("/")) {
+            fname = "/" + fname;
+        }
 
-        SDFileInfo sdf = null;
-        for (SDFileInfo f : files) {
-            if (f.getFilename().equalsIgnoreCase(fname)) {
-                // already present
-                sdf = f;
-            }
+        String k = key(fname);
+        if (listingSeen != null) {
+            listingSeen.add(k);
         }
 
+        SDFileInfo sdf = files.get(k);
         if (sdf != null) {
-            /* Create a new SDFileInfo object with updated data */
-            SDFileInfo updatedSdf = new SDFileInfo(sdf.getFilename(), date, size, sdf.isDirectory());
+            /* Already present: create a new SDFileInfo object with updated data, keeping its place */
+            put(k, new SDFileInfo(sdf.getFilename(), date, size, sdf.isDirectory()));
+        }
+        else {
+            boolean isDirectory = fname.endsWith("/");
+            // System.out.println(Instant.now() + " SDCardInfo.AddFile(), fname=" + fname + " size=" + size + " date=" + date.getTime().toString() + " isDirectory=" + isDirectory);
+            put(k, new SDFileInfo(fname, date, size, isDirectory));
+        }
+        fileListChanged();
+    }
 
-            int index = files.indexOf(sdf);
-            if (index != -1) {
-                files.set(index, updatedSdf); /* Replace old with the new object */
+    private static String key(String path) {
+        return path.toLowerCase(Locale.ROOT);
+    }
+
+    private void put(String k, SDFileInfo sdf) {
+        files.put(k, sdf);
+        String parent = getParentPath(sdf.getFilename());
+        if (parent != null) {
+            children.computeIfAbsent(key(parent), p -> new LinkedHashMap<String, SDFileInfo>()).put(k, sdf);
+        }
+    }
+
+    private void removeRecursive(String k) {
+        SDFileInfo f = files.remove(k);
+        if (f == null) {
+            return;
+        }
+        String parent = getParentPath(f.getFilename());
+        if (parent != null) {
+            Map<String, SDFileInfo> siblings = children.get(key(parent));
+            if (siblings != null) {
+                siblings.remove(k);
             }
-            sortedDisplayNodes = null; /* Invalidate cache */
-            mainframe.getFilemanager().getAxoSDFileTableModel().setData(sortedDisplayNodes);
+        }
+        Map<String, SDFileInfo> dirChildren = children.remove(k);
+        if (dirChildren != null) {
+            for (String child : new ArrayList<String>(dirChildren.keySet())) {
+                removeRecursive(child);
+            }
+        }
+    }
+
+    /* Entry of a file, or of a directory with or without trailing slash */
+    private SDFileInfo lookup(String name) {
+        if (!name.startsWith("/")) {
+            name = "/" + name;
+        }
+        SDFileInfo f = files.get(key(name));
+        if (f == null && !name.endsWith("/")) {
+            f = files.get(key(name + "/"));
+        }
+        return f;
+    }
+
+    private void fileListChanged() {
+        sortedDisplayNodes = null; /* Invalidate cache */
+        if (updateDepth > 0) {
+            changed = true;
+        }
+        else {
+            publish();
+        }
+    }
+
+    /* Updates the file manager table once for any number of changes made until the EDT gets to it */
+    private void publish() {
+        if (mainframe == null || mainframe.getFilemanager() == null || !publishPending.compareAndSet(false, true)) {
             return;
         }
+        SwingUtilities.invokeLater(() -> {
+            publishPending.set(false);
+            mainframe.getFilemanager().getAxoSDFileTableModel().setData(getSortedDisplayNodes());
+        });
+    }
 
-        boolean isDirectory = fname.endsWith("/");
-        sdf = new SDFileInfo(fname, date, size, isDirectory);
-        // System.out.println(Instant.now() + " SDCardInfo.AddFile(), fname=" + fname + " size=" + size + " date=" + date.getTime().toString() + " isDirectory=" + isDirectory);
+    /* Defers publishing changes until the matching endUpdate(), e.g. while a file list is received */
+    public synchronized void beginUpdate() {
+        updateDepth++;
+    }
 
-        files.add(sdf);
-        sortedDisplayNodes = null;
-        mainframe.getFilemanager().getAxoSDFileTableModel().setData(sortedDisplayNodes);
+    public synchronized void endUpdate() {
+        if (updateDepth > 0) {
+            updateDepth--;
+        }
+        if (updateDepth == 0 && changed) {
+            changed = false;
+            publish();
+        }
     }
 
-    public synchronized void Delete(String fname) {
-        SDFileInfo f1 = null;
-        for (SDFileInfo f : files) {
-            if (f.getFilename().equalsIgnoreCase(fname)
-                    || f.getFilename().equalsIgnoreCase(fname + "/")) {
-                f1 = f;
-                break;
+    /* Starts receiving the listing of one directory, see SCmdGetDirectoryListing */
+    public synchronized void beginDirectoryListing(String dir) {
+        beginUpdate();
+        listingSeen = new HashSet<String>();
+        /* Make sure the directory and its parents are in the tree */
+        String path = "";
+        for (String component : dir.split("/")) {
+            if (!component.isEmpty()) {
+                path += "/" + component;
+                if (lookup(path) == null) {
+                    put(key(path + "/"), new SDFileInfo(path + "/", true));
+                    changed = true;
+                }
             }
         }
+    }
+
+    /* Ends the listing of dir: on success, entries below dir that were not listed are gone */
+    public synchronized void endDirectoryListing(String dir, int statusCode) {
+        String dirKey = key(dir.endsWith("/") ? dir : dir + "/");
+        if (dirKey.equals("//")) {
+            dirKey = "/";
+        }
+        if (statusCode == 0 && listingSeen != null) {
+            Map<String, SDFileInfo> dirChildren = children.get(dirKey);
+            if (dirChildren != null) {
+                for (String child : new ArrayList<String>(dirChildren.keySet())) {
+                    if (!listingSeen.contains(child)) {
+                        removeRecursive(child);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        else if ((statusCode == 4 || statusCode == 5) && !dirKey.equals("/")) { /* FR_NO_FILE, FR_NO_PATH */
+            removeRecursive(dirKey);
+            changed = true;
+        }
+        listingSeen = null;
+        sortedDisplayNodes = null;
+        endUpdate();
+    }
+
+    public synchronized void Delete(String fname) {
+        SDFileInfo f1 = lookup(fname);
         if (f1 != null) {
             // System.out.println(Instant.now() + " SDCardInfo.Delete(), fname=" + fname);
-            files.remove(f1);
+            removeRecursive(key(f1.getFilename()));
             sortedDisplayNodes = null;
         }
     }
@@ -367,31 +480,28 @@ public synchronized void Delete(String fname) {
     public synchronized void clear() {
         // System.out.println(Instant.now() + " SDCardInfo.clear(), cleared file list.");
         files.clear();
+        children.clear();
         sortedDisplayNodes = null;
     }
 
     public synchronized SDFileInfo find(String name) {
-        if (!name.startsWith("/")) {
-            name = "/" + name;
-        }
-        for (SDFileInfo f : files) {
-            if (f.getFilename().equalsIgnoreCase(name)) {
-                return f;
-            }
-        }
-        return null;
+        return lookup(name);
+    }
+
+    /* Direct children of directory dir ("/" for the root), as listed */
+    public synchronized List<SDFileInfo> getChildren(String dir) {
+        SDFileInfo d = lookup(dir);
+        String dirKey = (d != null) ? key(d.getFilename()) : "/";
+        Map<String, SDFileInfo> dirChildren = children.get(dirKey);
+        return (dirChildren != null) ? new ArrayList<SDFileInfo>(dirChildren.values()) : new ArrayList<SDFileInfo>();
     }
 
     public synchronized boolean exists(String name, long timestampEpoch, long size) {
         if (!name.startsWith("/")) {
             name = "/" + name;
         }
-        for (SDFileInfo f : files) {
-            if (f.getFilename().equalsIgnoreCase(name) && f.getSize() == size && (Math.abs(f.getTimestamp().getTimeInMillis() - timestampEpoch) < 3000)) {
-                return true;
-            }
-        }
-        return false;
+        SDFileInfo f = files.get(key(name));
+        return f != null && f.getSize() == size && f.getTimestamp() != null && (Math.abs(f.getTimestamp().getTimeInMillis() - timestampEpoch) < 3000);
     }
 
     public static String getFatFsErrorString(int error_code) {
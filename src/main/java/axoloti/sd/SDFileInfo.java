@@ -59,7 +59,7 @@ public int getSize() {
         return size;
     }
 
-    public static String getHumanReadableSize(int size) {
+    public static String getHumanReadableSize(long size) {
         long kilo = 1024;
         long mega = 1024 * 1024;
         if (size < kilo) {
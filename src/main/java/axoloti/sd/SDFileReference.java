@@ -20,6 +20,7 @@
 package axoloti.sd;
 
 import java.io.File;
+import java.io.Serializable;
 import java.nio.file.Path;
 import org.simpleframework.xml.Attribute;
 import org.simpleframework.xml.core.Persist;
@@ -28,7 +29,9 @@
  *
  * @author jtaelman
  */
-public class SDFileReference {
+public class SDFileReference implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     @Attribute
     public String localFilename;
@@ -0,0 +1,405 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.sd;
+
+import axoloti.Axoloti;
+import axoloti.USBBulkConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import qcmds.CommandManager;
+import qcmds.SCmd;
+import qcmds.SCmdCreateDirectory;
+import qcmds.SCmdGetDirectoryListing;
+import qcmds.SCmdUploadFile;
+
+/**
+ * Uploads local files to the SD card, skipping those whose content is
+ * already there. Whether a file is on the card is decided by its SHA-256
+ * hash and the SDSyncManifest of the connected Core, not by timestamps,
+ * which do not survive a change of computer or time zone.
+ *
+ * Syncing is done in two steps: plan() compares the files against the
+ * current SDCardInfo listing and can be shown to the user, execute()
+ * performs the uploads. Both block, so call them off the EDT, after
+ * refreshing the listing with listDirectories().
+ *
+ * @author Ksoloti
+ */
+public class SDSync {
+
+    private static final Logger LOGGER = Logger.getLogger(SDSync.class.getName());
+
+    /* Hashes of local files by absolute path, valid while modification time and size are unchanged */
+    private static class LocalHash {
+        final long lastModified;
+        final long length;
+        final String hash;
+
+        LocalHash(long lastModified, long length, String hash) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, LocalHash> localHashes = new ConcurrentHashMap<String, LocalHash>();
+
+    public static class Action {
+        public final File localFile;
+        public final String sdPath;
+        public final String hash;
+        public final boolean upload;
+        public final String reason;
+
+        Action(File localFile, String sdPath, String hash, boolean upload, String reason) {
+            this.localFile = localFile;
+            this.sdPath = sdPath;
+            this.hash = hash;
+            this.upload = upload;
+            this.reason = reason;
+        }
+    }
+
+    public static class Plan {
+        private final ArrayList<Action> actions = new ArrayList<Action>();
+        private final LinkedHashSet<String> directories = new LinkedHashSet<String>();
+
+        public List<Action> getActions() {
+            return actions;
+        }
+
+        /* Directories to create before uploading, parents first */
+        public List<String> getDirectoriesToCreate() {
+            return new ArrayList<String>(directories);
+        }
+
+        public int getFilesToUpload() {
+            int n = 0;
+            for (Action a : actions) {
+                if (a.upload) {
+                    n++;
+                }
+            }
+            return n;
+        }
+
+        public int getFilesToSkip() {
+            return actions.size() - getFilesToUpload();
+        }
+
+        public long getBytesToSend() {
+            long n = 0;
+            for (Action a : actions) {
+                if (a.upload) {
+                    n += a.localFile.length();
+                }
+            }
+            return n;
+        }
+
+        public long getBytesSkipped() {
+            long n = 0;
+            for (Action a : actions) {
+                if (!a.upload) {
+                    n += a.localFile.length();
+                }
+            }
+            return n;
+        }
+
+        public String getSummary() {
+            return getFilesToUpload() + " file(s) to upload (" + SDFileInfo.getHumanReadableSize(getBytesToSend())
+                    + "), " + getFilesToSkip() + " unchanged file(s) skipped (" + SDFileInfo.getHumanReadableSize(getBytesSkipped()) + ")";
+        }
+    }
+
+    private final SDSyncManifest manifest;
+
+    public SDSync(SDSyncManifest manifest) {
+        this.manifest = manifest;
+    }
+
+    /*
+     * Sync engine for the card in the connected Core. The manifest is the
+     * only record of what is on the card, so it is kept in the home folder
+     * next to ksoloti.prefs rather than under build/, which gets cleaned.
+     */
+    public static SDSync forConnectedCore() {
+        String cpuId = USBBulkConnection.getInstance().getDetectedCpuId();
+        String name = "sdsync-" + (cpuId != null ? cpuId : "unknown") + ".manifest";
+        File f = new File(System.getProperty(Axoloti.HOME_DIR) + File.separator + "sdsync" + File.separator + name);
+        if (!f.isFile()) {
+            /* Written by an earlier version, moves to f on the next save */
+            File legacy = new File(System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + File.separator + "cache"
+                    + File.separator + name);
+            if (legacy.isFile()) {
+                SDSyncManifest m = SDSyncManifest.load(legacy);
+                return new SDSync(m.copyTo(f));
+            }
+        }
+        return new SDSync(SDSyncManifest.load(f));
+    }
+
+    public SDSyncManifest getManifest() {
+        return manifest;
+    }
+
+    public static String hash(File f) throws IOException {
+        String path = f.getAbsolutePath();
+        long lastModified = f.lastModified();
+        long length = f.length();
+        LocalHash cached = localHashes.get(path);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.hash;
+        }
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = new FileInputStream(f)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                md.update(buffer, 0, n);
+            }
+        }
+        StringBuilder sb = new StringBuilder(64);
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        String hash = sb.toString();
+        localHashes.put(path, new LocalHash(lastModified, length, hash));
+        return hash;
+    }
+
+    /* Lists the directories the SD paths are in, and their parents, rather than the whole card. Returns false if a listing failed. */
+    public static boolean listDirectories(Collection<String> sdPaths) {
+        LinkedHashSet<String> dirs = new LinkedHashSet<String>();
+        dirs.add("/");
+        for (String sdPath : sdPaths) {
+            String dir = "";
+            String[] components = sdPath.split("/");
+            for (int i = 0; i < components.length - 1; i++) {
+                if (!components[i].isEmpty()) {
+                    dir += "/" + components[i];
+                    dirs.add(dir);
+                }
+            }
+        }
+        try {
+            for (String dir : dirs) {
+                /* No need to ask for the contents of a directory its parent listing did not show */
+                if (!dir.equals("/") && SDCardInfo.getInstance().find(dir) == null) {
+                    continue;
+                }
+                CommandManager.getInstance().startLongOperation();
+                SCmdGetDirectoryListing listCmd = new SCmdGetDirectoryListing(dir);
+                listCmd.Do();
+                CommandManager.getInstance().endLongOperation();
+                if (!listCmd.waitForCompletion() || (!listCmd.isSuccessful() && SDCardInfo.getInstance().find(dir) != null)) {
+                    return false;
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Thread interrupted while listing SD card directories.", e);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    /* Compares files (SD path -> local file) against the current SDCardInfo listing */
+    public Plan plan(Map<String, File> files) {
+        Plan plan = new Plan();
+        SDCardInfo card = SDCardInfo.getInstance();
+        for (Map.Entry<String, File> fe : files.entrySet()) {
+            String sdPath = fe.getKey().startsWith("/") ? fe.getKey() : "/" + fe.getKey();
+            File f = fe.getValue();
+
+            String hash;
+            try {
+                hash = hash(f);
+            }
+            catch (IOException ex) {
+                LOGGER.log(Level.SEVERE, "Cannot read file " + f.getName() + ": " + ex.getMessage());
+                continue;
+            }
+
+            int slash = sdPath.lastIndexOf('/');
+            String dir = "";
+            for (String component : sdPath.substring(0, Math.max(slash, 0)).split("/")) {
+                if (!component.isEmpty()) {
+                    dir += "/" + component;
+                    if (card.find(dir) == null) {
+                        plan.directories.add(dir);
+                    }
+                }
+            }
+
+            SDFileInfo onCard = card.find(sdPath);
+            SDSyncManifest.Entry e = manifest.getValid(sdPath, onCard);
+            if (e != null) {
+                if (e.hash.equals(hash)) {
+                    plan.actions.add(new Action(f, sdPath, hash, false, "content unchanged"));
+                }
+                else {
+                    plan.actions.add(new Action(f, sdPath, hash, true, "content changed"));
+                }
+            }
+            else if (onCard == null) {
+                plan.actions.add(new Action(f, sdPath, hash, true, "not on card"));
+            }
+            else if (card.exists(sdPath, f.lastModified(), f.length())) {
+                /* Not synced before, but uploaded from here by an earlier version: adopt it */
+                plan.actions.add(new Action(f, sdPath, hash, false, "matches timestamp and size"));
+            }
+            else {
+                plan.actions.add(new Action(f, sdPath, hash, true, "differs from card"));
+            }
+        }
+        return plan;
+    }
+
+    /* Performs plan, returns false if a directory or file could not be created */
+    public boolean execute(Plan plan) {
+        boolean success = true;
+        try {
+            for (String dir : plan.getDirectoriesToCreate()) {
+                if (SDCardInfo.getInstance().find(dir) != null) {
+                    continue;
+                }
+                LOGGER.log(Level.INFO, "Creating directory: " + dir);
+                CommandManager.getInstance().startLongOperation();
+                SCmdCreateDirectory createDirCmd = new SCmdCreateDirectory(dir, Calendar.getInstance());
+                createDirCmd.Do();
+                CommandManager.getInstance().endLongOperation();
+                if (!createDirCmd.waitForCompletion() || !createDirCmd.isSuccessful()) {
+                    return false;
+                }
+            }
+
+            /* Queue all uploads at once, they run back to back without a round trip through this thread */
+            LinkedHashMap<Action, CompletableFuture<SCmd>> uploads = new LinkedHashMap<Action, CompletableFuture<SCmd>>();
+            for (Action a : plan.getActions()) {
+                if (!a.upload) {
+                    SDFileInfo onCard = SDCardInfo.getInstance().find(a.sdPath);
+                    if (manifest.getValid(a.sdPath, onCard) == null && onCard != null) {
+                        manifest.put(a.sdPath, new SDSyncManifest.Entry(a.hash, onCard.getSize(), SDSyncManifest.fatTime(onCard.getTimestamp())));
+                    }
+                    LOGGER.log(Level.INFO, "File " + a.localFile.getName() + " is up to date (" + a.reason + "), skipping upload.");
+                    continue;
+                }
+                uploads.put(a, new SCmdUploadFile(a.localFile, a.sdPath).DoAsync());
+            }
+
+            for (Map.Entry<Action, CompletableFuture<SCmd>> u : uploads.entrySet()) {
+                String sdPath = u.getKey().sdPath;
+                if (!u.getValue().join().isSuccessful()) {
+                    manifest.remove(sdPath);
+                    success = false;
+                    continue;
+                }
+                SDFileInfo onCard = SDCardInfo.getInstance().find(sdPath);
+                if (onCard != null && onCard.getTimestamp() != null) {
+                    manifest.put(sdPath, new SDSyncManifest.Entry(u.getKey().hash, onCard.getSize(), SDSyncManifest.fatTime(onCard.getTimestamp())));
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Thread interrupted while syncing files.", e);
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        finally {
+            writeManifest();
+        }
+        return success;
+    }
+
+    private void writeManifest() {
+        if (!manifest.isModified()) {
+            return;
+        }
+        try {
+            byte[] text = manifest.toText().getBytes(StandardCharsets.UTF_8);
+            CommandManager.getInstance().startLongOperation();
+            SCmdUploadFile uploadFileCmd = new SCmdUploadFile(new ByteArrayInputStream(text), SDSyncManifest.MANIFEST_PATH);
+            uploadFileCmd.Do();
+            CommandManager.getInstance().endLongOperation();
+            if (!uploadFileCmd.waitForCompletion() || !uploadFileCmd.isSuccessful()) {
+                LOGGER.log(Level.WARNING, "Could not write SD sync manifest to card.");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        manifest.save();
+    }
+
+    /* All files below local folder by their SD path, the same relative path below sdFolder */
+    public static Map<String, File> collectFolder(File folder, String sdFolder) {
+        LinkedHashMap<String, File> files = new LinkedHashMap<String, File>();
+        String base = sdFolder.endsWith("/") ? sdFolder : sdFolder + "/";
+        collectFolder(folder, base, files);
+        return files;
+    }
+
+    private static void collectFolder(File dir, String sdDir, Map<String, File> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        Arrays.sort(children);
+        for (File c : children) {
+            if (c.isHidden() || c.getName().startsWith(".")) {
+                continue;
+            }
+            if (c.isDirectory()) {
+                collectFolder(c, sdDir + c.getName() + "/", files);
+            }
+            else if (c.canRead()) {
+                files.put(sdDir + c.getName(), c);
+            }
+        }
+    }
+}
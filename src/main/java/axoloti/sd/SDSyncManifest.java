@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.sd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Content hashes of the files uploaded to one SD card, by SD path. Each
+ * entry also holds the size and FAT timestamp the card reported for the
+ * file right after it was uploaded: as long as the card still lists the
+ * file with that size and timestamp, its content is the hashed content.
+ *
+ * The Core cannot send files back, so the manifest is kept in a local
+ * file, one per Core, which has to outlive build caches. A copy is written to the card as MANIFEST_PATH in
+ * the same text format, one "hash size fattime path" line per file.
+ *
+ * @author Ksoloti
+ */
+public class SDSyncManifest {
+
+    private static final Logger LOGGER = Logger.getLogger(SDSyncManifest.class.getName());
+
+    public static final String MANIFEST_PATH = "/.sdsync";
+
+    public static class Entry {
+        public final String hash;
+        public final long size;
+        public final int fatTime;
+
+        public Entry(String hash, long size, int fatTime) {
+            this.hash = hash;
+            this.size = size;
+            this.fatTime = fatTime;
+        }
+    }
+
+    private final File file;
+    /* Lowercase SD path -> entry, FAT names are case insensitive */
+    private final TreeMap<String, Entry> entries = new TreeMap<String, Entry>();
+    private final TreeMap<String, String> paths = new TreeMap<String, String>();
+    private boolean modified;
+
+    public SDSyncManifest(File file) {
+        this.file = file;
+    }
+
+    /* Reads the manifest from file, or starts an empty one if there is none or it cannot be read */
+    public static SDSyncManifest load(File file) {
+        SDSyncManifest m = new SDSyncManifest(file);
+        if (file == null || !file.isFile()) {
+            return m;
+        }
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                String[] fields = line.split(" ", 4);
+                if (fields.length != 4) {
+                    continue;
+                }
+                try {
+                    m.put(fields[3], new Entry(fields[0], Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+                }
+                catch (NumberFormatException ex) {
+                    LOGGER.log(Level.FINE, "Skipping malformed manifest line: " + line);
+                }
+            }
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not read SD sync manifest " + file.getName() + ": " + ex.getMessage());
+            m.entries.clear();
+            m.paths.clear();
+        }
+        m.modified = false;
+        return m;
+    }
+
+    /* The same entries, to be saved to file instead */
+    public synchronized SDSyncManifest copyTo(File file) {
+        SDSyncManifest m = new SDSyncManifest(file);
+        m.entries.putAll(entries);
+        m.paths.putAll(paths);
+        m.modified = !entries.isEmpty();
+        return m;
+    }
+
+    private static String key(String sdPath) {
+        return (sdPath.startsWith("/") ? sdPath : "/" + sdPath).toLowerCase(Locale.ROOT);
+    }
+
+    /* FAT directory entry time of c: date and time at two second resolution, as stored on the card */
+    public static int fatTime(Calendar c) {
+        return ((c.get(Calendar.YEAR) - 1980) << 25) | ((c.get(Calendar.MONTH) + 1) << 21) | (c.get(Calendar.DAY_OF_MONTH) << 16)
+                | (c.get(Calendar.HOUR_OF_DAY) << 11) | (c.get(Calendar.MINUTE) << 5) | (c.get(Calendar.SECOND) / 2);
+    }
+
+    public synchronized Entry get(String sdPath) {
+        return entries.get(key(sdPath));
+    }
+
+    public synchronized void put(String sdPath, Entry e) {
+        String k = key(sdPath);
+        entries.put(k, e);
+        paths.put(k, sdPath.startsWith("/") ? sdPath : "/" + sdPath);
+        modified = true;
+    }
+
+    public synchronized void remove(String sdPath) {
+        String k = key(sdPath);
+        if (entries.remove(k) != null) {
+            paths.remove(k);
+            modified = true;
+        }
+    }
+
+    /* The entry of sdPath if the card still lists the file as it was when the entry was made, otherwise null */
+    public synchronized Entry getValid(String sdPath, SDFileInfo onCard) {
+        Entry e = get(sdPath);
+        if (e == null || onCard == null || onCard.isDirectory() || onCard.getTimestamp() == null) {
+            return null;
+        }
+        if (onCard.getSize() != e.size || fatTime(onCard.getTimestamp()) != e.fatTime) {
+            return null;
+        }
+        return e;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isModified() {
+        return modified;
+    }
+
+    public synchronized String toText() {
+        StringBuilder sb = new StringBuilder(entries.size() * 96);
+        for (Map.Entry<String, Entry> me : entries.entrySet()) {
+            Entry e = me.getValue();
+            sb.append(e.hash).append(' ').append(e.size).append(' ').append(e.fatTime).append(' ').append(paths.get(me.getKey())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized void save() {
+        if (file == null || !modified) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+            try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                w.write(toText());
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Could not write SD sync manifest " + file.getName() + ": " + ex.getMessage());
+            tmp.delete();
+        }
+    }
+}
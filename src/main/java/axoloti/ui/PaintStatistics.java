@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.ui;
+
+import java.util.Locale;
+
+/**
+ * Paint rate and paint time of a patch canvas, plus how many patch cords
+ * were drawn or skipped for lying outside the repainted area. Only touched
+ * from the event dispatch thread.
+ *
+ * @author Ksoloti
+ */
+public class PaintStatistics {
+
+    private long windowStart = System.nanoTime();
+    private int frames;
+    private long totalNanos;
+    private long maxNanos;
+    private int wiresDrawn;
+    private int wiresSkipped;
+
+    public void frame(long nanos) {
+        frames++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    public void wireDrawn() {
+        wiresDrawn++;
+    }
+
+    public void wireSkipped() {
+        wiresSkipped++;
+    }
+
+    /* Summary of the paints since the previous call, then starts a new window */
+    public String getSummaryAndReset() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-3, (now - windowStart) / 1e9);
+        String s;
+        if (frames == 0) {
+            s = "0 fps";
+        }
+        else {
+            s = String.format(Locale.ROOT, "%.0f fps, paint %.1f ms avg, %.1f ms max, cords %d drawn, %d skipped",
+                    frames / seconds, totalNanos / 1e6 / frames, maxNanos / 1e6, wiresDrawn, wiresSkipped);
+        }
+        windowStart = now;
+        frames = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        wiresDrawn = 0;
+        wiresSkipped = 0;
+        return s;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.usb;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed set of direct buffers handed back and forth between the USB
+ * Receiver thread and the ByteProcessor thread. The Receiver fills a free
+ * buffer straight from libusb and submits it, the ByteProcessor parses it
+ * and releases it again. Nothing is allocated after construction unless
+ * reset() has to replace buffers that were never released.
+ *
+ * When every buffer is waiting to be parsed the Receiver blocks, so a slow
+ * consumer throttles the IN endpoint instead of growing the heap.
+ *
+ * @author Ksoloti
+ */
+public class ReceiveBufferRing {
+
+    private final int count;
+    private final int bufferSize;
+    private final ArrayBlockingQueue<ByteBuffer> free;
+    private final ArrayBlockingQueue<ByteBuffer> filled;
+    private final AtomicLong allocationCount = new AtomicLong();
+
+    public ReceiveBufferRing(int count, int bufferSize) {
+        this.count = count;
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<ByteBuffer>(count);
+        this.filled = new ArrayBlockingQueue<ByteBuffer>(count);
+        for (int i = 0; i < count; i++) {
+            free.add(allocate());
+        }
+    }
+
+    private ByteBuffer allocate() {
+        allocationCount.incrementAndGet();
+        return ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /* Producer side: returns a cleared buffer, or null if none became free within the timeout */
+    public ByteBuffer acquire(long timeoutMs) throws InterruptedException {
+        ByteBuffer b = free.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (b != null) {
+            b.clear();
+        }
+        return b;
+    }
+
+    /* Producer side: hands a buffer, flipped to its valid bytes, to the consumer */
+    public void submit(ByteBuffer b) {
+        if (!filled.offer(b)) {
+            release(b); /* Can only happen for a buffer left over from before reset() */
+        }
+    }
+
+    /* Consumer side: blocks until a filled buffer is available */
+    public ByteBuffer take() throws InterruptedException {
+        return filled.take();
+    }
+
+    /* Either side: returns a buffer to the free list */
+    public void release(ByteBuffer b) {
+        if (b != null) {
+            free.offer(b); /* Surplus buffers are dropped, keeping the footprint bounded */
+        }
+    }
+
+    /* Discards unparsed data and restores the full set of free buffers. Call while neither thread runs. */
+    public void reset() {
+        ByteBuffer b;
+        while ((b = filled.poll()) != null) {
+            free.offer(b);
+        }
+        while (free.size() < count) {
+            free.offer(allocate());
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getFreeCount() {
+        return free.size();
+    }
+
+    public long getAllocationCount() {
+        return allocationCount.get();
+    }
+}
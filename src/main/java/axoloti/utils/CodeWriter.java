@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Append-only sink for generated C++ code. The patch code generator emits
+ * every fragment into one of these instead of concatenating Strings, so
+ * generating a translation unit is linear in its size. The code is kept in
+ * memory, or passed straight on to an Appendable such as a file Writer.
+ *
+ * Placeholders such as attr_poly can be registered with substitute(). They
+ * are resolved while a fragment is appended, so the finished code needs no
+ * further replace passes. A placeholder must not be split across two
+ * append() calls, which the generator never does.
+ *
+ * @author Ksoloti
+ */
+public class CodeWriter {
+
+    private static final String PLACEHOLDER_PREFIX = "attr_";
+
+    private final Appendable out;
+    private final StringBuilder sb; /* Null when streaming */
+    private long length = 0;
+    private String[] placeholders = new String[0];
+    private String[] values = new String[0];
+
+    public CodeWriter() {
+        this(16 * 1024);
+    }
+
+    public CodeWriter(int initialCapacity) {
+        sb = new StringBuilder(initialCapacity);
+        out = sb;
+    }
+
+    /* Streams the code to out. Write errors are thrown as UncheckedIOException. */
+    public CodeWriter(Appendable out) {
+        this.sb = null;
+        this.out = out;
+    }
+
+    /* Resolve placeholder to value in everything appended from now on. Placeholders start with "attr_". */
+    public CodeWriter substitute(String placeholder, String value) {
+        if (!placeholder.startsWith(PLACEHOLDER_PREFIX)) {
+            throw new IllegalArgumentException("Placeholder must start with " + PLACEHOLDER_PREFIX + ": " + placeholder);
+        }
+        int n = placeholders.length;
+        String[] p = new String[n + 1];
+        String[] v = new String[n + 1];
+        System.arraycopy(placeholders, 0, p, 0, n);
+        System.arraycopy(values, 0, v, 0, n);
+        p[n] = placeholder;
+        v[n] = value;
+        placeholders = p;
+        values = v;
+        return this;
+    }
+
+    public CodeWriter append(String s) {
+        try {
+            if (placeholders.length == 0) {
+                out.append(s);
+                length += s.length();
+                return this;
+            }
+            int start = 0;
+            int i = s.indexOf(PLACEHOLDER_PREFIX);
+            while (i >= 0) {
+                int k = matchPlaceholder(s, i);
+                if (k >= 0) {
+                    out.append(s, start, i).append(values[k]);
+                    length += i - start + values[k].length();
+                    start = i + placeholders[k].length();
+                    i = s.indexOf(PLACEHOLDER_PREFIX, start);
+                }
+                else {
+                    i = s.indexOf(PLACEHOLDER_PREFIX, i + 1);
+                }
+            }
+            out.append(s, start, s.length());
+            length += s.length() - start;
+        }
+        catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return this;
+    }
+
+    private int matchPlaceholder(String s, int offset) {
+        for (int k = 0; k < placeholders.length; k++) {
+            if (s.startsWith(placeholders[k], offset)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /* Characters written so far */
+    public long length() {
+        return length;
+    }
+
+    /* The code written so far, unless it was streamed */
+    @Override
+    public String toString() {
+        if (sb == null) {
+            throw new IllegalStateException("Code was streamed to " + out.getClass().getSimpleName());
+        }
+        return sb.toString();
+    }
+}
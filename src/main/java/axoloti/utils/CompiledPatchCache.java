@@ -0,0 +1,440 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.utils;
+
+import axoloti.Axoloti;
+import axoloti.Version;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import qcmds.QCmdCompilePatch;
+
+/**
+ * On-disk cache of compiled patch binaries under build/cache, shared by all
+ * patches and kept across sessions. Going live with, or uploading to SD, a
+ * patch whose generated code was built before skips GCC altogether.
+ *
+ * Entries are keyed by a SHA-256 over the generated code, leaving out the
+ * header comment (file path, timestamp) and the randomly chosen patch ID,
+ * plus everything else that changes what the code is built against: the
+ * firmware ID, the firmware mode and compile defines, and the path, size
+ * and modification time of the firmware headers, make files and linker
+ * scripts and of the headers next to each file the patch includes. An
+ * entry stores the .bin, the optional .bin_sram3 and the patch ID that is
+ * baked into them.
+ *
+ * The cache is bounded to MAX_CACHE_BYTES and evicts least recently used
+ * entries first. Recency is kept in the entry directory's modification time
+ * so it survives restarts.
+ *
+ * @author Ksoloti
+ */
+public class CompiledPatchCache {
+
+    private static final Logger LOGGER = Logger.getLogger(CompiledPatchCache.class.getName());
+
+    private static final long MAX_CACHE_BYTES = 32L * 1024 * 1024;
+
+    private static final Pattern PATCHID_PATTERN = Pattern.compile("patchMeta\\.patchID = (-?\\d+);");
+    private static final String PATCHID_PLACEHOLDER = "patchMeta.patchID = 0;";
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("^#include \"([^\"]+)\"", Pattern.MULTILINE);
+
+    private static final String BIN_NAME = "xpatch.bin";
+    private static final String BIN_SRAM3_NAME = "xpatch.bin_sram3";
+    private static final String IID_NAME = "patchid";
+
+    /* hash -> entry size in bytes, in access order (eldest first). Loaded from disk on first use. */
+    private static LinkedHashMap<String, Long> index = null;
+    private static long totalBytes = 0;
+    private static int hits = 0;
+    private static int misses = 0;
+
+    private CompiledPatchCache() {
+    }
+
+    public static File getCacheDir() {
+        return new File(System.getProperty(Axoloti.LIBRARIES_DIR) + File.separator + "build" + File.separator + "cache");
+    }
+
+    private static File getEntryDir(String hash) {
+        return new File(getCacheDir(), hash);
+    }
+
+    /* Returns the hex SHA-256 of everything that determines the binary built from this source */
+    public static String hashSource(String code) {
+        return new SourceHash(null).append(code).finish();
+    }
+
+    /*
+     * Computes hashSource() of code appended piece by piece, while passing it
+     * on unchanged to out, if not null. The patch ID assignment and each
+     * #include line must arrive within one piece, as the code generator
+     * emits them. Errors writing to out are thrown as UncheckedIOException.
+     */
+    public static class SourceHash implements Appendable {
+
+        private final Appendable out;
+        private final MessageDigest md;
+        private final ArrayList<String> includes = new ArrayList<String>();
+        private int headerState = 0; /* 0: nothing seen yet, 1: in the header comment, 2: in the body */
+        private boolean headerStarEnd = false; /* The header comment so far ends in '*' */
+        private boolean patchIDSeen = false;
+
+        public SourceHash(Appendable out) {
+            this.out = out;
+            this.md = newDigest();
+        }
+
+        @Override
+        public SourceHash append(CharSequence csq) {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public SourceHash append(char c) {
+            return append(String.valueOf(c));
+        }
+
+        @Override
+        public SourceHash append(CharSequence csq, int start, int end) {
+            if (out != null) {
+                try {
+                    out.append(csq, start, end);
+                }
+                catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            if (md != null && start < end) {
+                update(csq.subSequence(start, end).toString());
+            }
+            return this;
+        }
+
+        private void update(String piece) {
+            int from = 0;
+            if (headerState == 0) {
+                headerState = piece.startsWith("/*") ? 1 : 2;
+                from = (headerState == 1) ? 2 : 0;
+            }
+            if (headerState == 1) {
+                /* Left out up to its end, which may be split across pieces */
+                if (headerStarEnd && piece.charAt(0) == '/') {
+                    from = 1;
+                }
+                else {
+                    int end = piece.indexOf("*/", from);
+                    if (end < 0) {
+                        headerStarEnd = piece.length() > from && piece.charAt(piece.length() - 1) == '*';
+                        return;
+                    }
+                    from = end + 2;
+                }
+                headerState = 2;
+            }
+            String body = piece.substring(from);
+            if (!patchIDSeen && body.contains("patchMeta.patchID")) {
+                Matcher m = PATCHID_PATTERN.matcher(body);
+                if (m.find()) {
+                    body = m.replaceFirst(PATCHID_PLACEHOLDER);
+                    patchIDSeen = true;
+                }
+            }
+            if (body.contains("#include")) {
+                Matcher m = INCLUDE_PATTERN.matcher(body);
+                while (m.find()) {
+                    includes.add(m.group(1));
+                }
+            }
+            md.update(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /* The hash of everything appended, null if SHA-256 is not available */
+        public String finish() {
+            if (md == null) {
+                return null;
+            }
+            updateBuildInputs(md, includes);
+            StringBuilder sb = new StringBuilder(64);
+            for (byte b : md.digest()) {
+                sb.append(String.format("%02x", b & 0xFF));
+            }
+            return sb.toString();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(Version.AXOLOTI_VERSION.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(FirmwareID.getFirmwareID().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(Preferences.getInstance().getFirmwareMode().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(QCmdCompilePatch.GetCompileDefines().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            return md;
+        }
+        catch (NoSuchAlgorithmException ex) {
+            LOGGER.log(Level.SEVERE, "SHA-256 not available: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /* Stamps the files the source is compiled against, which the generated code does not show */
+    private static void updateBuildInputs(MessageDigest md, List<String> includes) {
+        ArrayList<File> files = new ArrayList<File>();
+        String fwdir = System.getProperty(Axoloti.FIRMWARE_DIR);
+        if (fwdir != null) {
+            collectBuildInputs(new File(fwdir), true, files);
+        }
+        /* Included files, and the headers they may include in turn from their folder */
+        for (String include : includes) {
+            File inc = new File(include);
+            if (inc.isAbsolute()) {
+                files.add(inc);
+                File dir = inc.getParentFile();
+                if (dir != null) {
+                    collectBuildInputs(dir, false, files);
+                }
+            }
+        }
+        for (File f : files) {
+            md.update((f.getPath() + "|" + f.length() + "|" + f.lastModified()).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+    }
+
+    private static void collectBuildInputs(File dir, boolean recursive, ArrayList<File> files) {
+        File[] list = dir.listFiles();
+        if (list == null) {
+            return;
+        }
+        Arrays.sort(list); /* Same order on every call */
+        for (File f : list) {
+            if (f.isDirectory()) {
+                if (recursive && !f.getName().equals("build")) {
+                    collectBuildInputs(f, true, files);
+                }
+                continue;
+            }
+            String n = f.getName();
+            if (n.endsWith(".h") || n.endsWith(".hpp") || n.endsWith(".mk") || n.endsWith(".ld")) {
+                files.add(f);
+            }
+        }
+    }
+
+    /* Puts patchID into the generated source in place of the one chosen at generation time */
+    public static String withPatchID(String code, int patchID) {
+        return PATCHID_PATTERN.matcher(code).replaceFirst(Matcher.quoteReplacement("patchMeta.patchID = " + patchID + ";"));
+    }
+
+    /* Same as withPatchID(), on the generated source file */
+    public static void writePatchID(File cpp, int patchID) throws IOException {
+        Charset cs = Charset.defaultCharset(); /* As written by FileWriter */
+        String code = new String(Files.readAllBytes(cpp.toPath()), cs);
+        Files.write(cpp.toPath(), withPatchID(code, patchID).getBytes(cs));
+    }
+
+    private static void loadIndex() {
+        if (index != null) {
+            return;
+        }
+        index = new LinkedHashMap<String, Long>(64, 0.75f, true);
+        totalBytes = 0;
+        File[] dirs = getCacheDir().listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        Arrays.sort(dirs, Comparator.comparingLong(File::lastModified)); /* Oldest first */
+        for (File dir : dirs) {
+            long size = entrySize(dir);
+            if (size > 0 && new File(dir, IID_NAME).isFile()) {
+                index.put(dir.getName(), size);
+                totalBytes += size;
+            }
+            else {
+                removeDir(dir); /* Incomplete entry, e.g. interrupted store */
+            }
+        }
+    }
+
+    private static long entrySize(File dir) {
+        long size = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                size += f.length();
+            }
+        }
+        return size;
+    }
+
+    /* Returns the patch ID baked into the cached binary, or null if there is no usable entry */
+    public static synchronized Integer lookup(String hash) {
+        if (hash == null) {
+            return null;
+        }
+        loadIndex();
+        Integer patchID = null;
+        if (index.get(hash) != null) { /* get() marks the entry most recently used */
+            File dir = getEntryDir(hash);
+            try {
+                if (new File(dir, BIN_NAME).isFile()) {
+                    patchID = Integer.valueOf(new String(Files.readAllBytes(new File(dir, IID_NAME).toPath()), StandardCharsets.US_ASCII).trim());
+                    dir.setLastModified(System.currentTimeMillis()); /* Persist recency */
+                }
+            }
+            catch (IOException | NumberFormatException ex) {
+                patchID = null;
+            }
+            if (patchID == null) {
+                remove(hash);
+            }
+        }
+        if (patchID != null) {
+            hits++;
+        }
+        else {
+            misses++;
+        }
+        return patchID;
+    }
+
+    /* Copies the cached binaries to where a fresh build would have put them */
+    public static synchronized boolean restore(String hash, File binFile, File binFileSram3) {
+        File dir = getEntryDir(hash);
+        try {
+            Files.copy(new File(dir, BIN_NAME).toPath(), binFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            File sram3 = new File(dir, BIN_SRAM3_NAME);
+            if (sram3.isFile()) {
+                Files.copy(sram3.toPath(), binFileSram3.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            else {
+                Files.deleteIfExists(binFileSram3.toPath());
+            }
+            return true;
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to restore cached patch binary: " + ex.getMessage());
+            remove(hash);
+            return false;
+        }
+    }
+
+    /* Records a fresh build and evicts least recently used entries beyond the size limit */
+    public static synchronized void store(String hash, int patchID, File binFile, File binFileSram3) {
+        if (hash == null || !binFile.isFile()) {
+            return;
+        }
+        loadIndex();
+        remove(hash);
+
+        File dir = getEntryDir(hash);
+        try {
+            Files.createDirectories(dir.toPath());
+            Files.copy(binFile.toPath(), new File(dir, BIN_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (binFileSram3.isFile()) {
+                Files.copy(binFileSram3.toPath(), new File(dir, BIN_SRAM3_NAME).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            /* Written last: an entry without patch ID is never used */
+            Files.write(new File(dir, IID_NAME).toPath(), Integer.toString(patchID).getBytes(StandardCharsets.US_ASCII));
+        }
+        catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to cache patch binary: " + ex.getMessage());
+            removeDir(dir);
+            return;
+        }
+
+        long size = entrySize(dir);
+        index.put(hash, size);
+        totalBytes += size;
+
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > MAX_CACHE_BYTES && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            if (eldest.getKey().equals(hash)) {
+                break; /* Never evict the entry just stored */
+            }
+            removeDir(getEntryDir(eldest.getKey()));
+            totalBytes -= eldest.getValue();
+            it.remove();
+        }
+    }
+
+    public static synchronized void remove(String hash) {
+        if (index != null) {
+            Long size = index.remove(hash);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        }
+        removeDir(getEntryDir(hash));
+    }
+
+    /* Drops all cached binaries, e.g. when the firmware mode changes */
+    public static synchronized void clear() {
+        loadIndex();
+        for (String hash : index.keySet()) {
+            removeDir(getEntryDir(hash));
+        }
+        index.clear();
+        totalBytes = 0;
+    }
+
+    private static void removeDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /* e.g. "3 hits, 1 miss, 12 entries, 410 kB" */
+    public static synchronized String getStatistics() {
+        loadIndex();
+        return hits + (hits == 1 ? " hit, " : " hits, ")
+            + misses + (misses == 1 ? " miss, " : " misses, ")
+            + index.size() + (index.size() == 1 ? " entry, " : " entries, ")
+            + (totalBytes / 1024) + " kB";
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Execution order of nodes 0..count-1, as Patch.SortByExecution has always
+ * computed it: starting from the end points, in position order, each node
+ * moves its parents, sorted by position, to the front of the result, one
+ * after the other, so they end up in reverse position order. Then it walks
+ * the parents that were not in the result before, depth first. The end
+ * points follow at the end.
+ *
+ * A node is only walked once, as it stays in the result once added, so
+ * the walk is linear in the number of nodes and edges: the result is a
+ * linked list over node indices and "in the result before" is answered
+ * from the time each node was first added.
+ *
+ * Nodes that do not lead to an end point, i.e. that only feed a feedback
+ * loop, are not reached by the walk. They go before the end points, by
+ * position.
+ *
+ * @author Ksoloti
+ */
+public class ExecutionOrder {
+
+    private static class Frame {
+        final int[] parents;
+        final int start;
+        int next;
+
+        Frame(int[] parents, int start) {
+            this.parents = parents;
+            this.start = start;
+        }
+    }
+
+    private final int[][] parents;
+    private final Comparator<Integer> position;
+    /* The result as a linked list, -1 terminated */
+    private final int[] before;
+    private final int[] after;
+    private int first = -1;
+    /* When each node was added to the result, -1 if not yet */
+    private final int[] added;
+    private int time;
+
+    private ExecutionOrder(int[][] parents, Comparator<Integer> position) {
+        int count = parents.length;
+        this.parents = parents;
+        this.position = position;
+        before = new int[count];
+        after = new int[count];
+        added = new int[count];
+        Arrays.fill(added, -1);
+    }
+
+    private int[] sortByPosition(int[] nodes) {
+        Integer[] sorted = new Integer[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sorted[i] = nodes[i];
+        }
+        Arrays.sort(sorted, position); /* Stable, like Collections.sort */
+        int[] result = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            result[i] = sorted[i];
+        }
+        return result;
+    }
+
+    private void moveToFront(int n) {
+        if (added[n] < 0) {
+            added[n] = time++;
+        }
+        else if (n != first) {
+            after[before[n]] = after[n];
+            if (after[n] >= 0) {
+                before[after[n]] = before[n];
+            }
+        }
+        else {
+            return;
+        }
+        before[n] = -1;
+        after[n] = first;
+        if (first >= 0) {
+            before[first] = n;
+        }
+        first = n;
+    }
+
+    /* Moves the parents of n to the front, returns them to be walked */
+    private Frame enter(int n) {
+        Frame f = new Frame(sortByPosition(parents[n]), time);
+        for (int p : f.parents) {
+            moveToFront(p);
+        }
+        return f;
+    }
+
+    private void walk(int endpoint) {
+        ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(enter(endpoint));
+        while (!stack.isEmpty()) {
+            Frame f = stack.peek();
+            if (f.next == f.parents.length) {
+                stack.pop();
+                continue;
+            }
+            int p = f.parents[f.next++];
+            if (added[p] >= f.start) {
+                /* Not in the result when f was entered */
+                stack.push(enter(p));
+            }
+        }
+    }
+
+    /*
+     * parents[i] lists the distinct nodes feeding node i. End points are the
+     * nodes that feed nothing; one that is a parent anyway keeps its place
+     * in the result. position orders nodes by their place in the patch.
+     */
+    public static int[] sort(int[][] parents, boolean[] endpoint, Comparator<Integer> position) {
+        int count = parents.length;
+        ExecutionOrder eo = new ExecutionOrder(parents, position);
+
+        ArrayList<Integer> endpoints = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (endpoint[i]) {
+                endpoints.add(i);
+            }
+        }
+        endpoints.sort(position);
+        for (int e : endpoints) {
+            eo.walk(e);
+        }
+
+        int[] order = new int[count];
+        int n = 0;
+        for (int i = eo.first; i >= 0; i = eo.after[i]) {
+            order[n++] = i;
+        }
+        ArrayList<Integer> unreached = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (eo.added[i] < 0 && !endpoint[i]) {
+                unreached.add(i);
+            }
+        }
+        unreached.sort(position);
+        for (int i : unreached) {
+            order[n++] = i;
+        }
+        for (int e : endpoints) {
+            if (eo.added[e] < 0) {
+                order[n++] = e;
+            }
+        }
+        return order;
+    }
+}
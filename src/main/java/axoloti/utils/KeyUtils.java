@@ -1,5 +1,6 @@
 package axoloti.utils;
 
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
@@ -20,5 +21,6 @@ public static Boolean isIgnoreModifierDown(KeyEvent ke) {
         return ke.isAltDown() || ke.isAltGraphDown() || ke.isControlDown() || ke.isMetaDown();
     }
     
-    public static final int CONTROL_OR_CMD_MASK = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+    /* There is no menu shortcut key without a display, e.g. when compiling patches from the command line */
+    public static final int CONTROL_OR_CMD_MASK = GraphicsEnvironment.isHeadless() ? InputEvent.CTRL_DOWN_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
 }
@@ -99,6 +99,8 @@ public class Preferences {
     Boolean FirmwareWarnDisable;
     @Element(required = false)
     Integer DspSafetyLimit;
+    @Element(required = false)
+    Integer UploadWindowSize;
     @ElementList(required = false)
     ArrayList<String> recentFiles = new ArrayList<String>();
 
@@ -141,6 +143,7 @@ public class Preferences {
     private final int nRecentFiles = 20;
 
     private final int minimumPollInterval = 20;
+    private final int maximumUploadWindowSize = 16;
 
     private static final String ThemeList[] = {
         // "Arc",
@@ -252,6 +255,9 @@ public Preferences() {
         if(DspSafetyLimit == null) {
             DspSafetyLimit = 3; // Normal setting
         }
+        if (UploadWindowSize == null) {
+            UploadWindowSize = 4;
+        }
     }
 
     /* Makes a deep copy of the source Preferences object into this object. */
@@ -269,6 +275,7 @@ public Preferences clone() {
         clonedPrefs.BackupPatchesOnSDEnabled = this.BackupPatchesOnSDEnabled;
         clonedPrefs.Theme = this.Theme;
         clonedPrefs.DspSafetyLimit = this.DspSafetyLimit;
+        clonedPrefs.UploadWindowSize = this.UploadWindowSize;
         clonedPrefs.ExpertMode = this.ExpertMode;
         clonedPrefs.SortByExecution = this.SortByExecution;
         clonedPrefs.FirmwareWarnDisable = this.FirmwareWarnDisable;
@@ -430,6 +437,21 @@ public int getDspSafetyLimit() {
         return DspSafetyLimit;
     }
 
+    /* Number of upload chunks that may be in flight before waiting for the Core's acknowledgement. 1 = stop-and-wait */
+    public int getUploadWindowSize() {
+        if (UploadWindowSize == null || UploadWindowSize < 1) {
+            return 1;
+        }
+        return Math.min(UploadWindowSize, maximumUploadWindowSize);
+    }
+
+    public void setUploadWindowSize(int i) {
+        i = Math.max(1, Math.min(i, maximumUploadWindowSize));
+        if (this.UploadWindowSize == null || !this.UploadWindowSize.equals(i)) {
+            UploadWindowSize = i;
+        }
+    }
+
     public void setDspSafetyLimit(int i) {
         if (this.DspSafetyLimit == null || !this.DspSafetyLimit.equals(i)) {
             DspSafetyLimit = i;
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.utils;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Uniform grid over the patch canvas: each item is filed under every cell
+ * its bounds touch, so finding the items at a point or within a rectangle
+ * only looks at the cells involved instead of at every item.
+ *
+ * Items are compared by identity. Not thread-safe, used from the event
+ * dispatch thread.
+ *
+ * @author Ksoloti
+ */
+public class SpatialGrid<T> {
+
+    private static class Entry<T> {
+        final T item;
+        final Rectangle bounds;
+
+        Entry(T item, Rectangle bounds) {
+            this.item = item;
+            this.bounds = bounds;
+        }
+    }
+
+    private final int cellSize;
+    private final HashMap<Long, ArrayList<Entry<T>>> cells = new HashMap<Long, ArrayList<Entry<T>>>();
+    private final IdentityHashMap<T, Entry<T>> entries = new IdentityHashMap<T, Entry<T>>();
+
+    public SpatialGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private int cell(int coordinate) {
+        return Math.floorDiv(coordinate, cellSize);
+    }
+
+    private void file(Entry<T> e, boolean add) {
+        Rectangle r = e.bounds;
+        int cx1 = cell(r.x);
+        int cy1 = cell(r.y);
+        int cx2 = cell(r.x + Math.max(0, r.width - 1));
+        int cy2 = cell(r.y + Math.max(0, r.height - 1));
+        for (int cx = cx1; cx <= cx2; cx++) {
+            for (int cy = cy1; cy <= cy2; cy++) {
+                long key = cellKey(cx, cy);
+                if (add) {
+                    cells.computeIfAbsent(key, k -> new ArrayList<Entry<T>>(4)).add(e);
+                }
+                else {
+                    ArrayList<Entry<T>> l = cells.get(key);
+                    if (l != null) {
+                        l.remove(e);
+                        if (l.isEmpty()) {
+                            cells.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /* Adds item, or moves it if it is already in the grid */
+    public void put(T item, Rectangle r) {
+        Entry<T> old = entries.get(item);
+        if (old != null) {
+            if (old.bounds.equals(r)) {
+                return;
+            }
+            file(old, false);
+        }
+        Entry<T> e = new Entry<T>(item, new Rectangle(r));
+        entries.put(item, e);
+        file(e, true);
+    }
+
+    /* Moves item if it is in the grid, returns false if it is not */
+    public boolean update(T item, Rectangle r) {
+        if (!entries.containsKey(item)) {
+            return false;
+        }
+        put(item, r);
+        return true;
+    }
+
+    public void remove(T item) {
+        Entry<T> old = entries.remove(item);
+        if (old != null) {
+            file(old, false);
+        }
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        cells.clear();
+        entries.clear();
+    }
+
+    /* Items whose bounds intersect r, each once, in no particular order */
+    public List<T> query(Rectangle r) {
+        ArrayList<T> result = new ArrayList<T>();
+        if (r.isEmpty()) {
+            return result;
+        }
+        int cx1 = cell(r.x);
+        int cy1 = cell(r.y);
+        int cx2 = cell(r.x + r.width - 1);
+        int cy2 = cell(r.y + r.height - 1);
+        for (int cx = cx1; cx <= cx2; cx++) {
+            for (int cy = cy1; cy <= cy2; cy++) {
+                ArrayList<Entry<T>> l = cells.get(cellKey(cx, cy));
+                if (l == null) {
+                    continue;
+                }
+                for (Entry<T> e : l) {
+                    Rectangle b = e.bounds;
+                    /* An item spanning several cells is reported from the cell holding
+                     * the top left corner of its overlap with r only */
+                    if (b.intersects(r) && cell(Math.max(b.x, r.x)) == cx && cell(Math.max(b.y, r.y)) == cy) {
+                        result.add(e.item);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /* Items whose bounds contain p, in no particular order */
+    public List<T> query(Point p) {
+        ArrayList<T> result = new ArrayList<T>();
+        ArrayList<Entry<T>> l = cells.get(cellKey(cell(p.x), cell(p.y)));
+        if (l != null) {
+            for (Entry<T> e : l) {
+                if (e.bounds.contains(p)) {
+                    result.add(e.item);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package axoloti.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A list of text snapshots, such as the serialized states of a patch, that
+ * stores most of them as compressed differences. Every KEYFRAME_INTERVAL-th
+ * state is kept whole (compressed); the states in between only keep the
+ * lines that differ from the state before them, after dropping the lines
+ * both have in common at the start and at the end. Consecutive edits of a
+ * big document usually touch a small part of it, so a state takes a few
+ * hundred bytes instead of a full copy.
+ *
+ * When the stored states take more than the memory limit, trim() drops the
+ * oldest ones.
+ *
+ * @author Ksoloti
+ */
+public class UndoHistory {
+
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private static class State {
+        final boolean keyframe;
+        final int prefix; /* Lines kept from the start of the state before */
+        final int suffix; /* Lines kept from the end of the state before */
+        final byte[] data; /* Compressed lines in between, or all lines of a keyframe */
+
+        State(boolean keyframe, int prefix, int suffix, byte[] data) {
+            this.keyframe = keyframe;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.data = data;
+        }
+
+        long memoryUsage() {
+            return data.length + 32;
+        }
+    }
+
+    private final ArrayList<State> states = new ArrayList<State>();
+    private final long memoryLimit;
+    private long memoryUsage;
+
+    /* Most recently decoded state, as undo and redo move one step at a time */
+    private int cachedIndex = -1;
+    private String[] cachedLines;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater inflater = new Inflater();
+
+    public UndoHistory(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    public int size() {
+        return states.size();
+    }
+
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public String get(int i) {
+        return String.join("\n", lines(i));
+    }
+
+    public void add(String s) {
+        String[] l = split(s);
+        int n = states.size();
+        boolean keyframe = true;
+        for (int k = n - 1; k >= 0 && k > n - KEYFRAME_INTERVAL; k--) {
+            if (states.get(k).keyframe) {
+                keyframe = false;
+                break;
+            }
+        }
+        State state = keyframe ? keyframe(l) : delta(lines(n - 1), l);
+        states.add(state);
+        memoryUsage += state.memoryUsage();
+        cache(n, l);
+    }
+
+    /* Replaces state i, which must exist */
+    public void set(int i, String s) {
+        String[] l = split(s);
+        String[] next = (i + 1 < states.size()) ? lines(i + 1) : null;
+        String[] previous = (i > 0 && !states.get(i).keyframe) ? lines(i - 1) : null;
+        replace(i, previous == null ? keyframe(l) : delta(previous, l));
+        if (next != null && !states.get(i + 1).keyframe) {
+            replace(i + 1, delta(l, next));
+        }
+        cache(i, l);
+    }
+
+    /* Drops all states from index size on */
+    public void truncate(int size) {
+        while (states.size() > size) {
+            memoryUsage -= states.remove(states.size() - 1).memoryUsage();
+        }
+        if (cachedIndex >= size) {
+            cache(-1, null);
+        }
+    }
+
+    /* Drops the oldest states while over the memory limit, never the
+     * newest, nor more than max. Returns the number of states dropped */
+    public int trim(int max) {
+        int dropped = 0;
+        while (memoryUsage > memoryLimit && states.size() > 1 && dropped < max) {
+            if (!states.get(1).keyframe) {
+                replace(1, keyframe(lines(1)));
+            }
+            memoryUsage -= states.remove(0).memoryUsage();
+            dropped++;
+            cachedIndex--;
+        }
+        if (cachedIndex < 0) {
+            cache(-1, null);
+        }
+        return dropped;
+    }
+
+    private void replace(int i, State state) {
+        memoryUsage += state.memoryUsage() - states.get(i).memoryUsage();
+        states.set(i, state);
+    }
+
+    private void cache(int i, String[] l) {
+        cachedIndex = i;
+        cachedLines = l;
+    }
+
+    private String[] lines(int i) {
+        if (i < 0 || i >= states.size()) {
+            throw new IndexOutOfBoundsException("Undo state " + i + " of " + states.size());
+        }
+        if (i == cachedIndex) {
+            return cachedLines;
+        }
+        int k = i;
+        while (!states.get(k).keyframe) {
+            k--;
+        }
+        String[] l;
+        if (cachedIndex >= k && cachedIndex < i) {
+            k = cachedIndex;
+            l = cachedLines;
+        }
+        else {
+            l = split(inflate(states.get(k).data));
+        }
+        for (int j = k + 1; j <= i; j++) {
+            State d = states.get(j);
+            String[] middle = d.data.length == 0 ? new String[0] : split(inflate(d.data));
+            String[] r = new String[d.prefix + middle.length + d.suffix];
+            System.arraycopy(l, 0, r, 0, d.prefix);
+            System.arraycopy(middle, 0, r, d.prefix, middle.length);
+            System.arraycopy(l, l.length - d.suffix, r, d.prefix + middle.length, d.suffix);
+            l = r;
+        }
+        cache(i, l);
+        return l;
+    }
+
+    private static String[] split(String s) {
+        return s.split("\n", -1);
+    }
+
+    private State keyframe(String[] l) {
+        return new State(true, 0, 0, deflate(String.join("\n", l)));
+    }
+
+    private State delta(String[] from, String[] to) {
+        int max = Math.min(from.length, to.length);
+        int prefix = 0;
+        while (prefix < max && from[prefix].equals(to[prefix])) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && from[from.length - 1 - suffix].equals(to[to.length - 1 - suffix])) {
+            suffix++;
+        }
+        String[] middle = Arrays.copyOfRange(to, prefix, to.length - suffix);
+        return new State(false, prefix, suffix, middle.length == 0 ? new byte[0] : deflate(String.join("\n", middle)));
+    }
+
+    private byte[] deflate(String s) {
+        deflater.reset();
+        deflater.setInput(s.getBytes(StandardCharsets.UTF_8));
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, s.length() / 8));
+        byte[] buf = new byte[8192];
+        while (!deflater.finished()) {
+            out.write(buf, 0, deflater.deflate(buf));
+        }
+        return out.toByteArray();
+    }
+
+    private String inflate(byte[] data) {
+        inflater.reset();
+        inflater.setInput(data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 8);
+        byte[] buf = new byte[8192];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(buf, 0, n);
+            }
+        }
+        catch (DataFormatException ex) {
+            throw new IllegalStateException("Corrupt undo state", ex);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
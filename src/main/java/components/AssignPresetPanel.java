@@ -90,7 +90,7 @@ public void actionPerformed(ActionEvent e) {
             if (p!=null){
                 p.SetDirty();
             }
-            param.GetObjectInstance().patch.presetUpdatePending = true;
+            param.GetObjectInstance().patch.SetPresetUpdatePending();
         }
 
     };
@@ -111,7 +111,7 @@ public void ACtrlAdjusted(ACtrlEvent e) {
                     }
                 }
             }
-            param.GetObjectInstance().patch.presetUpdatePending = true;
+            param.GetObjectInstance().patch.SetPresetUpdatePending();
         }
 
         @Override
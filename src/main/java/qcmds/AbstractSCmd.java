@@ -21,12 +21,43 @@
 import axoloti.Connection;
 import axoloti.USBBulkConnection;
 
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+import java.util.logging.Level;
 
 public abstract class AbstractSCmd implements SCmd {
 
-    private final CountDownLatch latch = new CountDownLatch(1);
+    /* Standard time to wait for the Core's acknowledgement */
+    protected static final long COMPLETION_TIMEOUT_MS = 5000;
+
+    /* How long Do() lets commands queued by DoAsync() go first */
+    private static final long QUEUE_WAIT_MS = 30000;
+
+    /* Commands sent with DoAsync() start one at a time, in order, on this thread */
+    private static volatile Thread executorThread;
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SCmd executor");
+        t.setDaemon(true);
+        executorThread = t;
+        return t;
+    });
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SCmd timeout");
+        t.setDaemon(true);
+        return t;
+    });
+    /* Completes when the last command handed to DoAsync() has completed */
+    private static CompletableFuture<SCmd> queueTail = CompletableFuture.completedFuture(null);
+
+    private final CompletableFuture<SCmd> completion = new CompletableFuture<SCmd>();
+    private volatile long startNanos = 0;
     protected volatile boolean commandSuccess = false;
     protected volatile int mcuStatusCode = 0xFF; /* Stores the (often FatFs-type) status code received from MCU */
     protected char expectedAckCommandByte = '\0'; /* Default value, only used by - and will be set by - subclasses that use AxoR<expectedAckCommandByte><statusbyte> */
@@ -35,19 +66,37 @@ public abstract class AbstractSCmd implements SCmd {
     public boolean setCompletedWithStatus(int mcuStatusCode) {
         this.mcuStatusCode = mcuStatusCode;
         this.commandSuccess = mcuStatusCode == 0;
-        latch.countDown();
+        if (!completion.isDone() && startNanos != 0) {
+            /* Before completing, so whoever waits for it sees the record */
+            SCmdLatencyStatistics.record(getClass().getSimpleName(), System.nanoTime() - startNanos, commandSuccess);
+        }
+        completion.complete(this);
         return true;
     }
 
+    @Override
+    public CompletableFuture<SCmd> getCompletion() {
+        return completion;
+    }
+
     @Override
     public boolean waitForCompletion(long timeoutMs) throws InterruptedException {
-        return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+        try {
+            completion.get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (TimeoutException e) {
+            return false;
+        }
+        catch (ExecutionException e) {
+            return true; /* Not completed exceptionally, but done anyway */
+        }
     }
 
     @Override
     public boolean waitForCompletion() throws InterruptedException {
         /* standard 5-second timeout */
-        return latch.await(5, TimeUnit.SECONDS);
+        return waitForCompletion(COMPLETION_TIMEOUT_MS);
     }
 
     @Override
@@ -64,6 +113,12 @@ public char getExpectedAckCommandByte() {
         return expectedAckCommandByte;
     }
 
+    private void markStarted() {
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+    }
+
     @Override
     public SCmd Do(Connection connection) {
         return this;
@@ -71,9 +126,110 @@ public SCmd Do(Connection connection) {
 
     @Override
     public SCmd Do() {
+        awaitQueue();
+        markStarted();
         return this.Do(USBBulkConnection.getInstance());
     }
 
+    /* Lets the commands handed to DoAsync() before finish first, so a blocking
+     * command does not go out while one of them waits for its acknowledgement */
+    private static void awaitQueue() {
+        if (Thread.currentThread() == executorThread) {
+            return;
+        }
+        CompletableFuture<SCmd> tail;
+        synchronized (AbstractSCmd.class) {
+            tail = queueTail;
+        }
+        if (tail.isDone()) {
+            return;
+        }
+        try {
+            tail.get(QUEUE_WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (TimeoutException e) {
+            LOGGER.log(Level.WARNING, "Queued commands still not done after " + QUEUE_WAIT_MS / 1000 + " s, sending anyway.");
+        }
+        catch (ExecutionException e) {
+        }
+    }
+
+    /*
+     * Queues the command behind the ones handed to DoAsync() before and
+     * returns at once. The future completes with this command once it is
+     * done, successful or not, and never exceptionally. Callbacks run on
+     * the thread that completed it, usually the USB receive thread: hand
+     * GUI work to the event dispatch thread.
+     *
+     * By default Do() runs on the executor thread. Commands answered by a
+     * single acknowledgement override startAsync() to only transmit, so
+     * no thread waits for the Core.
+     */
+    @Override
+    public CompletableFuture<SCmd> DoAsync(Connection connection) {
+        synchronized (AbstractSCmd.class) {
+            queueTail = queueTail.handleAsync((previous, ex) -> {
+                markStarted();
+                try {
+                    startAsync(connection);
+                }
+                catch (Exception e) {
+                    LOGGER.log(Level.SEVERE, "Error during " + getClass().getSimpleName() + ": " + e.getMessage());
+                    e.printStackTrace(System.out);
+                    setCompletedWithStatus(1);
+                }
+                return null;
+            }, executor).thenCompose(v -> completion);
+        }
+        return completion;
+    }
+
+    @Override
+    public CompletableFuture<SCmd> DoAsync() {
+        return DoAsync(USBBulkConnection.getInstance());
+    }
+
+    /* Called on the executor thread. Must make sure the command completes */
+    protected void startAsync(Connection connection) {
+        CommandManager.getInstance().startLongOperation();
+        try {
+            Do(connection);
+        }
+        finally {
+            CommandManager.getInstance().endLongOperation();
+            if (!completion.isDone()) {
+                /* Commands that have no acknowledgement to wait for */
+                setCompletedWithStatus(mcuStatusCode);
+            }
+        }
+    }
+
+    /* Sends a command answered by a single AxoR acknowledgement without waiting for it */
+    protected void transmitAsync(Connection connection, IntSupplier transmit, String description) {
+        CommandManager.getInstance().startLongOperation();
+        connection.setCurrentExecutingCommand(this);
+        completion.whenComplete((c, ex) -> {
+            connection.clearIfCurrentExecutingCommand(this);
+            CommandManager.getInstance().endLongOperation();
+        });
+        int writeResult = transmit.getAsInt();
+        if (writeResult != org.usb4java.LibUsb.SUCCESS) {
+            LOGGER.log(Level.SEVERE, "Failed to send " + description + " command: USB write error.");
+            setCompletedWithStatus(1);
+            return;
+        }
+        ScheduledFuture<?> timeout = timer.schedule(() -> {
+            if (!completion.isDone()) {
+                LOGGER.log(Level.SEVERE, description.substring(0, 1).toUpperCase() + description.substring(1) + " command timed out.");
+                setCompletedWithStatus(1);
+            }
+        }, COMPLETION_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        completion.whenComplete((c, ex) -> timeout.cancel(false));
+    }
+
     @Override
     public abstract String GetStartMessage();
     
@@ -0,0 +1,66 @@
+package qcmds;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counts parameter changes sent to the Core, how many USB transfers they
+ * took, and how long they waited between being collected on the GUI thread
+ * and hitting the wire. A summary is logged at level FINE at most once
+ * per report interval while changes are flowing.
+ *
+ * @author Ksoloti
+ */
+public class DialTxStatistics {
+
+    private static final Logger LOGGER = Logger.getLogger(DialTxStatistics.class.getName());
+
+    private static final long REPORT_INTERVAL_MS = 10000;
+
+    private static final AtomicLong paramCount = new AtomicLong();
+    private static final AtomicLong transferCount = new AtomicLong();
+    private static final AtomicLong latencySumNanos = new AtomicLong();
+    private static final AtomicLong latencyMaxNanos = new AtomicLong();
+    private static volatile long intervalStartMs = System.currentTimeMillis();
+
+    private DialTxStatistics() {
+    }
+
+    public static void recordTransfer(int params, long queuedAtNanos) {
+        long latency = System.nanoTime() - queuedAtNanos;
+        paramCount.addAndGet(params);
+        transferCount.incrementAndGet();
+        latencySumNanos.addAndGet(latency);
+        latencyMaxNanos.accumulateAndGet(latency, Math::max);
+
+        long now = System.currentTimeMillis();
+        if (now - intervalStartMs >= REPORT_INTERVAL_MS) {
+            report(now);
+        }
+    }
+
+    public static String getSummary() {
+        long transfers = transferCount.get();
+        long params = paramCount.get();
+        double seconds = Math.max(1, System.currentTimeMillis() - intervalStartMs) / 1000.0;
+        double avgLatencyMs = (transfers > 0) ? latencySumNanos.get() / 1e6 / transfers : 0;
+        return String.format("%d param changes in %d transfers (%.1f params/transfer), %.1f params/s, latency avg %.2f ms, max %.2f ms",
+                params, transfers, (transfers > 0) ? (double) params / transfers : 0,
+                params / seconds, avgLatencyMs, latencyMaxNanos.get() / 1e6);
+    }
+
+    private static synchronized void report(long now) {
+        if (now - intervalStartMs < REPORT_INTERVAL_MS) {
+            return; /* Another thread reported already */
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Parameter TX: " + getSummary());
+        }
+        paramCount.set(0);
+        transferCount.set(0);
+        latencySumNanos.set(0);
+        latencyMaxNanos.set(0);
+        intervalStartMs = now;
+    }
+}
@@ -66,8 +66,9 @@ public File GetWorkingDir() {
         return new File(FirmwareDir());
     }
     
-    @Override
-    String[] GetExec() {
+    /* Board and firmware option defines passed to the compile script, these select
+       the firmware headers and flags the patch is built against */
+    public static String GetCompileDefines() {
         String boarddef = "";
         String fwoptiondef = "";
         if (Preferences.getInstance().getFirmwareMode().contains("Ksoloti Core")) {
@@ -89,14 +90,19 @@ else if (Preferences.getInstance().getFirmwareMode().contains("I2SCodec")) {
         else {
             fwoptiondef += " FW_NORMAL";
         }
+        return boarddef + fwoptiondef;
+    }
 
+    @Override
+    String[] GetExec() {
+        String defines = GetCompileDefines();
         String build_filename_stem = " " + p.generateBuildFilenameStem(true);
 
         if (OSDetect.getOS() == OSDetect.OS.WIN) {
-            String str = toUnixPath(FirmwareDir() + File.separator + "compile_patch_win.bat " + boarddef + fwoptiondef + build_filename_stem);
+            String str = toUnixPath(FirmwareDir() + File.separator + "compile_patch_win.bat " + defines + build_filename_stem);
             return str.split("\\s+");
         } else if (OSDetect.getOS() == OSDetect.OS.MAC || OSDetect.getOS() == OSDetect.OS.LINUX) {
-            String str = toUnixPath(FirmwareDir() + File.separator + "compile_patch.sh " + boarddef + fwoptiondef + build_filename_stem);
+            String str = toUnixPath(FirmwareDir() + File.separator + "compile_patch.sh " + defines + build_filename_stem);
             return str.split("\\s+");
         } else {
             Logger.getLogger(QCmdCompilePatch.class.getName()).log(Level.SEVERE, "UPLOAD: OS UNKNOWN!");
@@ -21,6 +21,8 @@
 import axoloti.Patch;
 import axoloti.parameters.ParameterInstance;
 
+import java.util.ArrayList;
+
 /**
  *
  * @author Johannes Taelman
@@ -43,19 +45,80 @@ public String GetDoneMessage() {
         return null;
     }
 
+    private void TransmitParamChanges(QCmdProcessor processor) {
+        /* Only visit parameters marked dirty since the last run and pack their
+           changes into as few "AxoB" transfers as possible, a lone change
+           still goes out as a plain "AxoP" */
+        ArrayList<ParameterInstance> parameterInstances = this.patch.getParameterInstances();
+        int[] dirty = this.patch.getDirtyParameters().drain();
+        int maxPerTransfer = Math.max(1, processor.serialconnection.GetMaxParamChangesPerTransfer());
+        int[] indices = new int[maxPerTransfer];
+        int[] values = new int[maxPerTransfer];
+        ParameterInstance single = null;
+        int count = 0;
+        int patchID = this.patch.GetIID();
+
+        for (int d = 0; d < dirty.length; d++) {
+            if (dirty[d] >= parameterInstances.size()) {
+                break; /* Stale index, BitSet order means the rest are too */
+            }
+            ParameterInstance p = parameterInstances.get(dirty[d]);
+            if (p.GetNeedsTransmit()) {
+                if (count == 0) {
+                    single = p;
+                }
+                indices[count] = p.getIndex();
+                values[count] = p.GetValueRaw();
+                count++;
+                if (count == maxPerTransfer) {
+                    if (!processor.hasQueueSpaceLeft()) {
+                        /* Leave the flags set and mark the rest dirty again, retry on the next tick */
+                        RemarkDirty(indices, 0, count);
+                        RemarkDirty(dirty, d + 1, dirty.length);
+                        return;
+                    }
+                    ClearNeedsTransmit(indices, count);
+                    processor.AppendToQueue(new SCmdSerialDialTXBatch(patchID, indices, values, count));
+                    indices = new int[maxPerTransfer];
+                    values = new int[maxPerTransfer];
+                    count = 0;
+                }
+            }
+        }
+
+        if (count == 0) {
+            return;
+        }
+        if (!processor.hasQueueSpaceLeft()) {
+            RemarkDirty(indices, 0, count);
+            return;
+        }
+        if (count == 1) {
+            processor.AppendToQueue(new SCmdSerialDialTX(single.TransmitParamData()));
+        }
+        else {
+            ClearNeedsTransmit(indices, count);
+            processor.AppendToQueue(new SCmdSerialDialTXBatch(patchID, indices, values, count));
+        }
+    }
+
+    private void RemarkDirty(int[] indices, int from, int to) {
+        for (int i = from; i < to; i++) {
+            this.patch.MarkParameterDirty(indices[i]);
+        }
+    }
+
+    private void ClearNeedsTransmit(int[] indices, int count) {
+        for (int i = 0; i < count; i++) {
+            this.patch.getParameterInstances().get(indices[i]).ClearNeedsTransmit();
+        }
+    }
+
     @Override
     public void DoGUI(QCmdProcessor processor) {
         if (processor.isQueueEmpty()) {
             if (this.patch != null) {
-                for (ParameterInstance p : this.patch.getParameterInstances()) {
-                    if (p.GetNeedsTransmit()) {
-                        if (processor.hasQueueSpaceLeft()) {
-                            processor.AppendToQueue(new SCmdSerialDialTX(p.TransmitParamData()));
-                        } else {
-                            break;
-                        }
-                    }
-                }
+                TransmitParamChanges(processor);
                 if (this.patch.presetUpdatePending && processor.hasQueueSpaceLeft()) {
                     byte pb[] = new byte[this.patch.getSettings().GetNPresets() * this.patch.getSettings().GetNPresetEntries() * 8];
                     int p = 0;
@@ -71,6 +134,9 @@ public void DoGUI(QCmdProcessor processor) {
                     processor.AppendToQueue(new SCmdUpdatePreset(pb));
                     this.patch.presetUpdatePending = false;
                 }
+                else if (this.patch.presetUpdatePending) {
+                    this.patch.getDirtyParameters().signal(); /* Retry on the next tick */
+                }
             }
         }
     }
@@ -132,9 +132,27 @@ public PeriodicDialTransmitter() {
         public void run() {
             while (true) {
                 try {
+                    /* Get the currently live patch from the MainFrame */
+                    PatchGUI currentLivePatch = MainFrame.mainframe.getCurrentLivePatch();
+
+                    if (currentLivePatch == null || !serialconnection.isConnected()) {
+                        /* If no patch is live, reset the interval and timer */
+                        currentSendInterval = Preferences.getInstance().getPollInterval();
+                        lastSendAttemptTime = 0;
+                        Thread.sleep(Preferences.getInstance().getPollInterval());
+                        continue;
+                    }
+
+                    /* Park until a parameter or preset becomes dirty. The timeout
+                       only serves to notice a change of live patch or connection. */
+                    if (!currentLivePatch.getDirtyParameters().await(Preferences.getInstance().getPollInterval())) {
+                        continue;
+                    }
+
+                    /* Let a burst of changes accumulate into one batch */
                     Thread.sleep(5);
 
-                    if (queue.isEmpty() && serialconnection.isConnected()) {
+                    if (queue.isEmpty()) {
                         if (CommandManager.getInstance().isLongOperationActive()) {
                             currentSendInterval = Preferences.getInstance().getPollInterval(); /* Reset interval */
                             lastSendAttemptTime = System.currentTimeMillis(); /* Reset timer */
@@ -142,35 +160,21 @@ public void run() {
                             continue; /* Skip offering a dial command this cycle */
                         }
 
-                        /* Get the currently live patch from the MainFrame */
-                        PatchGUI currentLivePatch = MainFrame.mainframe.getCurrentLivePatch();
-
-                        /* Only send dial commands if a patch is live */
-                        if (currentLivePatch != null) {
-                            long now = System.currentTimeMillis();
-                            if (now - lastSendAttemptTime >= currentSendInterval) {
-
-                                /* Pass the live patch to the QCmdGuiDialTx constructor */
-                                boolean added = queue.offer(new QCmdGuiDialTx(currentLivePatch), 10, TimeUnit.MILLISECONDS);
-                                if (!added) {
-                                    // System.out.println(Instant.now() + " [DEBUG] QCmd queue full, dropping dial command. Backing off outbound rate.");
-                                    currentSendInterval = Math.min(currentSendInterval * 2, 500);
-                                }
-                                else {
-                                    currentSendInterval = Preferences.getInstance().getPollInterval();
-                                }
-                                lastSendAttemptTime = now;
+                        long now = System.currentTimeMillis();
+                        if (now - lastSendAttemptTime >= currentSendInterval) {
+
+                            /* Pass the live patch to the QCmdGuiDialTx constructor */
+                            boolean added = queue.offer(new QCmdGuiDialTx(currentLivePatch), 10, TimeUnit.MILLISECONDS);
+                            if (!added) {
+                                // System.out.println(Instant.now() + " [DEBUG] QCmd queue full, dropping dial command. Backing off outbound rate.");
+                                currentSendInterval = Math.min(currentSendInterval * 2, 500);
                             }
-                        } else {
-                            /* If no patch is live, reset the interval and timer */
-                            currentSendInterval = Preferences.getInstance().getPollInterval();
-                            lastSendAttemptTime = 0;
+                            else {
+                                currentSendInterval = Preferences.getInstance().getPollInterval();
+                            }
+                            lastSendAttemptTime = now;
                         }
                     }
-                    else {
-                        currentSendInterval = Preferences.getInstance().getPollInterval();
-                        lastSendAttemptTime = 0;
-                    }
                 }
                 catch (InterruptedException ex) {
                     Thread.currentThread().interrupt();
@@ -25,6 +25,7 @@
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -140,30 +141,40 @@ public File GetWorkingDir() {
         return new File(HomeDir()+ File.separator + "build");
     }
 
+    private Process start(QCmdProcessor shellProcessor, Thread[] streamThreads) throws IOException {
+        Process p1 = Runtime.getRuntime().exec(GetExec(), GetEnv(), GetWorkingDir());
+
+        Thread thd_out = new Thread(new StreamHandlerThread(shellProcessor, p1.getInputStream()));
+        thd_out.setName("QCmdShellTask_thd_out");
+        thd_out.start();
+        Thread thd_err = new Thread(new StreamHandlerThread(shellProcessor, p1.getErrorStream()));
+        thd_err.setName("QCmdShellTask_thd_err");
+        thd_err.start();
+        streamThreads[0] = thd_out;
+        streamThreads[1] = thd_err;
+        return p1;
+    }
+
+    private boolean finish(Process p1, Thread[] streamThreads) throws InterruptedException {
+        streamThreads[0].join();
+        streamThreads[1].join();
+        if (p1.exitValue() == 0) {
+            success = true;
+            LOGGER.info(GetDoneMessage());
+        } else {
+            LOGGER.log(Level.SEVERE, "Shell task failed, exit value: " + p1.exitValue());
+            success = false;
+        }
+        return success;
+    }
+
     public QCmd Do(QCmdProcessor shellProcessor) {
         LOGGER.info(GetStartMessage());
         try {
-            Process p1;
-            p1 = Runtime.getRuntime().exec(GetExec(), GetEnv(), GetWorkingDir());
-
-            Thread thd_out = new Thread(new StreamHandlerThread(shellProcessor, p1.getInputStream()));
-            thd_out.setName("QCmdShellTask_thd_out");
-            thd_out.start();
-            Thread thd_err = new Thread(new StreamHandlerThread(shellProcessor, p1.getErrorStream()));
-            thd_err.setName("QCmdShellTask_thd_err");
-            thd_err.start();
+            Thread[] streamThreads = new Thread[2];
+            Process p1 = start(shellProcessor, streamThreads);
             p1.waitFor();
-            thd_out.join();
-            thd_err.join();
-            if (p1.exitValue() == 0) {
-                success = true;
-                LOGGER.info(GetDoneMessage());
-                return null;
-            } else {
-                LOGGER.log(Level.SEVERE, "Shell task failed, exit value: " + p1.exitValue());
-                success = false;
-                return err();
-            }
+            return finish(p1, streamThreads) ? null : err();
         } catch (InterruptedException ex) {
             LOGGER.log(Level.SEVERE, "Shell task interrupted: " + ex.getMessage());
             ex.printStackTrace(System.out);
@@ -176,5 +187,32 @@ public QCmd Do(QCmdProcessor shellProcessor) {
             return err();
         }
     }
+
+    /* Starts the task and returns at once. The future completes with
+     * success() when the process has exited and its output is logged */
+    public CompletableFuture<Boolean> DoAsync(QCmdProcessor shellProcessor) {
+        LOGGER.info(GetStartMessage());
+        Thread[] streamThreads = new Thread[2];
+        Process p1;
+        try {
+            p1 = start(shellProcessor, streamThreads);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Shell task IO error: " + ex.getMessage());
+            ex.printStackTrace(System.out);
+            success = false;
+            return CompletableFuture.completedFuture(false);
+        }
+        return p1.onExit().thenApply(p -> {
+            try {
+                return finish(p, streamThreads);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.SEVERE, "Shell task interrupted: " + ex.getMessage());
+                success = false;
+                return false;
+            }
+        });
+    }
+
     abstract QCmd err();
 }
@@ -18,6 +18,7 @@
  */
 package qcmds;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
 import axoloti.Connection;
@@ -33,8 +34,11 @@ public interface SCmd extends QCmd { /* Used to be QCmdSerialTask */
     boolean waitForCompletion(long timeoutMs) throws InterruptedException;
     boolean waitForCompletion() throws InterruptedException;
     boolean isSuccessful();
+    CompletableFuture<SCmd> getCompletion();
     char getExpectedAckCommandByte();
 
     SCmd Do(Connection connection);
     SCmd Do();
+    CompletableFuture<SCmd> DoAsync(Connection connection);
+    CompletableFuture<SCmd> DoAsync();
 }
@@ -19,6 +19,7 @@
 package qcmds;
 
 import axoloti.Connection;
+import axoloti.sd.SDCardInfo;
 
 import java.util.Calendar;
 import java.util.logging.Level;
@@ -95,6 +96,9 @@ else if (!isSuccessful()) {
         finally {
             connection.clearIfCurrentExecutingCommand(this);
         }
+        if (SDCardInfo.getInstance().find(dirname) == null) {
+            SDCardInfo.getInstance().AddFile(dirname.endsWith("/") ? dirname : dirname + "/", 0, date);
+        }
         LOGGER.info(GetDoneMessage());
         return this;
     }
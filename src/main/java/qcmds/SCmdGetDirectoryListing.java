@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package qcmds;
+
+import axoloti.Connection;
+import axoloti.sd.SDCardInfo;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lists the files and folders directly in one SD card directory, without
+ * descending into subfolders, and updates that part of SDCardInfo. Cheaper
+ * than SCmdGetFileList, which lists the whole card.
+ *
+ * @author Ksoloti
+ */
+public class SCmdGetDirectoryListing extends AbstractSCmd {
+    private static final Logger LOGGER = Logger.getLogger(SCmdGetDirectoryListing.class.getName());
+
+    private final String path;
+
+    public SCmdGetDirectoryListing(String path) {
+        /* Firmware expects no trailing slash, except for the root */
+        String p = path.startsWith("/") ? path : "/" + path;
+        while (p.length() > 1 && p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        this.path = p;
+        this.expectedAckCommandByte = 'L'; // Expecting AxoRL
+    }
+
+    @Override
+    public String GetStartMessage() {
+        return null;
+    }
+
+    @Override
+    public String GetDoneMessage() {
+        return null;
+    }
+
+    @Override
+    public SCmd Do(Connection connection) {
+        SDCardInfo.getInstance().beginDirectoryListing(path);
+        connection.setCurrentExecutingCommand(this);
+        try {
+            int writeResult = connection.TransmitGetDirectoryListing(path);
+            if (writeResult != org.usb4java.LibUsb.SUCCESS) {
+                LOGGER.log(Level.SEVERE, "Failed to send get directory listing command for '" + path + "': USB write error.");
+                setCompletedWithStatus(1);
+                return this;
+            }
+            if (!waitForCompletion()) {
+                LOGGER.log(Level.SEVERE, "Get directory listing command for '" + path + "' timed out.");
+                setCompletedWithStatus(1);
+                return this;
+            }
+            else if (!isSuccessful() && getMcuStatusCode() != 0x04 && getMcuStatusCode() != 0x05) { /* Missing directory is not an error */
+                LOGGER.log(Level.WARNING, "Failed to list directory '" + path + "'.");
+                return this;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            e.printStackTrace(System.out);
+            setCompletedWithStatus(1);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error during get directory listing command for '" + path + "': " + e.getMessage());
+            e.printStackTrace(System.out);
+            setCompletedWithStatus(1);
+        }
+        finally {
+            connection.clearIfCurrentExecutingCommand(this);
+            SDCardInfo.getInstance().endDirectoryListing(path, isSuccessful() ? 0 : getMcuStatusCode());
+        }
+        return this;
+    }
+}
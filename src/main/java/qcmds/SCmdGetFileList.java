@@ -22,6 +22,7 @@
 import java.util.logging.Logger;
 
 import axoloti.Connection;
+import axoloti.sd.SDCardInfo;
 
 /**
  *
@@ -46,11 +47,14 @@ public String GetDoneMessage() {
 
     @Override
     public SCmd Do(Connection connection) {
+        /* Publish the listing to the file manager once it is complete */
+        SDCardInfo.getInstance().beginUpdate();
         connection.setCurrentExecutingCommand(this);
         int writeResult = connection.TransmitGetFileList();
         if (writeResult != org.usb4java.LibUsb.SUCCESS) {
             LOGGER.log(Level.SEVERE, "Failed to send get file list command: USB write error.");
             setCompletedWithStatus(1);
+            SDCardInfo.getInstance().endUpdate();
             return this;
         }
 
@@ -75,6 +79,7 @@ else if (!isSuccessful()) {
         }
         finally {
             connection.clearIfCurrentExecutingCommand(this);
+            SDCardInfo.getInstance().endUpdate();
         }
         return this;
     }
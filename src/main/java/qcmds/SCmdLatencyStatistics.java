@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2025 Ksoloti
+ *
+ * This file is part of Axoloti.
+ *
+ * Axoloti is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later
+ * version.
+ *
+ * Axoloti is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * Axoloti. If not, see <http://www.gnu.org/licenses/>.
+ */
+package qcmds;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Latency histograms of SCmd round trips, per command type, from sending a
+ * command to its completion. Bucket i counts round trips shorter than 2^i
+ * milliseconds, the last bucket everything longer. A summary is logged at
+ * level FINE at most once per report interval while commands are flowing.
+ *
+ * @author Ksoloti
+ */
+public class SCmdLatencyStatistics {
+
+    private static final Logger LOGGER = Logger.getLogger(SCmdLatencyStatistics.class.getName());
+
+    private static final long REPORT_INTERVAL_MS = 60000;
+    static final int BUCKETS = 14; /* < 1 ms ... < 4096 ms, and longer */
+
+    private static class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    private static final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+    private static volatile long intervalStartMs = System.currentTimeMillis();
+
+    private SCmdLatencyStatistics() {
+    }
+
+    static int bucket(long nanos) {
+        long ms = nanos / 1000000;
+        int b = 0;
+        while (b < BUCKETS - 1 && ms >= (1L << b)) {
+            b++;
+        }
+        return b;
+    }
+
+    public static void record(String command, long nanos, boolean success) {
+        Histogram h = histograms.computeIfAbsent(command, k -> new Histogram());
+        h.buckets.incrementAndGet(bucket(nanos));
+        h.maxNanos.accumulateAndGet(nanos, Math::max);
+        if (!success) {
+            h.failures.incrementAndGet();
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - intervalStartMs >= REPORT_INTERVAL_MS) {
+            report(now);
+        }
+    }
+
+    /* Upper bound in ms of the bucket holding the given fraction of round trips */
+    private static String percentile(long[] counts, long total, double fraction) {
+        long seen = 0;
+        for (int b = 0; b < BUCKETS - 1; b++) {
+            seen += counts[b];
+            if (seen >= fraction * total) {
+                return "<" + (1L << b);
+            }
+        }
+        return ">" + (1L << (BUCKETS - 2));
+    }
+
+    public static String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Histogram> e : new TreeMap<String, Histogram>(histograms).entrySet()) {
+            Histogram h = e.getValue();
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                counts[b] = h.buckets.get(b);
+                total += counts[b];
+            }
+            if (total == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format("%s %d (%d failed) p50 %s p90 %s p99 %s max %.1f ms",
+                    e.getKey(), total, h.failures.get(),
+                    percentile(counts, total, 0.5), percentile(counts, total, 0.9), percentile(counts, total, 0.99),
+                    h.maxNanos.get() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    private static synchronized void report(long now) {
+        if (now - intervalStartMs < REPORT_INTERVAL_MS) {
+            return; /* Another thread reported already */
+        }
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "Command round trips: " + getSummary());
+        }
+        histograms.clear();
+        intervalStartMs = now;
+    }
+}
@@ -29,9 +29,11 @@
 public class SCmdSerialDialTX extends AbstractSCmd {
 
     final ByteBuffer data;
+    final long queuedAtNanos;
 
     public SCmdSerialDialTX(ByteBuffer data) {
         this.data = data;
+        this.queuedAtNanos = System.nanoTime();
     }
 
     @Override
@@ -47,6 +49,7 @@ public String GetDoneMessage() {
     @Override
     public SCmd Do(Connection connection) {
         connection.writeBytes(data);
+        DialTxStatistics.recordTransfer(1, queuedAtNanos);
         return this;
     }
 }
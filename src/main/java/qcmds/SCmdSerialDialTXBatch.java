@@ -0,0 +1,42 @@
+package qcmds;
+
+import axoloti.Connection;
+
+/**
+ * Sends several parameter changes of one patch in a single "AxoB" transfer.
+ *
+ * @author Ksoloti
+ */
+public class SCmdSerialDialTXBatch extends AbstractSCmd {
+
+    final int patchID;
+    final int[] indices;
+    final int[] values;
+    final int count;
+    final long queuedAtNanos;
+
+    public SCmdSerialDialTXBatch(int patchID, int[] indices, int[] values, int count) {
+        this.patchID = patchID;
+        this.indices = indices;
+        this.values = values;
+        this.count = count;
+        this.queuedAtNanos = System.nanoTime();
+    }
+
+    @Override
+    public String GetStartMessage() {
+        return null;
+    }
+
+    @Override
+    public String GetDoneMessage() {
+        return null;
+    }
+
+    @Override
+    public SCmd Do(Connection connection) {
+        connection.TransmitParamChanges(patchID, indices, values, count);
+        DialTxStatistics.recordTransfer(count, queuedAtNanos);
+        return this;
+    }
+}
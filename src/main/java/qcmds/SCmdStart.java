@@ -48,6 +48,17 @@ public String GetDoneMessage() {
         return null;
     }
 
+    @Override
+    protected void startAsync(Connection connection) {
+        if (this instanceof SCmdStartFlasher || this instanceof SCmdStartMounter) {
+            /* These reboot the Core without answering, see Do() */
+            super.startAsync(connection);
+            return;
+        }
+        connection.setPatch(p);
+        transmitAsync(connection, connection::TransmitStart, "start patch");
+    }
+
     @Override
     public SCmd Do(Connection connection) {
         connection.setPatch(p);
@@ -45,6 +45,11 @@ public String GetDoneMessage() {
         return null;
     }
 
+    @Override
+    protected void startAsync(Connection connection) {
+        transmitAsync(connection, connection::TransmitStop, "stop patch");
+    }
+
     @Override
     public SCmd Do(Connection connection) {
         connection.setCurrentExecutingCommand(this);
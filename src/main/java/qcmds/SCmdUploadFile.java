@@ -22,6 +22,7 @@
 import axoloti.MainFrame;
 import axoloti.sd.SDCardInfo;
 import axoloti.sd.SDFileInfo;
+import axoloti.utils.Preferences;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -47,6 +48,7 @@ public class SCmdUploadFile extends AbstractSCmd {
     private CountDownLatch createFileLatch;
     private CountDownLatch appendFileLatch;
     private CountDownLatch closeFileLatch;
+    private volatile SlidingWindowTransfer chunkWindow;
 
     private volatile int createFileStatus = 0xFF;
     private volatile int appendFileStatus = 0xFF;
@@ -103,6 +105,13 @@ public void setAppendFileCompletedWithStatus(int statusCode) {
         }
     }
 
+    public void setChunkCompletedWithStatus(int seq, int statusCode) {
+        SlidingWindowTransfer w = chunkWindow;
+        if (w != null) {
+            w.setChunkCompletedWithStatus(seq, statusCode);
+        }
+    }
+
     public void setCloseFileCompletedWithStatus(int statusCode) {
         this.closeFileStatus = statusCode;
         if (closeFileLatch != null) {
@@ -115,6 +124,7 @@ public SCmd Do(Connection connection) {
         this.createFileStatus = 0xFF;
         this.appendFileStatus = 0xFF;
         this.closeFileStatus = 0xFF;
+        this.chunkWindow = null;
 
         try {
             if (inputStream == null) {
@@ -190,6 +200,8 @@ else if (file != null) {
             int remLength = tlength;
             long pct = -1;
             int chunkNum = 0;
+            SlidingWindowTransfer window = new SlidingWindowTransfer(connection, 'a', Preferences.getInstance().getUploadWindowSize(), "'" + filename + "'");
+            chunkWindow = window;
 
             do {
                 chunkNum++;
@@ -215,31 +227,8 @@ else if (file != null) {
                     buffer = actualBuffer;
                 }
 
-                if (!connection.isConnected()) {
-                    LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': USB connection lost.");
-                    setCompletedWithStatus(1);
-                    connection.clearIfCurrentExecutingCommand(this);
-                    new SCmdDeleteFile(filename).Do(connection, true); /* Silently delete file stub */
-                    return this;
-                }
-
-                appendFileLatch = new CountDownLatch(1);
-                writeResult = connection.TransmitAppendFile(buffer);
-                if (writeResult != org.usb4java.LibUsb.SUCCESS) {
-                    LOGGER.log(Level.SEVERE, "Failed to send file upload command (append): USB write error.");
-                    setCompletedWithStatus(1);
-                    return this;
-                }
-
-                if (!appendFileLatch.await(3, TimeUnit.SECONDS)) {
-                    LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': Core did not acknowledge chunk receipt within timeout. Chunk number " + chunkNum);
-                    setCompletedWithStatus(1);
-                    connection.clearIfCurrentExecutingCommand(this);
-                    new SCmdDeleteFile(filename).Do(connection, true); /* Silently delete file stub */
-                    return this;
-                }
-                if (appendFileStatus != 0x00) {
-                    LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': Core reported error (" + SDCardInfo.getFatFsErrorString(appendFileStatus) + ") during chunk append. Chunk number " + chunkNum);
+                if (!window.send((int) totalBytesSent, buffer)) {
+                    LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': " + window.getFailure());
                     setCompletedWithStatus(1);
                     connection.clearIfCurrentExecutingCommand(this);
                     new SCmdDeleteFile(filename).Do(connection, true); /* Silently delete file stub */
@@ -250,7 +239,7 @@ else if (file != null) {
                 remLength -= nRead;
 
                 long newpct = (100 * totalBytesSent) / tlength;
-                if (newpct != pct) {
+                if (newpct != pct && MainFrame.jTextPaneLog != null) { /* No log window when running headless */
                     StringBuilder progressbar = new StringBuilder("                         "); /* 25-chars long progress bar */
                     for (int i = 0; i < (int) newpct/4; i++) {
                         progressbar.setCharAt(i, '='); /* fill the progress bar depending on the percentage */
@@ -310,6 +299,15 @@ else if (file != null) {
 
             inputStream.close();
 
+            if (!window.finish()) {
+                LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': " + window.getFailure());
+                setCompletedWithStatus(1);
+                connection.clearIfCurrentExecutingCommand(this);
+                new SCmdDeleteFile(filename).Do(connection, true); /* Silently delete file stub */
+                return this;
+            }
+            window.logThroughput();
+
             if (!connection.isConnected()) {
                 LOGGER.log(Level.SEVERE, "Failed to upload file '" + filename + "': USB connection lost.");
                 setCompletedWithStatus(1);
@@ -20,7 +20,7 @@
 
 import axoloti.Axoloti;
 import axoloti.Connection;
-import axoloti.sd.SDCardInfo;
+import axoloti.utils.Preferences;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -43,6 +43,7 @@ public class SCmdUploadPatch extends AbstractSCmd {
     private CountDownLatch startMemWriteLatch;
     private CountDownLatch appendMemWriteLatch;
     private CountDownLatch closeMemWriteLatch;
+    private volatile SlidingWindowTransfer chunkWindow;
 
     private volatile int startMemWriteStatus = 0xFF;
     private volatile int appendMemWriteStatus = 0xFF;
@@ -75,6 +76,7 @@ private void resetLatches() {
         this.startMemWriteLatch = null;
         this.appendMemWriteLatch = null;
         this.closeMemWriteLatch = null;
+        this.chunkWindow = null;
     }
 
 
@@ -102,6 +104,13 @@ public void setAppendMemWriteCompletedWithStatus(int statusCode) {
         }
     }
 
+    public void setChunkCompletedWithStatus(int seq, int statusCode) {
+        SlidingWindowTransfer w = chunkWindow;
+        if (w != null) {
+            w.setChunkCompletedWithStatus(seq, statusCode);
+        }
+    }
+
     public void setCloseMemWriteCompletedWithStatus(int statusCode) {
         this.closeMemWriteStatus = statusCode;
         if (closeMemWriteLatch != null) {
@@ -152,6 +161,9 @@ private boolean doUpload(Connection connection) throws InterruptedException, IOE
 
             int chunkNum = 0;
             int remLength = tlength;
+            int offset = 0;
+            SlidingWindowTransfer window = new SlidingWindowTransfer(connection, 'w', Preferences.getInstance().getUploadWindowSize(), this.name);
+            chunkWindow = window;
 
             do {
                 chunkNum++;
@@ -174,31 +186,22 @@ private boolean doUpload(Connection connection) throws InterruptedException, IOE
                     buffer = actualBuffer;
                 }
 
-                if (!connection.isConnected()) {
-                    LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": USB connection lost.");
-                    return false;
-                }
-
-                appendMemWriteLatch = new CountDownLatch(1);
-                writeResult = connection.TransmitAppendMemWrite(buffer);
-                if (writeResult != org.usb4java.LibUsb.SUCCESS) {
-                    LOGGER.log(Level.SEVERE, "Failed to send patch upload command (append): USB write error.");
-                    return false;
-                }
-
-                if (!appendMemWriteLatch.await(3, TimeUnit.SECONDS)) {
-                    LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": Core did not acknowledge chunk receipt within timeout. Chunk number " + chunkNum);
-                    return false;
-                }
-                if (appendMemWriteStatus != 0x00) {
-                    LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": Core reported error (" + SDCardInfo.getFatFsErrorString(appendMemWriteStatus) + ") during chunk append. Chunk Number " + chunkNum);
+                if (!window.send(offset, buffer)) {
+                    LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": " + window.getFailure());
                     return false;
                 }
 
+                offset += nRead;
                 remLength -= nRead;
 
             } while (remLength > 0);
 
+            if (!window.finish()) {
+                LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": " + window.getFailure());
+                return false;
+            }
+            window.logThroughput();
+
             if (!connection.isConnected()) {
                 LOGGER.log(Level.SEVERE, "Upload failed for " + this.name + ": USB connection lost.");
                 return false;
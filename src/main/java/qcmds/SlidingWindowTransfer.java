@@ -0,0 +1,179 @@
+package qcmds;
+
+import axoloti.Connection;
+import axoloti.sd.SDCardInfo;
+import axoloti.sd.SDFileInfo;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Streams the chunks of one upload with up to windowSize chunks in flight.
+ * Every chunk carries a sequence number and its offset within the transfer,
+ * the Core answers each one with "AxoQ"&lt;seq&gt;&lt;target&gt;&lt;status&gt;.
+ * A chunk the Core reports as failed is resent once it is the sender's turn
+ * again; since it carries its own offset, the chunks behind it need not be
+ * repeated.
+ *
+ * The owning SCmd forwards acks from USBBulkConnection.processByte() to
+ * {@link #setChunkCompletedWithStatus(int, int)}.
+ *
+ * @author Ksoloti
+ */
+public class SlidingWindowTransfer {
+
+    private static final Logger LOGGER = Logger.getLogger(SlidingWindowTransfer.class.getName());
+
+    private static final long ACK_TIMEOUT_MS = 3000;
+    private static final int MAX_RETRIES = 2;
+
+    private static class Chunk {
+        final int seq;
+        final int offset;
+        final byte[] data;
+        int retries = 0;
+
+        Chunk(int seq, int offset, byte[] data) {
+            this.seq = seq;
+            this.offset = offset;
+            this.data = data;
+        }
+    }
+
+    private final Connection connection;
+    private final char target;
+    private final int windowSize;
+    private final String name;
+
+    private final Map<Integer, Chunk> inFlight = new LinkedHashMap<Integer, Chunk>();
+    private final ArrayDeque<Chunk> toResend = new ArrayDeque<Chunk>();
+    private int nextSeq = 0;
+    private String failure = null;
+    private long bytesAcked = 0;
+    private long lastProgressMs;
+    private int retriesTotal = 0;
+    private final long startNanos;
+
+    /* target is 'a' for an SD card file opened with AxoCf, 'w' for a memory write opened with AxoWW */
+    public SlidingWindowTransfer(Connection connection, char target, int windowSize, String name) {
+        this.connection = connection;
+        this.target = target;
+        this.windowSize = Math.max(1, windowSize);
+        this.name = name;
+        this.startNanos = System.nanoTime();
+        this.lastProgressMs = System.currentTimeMillis();
+    }
+
+    /* Called by the receiver when the Core acknowledges a chunk */
+    public synchronized void setChunkCompletedWithStatus(int seq, int statusCode) {
+        Chunk c = inFlight.get(seq);
+        if (c == null) {
+            return; /* Stale or unknown sequence number */
+        }
+        lastProgressMs = System.currentTimeMillis();
+        if (statusCode == 0) {
+            inFlight.remove(seq);
+            bytesAcked += c.data.length;
+        }
+        else if (c.retries < MAX_RETRIES) {
+            c.retries++;
+            retriesTotal++;
+            toResend.add(c);
+        }
+        else {
+            failure = "Core reported error (" + SDCardInfo.getFatFsErrorString(statusCode) + ") for chunk " + (seq + 1) + " after " + MAX_RETRIES + " retries";
+        }
+        notifyAll();
+    }
+
+    /* Queues one chunk, blocking while the window is full. Returns false if the transfer failed. */
+    public boolean send(int offset, byte[] data) throws InterruptedException {
+        if (!awaitWindow(windowSize - 1)) {
+            return false;
+        }
+        Chunk c;
+        synchronized (this) {
+            c = new Chunk(nextSeq++, offset, data);
+            inFlight.put(c.seq, c);
+        }
+        return transmit(c);
+    }
+
+    /* Waits until every chunk has been acknowledged. Returns false if the transfer failed. */
+    public boolean finish() throws InterruptedException {
+        return awaitWindow(0);
+    }
+
+    public long getBytesAcked() {
+        synchronized (this) {
+            return bytesAcked;
+        }
+    }
+
+    public String getFailure() {
+        synchronized (this) {
+            return failure;
+        }
+    }
+
+    public void logThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long bytes = getBytesAcked();
+        String rate = SDFileInfo.getHumanReadableSize((long) (bytes / Math.max(seconds, 0.001)));
+        LOGGER.log(Level.INFO, String.format("Transferred %s of %s in %.2f s (%s/s, window %d, %d chunk retries)",
+                SDFileInfo.getHumanReadableSize(bytes), name, seconds, rate, windowSize, retriesTotal));
+    }
+
+    private boolean transmit(Chunk c) {
+        if (!connection.isConnected()) {
+            fail("USB connection lost");
+            return false;
+        }
+        int writeResult = connection.TransmitSequencedChunk(target, c.seq, c.offset, c.data);
+        if (writeResult != org.usb4java.LibUsb.SUCCESS) {
+            fail("USB write error for chunk " + (c.seq + 1));
+            return false;
+        }
+        return true;
+    }
+
+    private synchronized void fail(String reason) {
+        if (failure == null) {
+            failure = reason;
+        }
+    }
+
+    /* Resends failed chunks and waits until at most maxInFlight chunks are unacknowledged */
+    private boolean awaitWindow(int maxInFlight) throws InterruptedException {
+        while (true) {
+            Chunk resend = null;
+            synchronized (this) {
+                if (failure != null) {
+                    return false;
+                }
+                if (!toResend.isEmpty()) {
+                    resend = toResend.poll();
+                }
+                else if (inFlight.size() <= maxInFlight) {
+                    return true;
+                }
+                else {
+                    long waited = System.currentTimeMillis() - lastProgressMs;
+                    if (waited >= ACK_TIMEOUT_MS) {
+                        failure = "Core did not acknowledge chunk " + (inFlight.keySet().iterator().next() + 1) + " within timeout";
+                        return false;
+                    }
+                    wait(ACK_TIMEOUT_MS - waited);
+                    continue;
+                }
+            }
+            LOGGER.log(Level.FINE, "Resending chunk {0} of {1}", new Object[]{resend.seq + 1, name});
+            if (!transmit(resend)) {
+                return false;
+            }
+        }
+    }
+}
@@ -208,17 +208,21 @@ public String getDetectedCpuId() {
         @Override public int TransmitCloseMemWrite(int startAddr, int totalLen) { return 0; }
         @Override public int TransmitGetFileList() { return 0; }
         @Override public int TransmitGetFileInfo(String filename) { return 0; }
+        @Override public int TransmitGetDirectoryListing(String path) { return 0; }
         @Override public int TransmitCreateFile(String filename, int size, Calendar date) { return 0; }
         @Override public int TransmitCreateDirectory(String filename, Calendar date) { return 0; }
         @Override public int TransmitDeleteFile(String filename) { return 0; }
         @Override public int TransmitChangeWorkingDirectory(String path) { return 0; }
         @Override public int TransmitAppendFile(byte[] data) { return 0; }
+        @Override public int TransmitSequencedChunk(char target, int seq, int offset, byte[] data) { return 0; }
         @Override public int TransmitCloseFile(String filename, Calendar date) { return 0; }
         @Override public int TransmitCopyToFlash() { return 0; }
         @Override public int TransmitMemoryRead(int addr, int length) { return 0; }
         @Override public int TransmitMemoryRead1Word(int addr) { return 0; }
         @Override public int TransmitUpdatedPreset(byte[] data) { return 0; }
         @Override public int TransmitMidi(int m0, int m1, int m2) { return 0; }
+        @Override public int TransmitParamChanges(int patchID, int[] indices, int[] values, int count) { return 0; }
+        @Override public int GetMaxParamChangesPerTransfer() { return 9; }
         @Override public int TransmitGetFWVersion() { return 0; }
         @Override public int TransmitGetSpilinkSynced() { return 0; }
         @Override public int TransmitBringToDFU() { return 0; }
@@ -235,6 +239,7 @@ public String getDetectedCpuId() {
         @Override public int GetConnectionFlags() { return 0; }
         @Override public void setCurrentExecutingCommand(SCmd command) {}
         @Override public SCmd getCurrentExecutingCommand() { return null; }
+        @Override public boolean clearIfCurrentExecutingCommand(SCmd cmd) { return false; }
         @Override public int writeBytes(ByteBuffer data) { return 0; }
     }
 }
\ No newline at end of file
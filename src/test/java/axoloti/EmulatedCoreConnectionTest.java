@@ -0,0 +1,199 @@
+package test.java.axoloti;
+
+import axoloti.EmulatedCoreConnection;
+import axoloti.USBBulkConnection;
+import axoloti.sd.SDCardInfo;
+import axoloti.sd.SDFileInfo;
+import axoloti.utils.Preferences;
+import qcmds.SCmd;
+import qcmds.SCmdCreateDirectory;
+import qcmds.SCmdSerialDialTXBatch;
+import qcmds.SCmdStart;
+import qcmds.SCmdStop;
+import qcmds.SCmdUploadFile;
+import qcmds.SCmdUploadPatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EmulatedCoreConnectionTest {
+
+    private File sdCard;
+    private File work;
+    private EmulatedCoreConnection core;
+
+    @Before
+    public void setUp() throws IOException {
+        /* Defaults, so that commands reading preferences do not load them, which would fetch the object libraries */
+        Preferences.setInstance(new Preferences());
+        sdCard = Files.createTempDirectory("emulated-sd").toFile();
+        work = Files.createTempDirectory("emulated-work").toFile();
+        core = new EmulatedCoreConnection(sdCard);
+        core.connect();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        core.disconnect();
+        for (File dir : new File[]{sdCard, work}) {
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private File randomFile(String name, int size, long seed) throws IOException {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        File f = new File(work, name);
+        Files.write(f.toPath(), data);
+        return f;
+    }
+
+    @Test
+    public void testUploadFileToEmulatedSDCard() throws Exception {
+        File f = randomFile("sample.raw", 200000, 1);
+        assertTrue(new SCmdCreateDirectory("/samples", Calendar.getInstance()).DoAsync(core).get(5, TimeUnit.SECONDS).isSuccessful());
+        SCmd upload = new SCmdUploadFile(f, "/samples/sample.raw").DoAsync(core).get(10, TimeUnit.SECONDS);
+        assertTrue(upload.isSuccessful());
+        assertArrayEquals(Files.readAllBytes(f.toPath()), Files.readAllBytes(new File(sdCard, "samples/sample.raw").toPath()));
+    }
+
+    @Test
+    public void testUploadPatchAndStart() throws Exception {
+        File f = randomFile("xpatch.bin", 70000, 2);
+        int addr = 0x20011000;
+        SCmd result = new SCmdStop().DoAsync(core)
+                .thenCompose(c -> new SCmdUploadPatch(f, addr, "patch").DoAsync(core))
+                .thenCompose(c -> c.isSuccessful() ? new SCmdStart(null).DoAsync(core) : CompletableFuture.completedFuture(c))
+                .get(10, TimeUnit.SECONDS);
+        assertTrue(result.isSuccessful());
+        assertTrue(core.isPatchRunning());
+        assertArrayEquals(Files.readAllBytes(f.toPath()), core.getMemory(addr));
+    }
+
+    @Test
+    public void testUploadFailsOutsideSDCard() throws Exception {
+        File f = randomFile("x.bin", 100, 3);
+        assertFalse(new SCmdUploadFile(f, "/../x.bin").DoAsync(core).get(10, TimeUnit.SECONDS).isSuccessful());
+        assertFalse(new SCmdUploadFile(f, "/nodir/x.bin").DoAsync(core).get(10, TimeUnit.SECONDS).isSuccessful());
+        /* Queued behind the deletion of the file stubs */
+        assertTrue(new SCmdStop().DoAsync(core).get(5, TimeUnit.SECONDS).isSuccessful());
+    }
+
+    /* SD card info and a file listing, split into chunks at every possible point */
+    @Test
+    public void testParsesPacketsSplitAnywhere() throws Exception {
+        ByteBuffer b = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        b.put(new byte[]{'x', 'A', 'A', 'x'}); /* Noise before the first header */
+        b.put("Axol".getBytes(StandardCharsets.US_ASCII)).putInt(1000).putInt(64).putInt(512);
+        b.put("Axof".getBytes(StandardCharsets.US_ASCII)).putInt(123456).putInt(0x5A21);
+        b.put("samples/kick.wav\0".getBytes(StandardCharsets.US_ASCII));
+        b.put("Axof".getBytes(StandardCharsets.US_ASCII)).putInt(7).putInt(0x5A21);
+        b.put("a\0".getBytes(StandardCharsets.US_ASCII));
+        b.flip();
+        byte[] stream = new byte[b.remaining()];
+        b.get(stream);
+
+        /* Not connected, so nothing else feeds its receive path */
+        EmulatedCoreConnection parser = new EmulatedCoreConnection(sdCard);
+        Method processBytes = USBBulkConnection.class.getDeclaredMethod("processBytes", ByteBuffer.class);
+        processBytes.setAccessible(true);
+        for (int split = 0; split <= stream.length; split++) {
+            processBytes.invoke(parser, ByteBuffer.wrap(stream, 0, split).slice());
+            processBytes.invoke(parser, ByteBuffer.wrap(stream, split, stream.length - split).slice());
+
+            SDCardInfo info = SDCardInfo.getInstance();
+            assertEquals(1000, info.getClusters());
+            assertEquals(64, info.getClustersize());
+            assertEquals(512, info.getSectorsize());
+            SDFileInfo kick = info.find("/samples/kick.wav");
+            assertNotNull("split at " + split, kick);
+            assertEquals(123456, kick.getSize());
+            assertEquals(7, info.find("/a").getSize());
+        }
+    }
+
+    /* Upload throughput over a range of round trip latencies, with display and parameter traffic coming in meanwhile */
+    @Test
+    public void testBenchmarkUploadWhileStreaming() throws Exception {
+        File f = randomFile("big.bin", 1 << 20, 4);
+        byte[] expected = Files.readAllBytes(f.toPath());
+        core.startDisplayStream(256, 500);
+        core.startParamChangeStream(64, 1000);
+        for (int latencyUs : new int[]{0, 250, 1000, 4000}) {
+            core.setLatency(latencyUs, TimeUnit.MICROSECONDS);
+            long t0 = System.nanoTime();
+            long toHost0 = core.getBytesToHost();
+            SCmd upload = new SCmdUploadFile(f, "/big.bin").DoAsync(core).get(30, TimeUnit.SECONDS);
+            long t1 = System.nanoTime();
+            assertTrue(upload.isSuccessful());
+            assertArrayEquals(expected, Files.readAllBytes(new File(sdCard, "big.bin").toPath()));
+            System.out.println(String.format("Emulated Core upload benchmark, latency %4d us: 1 MB in %6.1f ms (%.2f MB/s), %d kB received meanwhile",
+                    latencyUs, (t1 - t0) / 1e6, (1 << 20) / ((t1 - t0) / 1e9) / 1e6, (core.getBytesToHost() - toHost0) / 1024));
+        }
+        core.stopStreams();
+        assertTrue(core.getDisplayPacketsSent() > 0);
+        assertTrue(core.getParamChangePacketsSent() > 0);
+    }
+
+    /* Batched parameter changes as the dial transmitter sends them */
+    @Test
+    public void testBenchmarkParameterStorm() throws Exception {
+        int perTransfer = Math.max(1, core.GetMaxParamChangesPerTransfer());
+        int transfers = 20000;
+        int[] indices = new int[perTransfer];
+        int[] values = new int[perTransfer];
+        long t0 = System.nanoTime();
+        for (int t = 0; t < transfers; t++) {
+            for (int i = 0; i < perTransfer; i++) {
+                indices[i] = (t * perTransfer + i) % 200;
+                values[i] = t;
+            }
+            new SCmdSerialDialTXBatch(7, indices.clone(), values.clone(), perTransfer).Do(core);
+        }
+        long t1 = System.nanoTime();
+        assertTrue(core.awaitIdle(10000));
+        long t2 = System.nanoTime();
+        assertEquals((long) transfers * perTransfer, core.getParamChangesReceived());
+        assertEquals(transfers - 1, core.getParameterValue(indices[perTransfer - 1]));
+        System.out.println(String.format("Emulated Core parameter storm benchmark: %d changes in %d transfers, sent in %.1f ms, handled in %.1f ms (%.0f changes/s)",
+                transfers * perTransfer, transfers, (t1 - t0) / 1e6, (t2 - t0) / 1e6, transfers * perTransfer / ((t2 - t0) / 1e9)));
+    }
+
+    /* Display packets parsed by the receive path, the bulk of the traffic while a patch runs */
+    @Test
+    public void testBenchmarkDisplayStream() throws Exception {
+        long allocations = core.getReceiveAllocationCount();
+        core.startDisplayStream(1024, 100000);
+        Thread.sleep(500);
+        core.stopStreams();
+        assertTrue(core.awaitIdle(5000));
+        long packets = core.getDisplayPacketsSent();
+        assertTrue(packets > 0);
+        /* The parser is back in sync afterwards */
+        assertTrue(new SCmdStop().DoAsync(core).get(5, TimeUnit.SECONDS).isSuccessful());
+        System.out.println(String.format("Emulated Core display stream benchmark: %d packets of 4 kB in 500 ms (%.1f MB/s), %d receive allocations",
+                packets, packets * 4108 / 0.5 / 1e6, core.getReceiveAllocationCount() - allocations));
+        /* Only the first packet allocates a buffer */
+        assertTrue(core.getReceiveAllocationCount() - allocations <= 1);
+    }
+}
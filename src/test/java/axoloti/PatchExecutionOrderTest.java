@@ -0,0 +1,167 @@
+package test.java.axoloti;
+
+import axoloti.Net;
+import axoloti.Patch;
+import axoloti.inlets.InletInstance;
+import axoloti.object.AxoObjectInstanceAbstract;
+import axoloti.outlets.OutletInstance;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PatchExecutionOrderTest {
+
+    private static TestPatches lib;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        lib = new TestPatches();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        lib.delete();
+    }
+
+    /* Patch.SortParentsByExecution() as it was before it went through ExecutionOrder */
+    private static void legacyParents(Patch patch, AxoObjectInstanceAbstract o, LinkedList<AxoObjectInstanceAbstract> result) {
+        LinkedList<AxoObjectInstanceAbstract> before = new LinkedList<AxoObjectInstanceAbstract>(result);
+        LinkedList<AxoObjectInstanceAbstract> parents = new LinkedList<AxoObjectInstanceAbstract>();
+        for (InletInstance il : o.getInletInstances()) {
+            Net n = patch.GetNet(il);
+            if (n != null) {
+                for (OutletInstance ol : n.GetSource()) {
+                    AxoObjectInstanceAbstract i = ol.GetObjectInstance();
+                    if (!parents.contains(i)) {
+                        parents.add(i);
+                    }
+                }
+            }
+        }
+        Collections.sort(parents);
+        for (AxoObjectInstanceAbstract c : parents) {
+            if (result.contains(c))
+                result.remove(c);
+            result.addFirst(c);
+        }
+        for (AxoObjectInstanceAbstract c : parents) {
+            if (!before.contains(c))
+                legacyParents(patch, c, result);
+        }
+    }
+
+    /* Patch.SortByExecution() as it was */
+    private static List<AxoObjectInstanceAbstract> legacy(Patch patch) {
+        LinkedList<AxoObjectInstanceAbstract> endpoints = new LinkedList<AxoObjectInstanceAbstract>();
+        LinkedList<AxoObjectInstanceAbstract> result = new LinkedList<AxoObjectInstanceAbstract>();
+        for (AxoObjectInstanceAbstract o : patch.objectInstances) {
+            int count = 0;
+            for (OutletInstance ol : o.getOutletInstances()) {
+                if (patch.GetNet(ol) != null)
+                    count++;
+            }
+            if (count == 0)
+                endpoints.add(o);
+        }
+        Collections.sort(endpoints);
+        for (AxoObjectInstanceAbstract o : endpoints) {
+            legacyParents(patch, o, result);
+        }
+        result.addAll(endpoints);
+        return result;
+    }
+
+    private static void sortByExecution(Patch patch) throws Exception {
+        Method m = Patch.class.getDeclaredMethod("SortByExecution");
+        m.setAccessible(true);
+        m.invoke(patch);
+    }
+
+    /* Gains and delay lines at random places, their inputs wired to random outputs, of earlier objects only unless loops */
+    private static Patch randomPatch(Random rnd, int count, boolean loops) throws Exception {
+        String[] names = new String[count];
+        StringBuilder objects = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            boolean gain = rnd.nextBoolean();
+            names[i] = (gain ? "gain_" : "delay_") + i;
+            /* A coarse grid, so some objects share a row */
+            objects.append(TestPatches.obj(gain ? "gain" : "delay", names[i], 100 * rnd.nextInt(8), 40 * rnd.nextInt(count / 2 + 1),
+                    gain ? "" : "<table attributeName=\"len\" table=\"16\"/>"));
+        }
+
+        /* Source "object outlet" -> destinations */
+        LinkedHashMap<String, StringBuilder> nets = new LinkedHashMap<String, StringBuilder>();
+        for (int i = 0; i < count; i++) {
+            String[] inlets = names[i].startsWith("gain_") ? new String[]{"in"} : new String[]{"in", "trig"};
+            for (String inlet : inlets) {
+                int limit = loops ? count : i;
+                if (limit == 0 || rnd.nextInt(4) == 0) {
+                    continue;
+                }
+                String source = names[rnd.nextInt(limit)];
+                String outlet = source.startsWith("delay_") && rnd.nextBoolean() ? "k" : "out";
+                nets.computeIfAbsent(source + " " + outlet, k -> new StringBuilder())
+                    .append("<dest obj=\"").append(names[i]).append("\" inlet=\"").append(inlet).append("\"/>");
+            }
+        }
+        StringBuilder netXml = new StringBuilder();
+        for (Map.Entry<String, StringBuilder> n : nets.entrySet()) {
+            String[] so = n.getKey().split(" ");
+            netXml.append("<net><source obj=\"").append(so[0]).append("\" outlet=\"").append(so[1]).append("\"/>")
+                  .append(n.getValue()).append("</net>\n");
+        }
+        return lib.open(objects.toString(), netXml.toString());
+    }
+
+    private static void assertSameOrderAsLegacy(Patch patch) throws Exception {
+        List<AxoObjectInstanceAbstract> expected = legacy(patch);
+        int count = patch.objectInstances.size();
+        sortByExecution(patch);
+        ArrayList<AxoObjectInstanceAbstract> sorted = patch.objectInstances;
+        assertEquals(count, sorted.size());
+        /* The old sort dropped objects it did not reach; all others keep their place */
+        ArrayList<AxoObjectInstanceAbstract> reached = new ArrayList<AxoObjectInstanceAbstract>();
+        for (AxoObjectInstanceAbstract o : sorted) {
+            if (expected.contains(o)) {
+                reached.add(o);
+            }
+        }
+        assertEquals(expected, reached);
+    }
+
+    @Test
+    public void testSiblingsInReversePositionOrder() throws Exception {
+        Patch patch = lib.open(
+                TestPatches.obj("gain", "a", 0, 0, "")
+              + TestPatches.obj("gain", "b", 0, 100, "")
+              + TestPatches.obj("delay", "c", 200, 50, "<table attributeName=\"len\" table=\"16\"/>"),
+                TestPatches.net("a", "out", "c", "in")
+              + TestPatches.net("b", "out", "c", "trig"));
+        sortByExecution(patch);
+        assertEquals("b", patch.objectInstances.get(0).getInstanceName());
+        assertEquals("a", patch.objectInstances.get(1).getInstanceName());
+        assertEquals("c", patch.objectInstances.get(2).getInstanceName());
+    }
+
+    @Test
+    public void testMatchesLegacyOrder() throws Exception {
+        Random rnd = new Random(19);
+        for (int iter = 0; iter < 40; iter++) {
+            Patch patch = randomPatch(rnd, 5 + rnd.nextInt(40), iter % 2 == 1);
+            assertFalse(patch.nets.isEmpty());
+            assertSameOrderAsLegacy(patch);
+        }
+    }
+}
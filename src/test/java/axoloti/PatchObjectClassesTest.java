@@ -0,0 +1,122 @@
+package test.java.axoloti;
+
+import axoloti.Patch;
+import axoloti.object.AxoObjectInstanceAbstract;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PatchObjectClassesTest {
+
+    private static final String DELAY_LEN = "<table attributeName=\"len\" table=\"16\"/>";
+
+    private static TestPatches lib;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        lib = new TestPatches();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        lib.delete();
+    }
+
+    private static String frozenGain(String name, int y) {
+        return TestPatches.obj("gain", name, 0, y, "")
+                .replace("<params/>", "<params><frac32.u.map name=\"gain\" value=\"10\" frozen=\"true\"/></params>");
+    }
+
+    private static int count(String s, String part) {
+        int n = 0;
+        for (int i = s.indexOf(part); i >= 0; i = s.indexOf(part, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+
+    @Test
+    public void testRepeatedInstancesShareOneClass() throws Exception {
+        Patch patch = lib.open(
+                TestPatches.obj("gain", "g1", 0, 0, "")
+              + TestPatches.obj("gain", "g2", 0, 40, "")
+              + TestPatches.obj("gain", "g3", 0, 80, ""),
+                TestPatches.net("g1", "out", "g2", "in")
+              + TestPatches.net("g2", "out", "g3", "in"));
+        String code = TestPatches.generate(patch);
+
+        assertEquals(1, count(code, "\tclass objectinstance_g"));
+        assertTrue(code.contains("\ttypedef objectinstance_g1 objectinstance_g2;\n"));
+        assertTrue(code.contains("\ttypedef objectinstance_g1 objectinstance_g3;\n"));
+        assertEquals(1, count(code, "uint16_t param_index_base;"));
+        assertTrue(code.contains("PExch[param_index_base]"));
+        assertTrue(code.contains("PExch[(param_index_base + 1)]"));
+        assertFalse(code.substring(code.indexOf("\tclass objectinstance_g1 {"), code.indexOf("\ttypedef")).contains("PARAM_INDEX_"));
+
+        /* Each instance gets its first parameter index right before its Init() */
+        for (String g : new String[]{"g1", "g2", "g3"}) {
+            String base = "\t\tobjectinstance_" + g + "_i.param_index_base = PARAM_INDEX_" + g + "_gain;\n";
+            assertTrue(g, code.contains(base + "\t\tobjectinstance_" + g + "_i.Init("));
+        }
+    }
+
+    @Test
+    public void testFrozenParametersFallBackToOwnClass() throws Exception {
+        Patch patch = lib.open(
+                TestPatches.obj("gain", "g1", 0, 0, "")
+              + TestPatches.obj("gain", "g2", 0, 40, "")
+              + frozenGain("g3", 80),
+                "");
+        String code = TestPatches.generate(patch);
+        String g3 = code.substring(code.indexOf("\tclass objectinstance_g3 {"), code.indexOf("\t};", code.indexOf("\tclass objectinstance_g3 {")));
+
+        /* g1 and g2 still share, g3 keeps its own class with its own parameter indices */
+        assertTrue(code.contains("\ttypedef objectinstance_g1 objectinstance_g2;\n"));
+        assertFalse(code.contains("typedef objectinstance_g1 objectinstance_g3;"));
+        assertTrue(g3.contains("param_gain = 20971520;"));
+        assertTrue(g3.contains("parent->PExch[PARAM_INDEX_g3_pan].pfunction"));
+        assertFalse(g3.contains("param_index_base"));
+        assertFalse(code.contains("objectinstance_g3_i.param_index_base"));
+        assertTrue(code.contains("objectinstance_g2_i.param_index_base = PARAM_INDEX_g2_gain;\n"));
+    }
+
+    @Test
+    public void testStaticsAreNotShared() throws Exception {
+        Patch patch = lib.open(
+                TestPatches.obj("counter", "c1", 0, 0, "")
+              + TestPatches.obj("counter", "c2", 0, 40, ""),
+                "");
+        String code = TestPatches.generate(patch);
+
+        assertTrue(code.contains("\tclass objectinstance_c1 {"));
+        assertTrue(code.contains("\tclass objectinstance_c2 {"));
+        assertFalse(code.contains("typedef objectinstance_c"));
+    }
+
+    @Test
+    public void testUnchangedWhenNothingIsShared() throws Exception {
+        Patch patch = lib.open(
+                TestPatches.obj("gain", "g1", 0, 0, "")
+              + TestPatches.obj("delay", "d1", 0, 40, DELAY_LEN)
+              + TestPatches.obj("delay", "d2", 0, 80, DELAY_LEN.replace("16", "32"))
+              + TestPatches.obj("counter", "c1", 0, 120, "")
+              + TestPatches.obj("counter", "c2", 0, 160, "")
+              + TestPatches.obj("named", "n1", 0, 200, "")
+              + TestPatches.obj("named", "n2", 0, 240, ""),
+                TestPatches.net("g1", "out", "d1", "in")
+              + TestPatches.net("d1", "k", "d2", "trig"));
+        String code = TestPatches.generate(patch);
+
+        /* Each instance's class exactly as it generates it, one after the other */
+        StringBuilder classes = new StringBuilder();
+        for (AxoObjectInstanceAbstract o : patch.objectInstances) {
+            classes.append(o.GenerateClass("rootc"));
+        }
+        assertTrue(code.contains(classes));
+        assertFalse(code.contains("typedef objectinstance_"));
+        assertFalse(code.contains("param_index_base"));
+    }
+}
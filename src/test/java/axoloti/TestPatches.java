@@ -0,0 +1,134 @@
+package test.java.axoloti;
+
+import axoloti.Axoloti;
+import axoloti.MainFrame;
+import axoloti.Patch;
+import axoloti.object.AxoObjects;
+import axoloti.utils.Preferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Headless patches for tests: a throwaway Ksoloti home with a small object
+ * library under "t/", patches opened from XML and their generated code.
+ */
+public class TestPatches {
+
+    private final File home;
+
+    /* Sample buffer gain with two parameters */
+    public static final String GAIN =
+              "<inlets><frac32buffer name=\"in\"/></inlets>"
+            + "<outlets><frac32buffer name=\"out\"/></outlets>"
+            + "<displays/>"
+            + "<params><frac32.u.map name=\"gain\"/><frac32.s.map name=\"pan\"/></params>"
+            + "<attribs/>"
+            + "<code.krate><![CDATA[int32_t g = param_gain + (param_pan >> 4);]]></code.krate>"
+            + "<code.srate><![CDATA[outlet_out = ___SMMUL(inlet_in, g) << 5;]]></code.srate>";
+
+    /* Delay line with a length attribute */
+    public static final String DELAY =
+              "<inlets><frac32buffer name=\"in\"/><bool32 name=\"trig\"/></inlets>"
+            + "<outlets><frac32buffer name=\"out\"/><frac32 name=\"k\"/></outlets>"
+            + "<displays/>"
+            + "<params/>"
+            + "<attribs><table name=\"len\"/></attribs>"
+            + "<code.declaration><![CDATA[int32_t count; int32_t buf[attr_len];]]></code.declaration>"
+            + "<code.krate><![CDATA[if (inlet_trig) count = 0;\noutlet_k = count;]]></code.krate>"
+            + "<code.srate><![CDATA[outlet_out = buf[count % attr_len];\nbuf[count++ % attr_len] = inlet_in;]]></code.srate>";
+
+    /* Counter kept in a function-local static */
+    public static final String COUNTER =
+              "<inlets/>"
+            + "<outlets><int32 name=\"out\"/></outlets>"
+            + "<displays/>"
+            + "<params/>"
+            + "<attribs/>"
+            + "<code.krate><![CDATA[static int32_t n = 0;\noutlet_out = n++;]]></code.krate>";
+
+    /* Refers to its own instance name */
+    public static final String NAMED =
+              "<inlets/>"
+            + "<outlets><int32 name=\"out\"/></outlets>"
+            + "<displays/>"
+            + "<params/>"
+            + "<attribs/>"
+            + "<code.krate><![CDATA[outlet_out = (int32_t) &parent->CGENATTR_instancename_i;]]></code.krate>";
+
+    public TestPatches() throws IOException {
+        home = Files.createTempDirectory("testpatches").toFile();
+        for (String d : new String[]{"lib/t", "libs", "firmware/build", "platform"}) {
+            new File(home, d).mkdirs();
+        }
+        /* Code generation embeds the firmware ID */
+        Files.write(new File(home, "firmware/build/ksoloti.bin").toPath(), new byte[]{0, 1, 2, 3});
+        System.setProperty(Axoloti.LIBRARIES_DIR, new File(home, "libs").getPath());
+        System.setProperty(Axoloti.FIRMWARE_DIR, new File(home, "firmware").getPath());
+        System.setProperty(Axoloti.HOME_DIR, home.getPath());
+        System.setProperty(Axoloti.PLATFORM_DIR, new File(home, "platform").getPath());
+        /* Defaults, without the object libraries that would be fetched from the network */
+        Preferences.setInstance(new Preferences());
+
+        addObject("gain", GAIN);
+        addObject("delay", DELAY);
+        addObject("counter", COUNTER);
+        addObject("named", NAMED);
+        MainFrame.axoObjects = new AxoObjects();
+        MainFrame.axoObjects.LoadAxoObjects(new File(home, "lib").getPath());
+    }
+
+    private void addObject(String id, String body) throws IOException {
+        String xml = "<objdefs>\n"
+                   + "   <obj.normal id=\"" + id + "\" uuid=\"uuid-" + id + "\">\n"
+                   + "      <sDescription>test</sDescription><author>test</author><license>GPL</license>\n"
+                   + "      " + body + "\n"
+                   + "   </obj.normal>\n"
+                   + "</objdefs>\n";
+        Files.write(new File(home, "lib/t/" + id + ".axo").toPath(), xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /* Object element for a patch, e.g. obj("gain", "gain_1", 0, 0, "") */
+    public static String obj(String id, String name, int x, int y, String attribs) {
+        return "<obj type=\"t/" + id + "\" uuid=\"uuid-" + id + "\" name=\"" + name + "\" x=\"" + x + "\" y=\"" + y + "\">"
+             + "<params/><attribs>" + attribs + "</attribs></obj>\n";
+    }
+
+    public static String net(String source, String outlet, String dest, String inlet) {
+        return "<net><source obj=\"" + source + "\" outlet=\"" + outlet + "\"/><dest obj=\"" + dest + "\" inlet=\"" + inlet + "\"/></net>\n";
+    }
+
+    public Patch open(String objects, String nets) throws IOException {
+        String xml = "<patch-1.0>\n" + objects + "<nets>\n" + nets + "</nets>\n"
+                   + "<settings><subpatchmode>no</subpatchmode></settings>\n"
+                   + "<notes><![CDATA[]]></notes>\n"
+                   + "</patch-1.0>\n";
+        File f = File.createTempFile("patch", ".axp", home);
+        Files.write(f.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return Patch.OpenPatchHeadless(f);
+    }
+
+    /* What Patch.WriteCode() writes to xpatch.cpp */
+    public static String generate(Patch p) throws Exception {
+        Method m = Patch.class.getDeclaredMethod("GenerateCode3");
+        m.setAccessible(true);
+        return m.invoke(p).toString();
+    }
+
+    /* Generated code without the header comment and the random patch ID */
+    public static String stable(String code) {
+        return code.substring(code.indexOf("*/") + 2).replaceFirst("patchMeta\\.patchID = -?\\d+;", "patchMeta.patchID = 0;");
+    }
+
+    public void delete() throws IOException {
+        try (Stream<Path> paths = Files.walk(home.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
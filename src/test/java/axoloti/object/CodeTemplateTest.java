@@ -0,0 +1,156 @@
+package test.java.axoloti.object;
+
+import axoloti.object.CodeTemplate;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CodeTemplateTest {
+
+    /* What code generation did before templates */
+    private static String replaceSequentially(String text, String[] names, String[] values, int regexSlots) {
+        String s = text;
+        for (int n = 0; n < names.length; n++) {
+            if (n < regexSlots) {
+                s = s.replaceAll(names[n], values[n]);
+            }
+            else {
+                s = s.replace(names[n], values[n]);
+            }
+        }
+        return s;
+    }
+
+    private static final String KRATE =
+              "if (inlet_trig && !ntrig) {\n"
+            + "    count = attr_start;\n"
+            + "    ntrig = 1;\n"
+            + "}\n"
+            + "else if (!inlet_trig) {\n"
+            + "    ntrig = 0;\n"
+            + "}\n"
+            + "outlet_out = attr_table.array[count & attr_mask] << attr_shift; /* CGENATTR_instancename */\n"
+            + "count = (count + 1) % attr_length;\n";
+
+    @Test
+    public void testFillsAttributesAndNames() {
+        String[] names = {"attr_start", "attr_table", "attr_mask", "CGENATTR_instancename"};
+        String[] values = {"12", "parent->instancet1_i", "0xFF", "t1"};
+        CodeTemplate t = CodeTemplate.compile(KRATE, KRATE, names, 3);
+        assertEquals(replaceSequentially(KRATE, names, values, 3), t.fill(values));
+        assertTrue(t.matches(KRATE, names));
+        assertFalse(t.matches(KRATE + " ", names));
+        assertFalse(t.matches(KRATE, new String[]{"attr_start"}));
+    }
+
+    @Test
+    public void testKeepsReplaceAllQuirks() {
+        String[] names = {"attr_a", "attr_ab", "inlet_in"};
+        /* Overlapping names, a value naming a later slot, escapes and group references */
+        String text = "x = attr_ab + attr_a; y = inlet_in;";
+        String[][] cases = {
+            {"1", "2", "inlet_in[i]"},
+            {"inlet_in", "3", "inlet_in[i]"},
+            {"\\n$0", "a\\\\b", "c"},
+        };
+        for (String[] values : cases) {
+            CodeTemplate t = CodeTemplate.compile(text, text, names, 3);
+            assertEquals(replaceSequentially(text, names, values, 3), t.fill(values));
+        }
+        String[] names2 = {"attr_x", "inlet_in"};
+        String text2 = "a = inlattr_x; b = attr_x_in; c = attr_x;";
+        for (String v : new String[]{"et_in", "inlet_", "", "\\$", "$0$0", "v"}) {
+            String[] values = {v, "inlet_in[i]"};
+            CodeTemplate t = CodeTemplate.compile(text2, text2, names2, 2);
+            assertEquals(v, replaceSequentially(text2, names2, values, 2), t.fill(values));
+        }
+    }
+
+    @Test
+    public void testOverlappingNamesOnlyFallBackWhereTheyOverlap() {
+        /* Each name ends in what another starts with: "a", "i", "o" */
+        String[] names = {"attr_data", "attr_i", "attr_lo", "inlet_gate", "outlet_o"};
+        String[] values = {"parent->data", "7", "3", "inlet_gate[0]", "o[0]"};
+        String text = "outlet_o = attr_data[attr_i] + attr_lo * inlet_gate;";
+        CodeTemplate t = CodeTemplate.compile(text, text, names, 3);
+        assertTrue(t.isPlain());
+        assertEquals(replaceSequentially(text, names, values, 3), t.fill(values));
+
+        /* Here they do overlap: replacing "attr_data" first destroys "attr_x" */
+        String overlapping = "y = attr_datattr_x;";
+        String[] names2 = {"attr_data", "attr_x"};
+        String[] values2 = {"1", "2"};
+        CodeTemplate t2 = CodeTemplate.compile(overlapping, overlapping, names2, 2);
+        assertFalse(t2.isPlain());
+        assertEquals("y = 1ttr_x;", t2.fill(values2));
+    }
+
+    /* Random code, names and values, including ones that form names with the code around them */
+    @Test
+    public void testMatchesSequentialReplacement() {
+        Random rnd = new Random(24);
+        String[] pieces = {"attr_", "inlet_", "outlet_", "in", "out", "a", "b", "x", "_", " ", "\n\t", "[i]", "$", "\\", "CGENATTR_"};
+        for (int iter = 0; iter < 5000; iter++) {
+            int count = 1 + rnd.nextInt(5);
+            String[] names = new String[count];
+            String[] values = new String[count];
+            for (int n = 0; n < count; n++) {
+                String[] prefixes = {"attr_", "inlet_", "outlet_", "CGENATTR_"};
+                names[n] = prefixes[rnd.nextInt(prefixes.length)] + (char) ('a' + rnd.nextInt(3)) + (rnd.nextBoolean() ? "" : "b");
+            }
+            StringBuilder text = new StringBuilder();
+            for (int k = rnd.nextInt(30); k > 0; k--) {
+                text.append(rnd.nextInt(3) == 0 ? names[rnd.nextInt(count)] : pieces[rnd.nextInt(pieces.length)]);
+            }
+            for (int n = 0; n < count; n++) {
+                StringBuilder v = new StringBuilder();
+                for (int k = rnd.nextInt(4); k > 0; k--) {
+                    String p = rnd.nextInt(3) == 0 ? names[rnd.nextInt(count)] : pieces[rnd.nextInt(pieces.length)];
+                    v.append(p.equals("$") ? "$0" : p.equals("\\") ? "\\\\" : p);
+                }
+                values[n] = v.toString();
+            }
+            int regexSlots = rnd.nextInt(count + 1);
+            CodeTemplate t = CodeTemplate.compile("src", text.toString(), names, regexSlots);
+            assertEquals(text.toString(), replaceSequentially(text.toString(), names, values, regexSlots), t.fill(values));
+        }
+    }
+
+    /* 200 instances of one object with four attributes */
+    @Test
+    public void testBenchmarkFill() {
+        StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            code.append(KRATE);
+        }
+        String text = code.toString();
+        String[] names = {"attr_start", "attr_table", "attr_mask", "attr_shift", "attr_length", "CGENATTR_instancename"};
+        String[][] values = new String[200][];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = new String[]{Integer.toString(i), "parent->instancet" + i + "_i", "0xFF", "4", "256", "t" + i};
+        }
+        int rounds = 20;
+        long t0 = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (String[] v : values) {
+                replaceSequentially(text, names, v, 5);
+            }
+        }
+        long t1 = System.nanoTime();
+        CodeTemplate t = CodeTemplate.compile(text, text, names, 5);
+        for (int r = 0; r < rounds; r++) {
+            for (String[] v : values) {
+                t.fill(v);
+            }
+        }
+        long t2 = System.nanoTime();
+        for (String[] v : values) {
+            assertEquals(replaceSequentially(text, names, v, 5), t.fill(v));
+        }
+        System.out.println(String.format("CodeTemplate benchmark, 200 instances: replaceAll %.2f ms, template %.2f ms per compile",
+                (t1 - t0) / 1e6 / rounds, (t2 - t1) / 1e6 / rounds));
+    }
+}
@@ -0,0 +1,71 @@
+package test.java.axoloti.parameters;
+
+import axoloti.parameters.ParameterDirtySet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParameterDirtySetTest {
+
+    private ParameterDirtySet dirtySet;
+
+    @Before
+    public void setUp() {
+        dirtySet = new ParameterDirtySet();
+    }
+
+    @Test
+    public void testNewSetIsEmpty() {
+        assertTrue(dirtySet.isEmpty());
+        assertEquals(0, dirtySet.drain().length);
+    }
+
+    @Test
+    public void testDrainReturnsMarkedIndicesInOrderAndClears() {
+        dirtySet.mark(1200);
+        dirtySet.mark(3);
+        dirtySet.mark(3);
+        dirtySet.mark(40);
+
+        assertArrayEquals(new int[]{3, 40, 1200}, dirtySet.drain());
+        assertTrue(dirtySet.isEmpty());
+    }
+
+    @Test
+    public void testNegativeIndexIsIgnored() {
+        dirtySet.mark(-1);
+        assertTrue(dirtySet.isEmpty());
+    }
+
+    @Test
+    public void testSignalWithoutIndex() {
+        dirtySet.signal();
+        assertFalse(dirtySet.isEmpty());
+        assertEquals(0, dirtySet.drain().length);
+        assertTrue(dirtySet.isEmpty());
+    }
+
+    @Test
+    public void testAwaitTimesOutWhenNothingIsDirty() throws InterruptedException {
+        assertFalse(dirtySet.await(10));
+    }
+
+    @Test(timeout = 5000)
+    public void testAwaitWakesUpOnMark() throws InterruptedException {
+        Thread marker = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException ex) {
+                return;
+            }
+            dirtySet.mark(7);
+        });
+        marker.start();
+        assertTrue(dirtySet.await(4000));
+        assertArrayEquals(new int[]{7}, dirtySet.drain());
+        marker.join();
+    }
+}
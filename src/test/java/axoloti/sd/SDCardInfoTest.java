@@ -0,0 +1,128 @@
+package test.java.axoloti.sd;
+
+import axoloti.sd.SDCardInfo;
+import axoloti.sd.SDFileInfo;
+
+import java.util.Calendar;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SDCardInfoTest {
+
+    private final SDCardInfo card = SDCardInfo.getInstance();
+
+    @Before
+    public void setUp() {
+        card.SetInfo(0, 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        card.SetInfo(0, 0, 0);
+    }
+
+    private void add(String path, int size) {
+        card.AddFile(path, size, Calendar.getInstance());
+    }
+
+    @Test
+    public void testFindIsCaseInsensitiveAndAcceptsDirectoriesWithoutSlash() {
+        add("/Samples/", 0);
+        add("/Samples/Kick.wav", 100);
+        assertEquals("/Samples/Kick.wav", card.find("/samples/KICK.WAV").getFilename());
+        assertEquals("/Samples/Kick.wav", card.find("Samples/Kick.wav").getFilename());
+        assertTrue(card.find("/samples").isDirectory());
+        assertNull(card.find("/samples/snare.wav"));
+    }
+
+    @Test
+    public void testAddFileReplacesExistingEntry() {
+        add("/a.tbl", 10);
+        add("/A.TBL", 20);
+        assertEquals(1, card.getChildren("/").size());
+        assertEquals(20, card.find("/a.tbl").getSize());
+        assertEquals("/a.tbl", card.find("/a.tbl").getFilename());
+    }
+
+    @Test
+    public void testDeleteRemovesSubtree() {
+        add("/a/", 0);
+        add("/a/b/", 0);
+        add("/a/b/c.wav", 1);
+        add("/a/d.wav", 1);
+        card.Delete("/a/b");
+        assertNull(card.find("/a/b/c.wav"));
+        assertNull(card.find("/a/b/"));
+        assertEquals(1, card.getChildren("/a").size());
+    }
+
+    @Test
+    public void testDirectoryListingDropsEntriesNoLongerListed() {
+        add("/a/", 0);
+        add("/a/old.wav", 1);
+        add("/a/sub/", 0);
+        add("/a/sub/x.wav", 1);
+        add("/b.wav", 1);
+
+        card.beginDirectoryListing("/a");
+        add("/a/new.wav", 2);
+        add("/a/sub/", 0);
+        card.endDirectoryListing("/a", 0);
+
+        assertNull(card.find("/a/old.wav"));
+        assertNotNull(card.find("/a/new.wav"));
+        assertNotNull(card.find("/a/sub/x.wav")); /* Not descended into, so kept */
+        assertNotNull(card.find("/b.wav")); /* Outside of the listed directory */
+    }
+
+    @Test
+    public void testListingOfMissingDirectoryRemovesIt() {
+        add("/gone/", 0);
+        add("/gone/x.wav", 1);
+        card.beginDirectoryListing("/gone");
+        card.endDirectoryListing("/gone", 5); /* FR_NO_PATH */
+        assertNull(card.find("/gone"));
+        assertNull(card.find("/gone/x.wav"));
+    }
+
+    @Test
+    public void testListingOfUnknownDirectoryAddsParents() {
+        card.beginDirectoryListing("/x/y");
+        add("/x/y/z.wav", 1);
+        card.endDirectoryListing("/x/y", 0);
+        assertTrue(card.find("/x").isDirectory());
+        List<SDFileInfo> files = card.getFiles();
+        assertEquals(3, files.size());
+        assertEquals("/x/y/z.wav", files.get(2).getFilename());
+    }
+
+    /* A card with many samples used to take quadratic time to list */
+    @Test
+    public void testBenchmarkLargeListing() {
+        int dirs = 50;
+        int filesPerDir = 200;
+        long t0 = System.nanoTime();
+        card.beginUpdate();
+        for (int d = 0; d < dirs; d++) {
+            add("/dir" + d + "/", 0);
+            for (int f = 0; f < filesPerDir; f++) {
+                add("/dir" + d + "/sample" + f + ".wav", f);
+            }
+        }
+        card.endUpdate();
+        long t1 = System.nanoTime();
+        for (int d = 0; d < dirs; d++) {
+            assertNotNull(card.find("/DIR" + d + "/sample" + (filesPerDir - 1) + ".wav"));
+        }
+        long t2 = System.nanoTime();
+        assertEquals(dirs * (filesPerDir + 1), card.getSortedDisplayNodes().size());
+        long t3 = System.nanoTime();
+        System.out.println(String.format("SDCardInfo benchmark, %d entries: list %.1f ms, %d lookups %.2f ms, display tree %.1f ms",
+                dirs * (filesPerDir + 1), (t1 - t0) / 1e6, dirs, (t2 - t1) / 1e6, (t3 - t2) / 1e6));
+    }
+}
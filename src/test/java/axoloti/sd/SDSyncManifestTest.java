@@ -0,0 +1,89 @@
+package test.java.axoloti.sd;
+
+import axoloti.sd.SDFileInfo;
+import axoloti.sd.SDSync;
+import axoloti.sd.SDSyncManifest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class SDSyncManifestTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static Calendar date(int second) {
+        Calendar c = Calendar.getInstance();
+        c.set(2025, Calendar.MARCH, 14, 15, 9, second);
+        return c;
+    }
+
+    @Test
+    public void testFatTimeHasTwoSecondResolution() {
+        assertEquals(SDSyncManifest.fatTime(date(26)), SDSyncManifest.fatTime(date(27)));
+        assertNotEquals(SDSyncManifest.fatTime(date(26)), SDSyncManifest.fatTime(date(28)));
+    }
+
+    @Test
+    public void testEntryOnlyValidWhileCardListsSameFile() {
+        SDSyncManifest m = new SDSyncManifest(null);
+        m.put("/samples/Kick.wav", new SDSyncManifest.Entry("abc", 1000, SDSyncManifest.fatTime(date(10))));
+
+        assertNotNull(m.getValid("/samples/kick.WAV", new SDFileInfo("/samples/kick.wav", date(11), 1000, false)));
+        assertNull(m.getValid("/samples/kick.wav", new SDFileInfo("/samples/kick.wav", date(12), 1000, false)));
+        assertNull(m.getValid("/samples/kick.wav", new SDFileInfo("/samples/kick.wav", date(10), 1001, false)));
+        assertNull(m.getValid("/samples/kick.wav", null));
+        assertNull(m.getValid("/samples/snare.wav", new SDFileInfo("/samples/snare.wav", date(10), 1000, false)));
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        File f = new File(tmp.getRoot(), "cache/sdsync-test.manifest");
+        SDSyncManifest m = new SDSyncManifest(f);
+        m.put("/a/b c.wav", new SDSyncManifest.Entry("0123", 42, 7));
+        m.put("x.tbl", new SDSyncManifest.Entry("4567", 43, 8));
+        m.save();
+        assertFalse(m.isModified());
+
+        SDSyncManifest loaded = SDSyncManifest.load(f);
+        assertEquals(2, loaded.size());
+        assertEquals("0123", loaded.get("/A/B C.wav").hash);
+        assertEquals(43, loaded.get("/x.tbl").size);
+        assertEquals(8, loaded.get("/x.tbl").fatTime);
+        assertEquals(m.toText(), loaded.toText());
+    }
+
+    @Test
+    public void testCopyToSavesToNewFile() throws IOException {
+        File legacy = new File(tmp.getRoot(), "build/cache/sdsync-test.manifest");
+        SDSyncManifest m = new SDSyncManifest(legacy);
+        m.put("/a.wav", new SDSyncManifest.Entry("0123", 42, 7));
+        m.save();
+
+        File f = new File(tmp.getRoot(), "sdsync/sdsync-test.manifest");
+        SDSyncManifest moved = SDSyncManifest.load(legacy).copyTo(f);
+        assertTrue(moved.isModified());
+        moved.save();
+        assertEquals(m.toText(), SDSyncManifest.load(f).toText());
+        assertFalse(new SDSyncManifest(legacy).copyTo(f).isModified());
+    }
+
+    @Test
+    public void testHashFollowsContent() throws IOException {
+        File f = tmp.newFile("table.raw");
+        Files.write(f.toPath(), "abc".getBytes(StandardCharsets.UTF_8));
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", SDSync.hash(f));
+
+        Files.write(f.toPath(), "abcd".getBytes(StandardCharsets.UTF_8));
+        assertEquals("88d4266fd4e6338d13b845fcf289579d209c897823b9217da3e161936f031589", SDSync.hash(f));
+    }
+}
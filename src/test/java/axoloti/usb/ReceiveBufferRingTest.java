@@ -0,0 +1,73 @@
+package test.java.axoloti.usb;
+
+import axoloti.usb.ReceiveBufferRing;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReceiveBufferRingTest {
+
+    private ReceiveBufferRing ring;
+
+    @Before
+    public void setUp() {
+        ring = new ReceiveBufferRing(4, 64);
+    }
+
+    @Test
+    public void testBuffersArePreallocated() {
+        assertEquals(4, ring.getAllocationCount());
+        assertEquals(4, ring.getFreeCount());
+    }
+
+    @Test
+    public void testSteadyStateDoesNotAllocate() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            ByteBuffer b = ring.acquire(10);
+            assertNotNull(b);
+            b.put((byte) i);
+            b.flip();
+            ring.submit(b);
+
+            ByteBuffer r = ring.take();
+            assertSame(b, r);
+            assertEquals((byte) i, r.get());
+            ring.release(r);
+        }
+        assertEquals(4, ring.getAllocationCount());
+        assertEquals(4, ring.getFreeCount());
+    }
+
+    @Test
+    public void testAcquireTimesOutWhenAllBuffersAreInUse() throws InterruptedException {
+        for (int i = 0; i < 4; i++) {
+            ring.submit(ring.acquire(10));
+        }
+        assertNull(ring.acquire(10));
+    }
+
+    @Test
+    public void testAcquiredBufferIsCleared() throws InterruptedException {
+        ByteBuffer b = ring.acquire(10);
+        b.limit(3);
+        ring.release(b);
+        for (int i = 0; i < 4; i++) {
+            ByteBuffer c = ring.acquire(10);
+            assertEquals(0, c.position());
+            assertEquals(64, c.limit());
+        }
+    }
+
+    @Test
+    public void testResetRecoversFilledAndLostBuffers() throws InterruptedException {
+        ring.submit(ring.acquire(10));
+        ring.acquire(10); /* Never released */
+        ring.reset();
+        assertEquals(4, ring.getFreeCount());
+        assertEquals(5, ring.getAllocationCount());
+    }
+}
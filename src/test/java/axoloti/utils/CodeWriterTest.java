@@ -0,0 +1,110 @@
+package test.java.axoloti.utils;
+
+import axoloti.Patch;
+import axoloti.utils.CodeWriter;
+import axoloti.utils.CompiledPatchCache;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import test.java.axoloti.TestPatches;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CodeWriterTest {
+
+    private static final Logger LOGGER = Logger.getLogger(CodeWriterTest.class.getName());
+
+    private static final int OBJECT_COUNT = 1000;
+
+    @Test
+    public void testPlaceholdersAreResolvedOnAppend() {
+        CodeWriter c = new CodeWriter();
+        c.substitute("attr_poly", "1");
+        c.substitute("attr_midichannel", "3");
+        c.append("int32_t a[attr_poly];\n");
+        c.append("if (status == MIDI_NOTE_ON + attr_midichannel) attr_poly++;\n");
+        assertEquals("int32_t a[1];\nif (status == MIDI_NOTE_ON + 3) 1++;\n", c.toString());
+    }
+
+    @Test
+    public void testUnregisteredPlaceholdersAreKept() {
+        CodeWriter c = new CodeWriter();
+        c.substitute("attr_poly", "1");
+        c.append("attr_parent* common; attr_ attr_poly");
+        assertEquals("attr_parent* common; attr_ 1", c.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlaceholderMustHavePrefix() {
+        new CodeWriter().substitute("poly", "1");
+    }
+
+    @Test
+    public void testStreamedCodeHashesLikeInMemory() {
+        String[] pieces = {
+            "/* generated from a.axp *", "/ ", "int32_t a[attr_poly];\n",
+            "  patchMeta.patchID = -12345;\n", "#include \"/tmp/none/a.h\"\n", "/* not a header */\n"
+        };
+        CodeWriter mem = new CodeWriter();
+        StringBuilder file = new StringBuilder();
+        CompiledPatchCache.SourceHash hash = new CompiledPatchCache.SourceHash(file);
+        CodeWriter streamed = new CodeWriter(hash);
+        for (CodeWriter c : new CodeWriter[] {mem, streamed}) {
+            c.substitute("attr_poly", "1");
+            for (String piece : pieces) {
+                c.append(piece);
+            }
+        }
+        assertEquals(mem.toString(), file.toString());
+        assertEquals(mem.length(), streamed.length());
+        String streamedHash = hash.finish();
+        assertEquals(CompiledPatchCache.hashSource(mem.toString()), streamedHash);
+        assertEquals(streamedHash, CompiledPatchCache.hashSource("/* other path */ int32_t a[1];\n"
+                + "  patchMeta.patchID = 777;\n#include \"/tmp/none/a.h\"\n/* not a header */\n"));
+    }
+
+    /* Patch.GenerateCode3() on a loaded thousand-object chain of gains and delays */
+    @Test
+    public void testBenchmarkThousandObjectPatch() throws Exception {
+        TestPatches lib = new TestPatches();
+        try {
+            StringBuilder objects = new StringBuilder();
+            StringBuilder nets = new StringBuilder();
+            for (int i = 0; i < OBJECT_COUNT; i++) {
+                if (i % 2 == 0) {
+                    objects.append(TestPatches.obj("gain", "gain_" + i, 0, i * 40, ""));
+                }
+                else {
+                    objects.append(TestPatches.obj("delay", "delay_" + i, 200, i * 40, "<table attributeName=\"len\" table=\"" + (16 + i) + "\"/>"));
+                }
+                if (i > 0) {
+                    nets.append(i % 2 == 0
+                            ? TestPatches.net("delay_" + (i - 1), "out", "gain_" + i, "in")
+                            : TestPatches.net("gain_" + (i - 1), "out", "delay_" + i, "in"));
+                }
+            }
+            Patch patch = lib.open(objects.toString(), nets.toString());
+            assertEquals(OBJECT_COUNT, patch.objectInstances.size());
+
+            String code = null;
+            long nanos = Long.MAX_VALUE;
+            for (int run = 0; run < 5; run++) {
+                long t0 = System.nanoTime();
+                code = TestPatches.generate(patch);
+                nanos = Math.min(nanos, System.nanoTime() - t0);
+            }
+
+            assertTrue(code.contains(patch.objectInstances.get(OBJECT_COUNT - 1).getCInstanceName() + "_i"));
+            assertFalse(code.contains("attr_poly"));
+            assertFalse(code.contains("attr_len"));
+            LOGGER.log(Level.FINE, String.format("Patch.GenerateCode3 benchmark, %d objects, %d kB: %.1f ms",
+                    OBJECT_COUNT, code.length() / 1024, nanos / 1e6));
+        }
+        finally {
+            lib.delete();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package test.java.axoloti.utils;
+
+import axoloti.utils.ExecutionOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ExecutionOrderTest {
+
+    private static final Comparator<Integer> BY_INDEX = Integer::compare;
+
+    /* What Patch.SortParentsByExecution() did, on node indices */
+    private static void legacyParents(int o, int[][] parents, LinkedList<Integer> result) {
+        LinkedList<Integer> before = new LinkedList<Integer>(result);
+        LinkedList<Integer> ps = new LinkedList<Integer>();
+        for (int p : parents[o]) {
+            ps.add(p);
+        }
+        Collections.sort(ps, BY_INDEX);
+        for (Integer c : ps) {
+            if (result.contains(c))
+                result.remove(c);
+            result.addFirst(c);
+        }
+        for (Integer c : ps) {
+            if (!before.contains(c))
+                legacyParents(c, parents, result);
+        }
+    }
+
+    /* What Patch.SortByExecution() did, on node indices */
+    private static List<Integer> legacy(int[][] parents, boolean[] endpoint) {
+        LinkedList<Integer> endpoints = new LinkedList<Integer>();
+        LinkedList<Integer> result = new LinkedList<Integer>();
+        for (int i = 0; i < parents.length; i++) {
+            if (endpoint[i]) {
+                endpoints.add(i);
+            }
+        }
+        Collections.sort(endpoints, BY_INDEX);
+        for (int o : endpoints) {
+            legacyParents(o, parents, result);
+        }
+        result.addAll(endpoints);
+        return result;
+    }
+
+    /* Nodes feeding nothing */
+    private static boolean[] endpoints(int[][] parents) {
+        boolean[] endpoint = new boolean[parents.length];
+        Arrays.fill(endpoint, true);
+        for (int[] ps : parents) {
+            for (int p : ps) {
+                endpoint[p] = false;
+            }
+        }
+        return endpoint;
+    }
+
+    private static int[] sort(int[][] parents) {
+        return ExecutionOrder.sort(parents, endpoints(parents), BY_INDEX);
+    }
+
+    @Test
+    public void testSiblingParentsInReversePositionOrder() {
+        /* 3 is fed by 0, 1 and 2 */
+        assertArrayEquals(new int[]{2, 1, 0, 3}, sort(new int[][]{{}, {}, {}, {0, 1, 2}}));
+    }
+
+    @Test
+    public void testParentsOfLaterEndpointsGoFirst() {
+        /* 0 -> 2 -> 4, 1 -> 3 */
+        assertArrayEquals(new int[]{0, 2, 1, 3, 4}, sort(new int[][]{{}, {}, {0}, {1}, {2}}));
+    }
+
+    @Test
+    public void testUnreachedLoopGoesBeforeEndpoints() {
+        /* 0 -> 1 -> 0 feeds nothing else, 2 -> 3 */
+        int[] order = sort(new int[][]{{1}, {0}, {}, {2}});
+        assertArrayEquals(new int[]{2, 0, 1, 3}, order);
+    }
+
+    /* Random graphs with feedback loops, self loops and nets without destinations */
+    @Test
+    public void testMatchesLegacyOrder() {
+        Random rnd = new Random(19);
+        for (int iter = 0; iter < 3000; iter++) {
+            int count = 1 + rnd.nextInt(30);
+            int[][] parents = new int[count][];
+            for (int i = 0; i < count; i++) {
+                LinkedHashSet<Integer> ps = new LinkedHashSet<Integer>();
+                for (int k = rnd.nextInt(4); k > 0; k--) {
+                    ps.add(rnd.nextInt(count));
+                }
+                parents[i] = ps.stream().mapToInt(Integer::intValue).toArray();
+            }
+            boolean[] endpoint = endpoints(parents);
+            for (int i = 0; i < count; i++) {
+                if (endpoint[i] && rnd.nextInt(8) == 0) {
+                    endpoint[i] = false; /* Outlet with a dangling net */
+                }
+            }
+
+            List<Integer> expected = legacy(parents, endpoint);
+            int[] order = ExecutionOrder.sort(parents, endpoint, BY_INDEX);
+            assertEquals(count, order.length);
+            assertEquals(count, Arrays.stream(order).distinct().count());
+            ArrayList<Integer> reached = new ArrayList<Integer>();
+            for (int i : order) {
+                if (expected.contains(i)) {
+                    reached.add(i);
+                }
+            }
+            assertEquals(expected, reached);
+        }
+    }
+
+    /* Synthetic 5000 object patches: a deep chain, and layers with random wiring */
+    @Test
+    public void testBenchmark5000Objects() {
+        int count = 5000;
+        int[][] chain = new int[count][];
+        for (int i = 0; i < count; i++) {
+            /* Reversed, so position order is the opposite of execution order */
+            chain[i] = i < count - 1 ? new int[]{i + 1} : new int[0];
+        }
+
+        Random rnd = new Random(5000);
+        int layers = 50;
+        int perLayer = count / layers;
+        int[][] layered = new int[count][];
+        int edges = 0;
+        for (int i = 0; i < count; i++) {
+            LinkedHashSet<Integer> ps = new LinkedHashSet<Integer>();
+            int layer = i / perLayer;
+            for (int k = 0; layer > 0 && k < 3; k++) {
+                ps.add(rnd.nextInt(layer) * perLayer + rnd.nextInt(perLayer));
+            }
+            layered[i] = ps.stream().mapToInt(Integer::intValue).toArray();
+            edges += layered[i].length;
+        }
+        boolean[] chainEnd = endpoints(chain);
+        boolean[] layeredEnd = endpoints(layered);
+
+        for (int warmup = 0; warmup < 3; warmup++) {
+            ExecutionOrder.sort(chain, chainEnd, BY_INDEX);
+            ExecutionOrder.sort(layered, layeredEnd, BY_INDEX);
+        }
+        long t0 = System.nanoTime();
+        int[] chainOrder = ExecutionOrder.sort(chain, chainEnd, BY_INDEX);
+        long t1 = System.nanoTime();
+        int[] layeredOrder = ExecutionOrder.sort(layered, layeredEnd, BY_INDEX);
+        long t2 = System.nanoTime();
+        List<Integer> layeredLegacy = legacy(layered, layeredEnd);
+        long t3 = System.nanoTime();
+
+        assertEquals(count - 1, chainOrder[0]);
+        assertEquals(0, chainOrder[count - 1]);
+        ArrayList<Integer> reached = new ArrayList<Integer>();
+        for (int i : layeredOrder) {
+            reached.add(i);
+        }
+        assertEquals(layeredLegacy, reached);
+        System.out.println(String.format("ExecutionOrder benchmark, %d objects: chain %.2f ms, %d layers with %d edges %.2f ms (was %.1f ms)",
+                count, (t1 - t0) / 1e6, layers, edges, (t2 - t1) / 1e6, (t3 - t2) / 1e6));
+    }
+}
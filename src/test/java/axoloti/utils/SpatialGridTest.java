@@ -0,0 +1,81 @@
+package test.java.axoloti.utils;
+
+import axoloti.utils.SpatialGrid;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SpatialGridTest {
+
+    @Test
+    public void testQueryRectangleReturnsEachIntersectingItemOnce() {
+        SpatialGrid<String> grid = new SpatialGrid<String>(100);
+        grid.put("wide", new Rectangle(50, 50, 300, 20)); /* Spans four cells */
+        grid.put("small", new Rectangle(500, 500, 10, 10));
+        List<String> hits = grid.query(new Rectangle(0, 0, 400, 400));
+        assertEquals(1, hits.size());
+        assertEquals("wide", hits.get(0));
+        assertTrue(grid.query(new Rectangle(360, 0, 100, 100)).isEmpty());
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        SpatialGrid<String> grid = new SpatialGrid<String>(100);
+        grid.put("a", new Rectangle(10, 10, 20, 20));
+        assertFalse(grid.update("b", new Rectangle(10, 10, 20, 20)));
+        assertTrue(grid.update("a", new Rectangle(1000, 1000, 20, 20)));
+        assertTrue(grid.query(new Point(15, 15)).isEmpty());
+        assertEquals("a", grid.query(new Point(1010, 1010)).get(0));
+        grid.remove("a");
+        assertEquals(0, grid.size());
+        assertTrue(grid.query(new Point(1010, 1010)).isEmpty());
+    }
+
+    @Test
+    public void testNegativeCoordinates() {
+        SpatialGrid<String> grid = new SpatialGrid<String>(100);
+        grid.put("a", new Rectangle(-150, -30, 20, 20));
+        assertEquals(1, grid.query(new Point(-140, -20)).size());
+        assertEquals(1, grid.query(new Rectangle(-200, -200, 100, 200)).size());
+    }
+
+    /* Rubber band selection on a patch with 2000 objects, versus testing every object */
+    @Test
+    public void testBenchmarkAgainstLinearScan() {
+        Random rnd = new Random(1);
+        SpatialGrid<Rectangle> grid = new SpatialGrid<Rectangle>(128);
+        ArrayList<Rectangle> objects = new ArrayList<Rectangle>();
+        for (int i = 0; i < 2000; i++) {
+            Rectangle r = new Rectangle(rnd.nextInt(4800), rnd.nextInt(4800), 60 + rnd.nextInt(100), 40 + rnd.nextInt(100));
+            objects.add(r);
+            grid.put(r, r);
+        }
+        int queries = 20000;
+        long t0 = System.nanoTime();
+        int gridHits = 0;
+        for (int i = 0; i < queries; i++) {
+            gridHits += grid.query(new Rectangle(i % 4000, (i * 7) % 4000, 300, 200)).size();
+        }
+        long t1 = System.nanoTime();
+        int scanHits = 0;
+        for (int i = 0; i < queries; i++) {
+            Rectangle q = new Rectangle(i % 4000, (i * 7) % 4000, 300, 200);
+            for (Rectangle r : objects) {
+                if (r.intersects(q)) {
+                    scanHits++;
+                }
+            }
+        }
+        long t2 = System.nanoTime();
+        assertEquals(scanHits, gridHits);
+        System.out.println(String.format("SpatialGrid benchmark, %d objects, %d queries: grid %.1f ms, linear scan %.1f ms",
+                objects.size(), queries, (t1 - t0) / 1e6, (t2 - t1) / 1e6));
+    }
+}
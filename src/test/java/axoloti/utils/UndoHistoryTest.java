@@ -0,0 +1,106 @@
+package test.java.axoloti.utils;
+
+import axoloti.utils.UndoHistory;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class UndoHistoryTest {
+
+    /* Something shaped like a serialized patch, with one line per object */
+    private static String patch(int[] values) {
+        StringBuilder sb = new StringBuilder("<patch-1.0 appVersion=\"1.0.12\">\n");
+        for (int i = 0; i < values.length; i++) {
+            sb.append("  <obj type=\"math/+\" name=\"obj_").append(i).append("\" x=\"").append(values[i]).append("\" y=\"40\"/>\n");
+        }
+        sb.append("  <nets/>\n</patch-1.0>");
+        return sb.toString();
+    }
+
+    @Test
+    public void testRoundTripAcrossKeyframes() {
+        UndoHistory h = new UndoHistory(Long.MAX_VALUE);
+        ArrayList<String> states = new ArrayList<String>();
+        int[] values = new int[50];
+        Random rnd = new Random(20);
+        for (int i = 0; i < 100; i++) {
+            values[rnd.nextInt(values.length)] = rnd.nextInt(1000);
+            states.add(patch(values));
+            h.add(states.get(i));
+        }
+        assertEquals(100, h.size());
+        /* Backwards, forwards and at random, as undo and redo would */
+        for (int i = 99; i >= 0; i--) {
+            assertEquals(states.get(i), h.get(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(states.get(i), h.get(i));
+        }
+        for (int k = 0; k < 50; k++) {
+            int i = rnd.nextInt(100);
+            assertEquals(states.get(i), h.get(i));
+        }
+    }
+
+    @Test
+    public void testSetKeepsNextStateIntact() {
+        UndoHistory h = new UndoHistory(Long.MAX_VALUE);
+        h.add(patch(new int[]{1, 2, 3}));
+        h.add(patch(new int[]{1, 5, 3}));
+        h.add(patch(new int[]{1, 5, 7}));
+        h.set(1, patch(new int[]{9, 9, 9}));
+        assertEquals(patch(new int[]{1, 2, 3}), h.get(0));
+        assertEquals(patch(new int[]{9, 9, 9}), h.get(1));
+        assertEquals(patch(new int[]{1, 5, 7}), h.get(2));
+        h.truncate(2);
+        assertEquals(2, h.size());
+        h.add("");
+        assertEquals("", h.get(2));
+    }
+
+    @Test
+    public void testTrimDropsOldestStatesOnly() {
+        UndoHistory h = new UndoHistory(2000);
+        int[] values = new int[200];
+        for (int i = 0; i < 60; i++) {
+            values[i] = i * 7;
+            h.add(patch(values));
+        }
+        assertTrue(h.getMemoryUsage() > 2000);
+        int dropped = h.trim(10);
+        assertEquals(10, dropped);
+        assertEquals(50, h.size());
+        assertEquals(patch(values), h.get(49));
+        h.trim(Integer.MAX_VALUE);
+        assertTrue(h.getMemoryUsage() <= 2000 || h.size() == 1);
+        assertEquals(patch(values), h.get(h.size() - 1));
+    }
+
+    /* 500 edits of a 1000 object patch, versus keeping every snapshot as a string */
+    @Test
+    public void testBenchmarkMemory() {
+        UndoHistory h = new UndoHistory(Long.MAX_VALUE);
+        int[] values = new int[1000];
+        Random rnd = new Random(500);
+        long snapshotBytes = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 500; i++) {
+            values[rnd.nextInt(values.length)] = rnd.nextInt(5000);
+            String s = patch(values);
+            snapshotBytes += 2L * s.length();
+            h.add(s);
+        }
+        long t1 = System.nanoTime();
+        for (int i = 499; i >= 0; i--) {
+            h.get(i);
+        }
+        long t2 = System.nanoTime();
+        assertTrue(h.getMemoryUsage() * 20 < snapshotBytes);
+        System.out.println(String.format("UndoHistory benchmark, 500 states: %d kB instead of %d kB, add %.1f ms, undo all %.1f ms",
+                h.getMemoryUsage() / 1024, snapshotBytes / 1024, (t1 - t0) / 1e6, (t2 - t1) / 1e6));
+    }
+}
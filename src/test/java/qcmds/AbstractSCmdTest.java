@@ -0,0 +1,103 @@
+package test.java.qcmds;
+
+import axoloti.Connection;
+import qcmds.AbstractSCmd;
+import qcmds.SCmd;
+import qcmds.SCmdLatencyStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AbstractSCmdTest {
+
+    /* Completes from Do() with the given status, after an optional gate opens */
+    private static class TestSCmd extends AbstractSCmd {
+        final int status;
+        final CountDownLatch gate;
+        final List<String> log;
+        final String name;
+
+        TestSCmd(String name, int status, CountDownLatch gate, List<String> log) {
+            this.name = name;
+            this.status = status;
+            this.gate = gate;
+            this.log = log;
+        }
+
+        @Override
+        public SCmd Do(Connection connection) {
+            try {
+                if (gate != null) {
+                    gate.await(5, TimeUnit.SECONDS);
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            log.add(name);
+            setCompletedWithStatus(status);
+            return this;
+        }
+
+        @Override
+        public String GetStartMessage() {
+            return null;
+        }
+
+        @Override
+        public String GetDoneMessage() {
+            return null;
+        }
+    }
+
+    @Test
+    public void testDoAsyncRunsCommandsInOrder() throws Exception {
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        CountDownLatch gate = new CountDownLatch(1);
+        CompletableFuture<SCmd> first = new TestSCmd("first", 0, gate, log).DoAsync(null);
+        CompletableFuture<SCmd> second = new TestSCmd("second", 1, null, log).DoAsync(null);
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+        gate.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccessful());
+        assertFalse(second.get(5, TimeUnit.SECONDS).isSuccessful());
+        assertEquals(2, log.size());
+        assertEquals("first", log.get(0));
+        assertEquals("second", log.get(1));
+    }
+
+    @Test
+    public void testSequenceStopsAtFailure() throws Exception {
+        List<String> log = Collections.synchronizedList(new ArrayList<String>());
+        SCmd result = new TestSCmd("stop", 1, null, log).DoAsync(null)
+                .thenCompose(c -> c.isSuccessful() ? new TestSCmd("start", 0, null, log).DoAsync(null) : CompletableFuture.completedFuture(c))
+                .get(5, TimeUnit.SECONDS);
+        assertFalse(result.isSuccessful());
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    public void testWaitForCompletionTimesOut() throws Exception {
+        TestSCmd cmd = new TestSCmd("never", 0, null, new ArrayList<String>());
+        assertFalse(cmd.waitForCompletion(10));
+        cmd.setCompletedWithStatus(0);
+        assertTrue(cmd.waitForCompletion(10));
+        assertTrue(cmd.getCompletion().isDone());
+    }
+
+    @Test
+    public void testLatencyIsRecorded() throws Exception {
+        TestSCmd cmd = new TestSCmd("timed", 0, null, new ArrayList<String>());
+        cmd.DoAsync(null).get(5, TimeUnit.SECONDS);
+        assertTrue(SCmdLatencyStatistics.getSummary().contains("TestSCmd"));
+    }
+}